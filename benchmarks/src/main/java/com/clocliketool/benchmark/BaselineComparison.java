@@ -0,0 +1,135 @@
+package com.clocliketool.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 比较两次基准测试结果（JMH的CSV格式，-rf csv）
+ * 逐项列出相对基线的变化，变差超过阈值的项标记为回退，存在回退时以非0状态码退出。
+ * 
+ * 用法: BaselineComparison <基线结果.csv> <本次结果.csv> [阈值百分比，默认10]
+ */
+public class BaselineComparison {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BaselineComparison <基线结果.csv> <本次结果.csv> [阈值百分比]");
+            System.exit(2);
+        }
+        
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Score> baseline = readResults(args[0]);
+        Map<String, Score> current = readResults(args[1]);
+        
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null || before.value == 0) {
+                System.out.printf(Locale.ROOT, "%-8s %s: %.3f %s%n", "新增", entry.getKey(), after.value, after.unit);
+                continue;
+            }
+            
+            // 吞吐量越大越好，平均时间越小越好
+            double change = (after.value - before.value) / before.value * 100;
+            double improvement = after.higherIsBetter ? change : -change;
+            boolean regressed = improvement < -threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%-8s %s: %.3f -> %.3f %s (%+.1f%%)%n",
+                    regressed ? "回退" : "正常", entry.getKey(), before.value, after.value, after.unit, change);
+        }
+        
+        if (regressions > 0) {
+            System.out.println("共有 " + regressions + " 项性能回退超过 " + threshold + "%");
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * 读取JMH的CSV结果，以"测试名 参数列表"为键
+     */
+    private static Map<String, Score> readResults(String path) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        Map<String, Score> results = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return results;
+        }
+        
+        List<String> header = parseCsvLine(lines.get(0));
+        int modeColumn = header.indexOf("Mode");
+        int scoreColumn = header.indexOf("Score");
+        int unitColumn = header.indexOf("Unit");
+        
+        for (int i = 1; i < lines.size(); i++) {
+            List<String> fields = parseCsvLine(lines.get(i));
+            if (fields.size() < header.size()) {
+                continue;
+            }
+            
+            StringBuilder key = new StringBuilder(fields.get(0));
+            for (int column = unitColumn + 1; column < header.size(); column++) {
+                // 只运行部分测试时参数列不同，未使用的参数不参与比较
+                if (!fields.get(column).isEmpty()) {
+                    key.append(' ').append(header.get(column).replace("Param: ", ""))
+                            .append('=').append(fields.get(column));
+                }
+            }
+            
+            String mode = fields.get(modeColumn);
+            double value = Double.parseDouble(fields.get(scoreColumn));
+            results.put(key.toString(), new Score(value, fields.get(unitColumn), "thrpt".equals(mode)));
+        }
+        return results;
+    }
+    
+    /**
+     * 解析一行CSV，支持双引号包围的字段
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    /**
+     * 单项测试结果
+     */
+    private static class Score {
+        private final double value;
+        private final String unit;
+        private final boolean higherIsBetter;
+        
+        Score(double value, String unit, boolean higherIsBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
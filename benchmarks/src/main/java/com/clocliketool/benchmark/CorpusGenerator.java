@@ -0,0 +1,250 @@
+package com.clocliketool.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成源代码生成器
+ * 相同的种子和参数总是生成完全相同的内容，保证不同版本之间的测试结果可以比较。
+ * 可以调整平均行长度、注释密度和代码块嵌套深度。
+ */
+public class CorpusGenerator {
+    
+    /**
+     * 生成的源代码语言
+     */
+    public enum Language {
+        C("c"),
+        CPP("cpp"),
+        RUBY("rb");
+        
+        private final String extension;
+        
+        Language(String extension) {
+            this.extension = extension;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    private static final String[] WORDS = {
+        "count", "buffer", "index", "value", "result", "node", "parser", "state",
+        "offset", "length", "token", "stream", "cache", "entry", "handler", "config"
+    };
+    
+    private final Random random;
+    private final int lineLength;
+    private final double commentDensity;
+    private final int maxNesting;
+    
+    /**
+     * @param seed 随机数种子
+     * @param lineLength 代码行的平均长度（字符数）
+     * @param commentDensity 注释行占全部行的大致比例（0到1之间）
+     * @param maxNesting 代码块的最大嵌套深度
+     */
+    public CorpusGenerator(long seed, int lineLength, double commentDensity, int maxNesting) {
+        this.random = new Random(seed);
+        this.lineLength = Math.max(16, lineLength);
+        this.commentDensity = commentDensity;
+        this.maxNesting = Math.max(1, maxNesting);
+    }
+    
+    /**
+     * 在目录中生成指定数量的源文件
+     * 
+     * @param directory 输出目录
+     * @param language 源代码语言
+     * @param files 文件数量
+     * @param linesPerFile 每个文件的大致行数
+     * @return 生成的文件列表
+     * @throws IOException 如果写入失败
+     */
+    public List<Path> writeCorpus(Path directory, Language language, int files, int linesPerFile) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> paths = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            Path path = directory.resolve("source" + i + "." + language.getExtension());
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writer.write(generate(language, linesPerFile));
+            }
+            paths.add(path);
+        }
+        return paths;
+    }
+    
+    /**
+     * 生成一个源文件的内容
+     * 
+     * @param language 源代码语言
+     * @param lines 大致行数
+     * @return 源代码文本
+     */
+    public String generate(Language language, int lines) {
+        StringBuilder sb = new StringBuilder(lines * (lineLength + 8));
+        int depth = 0;
+        int written = 0;
+        while (written < lines) {
+            double roll = random.nextDouble();
+            if (roll < commentDensity) {
+                written += appendComment(sb, language, depth);
+            } else if (roll < commentDensity + 0.05) {
+                sb.append('\n');
+                written++;
+            } else if (depth < maxNesting && roll < commentDensity + 0.15) {
+                appendBlockStart(sb, language, depth);
+                depth++;
+                written++;
+            } else if (depth > 0 && roll < commentDensity + 0.25) {
+                depth--;
+                appendBlockEnd(sb, language, depth);
+                written++;
+            } else {
+                appendStatement(sb, language, depth);
+                written++;
+            }
+        }
+        while (depth > 0) {
+            depth--;
+            appendBlockEnd(sb, language, depth);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 生成一棵只包含空文件的目录树，用于测试目录遍历
+     * 
+     * @param root 根目录
+     * @param entries 文件和目录的总数
+     * @param fanOut 每个目录包含的条目数
+     * @throws IOException 如果创建失败
+     */
+    public static void writeTree(Path root, int entries, int fanOut) throws IOException {
+        Files.createDirectories(root);
+        List<Path> directories = new ArrayList<>();
+        directories.add(root);
+        int created = 0;
+        int next = 0;
+        while (created < entries) {
+            Path parent = directories.get(next++);
+            for (int i = 0; i < fanOut && created < entries; i++) {
+                // 每个目录中约四分之一的条目是子目录
+                if (i % 4 == 0) {
+                    Path directory = parent.resolve("dir" + i);
+                    Files.createDirectory(directory);
+                    directories.add(directory);
+                } else {
+                    Language language = Language.values()[i % Language.values().length];
+                    Files.createFile(parent.resolve("file" + i + "." + language.getExtension()));
+                }
+                created++;
+            }
+        }
+    }
+    
+    private int appendComment(StringBuilder sb, Language language, int depth) {
+        if (random.nextInt(4) == 0) {
+            int lines = 2 + random.nextInt(4);
+            if (language == Language.RUBY) {
+                sb.append("=begin\n");
+                for (int i = 0; i < lines; i++) {
+                    appendWords(sb, lineLength).append('\n');
+                }
+                sb.append("=end\n");
+            } else {
+                indent(sb, depth).append("/*\n");
+                for (int i = 0; i < lines; i++) {
+                    indent(sb, depth).append(" * ");
+                    appendWords(sb, lineLength).append('\n');
+                }
+                indent(sb, depth).append(" */\n");
+            }
+            return lines + 2;
+        }
+        
+        indent(sb, depth).append(language == Language.RUBY ? "# " : "// ");
+        appendWords(sb, lineLength).append('\n');
+        return 1;
+    }
+    
+    private void appendBlockStart(StringBuilder sb, Language language, int depth) {
+        String name = word();
+        indent(sb, depth);
+        if (language == Language.RUBY) {
+            sb.append(depth == 0 ? "def " + name + "(" + word() + ")" : "if " + name + " > " + random.nextInt(100));
+        } else if (depth == 0) {
+            sb.append(language == Language.CPP ? "auto " : "int ").append(name).append("(int ").append(word())
+                    .append(") {");
+        } else {
+            sb.append("if (").append(name).append(" > ").append(random.nextInt(100)).append(") {");
+        }
+        sb.append('\n');
+    }
+    
+    private void appendBlockEnd(StringBuilder sb, Language language, int depth) {
+        indent(sb, depth).append(language == Language.RUBY ? "end" : "}").append('\n');
+    }
+    
+    private void appendStatement(StringBuilder sb, Language language, int depth) {
+        int start = sb.length();
+        indent(sb, depth);
+        String target = word();
+        if (language == Language.RUBY) {
+            sb.append(target).append(" = ");
+            if (random.nextInt(5) == 0) {
+                sb.append("\"").append(word()).append(" #{").append(word()).append("} # not a comment\"");
+            } else {
+                sb.append(word()).append(".call(").append(random.nextInt(1000)).append(')');
+            }
+        } else {
+            sb.append(language == Language.CPP ? "auto " : "int ").append(target).append(" = ");
+            if (random.nextInt(5) == 0) {
+                sb.append("strlen(\"").append(word()).append(" /* not a comment */\")");
+            } else {
+                sb.append(word()).append("(").append(random.nextInt(1000)).append(')');
+            }
+        }
+        
+        // 用运算补足到目标行长度
+        int targetLength = lineLength / 2 + random.nextInt(lineLength);
+        while (sb.length() - start < targetLength) {
+            sb.append(" + ").append(word());
+        }
+        
+        if (language != Language.RUBY) {
+            sb.append(';');
+        }
+        if (random.nextDouble() < commentDensity / 2) {
+            sb.append(language == Language.RUBY ? " # " : " // ").append(word());
+        }
+        sb.append('\n');
+    }
+    
+    private StringBuilder appendWords(StringBuilder sb, int length) {
+        int start = sb.length();
+        sb.append(word());
+        while (sb.length() - start < length) {
+            sb.append(' ').append(word());
+        }
+        return sb;
+    }
+    
+    private StringBuilder indent(StringBuilder sb, int depth) {
+        for (int i = 0; i < depth; i++) {
+            sb.append("    ");
+        }
+        return sb;
+    }
+    
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,115 @@
+package com.clocliketool.benchmark;
+
+import com.clocliketool.counter.LineCounter;
+import com.clocliketool.counter.LineCounterFactory;
+import com.clocliketool.model.LineCountResult;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行计数器吞吐量基准测试
+ * 每次调用统计一遍生成的语料。除调用次数外，辅助计数器megabytes和lines
+ * 分别给出每秒处理的MB数和行数。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+    
+    @Param({"c", "cpp", "ruby"})
+    public String language;
+    
+    /** 代码行的平均长度 */
+    @Param({"40", "120"})
+    public int lineLength;
+    
+    /** 注释行比例 */
+    @Param({"0.1", "0.4"})
+    public double commentDensity;
+    
+    /** 代码块最大嵌套深度 */
+    @Param({"4"})
+    public int nesting;
+    
+    private static final int FILES = 64;
+    private static final int LINES_PER_FILE = 2000;
+    
+    private Path directory;
+    private File[] files;
+    private long corpusBytes;
+    private long corpusLines;
+    private LineCounter counter;
+    
+    /**
+     * 每次迭代处理的数据量
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public double megabytes;
+        public long lines;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+            lines = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CorpusGenerator.Language generated = "ruby".equals(language) ? CorpusGenerator.Language.RUBY
+                : "cpp".equals(language) ? CorpusGenerator.Language.CPP : CorpusGenerator.Language.C;
+        CorpusGenerator generator = new CorpusGenerator(42, lineLength, commentDensity, nesting);
+        
+        directory = Files.createTempDirectory("cloc-bench-counter");
+        List<Path> paths = generator.writeCorpus(directory, generated, FILES, LINES_PER_FILE);
+        
+        counter = LineCounterFactory.createCounter(language);
+        files = new File[paths.size()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = paths.get(i).toFile();
+            corpusBytes += files[i].length();
+            corpusLines += counter.countLines(files[i]).getTotalLines();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(directory);
+    }
+    
+    @Benchmark
+    public long countCorpus(Throughput throughput) throws IOException {
+        long code = 0;
+        for (File file : files) {
+            LineCountResult result = counter.countLines(file);
+            code += result.getCodeLines();
+        }
+        throughput.megabytes += corpusBytes / 1e6;
+        throughput.lines += corpusLines;
+        return code;
+    }
+}
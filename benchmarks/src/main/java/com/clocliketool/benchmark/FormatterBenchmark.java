@@ -0,0 +1,72 @@
+package com.clocliketool.benchmark;
+
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.util.JsonReportFormatter;
+import com.clocliketool.util.ResultFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 结果格式化基准测试
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatterBenchmark {
+    
+    /** 结果表中的语言数量 */
+    @Param({"3", "50"})
+    public int languages;
+    
+    private Map<String, LineCountResult> languageResults;
+    private int totalFiles;
+    private AnalysisReport report;
+    private final JsonReportFormatter jsonFormatter = new JsonReportFormatter();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        languageResults = new HashMap<>();
+        for (int i = 0; i < languages; i++) {
+            LineCountResult result = new LineCountResult();
+            int files = 1 + random.nextInt(5000);
+            for (int f = 0; f < files; f++) {
+                result.merge(new LineCountResult(random.nextInt(2000), random.nextInt(500), random.nextInt(300)));
+            }
+            languageResults.put("Language" + i, result);
+            totalFiles += files;
+        }
+        report = new AnalysisReport(languageResults, totalFiles, null, null, -1);
+    }
+    
+    @Benchmark
+    public String formatResults() {
+        return ResultFormatter.formatResults(languageResults, totalFiles);
+    }
+    
+    @Benchmark
+    public void formatJson() throws IOException {
+        jsonFormatter.format(report, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,87 @@
+package com.clocliketool.benchmark;
+
+import com.clocliketool.util.DirectoryScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 目录遍历基准测试
+ * 在包含指定数量条目的目录树上测量一次完整遍历的耗时。
+ * 生成百万级条目的目录树需要较长时间和较多inode，可以通过 -p entries=... 选择规模。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+    
+    private static final String[] EXTENSIONS = {"c", "cpp", "rb"};
+    
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+    
+    /** 每个目录包含的条目数 */
+    @Param({"32"})
+    public int fanOut;
+    
+    /** 并行遍历的线程数 */
+    @Param({"4"})
+    public int parallelism;
+    
+    private Path root;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("cloc-bench-scanner");
+        CorpusGenerator.writeTree(root, entries, fanOut);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(root);
+    }
+    
+    @Benchmark
+    public long scanDirectory() {
+        long[] matched = new long[1];
+        File directory = root.toFile();
+        DirectoryScanner.walkDirectory(directory, EXTENSIONS, source -> matched[0]++);
+        return matched[0];
+    }
+    
+    @Benchmark
+    public long scanDirectoryInParallel() {
+        LongAdder matched = new LongAdder();
+        DirectoryScanner.walkDirectoryInParallel(root.toFile(), EXTENSIONS, source -> matched.increment(),
+                parallelism, false);
+        return matched.sum();
+    }
+    
+    @Benchmark
+    public long scanDirectoryInParallelOrdered() {
+        long[] matched = new long[1];
+        DirectoryScanner.walkDirectoryInParallel(root.toFile(), EXTENSIONS, source -> matched[0]++,
+                parallelism, true);
+        return matched[0];
+    }
+}
@@ -1,11 +1,28 @@
 package com.clocliketool;
 
+import com.clocliketool.analyzer.DuplicateDetector;
 import com.clocliketool.analyzer.FileAnalyzer;
+import com.clocliketool.analyzer.HistoryAnalyzer;
+import com.clocliketool.analyzer.ProgressReporter;
+import com.clocliketool.cache.ResultCache;
 import com.clocliketool.cli.CommandLineProcessor;
 import com.clocliketool.counter.LineCounter;
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.FileResultStore;
 import com.clocliketool.model.LineCountResult;
+import com.clocliketool.server.AnalysisServer;
+import com.clocliketool.util.PartialResult;
+import com.clocliketool.util.ReportFormatter;
 import com.clocliketool.util.ResultFormatter;
+import com.clocliketool.util.ScanMetrics;
+import com.clocliketool.util.StreamingResultWriter;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +31,9 @@ import java.util.Map;
  */
 public class ApplicationRunner {
     
+    /** 输出分析进度的间隔 */
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    
     private final String[] args;
     
     public ApplicationRunner(String[] args) {
@@ -48,12 +68,131 @@ public class ApplicationRunner {
             return 1;
         }
         
+        if (cmdProcessor.shouldMergePartials()) {
+            return runMergePartials(cmdProcessor, paths);
+        }
+        
         // 获取指定的语言计数器
         List<LineCounter> counters = cmdProcessor.getSelectedCounters();
         
+        if (cmdProcessor.getGitHistory() != null) {
+            return runHistory(cmdProcessor, counters, paths);
+        }
+        
         // 执行文件分析
-        FileAnalyzer analyzer = new FileAnalyzer(counters);
+        FileAnalyzer analyzer = new FileAnalyzer(counters, cmdProcessor.getJobs());
+        analyzer.setMmapThreshold(cmdProcessor.getMmapThreshold());
+        // git版本中的文件以内容对象ID标识，不使用按路径和修改时间记录的结果缓存
+        boolean countGitRevision = cmdProcessor.getGitRevision() != null && !cmdProcessor.shouldServe();
+        if (countGitRevision && cmdProcessor.getCacheFile() != null) {
+            System.err.println("警告: 统计git版本时不支持--cache，已忽略");
+        }
+        ResultCache resultCache = countGitRevision ? null : loadResultCache(cmdProcessor);
+        analyzer.setResultCache(resultCache);
+        analyzer.setDirectoryWalk(cmdProcessor.getWalkThreads(), cmdProcessor.isWalkOrdered());
+        analyzer.setDiscoveryMode(cmdProcessor.getDiscoveryMode());
+        analyzer.setPathFilter(cmdProcessor.getPathFilter());
+        
+        if (cmdProcessor.shouldServe()) {
+            if (cmdProcessor.shouldDeduplicate()) {
+                System.err.println("警告: 常驻服务模式不支持--dedup，已忽略");
+            }
+            if (cmdProcessor.shouldCollectStats()) {
+                System.err.println("警告: 常驻服务模式不支持--stats，已忽略");
+            }
+            if (cmdProcessor.shouldScanArchives()) {
+                System.err.println("警告: 常驻服务模式不支持--archives，已忽略");
+            }
+            if (cmdProcessor.getGitRevision() != null) {
+                System.err.println("警告: 常驻服务模式不支持--git-rev，已忽略");
+            }
+            if (cmdProcessor.getShard() != null || cmdProcessor.getPartialOutputFile() != null) {
+                System.err.println("警告: 常驻服务模式不支持--shard和--emit-partial，已忽略");
+            }
+            return runServer(cmdProcessor, analyzer, paths, resultCache);
+        }
+        // 去重只在一次运行内有效，不同分片中的重复文件无法识别，部分结果中也不记录重复文件数
+        boolean partial = cmdProcessor.getShard() != null || cmdProcessor.getPartialOutputFile() != null;
+        if (partial && cmdProcessor.shouldDeduplicate()) {
+            System.err.println("警告: 使用--shard或--emit-partial时不支持--dedup，已忽略");
+        }
+        analyzer.setDeduplicate(cmdProcessor.shouldDeduplicate() && !partial);
+        analyzer.setArchives(cmdProcessor.shouldScanArchives(), cmdProcessor.getArchiveDepth());
+        analyzer.setGitRevision(cmdProcessor.getGitRevision());
+        analyzer.setShard(cmdProcessor.getShard());
+        
+        ScanMetrics metrics = cmdProcessor.shouldCollectStats() ? new ScanMetrics(cmdProcessor.getSlowestFileCount()) : null;
+        analyzer.setMetrics(metrics);
+        
+        // 流式输出到标准输出时，汇总结果改为输出到标准错误，避免与记录混在一起
+        PrintStream out = System.out;
+        StreamingResultWriter streamWriter = null;
+        FileResultStore fileResults = null;
+        if (cmdProcessor.shouldStream()) {
+            streamWriter = openStreamWriter(cmdProcessor);
+            if (streamWriter == null) {
+                return 1;
+            }
+            if (cmdProcessor.shouldReportByFile()) {
+                System.err.println("警告: 流式输出时不支持--by-file，已忽略");
+            }
+            if (cmdProcessor.getStreamOutputFile() == null) {
+                out = System.err;
+            }
+            analyzer.setFileResultListener(streamWriter);
+        } else if (cmdProcessor.shouldReportByFile()) {
+            FileResultStore store = new FileResultStore();
+            analyzer.setFileResultListener(store::add);
+            fileResults = store;
+        }
+        
+        ProgressReporter progressReporter = cmdProcessor.shouldShowProgress()
+                ? new ProgressReporter(analyzer, System.err, PROGRESS_INTERVAL_MILLIS) : null;
         boolean hasResults = analyzer.analyzePaths(paths);
+        if (progressReporter != null) {
+            progressReporter.close();
+        }
+        saveResultCache(resultCache);
+        if (streamWriter != null && !closeStreamWriter(streamWriter)) {
+            return 1;
+        }
+        
+        if (cmdProcessor.shouldShowWalkStatistics()) {
+            System.err.println(analyzer.getWalkStatistics());
+        }
+        
+        long formatStart = System.nanoTime();
+        File partialFile = cmdProcessor.getPartialOutputFile();
+        int exitCode = partialFile != null
+                ? writePartial(new PartialResult(analyzer.getLanguageResults(), analyzer.getTotalFiles(),
+                        cmdProcessor.getShard()), partialFile)
+                : printResults(cmdProcessor, analyzer, hasResults, fileResults, out);
+        if (metrics != null) {
+            metrics.setFormatNanos(System.nanoTime() - formatStart);
+            metrics.finish(analyzer.getCountedFiles(), analyzer.getCountedLines());
+            if (!writeMetrics(cmdProcessor, metrics)) {
+                exitCode = 1;
+            }
+        }
+        return exitCode;
+    }
+    
+    /**
+     * 输出统计结果
+     * 
+     * @return 执行结果码，0表示成功
+     */
+    private int printResults(CommandLineProcessor cmdProcessor, FileAnalyzer analyzer, boolean hasResults,
+                             FileResultStore fileResults, PrintStream out) {
+        // 以机器可读格式输出时，没有结果也输出空的报告
+        ReportFormatter reportFormatter = cmdProcessor.getReportFormatter();
+        if (reportFormatter != null) {
+            DuplicateDetector duplicateDetector = analyzer.getDuplicateDetector();
+            AnalysisReport report = new AnalysisReport(analyzer.getLanguageResults(), analyzer.getTotalFiles(),
+                    fileResults, fileResults != null ? selectFileIndices(cmdProcessor, fileResults) : null,
+                    duplicateDetector != null ? duplicateDetector.getDuplicateCount() : -1);
+            return writeReport(reportFormatter, report, out);
+        }
         
         // 处理结果
         if (hasResults) {
@@ -61,12 +200,297 @@ public class ApplicationRunner {
             int totalFiles = analyzer.getTotalFiles();
             
             // 打印结果
+            if (fileResults != null) {
+                printFileResults(fileResults, selectFileIndices(cmdProcessor, fileResults), out);
+            }
             String formattedResults = ResultFormatter.formatResults(languageResults, totalFiles);
-            System.out.println(formattedResults);
+            out.println(formattedResults);
+            printDuplicateSummary(analyzer.getDuplicateDetector(), out);
+        } else {
+            out.println("未找到匹配的文件。");
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * 输出耗时统计，文本输出到标准错误，JSON写入指定的文件
+     * 
+     * @return 写入成功时返回true
+     */
+    private boolean writeMetrics(CommandLineProcessor cmdProcessor, ScanMetrics metrics) {
+        if (cmdProcessor.shouldShowStats()) {
+            System.err.print(metrics);
+        }
+        
+        File statsFile = cmdProcessor.getStatsJsonFile();
+        if (statsFile == null) {
+            return true;
+        }
+        try (OutputStream statsOut = new FileOutputStream(statsFile)) {
+            metrics.writeJson(statsOut);
+            return true;
+        } catch (IOException e) {
+            System.err.println("错误: 无法写入统计文件: " + statsFile.getPath());
+            return false;
+        }
+    }
+    
+    /**
+     * 按命令行指定的列和数量选出要输出的文件
+     */
+    private int[] selectFileIndices(CommandLineProcessor cmdProcessor, FileResultStore fileResults) {
+        FileResultStore.Column column = cmdProcessor.getSortColumn();
+        boolean descending = column.isDescendingByDefault();
+        int top = cmdProcessor.getTopFiles();
+        return top >= 0 ? fileResults.top(column, descending, top) : fileResults.sortedIndices(column, descending);
+    }
+    
+    /**
+     * 按文件输出统计结果
+     */
+    private void printFileResults(FileResultStore fileResults, int[] indices, PrintStream out) {
+        out.println(ResultFormatter.formatFileResults(fileResults, indices));
+    }
+    
+    /**
+     * 以机器可读格式输出统计报告
+     * 
+     * @return 执行结果码，0表示成功
+     */
+    private int writeReport(ReportFormatter reportFormatter, AnalysisReport report, PrintStream out) {
+        try {
+            reportFormatter.format(report, out);
+        } catch (IOException e) {
+            System.err.println("错误: 写入统计报告时出错: " + e.getMessage());
+            return 1;
+        }
+        // PrintStream不抛出写入错误，需要单独检查
+        if (out.checkError()) {
+            System.err.println("错误: 写入统计报告时出错");
+            return 1;
+        }
+        return 0;
+    }
+    
+    /**
+     * 打开流式输出
+     * 
+     * @return 流式输出，格式无效或无法创建输出文件时返回null
+     */
+    private StreamingResultWriter openStreamWriter(CommandLineProcessor cmdProcessor) {
+        StreamingResultWriter.Format format = cmdProcessor.getStreamFormat();
+        if (format == null) {
+            return null;
+        }
+        
+        File outputFile = cmdProcessor.getStreamOutputFile();
+        if (outputFile == null) {
+            return new StreamingResultWriter(System.out, format, false);
+        }
+        try {
+            return new StreamingResultWriter(new FileOutputStream(outputFile), format, true);
+        } catch (IOException e) {
+            System.err.println("错误: 无法创建输出文件: " + outputFile.getPath());
+            return null;
+        }
+    }
+    
+    /**
+     * 关闭流式输出
+     * 
+     * @return 所有记录都写入成功时返回true
+     */
+    private boolean closeStreamWriter(StreamingResultWriter streamWriter) {
+        try {
+            streamWriter.close();
+            return true;
+        } catch (IOException e) {
+            System.err.println("错误: 写入流式输出时出错: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * 输出去重跳过的文件数
+     */
+    private void printDuplicateSummary(DuplicateDetector duplicateDetector, PrintStream out) {
+        if (duplicateDetector != null) {
+            out.println("已跳过 " + duplicateDetector.getDuplicateCount() + " 个重复文件（对 "
+                    + duplicateDetector.getHashedCount() + " 个文件计算了内容哈希）");
+        }
+    }
+    
+    /**
+     * 统计git仓库中一段历史的每个提交并输出
+     * 
+     * @return 执行结果码，0表示成功
+     */
+    private int runHistory(CommandLineProcessor cmdProcessor, List<LineCounter> counters, String[] paths) {
+        if (cmdProcessor.shouldServe()) {
+            System.err.println("警告: 历史统计不支持--serve，已忽略");
+        }
+        if (cmdProcessor.getGitRevision() != null) {
+            System.err.println("警告: 历史统计时忽略--git-rev");
+        }
+        if (cmdProcessor.shouldStream() || cmdProcessor.shouldReportByFile()) {
+            System.err.println("警告: 历史统计不支持按文件输出，已忽略--stream和--by-file");
+        }
+        if (cmdProcessor.shouldCollectStats()) {
+            System.err.println("警告: 历史统计不支持--stats，已忽略");
+        }
+        if (cmdProcessor.getShard() != null || cmdProcessor.getPartialOutputFile() != null) {
+            System.err.println("警告: 历史统计不支持--shard和--emit-partial，已忽略");
+        }
+        if (paths.length > 1) {
+            System.err.println("警告: 历史统计只统计第一个路径: " + paths[0]);
+        }
+        
+        String range = cmdProcessor.getGitHistory();
+        HistoryAnalyzer historyAnalyzer = new HistoryAnalyzer(counters, cmdProcessor.getJobs());
+        historyAnalyzer.setPathFilter(cmdProcessor.getPathFilter());
+        List<CommitReport> history;
+        try {
+            history = historyAnalyzer.analyze(new File(paths[0]), range);
+        } catch (IOException e) {
+            System.err.println("错误: 无法统计git仓库中的历史" + range + ": " + paths[0]);
+            System.err.println(e.getMessage());
+            return 1;
+        }
+        System.err.println("历史统计: " + history.size() + " 个提交，共 " + historyAnalyzer.getFileVersionCount()
+                + " 个文件版本，实际统计了 " + historyAnalyzer.getBlobCount() + " 个不同的文件内容（读取了 "
+                + historyAnalyzer.getTreeCount() + " 个目录树）");
+        
+        ReportFormatter reportFormatter = cmdProcessor.getReportFormatter();
+        if (reportFormatter == null) {
+            System.out.println(history.isEmpty() ? "范围中没有提交。" : ResultFormatter.formatHistory(history));
+            return 0;
+        }
+        try {
+            reportFormatter.formatHistory(history, System.out);
+        } catch (IOException e) {
+            System.err.println("错误: 写入统计报告时出错: " + e.getMessage());
+            return 1;
+        }
+        if (System.out.checkError()) {
+            System.err.println("错误: 写入统计报告时出错");
+            return 1;
+        }
+        return 0;
+    }
+    
+    /**
+     * 写出部分结果文件
+     * 
+     * @return 执行结果码，0表示成功
+     */
+    private int writePartial(PartialResult partial, File partialFile) {
+        try {
+            partial.write(partialFile);
+        } catch (IOException e) {
+            System.err.println("错误: 无法写入部分结果文件: " + partialFile.getPath());
+            return 1;
+        }
+        System.err.println("已写入部分结果: " + partialFile.getPath() + "（" + partial.describeShards() + "，"
+                + partial.getTotalFiles() + " 个文件）");
+        return 0;
+    }
+    
+    /**
+     * 合并命令行中指定的部分结果文件，输出最终报告或写出合并后的部分结果
+     * 
+     * @return 执行结果码，0表示成功
+     */
+    private int runMergePartials(CommandLineProcessor cmdProcessor, String[] paths) {
+        PartialResult merged = null;
+        for (String path : paths) {
+            try {
+                PartialResult partial = PartialResult.read(new File(path));
+                merged = merged == null ? partial : merged.merge(partial);
+            } catch (IOException e) {
+                System.err.println("错误: 无法读取部分结果文件: " + path);
+                System.err.println(e.getMessage());
+                return 1;
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                System.err.println("错误: 无法合并部分结果文件: " + path);
+                System.err.println(e.getMessage());
+                return 1;
+            }
+        }
+        
+        // 合并的中间结果可以继续参与下一层合并，不检查分片是否齐全
+        File partialFile = cmdProcessor.getPartialOutputFile();
+        if (partialFile != null) {
+            return writePartial(merged, partialFile);
+        }
+        
+        List<Integer> missing = merged.getMissingShards();
+        if (!missing.isEmpty()) {
+            System.err.println("警告: 缺少分片 " + missing + "（共 " + merged.getShardCount() + " 片），报告不完整");
+        }
+        
+        Map<String, LineCountResult> languageResults = merged.getLanguageResults();
+        int totalFiles = Math.toIntExact(merged.getTotalFiles());
+        ReportFormatter reportFormatter = cmdProcessor.getReportFormatter();
+        if (reportFormatter != null) {
+            return writeReport(reportFormatter, new AnalysisReport(languageResults, totalFiles, null, null, -1),
+                    System.out);
+        }
+        if (totalFiles > 0) {
+            System.out.println(ResultFormatter.formatResults(languageResults, totalFiles));
         } else {
             System.out.println("未找到匹配的文件。");
         }
+        return 0;
+    }
+    
+    /**
+     * 以常驻服务模式运行，直到收到停止命令
+     * 
+     * @return 执行结果码，0表示成功
+     */
+    private int runServer(CommandLineProcessor cmdProcessor, FileAnalyzer analyzer, String[] paths,
+                          ResultCache resultCache) {
+        int port = cmdProcessor.getServePort();
+        if (port < 0) {
+            return 1;
+        }
         
+        try {
+            new AnalysisServer(analyzer, paths, port).run();
+        } catch (IOException e) {
+            System.err.println("错误: 无法启动服务: " + e.getMessage());
+            return 1;
+        }
+        
+        saveResultCache(resultCache);
         return 0;
     }
+    
+    /**
+     * 加载增量统计缓存
+     * 
+     * @return 结果缓存，未指定缓存文件时返回null
+     */
+    private ResultCache loadResultCache(CommandLineProcessor cmdProcessor) {
+        File cacheFile = cmdProcessor.getCacheFile();
+        if (cacheFile == null) {
+            return null;
+        }
+        return ResultCache.load(cacheFile, cmdProcessor.shouldUseCacheHashes());
+    }
+    
+    /**
+     * 将增量统计缓存写回磁盘，写入失败不影响统计结果
+     */
+    private void saveResultCache(ResultCache resultCache) {
+        if (resultCache == null) {
+            return;
+        }
+        try {
+            resultCache.save();
+        } catch (IOException e) {
+            System.err.println("警告: 无法写入缓存文件: " + e.getMessage());
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.clocliketool.analyzer;
+
+import com.clocliketool.cache.ContentHasher;
+import com.clocliketool.model.SourceFile;
+import com.clocliketool.util.LongHashSet;
+import com.clocliketool.util.LongIntHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 重复文件检测器
+ * 以文件内容的64位非加密哈希作为指纹，同一语言中内容相同的文件只统计第一个。
+ * 大小和语言都相同的文件出现第二个之前不计算哈希，大小唯一的文件不需要读取两次；
+ * 出现第二个时才补算第一个文件的哈希。只出现过一次的大小通过基本类型的映射指向
+ * 路径数组中的编号，指纹保存在基本类型的哈希集合中，每个文件只额外保存一个路径字符串。
+ * 
+ * 可以在多个工作线程中同时调用，计算哈希时不持有锁。
+ */
+public class DuplicateDetector {
+    
+    /** 大小和语言的组合到pendingPaths中编号的映射 */
+    private final LongIntHashMap sizeIndexes = new LongIntHashMap();
+    
+    /** 每个大小第一个文件的路径，出现第二个文件时置为null */
+    private String[] pendingPaths = new String[1024];
+    private int pendingCount = 0;
+    
+    /** 第一个文件的哈希正在计算中的编号，计算完成前同样大小的文件需要等待其指纹 */
+    private final BitSet hashingIndexes = new BitSet();
+    
+    private final LongHashSet fingerprints = new LongHashSet();
+    private long duplicateCount = 0;
+    private long hashedCount = 0;
+    
+    /**
+     * 检查文件是否与之前检查过的同一语言的文件内容相同
+     * 
+     * @param source 要检查的文件
+     * @param language 文件的语言
+     * @return 内容重复时返回true，文件无法读取时返回false
+     */
+    public boolean isDuplicate(SourceFile source, String language) {
+        long sizeKey = mix(source.getSize(), language);
+        int index;
+        String first;
+        synchronized (this) {
+            index = sizeIndexes.get(sizeKey, -1);
+            if (index < 0) {
+                if (pendingCount == pendingPaths.length) {
+                    pendingPaths = Arrays.copyOf(pendingPaths, pendingCount + (pendingCount >> 1));
+                }
+                sizeIndexes.put(sizeKey, pendingCount);
+                pendingPaths[pendingCount++] = source.getFile().getPath();
+                return false;
+            }
+            first = pendingPaths[index];
+            if (first != null) {
+                pendingPaths[index] = null;
+                hashingIndexes.set(index);
+            }
+        }
+        
+        // 第一个文件由第二个文件所在的线程补算哈希
+        if (first != null) {
+            Long firstFingerprint = fingerprint(new File(first), language);
+            synchronized (this) {
+                if (firstFingerprint != null) {
+                    fingerprints.add(firstFingerprint);
+                }
+                hashingIndexes.clear(index);
+                notifyAll();
+            }
+        }
+        
+        Long fingerprint = fingerprint(source.getFile(), language);
+        if (fingerprint == null) {
+            return false;
+        }
+        synchronized (this) {
+            // 第一个文件的指纹必须先于同样大小的其他文件加入集合
+            awaitFirstFingerprint(index);
+            if (fingerprints.add(fingerprint)) {
+                return false;
+            }
+            duplicateCount++;
+            return true;
+        }
+    }
+    
+    /**
+     * 检查内容哈希已知的文件是否与之前检查过的同一语言的文件内容相同
+     * 用于git对象等以内容哈希标识的文件，不需要读取内容
+     * 
+     * @param contentHash 内容的64位哈希值
+     * @param language 文件的语言
+     * @return 内容重复时返回true
+     */
+    public synchronized boolean isDuplicate(long contentHash, String language) {
+        if (fingerprints.add(mix(contentHash, language))) {
+            return false;
+        }
+        duplicateCount++;
+        return true;
+    }
+    
+    /**
+     * 获取跳过的重复文件数
+     */
+    public synchronized long getDuplicateCount() {
+        return duplicateCount;
+    }
+    
+    /**
+     * 获取计算了内容哈希的文件数
+     */
+    public synchronized long getHashedCount() {
+        return hashedCount;
+    }
+    
+    /**
+     * 计算文件内容与语言的指纹，文件无法读取时返回null
+     */
+    private Long fingerprint(File file, String language) {
+        try {
+            long hash = ContentHasher.hash(file);
+            synchronized (this) {
+                hashedCount++;
+            }
+            return mix(hash, language);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 在持有锁时等待编号对应的第一个文件的指纹加入集合，中断不会提前结束等待
+     */
+    private void awaitFirstFingerprint(int index) {
+        boolean interrupted = false;
+        while (hashingIndexes.get(index)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static long mix(long value, String language) {
+        long h = (value ^ language.hashCode()) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
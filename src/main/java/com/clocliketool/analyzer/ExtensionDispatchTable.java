@@ -0,0 +1,154 @@
+package com.clocliketool.analyzer;
+
+import com.clocliketool.counter.LineCounter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 从文件扩展名到行计数器和语言名称的分派表
+ * 在创建分析器时根据计数器支持的扩展名和LanguageMapper中的语言映射编译一次，
+ * 查找时直接在文件路径上定位扩展名并计算不区分大小写的哈希值，
+ * 一次查找同时得到计数器和语言，不截取子串、不转换大小写，也不访问文件系统。
+ * 
+ * 扩展名是文件名中最后一个"."之后的部分，以"."开头且没有其他"."的文件名没有扩展名。
+ * 多个计数器支持同一扩展名时，使用列表中靠前的计数器。创建之后不可修改，可以在多个线程中同时查找。
+ */
+public class ExtensionDispatchTable {
+    
+    private final String[] keys;
+    private final Target[] targets;
+    private final int mask;
+    private final String[] extensions;
+    
+    /**
+     * 查找结果：负责统计的计数器及文件所属的语言
+     */
+    public static class Target {
+        private final LineCounter counter;
+        private final String language;
+        
+        Target(LineCounter counter, String language) {
+            this.counter = counter;
+            this.language = language;
+        }
+        
+        public LineCounter getCounter() {
+            return counter;
+        }
+        
+        public String getLanguage() {
+            return language;
+        }
+    }
+    
+    /**
+     * @param counters 使用的行计数器，按优先顺序排列
+     */
+    public ExtensionDispatchTable(List<LineCounter> counters) {
+        List<String> names = new ArrayList<>();
+        List<Target> values = new ArrayList<>();
+        for (LineCounter counter : counters) {
+            for (String extension : counter.getSupportedExtensions()) {
+                String key = extension.toLowerCase(Locale.ROOT);
+                if (!key.isEmpty() && key.indexOf('.') < 0 && !names.contains(key)) {
+                    names.add(key);
+                    values.add(new Target(counter, LanguageMapper.getLanguageByExtension(key)));
+                }
+            }
+        }
+        
+        // 装载率不超过一半，线性探测的查找平均只需比较一两次
+        int capacity = Integer.highestOneBit(Math.max(names.size(), 1) * 4 - 1);
+        keys = new String[capacity];
+        targets = new Target[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < names.size(); i++) {
+            String key = names.get(i);
+            int slot = hash(key, 0, key.length()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            targets[slot] = values.get(i);
+        }
+        extensions = names.toArray(new String[0]);
+    }
+    
+    /**
+     * 获取所有支持的扩展名（小写，不带"."）
+     */
+    public String[] getExtensions() {
+        return extensions.clone();
+    }
+    
+    /**
+     * 查找文件对应的计数器和语言
+     * 
+     * @param file 文件
+     * @return 查找结果，不支持该文件的扩展名时返回null
+     */
+    public Target lookup(File file) {
+        return lookup(file.getPath());
+    }
+    
+    /**
+     * 查找路径对应的计数器和语言
+     * 
+     * @param path 文件路径或文件名
+     * @return 查找结果，不支持该文件的扩展名时返回null
+     */
+    public Target lookup(String path) {
+        int end = path.length();
+        int start = extensionStart(path);
+        if (start < 0) {
+            return null;
+        }
+        
+        int length = end - start;
+        for (int slot = hash(path, start, end) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            String key = keys[slot];
+            if (key.length() == length && path.regionMatches(true, start, key, 0, length)) {
+                return targets[slot];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 获取扩展名在路径中的起始位置，没有扩展名时返回-1
+     */
+    private static int extensionStart(String path) {
+        for (int i = path.length() - 1; i > 0; i--) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                char previous = path.charAt(i - 1);
+                boolean nameStart = previous == '/' || previous == File.separatorChar;
+                return i < path.length() - 1 && !nameStart ? i + 1 : -1;
+            }
+            if (c == '/' || c == File.separatorChar) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 计算不区分大小写的哈希值，与对小写文本计算的结果相同
+     */
+    private static int hash(String text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            } else if (c >= 0x80) {
+                c = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            h = 31 * h + c;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,24 +1,221 @@
 package com.clocliketool.analyzer;
 
+import com.clocliketool.archive.ArchiveFormat;
+import com.clocliketool.archive.ArchiveWalker;
+import com.clocliketool.cache.ResultCache;
 import com.clocliketool.counter.LineCounter;
+import com.clocliketool.counter.SourceReader;
+import com.clocliketool.model.ConcurrentLineCountAggregate;
 import com.clocliketool.model.LineCountResult;
+import com.clocliketool.model.SourceFile;
 import com.clocliketool.util.DirectoryScanner;
+import com.clocliketool.util.DiscoveryMode;
+import com.clocliketool.util.IgnoreFilter;
+import com.clocliketool.util.ScanMetrics;
+import com.clocliketool.util.ScanFilter;
+import com.clocliketool.util.ShardFilter;
+import com.clocliketool.util.WalkStatistics;
+import com.clocliketool.vcs.GitObjectDatabase;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * 文件分析器类，负责文件分析和统计
  */
 public class FileAnalyzer {
     
-    private final List<LineCounter> counters;
-    private final Map<String, LineCountResult> languageResults = new HashMap<>();
-    private int totalFiles = 0;
+    /** 流水线模式下每个工作线程对应的队列容量 */
+    private static final int QUEUE_CAPACITY_PER_WORKER = 256;
+    
+    /** 通知工作线程队列已结束的标记 */
+    private static final SourceFile END_OF_QUEUE = new SourceFile(new File(""), 0, 0);
+    
+    private final ExtensionDispatchTable dispatchTable;
+    private final int jobs;
+    private final ConcurrentLineCountAggregate results = new ConcurrentLineCountAggregate();
+    private ResultCache resultCache;
+    private FileResultListener fileResultListener;
+    private int walkParallelism = 0;
+    private boolean walkOrdered = false;
+    private DiscoveryMode discoveryMode = DiscoveryMode.WALK;
+    private ScanFilter pathFilter;
+    private DuplicateDetector duplicateDetector;
+    private ScanMetrics metrics;
+    private long mmapThreshold = SourceReader.DEFAULT_MMAP_THRESHOLD;
+    private ArchiveWalker archiveWalker = new ArchiveWalker(1);
+    private boolean scanArchives = false;
+    private String gitRevision;
+    private ShardFilter shard;
+    private final WalkStatistics walkStatistics = new WalkStatistics();
     
     public FileAnalyzer(List<LineCounter> counters) {
-        this.counters = counters;
+        this(counters, 1);
+    }
+    
+    /**
+     * @param counters 使用的行计数器
+     * @param jobs 并行分析的工作线程数，小于等于1时按顺序处理
+     */
+    public FileAnalyzer(List<LineCounter> counters, int jobs) {
+        this.dispatchTable = new ExtensionDispatchTable(counters);
+        this.jobs = Math.max(1, jobs);
+    }
+    
+    /**
+     * 设置增量统计使用的结果缓存，未变化的文件直接使用缓存结果
+     * 
+     * @param resultCache 结果缓存，为null时不使用缓存
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
+    /**
+     * 设置单个文件统计结果的监听器
+     * 并行模式下监听器会在多个工作线程中同时被调用
+     * 
+     * @param fileResultListener 监听器，为null时不通知
+     */
+    public void setFileResultListener(FileResultListener fileResultListener) {
+        this.fileResultListener = fileResultListener;
+    }
+    
+    /**
+     * 设置目录遍历方式
+     * 
+     * @param walkParallelism 并行遍历目录的线程数，小于等于0时在当前线程中顺序遍历
+     * @param walkOrdered 并行遍历时是否按确定的顺序处理文件
+     */
+    public void setDirectoryWalk(int walkParallelism, boolean walkOrdered) {
+        this.walkParallelism = walkParallelism;
+        this.walkOrdered = walkOrdered;
+    }
+    
+    /**
+     * 设置目录中源文件的发现方式
+     * 
+     * @param discoveryMode 发现方式
+     */
+    public void setDiscoveryMode(DiscoveryMode discoveryMode) {
+        this.discoveryMode = discoveryMode;
+    }
+    
+    /**
+     * 设置遍历目录时使用的路径过滤器
+     * 
+     * @param pathFilter 过滤器，为null时不过滤
+     */
+    public void setPathFilter(ScanFilter pathFilter) {
+        this.pathFilter = pathFilter;
+    }
+    
+    /**
+     * 设置记录遍历、读取和分类耗时以及最慢文件的统计，统计只属于本分析器
+     * 
+     * @param metrics 统计，为null时不计时
+     */
+    public void setMetrics(ScanMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * 设置使用内存映射读取的文件大小阈值，只对本分析器统计的文件生效
+     * 
+     * @param mmapThreshold 文件大小不小于该值时使用内存映射，小于0表示不使用内存映射
+     */
+    public void setMmapThreshold(long mmapThreshold) {
+        this.mmapThreshold = mmapThreshold;
+    }
+    
+    /**
+     * 设置压缩包的处理方式
+     * 命令行中直接指定的压缩包总是被当作目录统计，目录中的压缩包只在scanArchives为true时展开
+     * 
+     * @param scanArchives 是否展开遍历目录时遇到的压缩包
+     * @param maxDepth 最多展开的压缩包层数，1表示不展开压缩包中的压缩包
+     */
+    public void setArchives(boolean scanArchives, int maxDepth) {
+        this.scanArchives = scanArchives;
+        this.archiveWalker = new ArchiveWalker(maxDepth);
+    }
+    
+    /**
+     * 设置要统计的git版本
+     * 设置后要分析的路径被当作git仓库，直接从对象数据库中读取该版本的文件统计，不需要检出
+     * 
+     * @param gitRevision 版本表达式（如HEAD、分支名、标签或提交ID），为null时统计磁盘上的文件
+     */
+    public void setGitRevision(String gitRevision) {
+        this.gitRevision = gitRevision;
+    }
+    
+    /**
+     * 设置只统计的分片
+     * 遍历目录时按相对于统计根目录的路径分片，命令行中直接指定的文件按指定的路径分片，
+     * git版本中的文件按相对于指定目录的路径分片，压缩包作为一个整体属于一个分片
+     * 
+     * @param shard 分片，为null时统计全部文件
+     */
+    public void setShard(ShardFilter shard) {
+        this.shard = shard;
+    }
+    
+    /**
+     * 设置是否跳过内容重复的文件
+     * 
+     * @param deduplicate 为true时同一语言中内容相同的文件只统计一次
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        this.duplicateDetector = deduplicate ? new DuplicateDetector() : null;
+    }
+    
+    /**
+     * 创建遍历目录时使用的过滤器，依次为路径过滤、忽略规则（发现方式不是WALK时）和分片
+     * 读取git索引的发现方式下，目录中被忽略的条目同样被排除
+     * 
+     * @param directory 遍历的根目录
+     * @return 尚未进入根目录的过滤器，不需要过滤时返回null
+     */
+    public ScanFilter createScanFilter(File directory) {
+        ScanFilter filter = pathFilter;
+        if (discoveryMode != DiscoveryMode.WALK) {
+            filter = ScanFilter.both(pathFilter, IgnoreFilter.forRoot(directory.toPath()));
+        }
+        return ScanFilter.both(filter, shard);
+    }
+    
+    /**
+     * 获取重复文件检测器
+     * 
+     * @return 检测器，未启用去重时返回null
+     */
+    public DuplicateDetector getDuplicateDetector() {
+        return duplicateDetector;
+    }
+    
+    /**
+     * 获取并行目录遍历的统计信息
+     * 
+     * @return 所有并行遍历的累计统计信息，顺序遍历时各项为0
+     */
+    public WalkStatistics getWalkStatistics() {
+        return walkStatistics;
     }
     
     /**
@@ -40,70 +237,417 @@ public class FileAnalyzer {
                 continue;
             }
             
-            if (file.isFile()) {
-                processFile(file);
+            if (gitRevision != null) {
+                processGitRevision(file);
+            } else if (file.isFile() && shard != null && !shard.accepts(path.replace(File.separatorChar, '/'))) {
+                continue;
+            } else if (file.isFile() && ArchiveWalker.isArchive(file.getName())) {
+                processArchive(file);
+            } else if (file.isFile()) {
+                SourceFile source = SourceFile.of(file);
+                if (source != null) {
+                    processFile(source);
+                }
             } else if (file.isDirectory()) {
                 processDirectory(file);
             }
         }
         
-        return totalFiles > 0;
+        return results.getFileCount() > 0;
+    }
+    
+    /**
+     * 处理单个文件，并把结果累加到汇总中，可以在多个工作线程中同时调用
+     * 启用去重时，内容重复的文件在统计之前被跳过
+     */
+    private void processFile(SourceFile source) {
+        ExtensionDispatchTable.Target target = dispatchTable.lookup(source.getFile());
+        if (target == null) {
+            if (scanArchives && ArchiveWalker.isArchive(source.getFile().getName())) {
+                processArchive(source.getFile());
+            }
+            return;
+        }
+        String language = target.getLanguage();
+        if (duplicateDetector != null && duplicateDetector.isDuplicate(source, language)) {
+            return;
+        }
+        
+        long start = metrics != null ? System.nanoTime() : 0;
+        LineCountResult result = countFile(target.getCounter(), source);
+        if (result == null) {
+            return;
+        }
+        if (metrics != null) {
+            metrics.addFile(source.getFile(), System.nanoTime() - start);
+        }
+        
+        if (fileResultListener != null) {
+            fileResultListener.fileCounted(source.getFile(), language, result);
+        }
+        results.add(language, result);
+    }
+    
+    /**
+     * 处理压缩包，把其中支持的文件条目逐个流式统计并累加到汇总中
+     * 压缩包中的条目不参与去重和结果缓存，也不经过路径过滤
+     */
+    private void processArchive(File archive) {
+        try {
+            archiveWalker.walk(archive, this::processArchiveEntry);
+        } catch (IOException e) {
+            System.err.println("错误: 读取压缩包时出错: " + archive.getAbsolutePath());
+            e.printStackTrace();
+        }
+    }
+    
+    private void processArchiveEntry(String path, InputStream in) throws IOException {
+        ExtensionDispatchTable.Target target = dispatchTable.lookup(path);
+        if (target == null) {
+            return;
+        }
+        
+        long start = metrics != null ? System.nanoTime() : 0;
+        LineCountResult result = target.getCounter().countLines(in, metrics);
+        File file = new File(path);
+        if (metrics != null) {
+            metrics.addFile(file, System.nanoTime() - start);
+        }
+        
+        if (fileResultListener != null) {
+            fileResultListener.fileCounted(file, target.getLanguage(), result);
+        }
+        results.add(target.getLanguage(), result);
     }
     
     /**
-     * 处理单个文件
+     * 统计git仓库中指定版本的文件
+     * 遍历该版本的目录树，找出支持的文件后把内容对象在内存中解压并统计，多个工作线程同时读取对象。
+     * 指定的路径是工作区中的子目录时只统计该目录中的文件。路径过滤和分片按相对于该目录的路径生效，
+     * 启用去重时内容对象ID相同的文件只统计一次，不需要读取内容。
      */
-    private void processFile(File file) {
-        for (LineCounter counter : counters) {
-            if (counter.supportsFile(file)) {
-                try {
-                    LineCountResult result = counter.countLines(file);
-                    String language = LanguageMapper.getLanguageForFile(file);
-                    
-                    // 更新语言汇总结果
-                    if (languageResults.containsKey(language)) {
-                        languageResults.get(language).merge(result);
-                    } else {
-                        languageResults.put(language, result);
+    private void processGitRevision(File repository) {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            byte[] tree = database.resolveTree(gitRevision);
+            String prefix = "";
+            File workTree = database.getWorkTree();
+            if (workTree != null && !workTree.equals(repository.getAbsoluteFile())) {
+                prefix = workTree.toPath().relativize(repository.getAbsoluteFile().toPath()).toString()
+                        .replace(File.separatorChar, '/') + "/";
+            }
+            
+            List<String> paths = new ArrayList<>();
+            List<byte[]> blobIds = new ArrayList<>();
+            collectBlobs(database, tree, "", prefix, ScanFilter.both(pathFilter, shard), paths, blobIds);
+            
+            String label = new File(workTree != null ? workTree : repository, gitRevision + ":").getPath();
+            if (jobs <= 1 || paths.size() <= 1) {
+                for (int i = 0; i < paths.size(); i++) {
+                    processBlob(database, label + paths.get(i), blobIds.get(i));
+                }
+                return;
+            }
+            
+            AtomicInteger next = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(jobs);
+            List<Future<?>> futures = new ArrayList<>(jobs);
+            for (int i = 0; i < jobs; i++) {
+                futures.add(executor.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < paths.size()) {
+                        processBlob(database, label + paths.get(index), blobIds.get(index));
                     }
-                    
-                    totalFiles++;
-                    break; // 找到支持的计数器后不再继续
-                } catch (IOException e) {
-                    System.err.println("错误: 处理文件时出错: " + file.getAbsolutePath());
-                    e.printStackTrace();
+                }));
+            }
+            executor.shutdown();
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
                 }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                System.err.println("错误: 并行分析时出错: " + e.getCause());
+                e.getCause().printStackTrace();
             }
+        } catch (IOException e) {
+            System.err.println("错误: 无法读取git仓库中的版本" + gitRevision + ": " + repository.getPath());
+            System.err.println(e.getMessage());
+        }
+    }
+    
+    /**
+     * 收集目录树中需要统计的文件，被过滤器拒绝的子目录不会被读取
+     * 
+     * @param directory 树对应的目录，相对于根目录、以"/"结尾，根目录为空字符串
+     * @param prefix 要统计的目录，为空时统计整棵树
+     * @param filter 对树中条目生效的过滤器，在要统计的目录之上时是尚未进入根目录的过滤器，可以为null
+     */
+    private void collectBlobs(GitObjectDatabase database, byte[] treeId, String directory, String prefix,
+                              ScanFilter filter, List<String> paths, List<byte[]> blobIds) throws IOException {
+        // 过滤器从要统计的目录开始生效，与遍历磁盘上的目录一致
+        boolean counted = directory.length() >= prefix.length();
+        ScanFilter entryFilter = filter != null && directory.equals(prefix)
+                ? filter.enterDirectory(Paths.get(directory.isEmpty() ? "." : directory)) : filter;
+        database.listTree(treeId, (name, isDirectory, id) -> {
+            String path = directory + name;
+            if (isDirectory) {
+                String childDirectory = path + "/";
+                if (!counted) {
+                    if (prefix.startsWith(childDirectory)) {
+                        collectBlobs(database, id, childDirectory, prefix, filter, paths, blobIds);
+                    }
+                    return;
+                }
+                ScanFilter childFilter = null;
+                if (entryFilter != null) {
+                    Path child = Paths.get(name);
+                    if (!entryFilter.accept(child, true)) {
+                        return;
+                    }
+                    childFilter = entryFilter.enterDirectory(child);
+                }
+                collectBlobs(database, id, childDirectory, prefix, childFilter, paths, blobIds);
+            } else if (counted) {
+                ExtensionDispatchTable.Target target = dispatchTable.lookup(name);
+                if (target == null || (entryFilter != null && !entryFilter.accept(Paths.get(name), false))) {
+                    return;
+                }
+                // 内容对象ID本身就是内容的哈希值，取前8个字节作为去重的指纹
+                if (duplicateDetector != null
+                        && duplicateDetector.isDuplicate(ByteBuffer.wrap(id).getLong(), target.getLanguage())) {
+                    return;
+                }
+                paths.add(path);
+                blobIds.add(id);
+            }
+        });
+    }
+    
+    /**
+     * 在内存中解压并统计git仓库中的一个文件，读取失败时输出错误并跳过该文件
+     */
+    private void processBlob(GitObjectDatabase database, String path, byte[] blobId) {
+        ExtensionDispatchTable.Target target = dispatchTable.lookup(path);
+        long start = metrics != null ? System.nanoTime() : 0;
+        byte[] content;
+        try {
+            content = database.read(blobId).getData();
+        } catch (IOException e) {
+            System.err.println("错误: 读取git对象时出错: " + path);
+            e.printStackTrace();
+            return;
+        }
+        if (metrics != null) {
+            metrics.addRead(System.nanoTime() - start, 0);
+        }
+        
+        LineCountResult result = target.getCounter().countLines(ByteBuffer.wrap(content), metrics);
+        File file = new File(path);
+        if (metrics != null) {
+            metrics.addFile(file, System.nanoTime() - start);
+        }
+        
+        if (fileResultListener != null) {
+            fileResultListener.fileCounted(file, target.getLanguage(), result);
+        }
+        results.add(target.getLanguage(), result);
+    }
+    
+    /**
+     * 使用第一个支持该文件的计数器统计单个文件，不影响汇总结果
+     * 
+     * @param file 要统计的文件
+     * @return 统计结果，没有支持该文件的计数器或读取失败时返回null
+     */
+    public LineCountResult countFile(File file) {
+        SourceFile source = SourceFile.of(file);
+        return source != null ? countFile(source) : null;
+    }
+    
+    /**
+     * 使用第一个支持该文件的计数器统计源文件，不影响汇总结果
+     * 
+     * @param source 要统计的源文件
+     * @return 统计结果，没有支持该文件的计数器或读取失败时返回null
+     */
+    public LineCountResult countFile(SourceFile source) {
+        ExtensionDispatchTable.Target target = dispatchTable.lookup(source.getFile());
+        return target != null ? countFile(target.getCounter(), source) : null;
+    }
+    
+    /**
+     * 使用指定的计数器统计源文件，读取失败时输出错误并返回null
+     */
+    private LineCountResult countFile(LineCounter counter, SourceFile source) {
+        try {
+            return countLines(counter, source);
+        } catch (IOException e) {
+            System.err.println("错误: 处理文件时出错: " + source.getFile().getAbsolutePath());
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * 统计单个文件，启用缓存时优先使用缓存结果
+     */
+    private LineCountResult countLines(LineCounter counter, SourceFile source) throws IOException {
+        if (resultCache == null) {
+            return counter.countLines(source, mmapThreshold, metrics);
+        }
+        
+        LineCountResult cached = resultCache.lookup(source);
+        if (cached != null) {
+            return cached;
         }
+        
+        LineCountResult result = counter.countLines(source, mmapThreshold, metrics);
+        resultCache.store(source, result);
+        return result;
     }
     
     /**
      * 处理目录
+     * 顺序模式下边扫描边统计；并行模式下扫描与统计以流水线方式同时进行
      */
     private void processDirectory(File directory) {
-        // 收集所有支持的扩展名
-        Set<String> extensions = new HashSet<>();
-        for (LineCounter counter : counters) {
-            extensions.addAll(Arrays.asList(counter.getSupportedExtensions()));
+        String[] extensionArray = dispatchTable.getExtensions();
+        if (scanArchives) {
+            String[] archiveExtensions = ArchiveFormat.allExtensions();
+            extensionArray = Arrays.copyOf(extensionArray, extensionArray.length + archiveExtensions.length);
+            System.arraycopy(archiveExtensions, 0, extensionArray, extensionArray.length - archiveExtensions.length,
+                    archiveExtensions.length);
+        }
+        
+        // 无序的并行遍历会在多个线程中交出文件，只能通过队列交给工作线程
+        if (jobs > 1 || (walkParallelism > 0 && !walkOrdered)) {
+            processDirectoryInPipeline(directory, extensionArray);
+        } else {
+            walkDirectory(directory, extensionArray, this::processFile);
         }
+    }
+    
+    /**
+     * 遍历目录，设置了耗时统计时累计遍历的耗时
+     */
+    private void walkDirectory(File directory, String[] extensions, Consumer<SourceFile> consumer) {
+        if (metrics == null) {
+            discover(directory, extensions, consumer);
+            return;
+        }
+        
+        // 遍历耗时不包括交出文件的时间（顺序模式下的统计或流水线模式下等待队列）
+        LongAdder consumerNanos = new LongAdder();
+        long start = System.nanoTime();
+        discover(directory, extensions, source -> {
+            long consumeStart = System.nanoTime();
+            consumer.accept(source);
+            consumerNanos.add(System.nanoTime() - consumeStart);
+        });
+        metrics.addWalk(Math.max(0, System.nanoTime() - start - consumerNanos.sum()));
+    }
+    
+    /**
+     * 按设置的发现方式和遍历方式找出目录中的源文件
+     * 读取git索引失败时退回到遵循忽略文件的目录遍历
+     */
+    private void discover(File directory, String[] extensions, Consumer<SourceFile> consumer) {
+        if (discoveryMode == DiscoveryMode.GIT_INDEX) {
+            ScanFilter indexFilter = ScanFilter.both(pathFilter, shard);
+            if (DirectoryScanner.scanGitIndex(directory, extensions, indexFilter, consumer)) {
+                return;
+            }
+            System.err.println("警告: 目录不在git工作区中，改为遍历目录: " + directory.getPath());
+        }
+        
+        ScanFilter filter = createScanFilter(directory);
+        if (walkParallelism > 0) {
+            walkStatistics.merge(DirectoryScanner.walkDirectoryInParallel(directory, extensions, filter, consumer,
+                    walkParallelism, walkOrdered));
+        } else {
+            DirectoryScanner.walkDirectory(directory, extensions, filter, consumer);
+        }
+    }
+    
+    /**
+     * 以生产者/消费者流水线的方式处理目录
+     * 当前线程遍历目录并把文件放入有界队列，工作线程同时从队列中取出文件进行统计。
+     * 队列满时遍历线程会阻塞等待，因此内存占用与目录中的文件总数无关。
+     * 工作线程直接累加到共享的并发汇总中，各项计数分散累加，统计过程中不存在锁竞争。
+     */
+    private void processDirectoryInPipeline(File directory, String[] extensions) {
+        BlockingQueue<SourceFile> queue = new ArrayBlockingQueue<>(jobs * QUEUE_CAPACITY_PER_WORKER);
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
         
-        // 扫描目录
-        List<File> matchedFiles = DirectoryScanner.scanDirectory(
-                directory, extensions.toArray(new String[0]));
+        List<Future<?>> futures = new ArrayList<>(jobs);
+        for (int i = 0; i < jobs; i++) {
+            futures.add(executor.submit(() -> drainQueue(queue)));
+        }
+        executor.shutdown();
         
-        // 处理找到的文件
-        for (File matchedFile : matchedFiles) {
-            processFile(matchedFile);
+        try {
+            walkDirectory(directory, extensions, source -> enqueue(queue, source));
+            
+            // 每个工作线程收到一个结束标记后退出
+            for (int i = 0; i < jobs; i++) {
+                queue.put(END_OF_QUEUE);
+            }
+            
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | CancellationException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            System.err.println("错误: 并行分析时出错: " + e.getCause());
+            e.getCause().printStackTrace();
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
         }
     }
     
+    /**
+     * 将文件放入队列，队列已满时阻塞等待
+     */
+    private static void enqueue(BlockingQueue<SourceFile> queue, SourceFile source) {
+        try {
+            queue.put(source);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("目录遍历被中断");
+        }
+    }
+    
+    /**
+     * 工作线程不断从队列中取出文件统计，直到收到结束标记
+     */
+    private Void drainQueue(BlockingQueue<SourceFile> queue) throws InterruptedException {
+        SourceFile source;
+        while ((source = queue.take()) != END_OF_QUEUE) {
+            try {
+                processFile(source);
+            } catch (RuntimeException e) {
+                // 单个文件的意外错误不能终止工作线程，否则遍历线程会在满队列上永久阻塞
+                System.err.println("错误: 处理文件时出错: " + source.getFile().getAbsolutePath());
+                e.printStackTrace();
+            }
+        }
+        return null;
+    }
+    
     /**
      * 获取分析结果
      * 
      * @return 按语言分类的统计结果
      */
     public Map<String, LineCountResult> getLanguageResults() {
-        return Collections.unmodifiableMap(languageResults);
+        return results.snapshot();
     }
     
     /**
@@ -112,14 +656,30 @@ public class FileAnalyzer {
      * @return 文件总数
      */
     public int getTotalFiles() {
-        return totalFiles;
+        return Math.toIntExact(results.getFileCount());
+    }
+    
+    /**
+     * 获取已统计的文件数，可以在分析进行中从其他线程读取，用于显示进度
+     */
+    public long getCountedFiles() {
+        return results.getFileCount();
+    }
+    
+    /**
+     * 获取已统计的总行数，可以在分析进行中从其他线程读取，用于显示进度
+     */
+    public long getCountedLines() {
+        return results.getTotalLines();
     }
     
     /**
      * 清除当前分析结果
      */
     public void clear() {
-        languageResults.clear();
-        totalFiles = 0;
+        results.clear();
+        if (duplicateDetector != null) {
+            duplicateDetector = new DuplicateDetector();
+        }
     }
-} 
\ No newline at end of file
+}
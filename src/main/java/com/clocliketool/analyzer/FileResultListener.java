@@ -0,0 +1,21 @@
+package com.clocliketool.analyzer;
+
+import com.clocliketool.model.LineCountResult;
+
+import java.io.File;
+
+/**
+ * 单个文件统计结果的监听器接口
+ * 用于在汇总之外获取每个文件的统计结果
+ */
+public interface FileResultListener {
+    
+    /**
+     * 文件统计完成时调用
+     * 
+     * @param file 已统计的文件
+     * @param language 文件所属的语言
+     * @param result 该文件的统计结果
+     */
+    void fileCounted(File file, String language, LineCountResult result);
+}
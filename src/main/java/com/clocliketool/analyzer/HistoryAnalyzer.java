@@ -0,0 +1,383 @@
+package com.clocliketool.analyzer;
+
+import com.clocliketool.counter.LineCounter;
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.util.ScanFilter;
+import com.clocliketool.vcs.GitCommit;
+import com.clocliketool.vcs.GitObjectDatabase;
+import com.clocliketool.vcs.ObjectIdTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * git历史统计，统计一段提交历史中每个提交的代码行数
+ * 相邻提交之间绝大多数文件内容没有变化，因此统计分三步进行：
+ * 先遍历所有提交的目录树，同一个树对象只读取一次，并把支持的文件内容对象登记到按对象ID
+ * 编号的表中；再用多个工作线程把每个不同的内容对象解压统计一次，计数保存在按编号排列的
+ * int数组中；最后自底向上为每个树对象合计各语言的计数，每个提交的结果就是其根目录树的合计。
+ * 读取和统计的次数与不同的树和内容对象的数量成正比，与提交数乘以文件数无关。
+ * 
+ * 使用路径过滤时，同一个树对象中被过滤的条目取决于它所在的路径，树对象按（对象ID，目录路径）登记，
+ * 路径不变的目录在相邻提交之间同样只读取一次。
+ */
+public class HistoryAnalyzer {
+    
+    /** 计数列在树合计数组中的位置，每种语言占用连续的4个位置 */
+    private static final int FILES = 0;
+    private static final int CODE = 1;
+    private static final int COMMENTS = 2;
+    private static final int BLANKS = 3;
+    private static final int COLUMNS = 4;
+    
+    private static final int[] NO_ENTRIES = new int[0];
+    
+    private final ExtensionDispatchTable dispatchTable;
+    private final int jobs;
+    private ScanFilter pathFilter;
+    
+    /** 计数器与语言的组合，内容对象按（对象ID，组合编号）登记 */
+    private final List<LineCounter> kindCounters = new ArrayList<>();
+    private final List<Integer> kindLanguages = new ArrayList<>();
+    private final Map<LineCounter, Map<String, Integer>> kindIds = new HashMap<>();
+    private final List<String> languages = new ArrayList<>();
+    
+    private ObjectIdTable trees;
+    
+    /** 使用路径过滤时目录路径到编号的映射，编号作为树对象登记的标记 */
+    private Map<String, Integer> directoryTags;
+    private List<int[]> subtrees;
+    private List<int[]> treeBlobs;
+    private ObjectIdTable blobs;
+    private int[] codeLines;
+    private int[] commentLines;
+    private int[] blankLines;
+    private long[][] treeTotals;
+    private long fileVersions;
+    
+    /**
+     * @param counters 使用的行计数器
+     * @param jobs 并行统计的工作线程数，小于等于1时按顺序处理
+     */
+    public HistoryAnalyzer(List<LineCounter> counters, int jobs) {
+        this.dispatchTable = new ExtensionDispatchTable(counters);
+        this.jobs = Math.max(1, jobs);
+    }
+    
+    /**
+     * 设置统计时使用的路径过滤器，过滤器从要统计的目录开始生效
+     * 
+     * @param pathFilter 过滤器，为null时不过滤
+     */
+    public void setPathFilter(ScanFilter pathFilter) {
+        this.pathFilter = pathFilter;
+    }
+    
+    /**
+     * 统计提交范围中每个提交的代码行数
+     * "A..B"表示从B沿第一父提交向前、直到A的第一父提交历史为止的提交，只给出B时表示B的全部
+     * 第一父提交历史，省略的一端表示HEAD。指定的路径是工作区中的子目录时只统计该目录中的文件。
+     * 
+     * @param repository git仓库、工作区或工作区中的子目录
+     * @param range 提交范围
+     * @return 每个提交的统计结果，按从旧到新的顺序排列
+     * @throws IOException 如果仓库无法打开，范围无法解析，或对象无法读取
+     */
+    public List<CommitReport> analyze(File repository, String range) throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            String prefix = "";
+            File workTree = database.getWorkTree();
+            if (workTree != null && !workTree.equals(repository.getAbsoluteFile())) {
+                prefix = workTree.toPath().relativize(repository.getAbsoluteFile().toPath()).toString()
+                        .replace(File.separatorChar, '/');
+            }
+            
+            List<GitCommit> commits = listCommits(database, range);
+            trees = new ObjectIdTable(database.getIdLength());
+            directoryTags = new HashMap<>();
+            subtrees = new ArrayList<>();
+            treeBlobs = new ArrayList<>();
+            blobs = new ObjectIdTable(database.getIdLength());
+            fileVersions = 0;
+            
+            ScanFilter rootFilter = pathFilter != null ? pathFilter.enterDirectory(Paths.get(".")) : null;
+            int[] roots = new int[commits.size()];
+            for (int i = 0; i < commits.size(); i++) {
+                byte[] root = findDirectory(database, commits.get(i).getTree(), prefix);
+                roots[i] = root != null ? collectTree(database, root, "", rootFilter) : -1;
+            }
+            countBlobs(database);
+            
+            treeTotals = new long[trees.size()][];
+            List<CommitReport> reports = new ArrayList<>(commits.size());
+            for (int i = 0; i < commits.size(); i++) {
+                GitCommit commit = commits.get(i);
+                long[] totals = roots[i] >= 0 ? totals(roots[i]) : new long[languages.size() * COLUMNS];
+                reports.add(toReport(commit, totals));
+            }
+            treeTotals = null;
+            return reports;
+        }
+    }
+    
+    /**
+     * 获取最近一次统计中不同的树对象数量
+     */
+    public int getTreeCount() {
+        return trees != null ? trees.size() : 0;
+    }
+    
+    /**
+     * 获取最近一次统计中实际统计的不同文件内容数量
+     */
+    public int getBlobCount() {
+        return blobs != null ? blobs.size() : 0;
+    }
+    
+    /**
+     * 获取最近一次统计中所有提交的文件数之和，即不做记忆时需要统计的文件数
+     */
+    public long getFileVersionCount() {
+        return fileVersions;
+    }
+    
+    /**
+     * 列出提交范围中的提交，按从旧到新的顺序排列
+     */
+    private static List<GitCommit> listCommits(GitObjectDatabase database, String range) throws IOException {
+        String from = null;
+        String to = range;
+        int dots = range.indexOf("..");
+        if (dots >= 0) {
+            from = range.substring(0, dots).isEmpty() ? "HEAD" : range.substring(0, dots);
+            to = range.substring(dots + 2).isEmpty() ? "HEAD" : range.substring(dots + 2);
+        }
+        
+        ObjectIdTable excluded = new ObjectIdTable(database.getIdLength());
+        if (from != null) {
+            for (byte[] id = database.resolveCommit(from); id != null; ) {
+                excluded.add(id, 0);
+                List<byte[]> parents = database.readCommit(id).getParents();
+                id = parents.isEmpty() ? null : parents.get(0);
+            }
+        }
+        
+        List<GitCommit> commits = new ArrayList<>();
+        for (byte[] id = database.resolveCommit(to); id != null && excluded.indexOf(id, 0) < 0; ) {
+            GitCommit commit = database.readCommit(id);
+            commits.add(commit);
+            id = commit.getParents().isEmpty() ? null : commit.getParents().get(0);
+        }
+        Collections.reverse(commits);
+        return commits;
+    }
+    
+    /**
+     * 沿路径逐级查找子目录的树对象
+     * 
+     * @return 树对象的ID，该提交中没有这个目录时返回null
+     */
+    private static byte[] findDirectory(GitObjectDatabase database, byte[] root, String path) throws IOException {
+        byte[] current = root;
+        for (String name : path.split("/")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            byte[][] found = new byte[1][];
+            database.listTree(current, (childName, directory, id) -> {
+                if (directory && childName.equals(name)) {
+                    found[0] = id;
+                }
+            });
+            if (found[0] == null) {
+                return null;
+            }
+            current = found[0];
+        }
+        return current;
+    }
+    
+    /**
+     * 登记树对象及其中的子目录和支持的文件，已经登记过的树对象不再读取
+     * 
+     * @param directory 树对应的目录，相对于要统计的目录、以"/"结尾
+     * @param filter 对树中条目生效的过滤器，为null时不过滤
+     * @return 树对象的编号
+     */
+    private int collectTree(GitObjectDatabase database, byte[] treeId, String directory, ScanFilter filter)
+            throws IOException {
+        int tag = 0;
+        if (filter != null) {
+            tag = directoryTags.computeIfAbsent(directory, key -> directoryTags.size());
+        }
+        int before = trees.size();
+        int index = trees.add(treeId, tag);
+        if (index < before) {
+            return index;
+        }
+        subtrees.add(NO_ENTRIES);
+        treeBlobs.add(NO_ENTRIES);
+        
+        List<Integer> children = new ArrayList<>();
+        List<Integer> files = new ArrayList<>();
+        database.listTree(treeId, (name, isDirectory, id) -> {
+            Path path = filter != null ? Paths.get(name) : null;
+            if (filter != null && !filter.accept(path, isDirectory)) {
+                return;
+            }
+            if (isDirectory) {
+                ScanFilter childFilter = filter != null ? filter.enterDirectory(path) : null;
+                children.add(collectTree(database, id, directory + name + "/", childFilter));
+                return;
+            }
+            ExtensionDispatchTable.Target target = dispatchTable.lookup(name);
+            if (target != null) {
+                files.add(blobs.add(id, kindOf(target)));
+            }
+        });
+        subtrees.set(index, toArray(children));
+        treeBlobs.set(index, toArray(files));
+        return index;
+    }
+    
+    /**
+     * 获取计数器与语言组合的编号
+     */
+    private int kindOf(ExtensionDispatchTable.Target target) {
+        Map<String, Integer> byLanguage = kindIds.computeIfAbsent(target.getCounter(), key -> new HashMap<>());
+        Integer kind = byLanguage.get(target.getLanguage());
+        if (kind == null) {
+            kind = kindCounters.size();
+            kindCounters.add(target.getCounter());
+            int language = languages.indexOf(target.getLanguage());
+            if (language < 0) {
+                language = languages.size();
+                languages.add(target.getLanguage());
+            }
+            kindLanguages.add(language);
+            byLanguage.put(target.getLanguage(), kind);
+        }
+        return kind;
+    }
+    
+    /**
+     * 统计所有登记的内容对象，每个工作线程取下一个编号并写入该编号的计数
+     */
+    private void countBlobs(GitObjectDatabase database) throws IOException {
+        int count = blobs.size();
+        codeLines = new int[count];
+        commentLines = new int[count];
+        blankLines = new int[count];
+        if (jobs <= 1 || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                countBlob(database, i);
+            }
+            return;
+        }
+        
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        List<Future<?>> futures = new ArrayList<>(jobs);
+        for (int i = 0; i < jobs; i++) {
+            futures.add(executor.submit(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < count) {
+                    countBlob(database, index);
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("统计被中断");
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("并行统计时出错: " + e.getCause(), e.getCause());
+        }
+    }
+    
+    private void countBlob(GitObjectDatabase database, int index) throws IOException {
+        byte[] content = database.read(blobs.getId(index)).getData();
+        LineCounter counter = kindCounters.get(blobs.getTag(index));
+        LineCountResult result = counter.countLines(ByteBuffer.wrap(content));
+        codeLines[index] = Math.toIntExact(result.getCodeLines());
+        commentLines[index] = Math.toIntExact(result.getCommentLines());
+        blankLines[index] = Math.toIntExact(result.getBlankLines());
+    }
+    
+    /**
+     * 计算树对象中各语言的合计，结果按树编号记忆
+     */
+    private long[] totals(int tree) {
+        if (treeTotals[tree] != null) {
+            return treeTotals[tree];
+        }
+        long[] totals = new long[languages.size() * COLUMNS];
+        for (int child : subtrees.get(tree)) {
+            long[] childTotals = totals(child);
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += childTotals[i];
+            }
+        }
+        for (int blob : treeBlobs.get(tree)) {
+            int offset = kindLanguages.get(blobs.getTag(blob)) * COLUMNS;
+            totals[offset + FILES]++;
+            totals[offset + CODE] += codeLines[blob];
+            totals[offset + COMMENTS] += commentLines[blob];
+            totals[offset + BLANKS] += blankLines[blob];
+        }
+        treeTotals[tree] = totals;
+        return totals;
+    }
+    
+    private CommitReport toReport(GitCommit commit, long[] totals) {
+        Map<String, LineCountResult> languageResults = new HashMap<>();
+        int totalFiles = 0;
+        for (int language = 0; language < languages.size(); language++) {
+            int offset = language * COLUMNS;
+            int files = Math.toIntExact(totals[offset + FILES]);
+            if (files > 0) {
+                languageResults.put(languages.get(language), new LineCountResult(totals[offset + CODE],
+                        totals[offset + COMMENTS], totals[offset + BLANKS], files));
+                totalFiles += files;
+            }
+        }
+        fileVersions += totalFiles;
+        return new CommitReport(GitObjectDatabase.toHex(commit.getId()), commit.getCommitTime(), languageResults,
+                totalFiles);
+    }
+    
+    private static int[] toArray(List<Integer> values) {
+        if (values.isEmpty()) {
+            return NO_ENTRIES;
+        }
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
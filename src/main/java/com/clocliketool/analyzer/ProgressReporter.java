@@ -0,0 +1,55 @@
+package com.clocliketool.analyzer;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析进行中定期输出已统计的文件数和行数
+ * 在单独的后台线程中读取分析器的并发汇总，不影响工作线程。
+ */
+public class ProgressReporter implements Closeable {
+    
+    private final FileAnalyzer analyzer;
+    private final PrintStream out;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cloc-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * 创建并立即开始定期输出
+     * 
+     * @param analyzer 分析器
+     * @param out 输出进度的流
+     * @param intervalMillis 输出间隔（毫秒）
+     */
+    public ProgressReporter(FileAnalyzer analyzer, PrintStream out, long intervalMillis) {
+        this.analyzer = analyzer;
+        this.out = out;
+        scheduler.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 停止定期输出
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void report() {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+        out.println("进度: 已统计 " + analyzer.getCountedFiles() + " 个文件，" + analyzer.getCountedLines()
+                + " 行，用时 " + seconds + " 秒");
+    }
+}
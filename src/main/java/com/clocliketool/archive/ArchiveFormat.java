@@ -0,0 +1,69 @@
+package com.clocliketool.archive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 支持的压缩包格式，按文件名后缀识别（不区分大小写）
+ */
+public enum ArchiveFormat {
+    ZIP(".zip", ".jar", ".war", ".ear"),
+    TAR(".tar"),
+    TAR_GZ(".tar.gz", ".tgz");
+    
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    
+    private final String[] suffixes;
+    
+    ArchiveFormat(String... suffixes) {
+        this.suffixes = suffixes;
+    }
+    
+    /**
+     * 获取所有格式的后缀（不带开头的"."），用于目录遍历时匹配文件
+     */
+    public static String[] allExtensions() {
+        int count = 0;
+        for (ArchiveFormat format : values()) {
+            count += format.suffixes.length;
+        }
+        String[] extensions = new String[count];
+        int index = 0;
+        for (ArchiveFormat format : values()) {
+            for (String suffix : format.suffixes) {
+                extensions[index++] = suffix.substring(1);
+            }
+        }
+        return extensions;
+    }
+    
+    /**
+     * 根据文件名或路径识别压缩包格式
+     * 
+     * @param name 文件名或路径
+     * @return 压缩包格式，不是支持的压缩包时返回null
+     */
+    public static ArchiveFormat forName(String name) {
+        for (ArchiveFormat format : values()) {
+            for (String suffix : format.suffixes) {
+                int start = name.length() - suffix.length();
+                if (start > 0 && name.regionMatches(true, start, suffix, 0, suffix.length())) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 在压缩包的原始内容上打开解压后的流，tar.gz返回解压后的tar内容
+     */
+    InputStream decompress(InputStream in) throws IOException {
+        if (this == TAR_GZ) {
+            return new BufferedInputStream(new GZIPInputStream(in, GZIP_BUFFER_SIZE), GZIP_BUFFER_SIZE);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,153 @@
+package com.clocliketool.archive;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 压缩包遍历器
+ * 把压缩包当作虚拟目录，按顺序把其中的每个文件条目以流的形式交给调用者，
+ * 条目内容直接从解压流中读取，不解压到临时文件，也不在内存中缓冲整个条目。
+ * 压缩包中的压缩包在嵌套层数未超过上限时同样展开，条目路径形如"a.zip!/lib/b.jar!/x.c"。
+ */
+public class ArchiveWalker {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /** 压缩包与其中条目路径之间的分隔符 */
+    public static final String ENTRY_SEPARATOR = "!/";
+    
+    /**
+     * 接收压缩包中的文件条目
+     */
+    public interface EntryConsumer {
+        
+        /**
+         * 处理一个文件条目
+         * 
+         * @param path 条目的虚拟路径
+         * @param in 条目内容，读到条目末尾时返回-1，调用者不需要读完也不应关闭
+         * @throws IOException 如果读取失败
+         */
+        void accept(String path, InputStream in) throws IOException;
+    }
+    
+    private final int maxDepth;
+    
+    /**
+     * @param maxDepth 最多展开的压缩包层数，1表示不展开压缩包中的压缩包
+     */
+    public ArchiveWalker(int maxDepth) {
+        this.maxDepth = Math.max(1, maxDepth);
+    }
+    
+    /**
+     * 检查文件名是否是支持的压缩包
+     */
+    public static boolean isArchive(String name) {
+        return ArchiveFormat.forName(name) != null;
+    }
+    
+    /**
+     * 遍历压缩包中的文件条目
+     * 
+     * @param archive 压缩包文件
+     * @param consumer 条目的接收者
+     * @throws IOException 如果压缩包无法读取或格式无效
+     */
+    public void walk(File archive, EntryConsumer consumer) throws IOException {
+        ArchiveFormat format = ArchiveFormat.forName(archive.getName());
+        if (format == null) {
+            throw new IOException("不支持的压缩包格式: " + archive.getPath());
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE)) {
+            walk(format, in, archive.getPath(), 1, consumer);
+        }
+    }
+    
+    /**
+     * 遍历一层压缩包，in在返回后仍然可以被外层压缩包继续读取
+     */
+    private void walk(ArchiveFormat format, InputStream in, String archivePath, int depth, EntryConsumer consumer)
+            throws IOException {
+        // 解压流关闭时会释放解压器，但不能连带关闭外层压缩包的流
+        try (InputStream content = format.decompress(new NonClosingInputStream(in))) {
+            if (format == ArchiveFormat.ZIP) {
+                walkZip(new ZipInputStream(content), archivePath, depth, consumer);
+            } else {
+                walkTar(new TarReader(content), archivePath, depth, consumer);
+            }
+        }
+    }
+    
+    private void walkZip(ZipInputStream zip, String archivePath, int depth, EntryConsumer consumer)
+            throws IOException {
+        try {
+            InputStream entryStream = new NonClosingInputStream(zip);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    visit(entry.getName(), entryStream, archivePath, depth, consumer);
+                }
+            }
+        } finally {
+            zip.close();
+        }
+    }
+    
+    private void walkTar(TarReader tar, String archivePath, int depth, EntryConsumer consumer) throws IOException {
+        String name;
+        while ((name = tar.nextEntry()) != null) {
+            visit(name, tar.entryStream(), archivePath, depth, consumer);
+        }
+    }
+    
+    /**
+     * 处理一个条目：嵌套层数允许时展开其中的压缩包，否则交给接收者
+     */
+    private void visit(String name, InputStream in, String archivePath, int depth, EntryConsumer consumer)
+            throws IOException {
+        String path = archivePath + ENTRY_SEPARATOR + stripLeadingSlashes(name);
+        ArchiveFormat nested = ArchiveFormat.forName(name);
+        if (nested == null) {
+            consumer.accept(path, in);
+        } else if (depth < maxDepth) {
+            walk(nested, in, path, depth + 1, consumer);
+        }
+    }
+    
+    /**
+     * 去掉条目名称开头的"/"和"./"
+     */
+    private static String stripLeadingSlashes(String name) {
+        int start = 0;
+        while (true) {
+            if (name.startsWith("/", start)) {
+                start++;
+            } else if (name.startsWith("./", start)) {
+                start += 2;
+            } else {
+                return name.substring(start);
+            }
+        }
+    }
+    
+    /**
+     * 关闭时不关闭底层流的包装
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public void close() {
+            // 底层流由外层负责关闭
+        }
+    }
+}
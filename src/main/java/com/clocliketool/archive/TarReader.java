@@ -0,0 +1,322 @@
+package com.clocliketool.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * tar格式读取器
+ * 顺序读取tar流中的条目，条目内容直接从底层流读取，不缓冲整个条目。
+ * 支持POSIX ustar格式（含路径前缀）、GNU长文件名以及pax扩展头中的path和size，
+ * 只返回普通文件，目录、链接和设备等条目被跳过。
+ */
+class TarReader {
+    
+    private static final int BLOCK_SIZE = 512;
+    
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+    
+    private static final byte TYPE_REGULAR = '0';
+    private static final byte TYPE_REGULAR_OLD = 0;
+    private static final byte TYPE_CONTIGUOUS = '7';
+    private static final byte TYPE_GNU_LONG_NAME = 'L';
+    private static final byte TYPE_PAX_HEADER = 'x';
+    
+    /** 扩展头的最大长度，超过该长度的扩展头视为无效 */
+    private static final int MAX_EXTENDED_HEADER = 1024 * 1024;
+    
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK_SIZE];
+    
+    /** 当前条目中尚未读取的字节数 */
+    private long remaining = 0;
+    
+    /** 当前条目末尾补齐到块边界的字节数 */
+    private long padding = 0;
+    
+    private final InputStream entryStream = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("tar条目不完整");
+            }
+            remaining--;
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("tar条目不完整");
+            }
+            remaining -= read;
+            return read;
+        }
+    };
+    
+    /**
+     * @param in tar格式的输入流
+     */
+    TarReader(InputStream in) {
+        this.in = in;
+    }
+    
+    /**
+     * 移动到下一个普通文件条目，当前条目中未读取的内容被跳过
+     * 
+     * @return 条目的路径，没有更多条目时返回null
+     * @throws IOException 如果读取失败或格式无效
+     */
+    String nextEntry() throws IOException {
+        String longName = null;
+        long extendedSize = -1;
+        while (true) {
+            skipFully(remaining + padding);
+            remaining = 0;
+            padding = 0;
+            
+            if (!readHeader()) {
+                return null;
+            }
+            
+            byte type = header[TYPE_OFFSET];
+            if (type == TYPE_GNU_LONG_NAME || type == TYPE_PAX_HEADER) {
+                // 扩展头作用于紧随其后的条目
+                long size = parseSize();
+                if (size > MAX_EXTENDED_HEADER) {
+                    throw new IOException("tar扩展头过长");
+                }
+                padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+                byte[] data = new byte[(int) size];
+                readFully(data);
+                if (type == TYPE_GNU_LONG_NAME) {
+                    longName = trimNul(new String(data, StandardCharsets.UTF_8));
+                } else {
+                    Map<String, String> records = paxRecords(data);
+                    if (records.containsKey("path")) {
+                        longName = records.get("path");
+                    }
+                    if (records.containsKey("size")) {
+                        extendedSize = parsePaxSize(records.get("size"));
+                    }
+                }
+                continue;
+            }
+            
+            // pax的size记录覆盖头部中的大小，头部的12字节字段无法表示8GiB以上的条目
+            long size = extendedSize >= 0 ? extendedSize : parseSize();
+            String name = longName != null ? longName : headerName();
+            longName = null;
+            extendedSize = -1;
+            remaining = size;
+            padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+            
+            if (type == TYPE_REGULAR || type == TYPE_REGULAR_OLD || type == TYPE_CONTIGUOUS) {
+                return name;
+            }
+        }
+    }
+    
+    /**
+     * 获取当前条目内容的输入流，读到条目末尾时返回-1，关闭时不做任何操作
+     */
+    InputStream entryStream() {
+        return entryStream;
+    }
+    
+    /**
+     * 读取下一个头部块
+     * 
+     * @return 到达归档末尾（全零块或流结束）时返回false
+     */
+    private boolean readHeader() throws IOException {
+        int read = 0;
+        while (read < BLOCK_SIZE) {
+            int n = in.read(header, read, BLOCK_SIZE - read);
+            if (n < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new EOFException("tar头部不完整");
+            }
+            read += n;
+        }
+        
+        boolean empty = true;
+        for (byte b : header) {
+            if (b != 0) {
+                empty = false;
+                break;
+            }
+        }
+        if (empty) {
+            return false;
+        }
+        
+        if (parseOctal(CHECKSUM_OFFSET, CHECKSUM_LENGTH) != checksum()) {
+            throw new IOException("无效的tar头部");
+        }
+        return true;
+    }
+    
+    /**
+     * 计算头部校验和，校验和字段本身按空格计算
+     */
+    private long checksum() {
+        long sum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            boolean checksumField = i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH;
+            sum += checksumField ? ' ' : header[i] & 0xFF;
+        }
+        return sum;
+    }
+    
+    private String headerName() {
+        String name = headerString(NAME_OFFSET, NAME_LENGTH);
+        boolean ustar = header[MAGIC_OFFSET] == 'u' && header[MAGIC_OFFSET + 1] == 's'
+                && header[MAGIC_OFFSET + 2] == 't' && header[MAGIC_OFFSET + 3] == 'a'
+                && header[MAGIC_OFFSET + 4] == 'r';
+        if (ustar) {
+            String prefix = headerString(PREFIX_OFFSET, PREFIX_LENGTH);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+    
+    private String headerString(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 解析条目大小，支持八进制文本和GNU的二进制（base-256）表示
+     */
+    private long parseSize() throws IOException {
+        if ((header[SIZE_OFFSET] & 0x80) != 0) {
+            long size = header[SIZE_OFFSET] & 0x7F;
+            for (int i = SIZE_OFFSET + 1; i < SIZE_OFFSET + SIZE_LENGTH; i++) {
+                if (size > (Long.MAX_VALUE >> 8)) {
+                    throw new IOException("tar条目过大");
+                }
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        return parseOctal(SIZE_OFFSET, SIZE_LENGTH);
+    }
+    
+    private long parseOctal(int offset, int length) throws IOException {
+        long value = 0;
+        int end = offset + length;
+        int i = offset;
+        while (i < end && header[i] == ' ') {
+            i++;
+        }
+        for (; i < end && header[i] != 0 && header[i] != ' '; i++) {
+            int digit = header[i] - '0';
+            if (digit < 0 || digit > 7) {
+                throw new IOException("无效的tar头部");
+            }
+            value = (value << 3) | digit;
+        }
+        return value;
+    }
+    
+    /**
+     * 解析pax扩展头中的记录，记录格式为"长度 键=值\n"，长度包含长度字段本身和换行符
+     */
+    private static Map<String, String> paxRecords(byte[] data) throws IOException {
+        Map<String, String> records = new HashMap<>();
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("无效的pax扩展头");
+            }
+            // 长度至少要容纳长度字段、空格和换行符
+            if (length < space - position + 2 || length > data.length - position
+                    || data[position + length - 1] != '\n') {
+                throw new IOException("无效的pax扩展头");
+            }
+            String record = new String(data, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                records.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            position += length;
+        }
+        return records;
+    }
+    
+    private static long parsePaxSize(String text) throws IOException {
+        try {
+            long size = Long.parseLong(text);
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一报告
+        }
+        throw new IOException("无效的pax扩展头");
+    }
+    
+    private static String trimNul(String text) {
+        int end = text.indexOf('\0');
+        return end >= 0 ? text.substring(0, end) : text;
+    }
+    
+    private void readFully(byte[] data) throws IOException {
+        int read = 0;
+        while (read < data.length) {
+            int n = in.read(data, read, data.length - read);
+            if (n < 0) {
+                throw new EOFException("tar条目不完整");
+            }
+            read += n;
+        }
+    }
+    
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("tar条目不完整");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.clocliketool.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件内容哈希工具
+ * 计算文件内容的64位非加密哈希，用于判断文件内容是否发生变化。
+ * 每次处理8个字节，速度接近磁盘读取速度。
+ */
+public class ContentHasher {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+    
+    /**
+     * 计算文件内容的哈希值
+     * 
+     * @param file 要计算的文件
+     * @return 64位哈希值
+     * @throws IOException 如果文件读取失败
+     */
+    public static long hash(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = BUFFERS.get();
+            buffer.clear();
+            long hash = PRIME_3;
+            long length = 0;
+            int read;
+            while ((read = channel.read(buffer)) != -1) {
+                length += read;
+                buffer.flip();
+                // 缓冲区末尾不足8字节的部分留到下一轮，保证结果与读取的分块方式无关
+                while (buffer.remaining() >= Long.BYTES) {
+                    hash = mix(hash, buffer.getLong());
+                }
+                buffer.compact();
+            }
+            buffer.flip();
+            long tail = 0;
+            int shift = 0;
+            while (buffer.hasRemaining()) {
+                tail |= (buffer.get() & 0xFFL) << shift;
+                shift += 8;
+            }
+            hash = mix(hash, tail);
+            return finish(hash ^ length);
+        }
+    }
+    
+    private static long mix(long hash, long value) {
+        hash ^= Long.rotateLeft(value * PRIME_2, 31) * PRIME_1;
+        return Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_3;
+    }
+    
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
@@ -0,0 +1,356 @@
+package com.clocliketool.cache;
+
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.model.SourceFile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量统计结果缓存
+ * 以文件路径为键保存单个文件的统计结果以及文件大小、修改时间和可选的内容哈希。
+ * 文件大小与修改时间都未变化时直接使用缓存结果；启用内容哈希时，
+ * 修改时间变化但内容相同的文件同样命中缓存。
+ * 内容哈希与统计分别读取文件，两次读取之间文件大小或修改时间发生变化时不保存该文件的结果，
+ * 避免缓存条目中的哈希与统计结果对应不同的内容。
+ * 
+ * 缓存文件采用紧凑的二进制格式：路径按字典序排列并只保存与前一个路径不同的后缀，
+ * 数值使用变长编码，加载时一次读入内存后解析。
+ * 本次运行中不再存在的文件对应的条目在保存时被清除。
+ */
+public class ResultCache {
+    
+    private static final int MAGIC = 0x434C4F43; // "CLOC"
+    
+    /** 缓存格式版本，统计规则变化时递增，使旧缓存失效 */
+    private static final int VERSION = 1;
+    
+    private static final int FLAG_HASHES = 1;
+    
+    private static final long NO_HASH = 0;
+    
+    private final File cacheFile;
+    private final boolean useHashes;
+    
+    /** 从缓存文件加载的条目，加载后只读 */
+    private final Map<String, Entry> loadedEntries;
+    
+    /** 本次运行中命中或新统计的条目 */
+    private final Map<String, Entry> currentEntries = new ConcurrentHashMap<>();
+    
+    private ResultCache(File cacheFile, boolean useHashes, Map<String, Entry> loadedEntries) {
+        this.cacheFile = cacheFile;
+        this.useHashes = useHashes;
+        this.loadedEntries = loadedEntries;
+    }
+    
+    /**
+     * 加载缓存文件，文件不存在或格式无效时返回空缓存
+     * 
+     * @param cacheFile 缓存文件
+     * @param useHashes 是否使用内容哈希判断文件是否变化
+     * @return 结果缓存
+     */
+    public static ResultCache load(File cacheFile, boolean useHashes) {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (cacheFile.isFile()) {
+            try {
+                decode(Files.readAllBytes(cacheFile.toPath()), entries);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("警告: 无法读取缓存文件，将重新统计: " + cacheFile.getPath());
+                entries.clear();
+            }
+        }
+        return new ResultCache(cacheFile, useHashes, entries);
+    }
+    
+    /**
+     * 查找文件的缓存结果
+     * 
+     * @param source 要统计的源文件
+     * @return 文件未变化时返回缓存的统计结果，否则返回null
+     */
+    public LineCountResult lookup(SourceFile source) {
+        File file = source.getFile();
+        String key = keyOf(file);
+        Entry entry = loadedEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        
+        try {
+            long size = source.getSize();
+            long modified = source.getLastModified();
+            if (entry.size != size) {
+                return null;
+            }
+            
+            if (entry.modified != modified) {
+                // 修改时间变化但内容未变（例如重新检出），只需更新修改时间
+                if (!useHashes || entry.hash == NO_HASH || ContentHasher.hash(file) != entry.hash) {
+                    return null;
+                }
+                entry = new Entry(size, modified, entry.hash, entry.codeLines, entry.commentLines, entry.blankLines);
+            } else if (useHashes && entry.hash == NO_HASH) {
+                long hash = ContentHasher.hash(file);
+                if (changedSince(source)) {
+                    return null;
+                }
+                entry = new Entry(size, modified, hash, entry.codeLines, entry.commentLines, entry.blankLines);
+            }
+            
+            currentEntries.put(key, entry);
+            return new LineCountResult(entry.codeLines, entry.commentLines, entry.blankLines);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 保存文件的统计结果
+     * 
+     * @param source 已统计的源文件
+     * @param result 统计结果
+     */
+    public void store(SourceFile source, LineCountResult result) {
+        try {
+            long hash = NO_HASH;
+            if (useHashes) {
+                hash = ContentHasher.hash(source.getFile());
+                // 统计和哈希期间文件被修改过，哈希可能来自新内容而统计结果来自旧内容
+                if (changedSince(source)) {
+                    return;
+                }
+            }
+            currentEntries.put(keyOf(source.getFile()), new Entry(source.getSize(), source.getLastModified(),
+                    hash, Math.toIntExact(result.getCodeLines()), Math.toIntExact(result.getCommentLines()),
+                    Math.toIntExact(result.getBlankLines())));
+        } catch (IOException | ArithmeticException e) {
+            // 无法读取文件内容或单个文件的行数超出int范围时不缓存该文件
+        }
+    }
+    
+    /**
+     * 将缓存写回磁盘
+     * 本次运行未访问的条目仅在对应文件仍然存在时保留
+     * 
+     * @throws IOException 如果写入失败
+     */
+    public void save() throws IOException {
+        Map<String, Entry> entries = new ConcurrentHashMap<>(currentEntries);
+        for (Map.Entry<String, Entry> loaded : loadedEntries.entrySet()) {
+            if (!entries.containsKey(loaded.getKey()) && new File(loaded.getKey()).isFile()) {
+                entries.put(loaded.getKey(), loaded.getValue());
+            }
+        }
+        
+        List<String> keys = new ArrayList<>(entries.keySet());
+        Collections.sort(keys);
+        
+        // 先写入临时文件再替换，中途失败不会留下不完整的缓存文件
+        Path tempFile = new File(cacheFile.getPath() + ".tmp").toPath();
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024)) {
+                encode(keys, entries, out);
+            }
+            Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    /**
+     * 获取本次运行中命中缓存或新统计的文件数
+     */
+    public int size() {
+        return currentEntries.size();
+    }
+    
+    /**
+     * 检查文件的大小或修改时间是否与遍历时读取的不同
+     */
+    private static boolean changedSince(SourceFile source) {
+        SourceFile current = SourceFile.of(source.getFile());
+        return current == null || current.getSize() != source.getSize()
+                || current.getLastModified() != source.getLastModified();
+    }
+    
+    private static String keyOf(File file) {
+        return file.getAbsolutePath();
+    }
+    
+    /**
+     * 编码缓存内容
+     */
+    private void encode(List<String> keys, Map<String, Entry> entries, OutputStream out) throws IOException {
+        writeInt(out, MAGIC);
+        out.write(VERSION);
+        out.write(useHashes ? FLAG_HASHES : 0);
+        writeVarLong(out, keys.size());
+        
+        byte[] previous = new byte[0];
+        for (String key : keys) {
+            byte[] path = key.getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            int limit = Math.min(previous.length, path.length);
+            while (shared < limit && previous[shared] == path[shared]) {
+                shared++;
+            }
+            writeVarLong(out, shared);
+            writeVarLong(out, path.length - shared);
+            out.write(path, shared, path.length - shared);
+            previous = path;
+            
+            Entry entry = entries.get(key);
+            writeVarLong(out, entry.size);
+            writeVarLong(out, entry.modified);
+            if (useHashes) {
+                writeLong(out, entry.hash);
+            }
+            writeVarLong(out, entry.codeLines);
+            writeVarLong(out, entry.commentLines);
+            writeVarLong(out, entry.blankLines);
+        }
+    }
+    
+    /**
+     * 解码缓存内容
+     */
+    private static void decode(byte[] data, Map<String, Entry> entries) throws IOException {
+        Decoder in = new Decoder(data);
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("缓存文件格式无效");
+        }
+        boolean hasHashes = (in.readByte() & FLAG_HASHES) != 0;
+        long count = in.readVarLong();
+        
+        byte[] path = new byte[256];
+        int pathLength = 0;
+        for (long i = 0; i < count; i++) {
+            int shared = (int) in.readVarLong();
+            int suffix = (int) in.readVarLong();
+            if (shared > pathLength) {
+                throw new IOException("缓存文件格式无效");
+            }
+            pathLength = shared + suffix;
+            if (pathLength > path.length) {
+                byte[] grown = new byte[Math.max(pathLength, path.length * 2)];
+                System.arraycopy(path, 0, grown, 0, shared);
+                path = grown;
+            }
+            in.readBytes(path, shared, suffix);
+            String key = new String(path, 0, pathLength, StandardCharsets.UTF_8);
+            
+            long size = in.readVarLong();
+            long modified = in.readVarLong();
+            long hash = hasHashes ? in.readLong() : NO_HASH;
+            int code = (int) in.readVarLong();
+            int comment = (int) in.readVarLong();
+            int blank = (int) in.readVarLong();
+            entries.put(key, new Entry(size, modified, hash, code, comment, blank));
+        }
+    }
+    
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+    
+    private static void writeLong(OutputStream out, long value) throws IOException {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+    
+    /**
+     * 以每字节7位的变长格式写入非负整数
+     */
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    /**
+     * 缓存文件内容的解码器
+     */
+    private static class Decoder {
+        private final byte[] data;
+        private int position = 0;
+        
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+        
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("缓存文件不完整");
+            }
+            return data[position++] & 0xFF;
+        }
+        
+        int readInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+        
+        long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+        
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("缓存文件格式无效");
+        }
+        
+        void readBytes(byte[] target, int offset, int length) throws IOException {
+            if (length < 0 || position + length > data.length) {
+                throw new IOException("缓存文件不完整");
+            }
+            System.arraycopy(data, position, target, offset, length);
+            position += length;
+        }
+    }
+    
+    /**
+     * 单个文件的缓存条目
+     */
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final long hash;
+        private final int codeLines;
+        private final int commentLines;
+        private final int blankLines;
+        
+        Entry(long size, long modified, long hash, int codeLines, int commentLines, int blankLines) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.codeLines = codeLines;
+            this.commentLines = commentLines;
+            this.blankLines = blankLines;
+        }
+    }
+}
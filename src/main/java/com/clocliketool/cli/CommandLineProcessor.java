@@ -2,10 +2,24 @@ package com.clocliketool.cli;
 
 import com.clocliketool.counter.LineCounter;
 import com.clocliketool.counter.LineCounterFactory;
+import com.clocliketool.counter.SourceReader;
+import com.clocliketool.model.FileResultStore;
+import com.clocliketool.util.DiscoveryMode;
+import com.clocliketool.util.CsvReportFormatter;
+import com.clocliketool.util.JsonReportFormatter;
+import com.clocliketool.util.PathPatternFilter;
+import com.clocliketool.util.ReportFormatter;
+import com.clocliketool.util.ScanMetrics;
+import com.clocliketool.util.ShardFilter;
+import com.clocliketool.util.SqlReportFormatter;
+import com.clocliketool.util.StreamingResultWriter;
+import com.clocliketool.util.YamlReportFormatter;
 import org.apache.commons.cli.*;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * 命令行处理类，负责解析命令行参数
@@ -15,6 +29,8 @@ public class CommandLineProcessor {
     private final String[] args;
     private CommandLine cmd;
     private Options options;
+    private PathPatternFilter pathFilter;
+    private ShardFilter shard;
     
     public CommandLineProcessor(String[] args) {
         this.args = args;
@@ -30,10 +46,18 @@ public class CommandLineProcessor {
         try {
             CommandLineParser parser = new DefaultParser();
             cmd = parser.parse(options, args);
+            pathFilter = createPathFilter();
+            shard = cmd.hasOption("shard") ? ShardFilter.parse(cmd.getOptionValue("shard")) : null;
             return true;
         } catch (ParseException e) {
             System.err.println("参数解析错误: " + e.getMessage());
             return false;
+        } catch (PatternSyntaxException e) {
+            System.err.println("参数解析错误: 无效的正则表达式: " + e.getPattern());
+            return false;
+        } catch (IllegalArgumentException e) {
+            System.err.println("参数解析错误: " + e.getMessage());
+            return false;
         }
     }
     
@@ -79,6 +103,419 @@ public class CommandLineProcessor {
         return selectedCounters;
     }
     
+    /**
+     * 获取并行分析的工作线程数，默认为可用的处理器核数
+     */
+    public int getJobs() {
+        int defaultJobs = Runtime.getRuntime().availableProcessors();
+        if (!cmd.hasOption("j")) {
+            return defaultJobs;
+        }
+        
+        String jobsParam = cmd.getOptionValue("j");
+        try {
+            int jobs = Integer.parseInt(jobsParam.trim());
+            if (jobs > 0) {
+                return jobs;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出警告
+        }
+        System.err.println("警告: 无效的线程数: " + jobsParam);
+        System.err.println("使用默认线程数: " + defaultJobs);
+        return defaultJobs;
+    }
+    
+    /**
+     * 获取使用内存映射读取的文件大小阈值
+     * 
+     * @return 阈值（字节），小于0表示不使用内存映射
+     */
+    public long getMmapThreshold() {
+        if (!cmd.hasOption("mmap-threshold")) {
+            return SourceReader.DEFAULT_MMAP_THRESHOLD;
+        }
+        
+        String thresholdParam = cmd.getOptionValue("mmap-threshold");
+        try {
+            return Long.parseLong(thresholdParam.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("警告: 无效的内存映射阈值: " + thresholdParam);
+            System.err.println("使用默认阈值: " + SourceReader.DEFAULT_MMAP_THRESHOLD);
+            return SourceReader.DEFAULT_MMAP_THRESHOLD;
+        }
+    }
+    
+    /**
+     * 获取增量统计使用的缓存文件
+     * 
+     * @return 缓存文件，未指定时返回null
+     */
+    public File getCacheFile() {
+        return cmd.hasOption("cache") ? new File(cmd.getOptionValue("cache")) : null;
+    }
+    
+    /**
+     * 检查缓存是否使用内容哈希判断文件变化
+     */
+    public boolean shouldUseCacheHashes() {
+        return cmd.hasOption("cache-hash");
+    }
+    
+    /**
+     * 获取并行遍历目录的线程数
+     * 
+     * @return 线程数，未指定时返回0，表示在当前线程中顺序遍历
+     */
+    public int getWalkThreads() {
+        if (!cmd.hasOption("walk-threads")) {
+            return 0;
+        }
+        
+        String threadsParam = cmd.getOptionValue("walk-threads");
+        try {
+            int threads = Integer.parseInt(threadsParam.trim());
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出警告
+        }
+        System.err.println("警告: 无效的遍历线程数: " + threadsParam);
+        System.err.println("使用顺序遍历");
+        return 0;
+    }
+    
+    /**
+     * 检查并行遍历目录时是否保持确定的顺序
+     */
+    public boolean isWalkOrdered() {
+        return cmd.hasOption("walk-ordered");
+    }
+    
+    /**
+     * 检查是否输出目录遍历的统计信息
+     */
+    public boolean shouldShowWalkStatistics() {
+        return cmd.hasOption("walk-stats");
+    }
+    
+    /**
+     * 检查是否输出各阶段的耗时统计，--metrics是--stats的别名
+     */
+    public boolean shouldShowStats() {
+        return cmd.hasOption("stats") || cmd.hasOption("metrics");
+    }
+    
+    /**
+     * 获取耗时统计中列出的最慢文件数
+     * 
+     * @return 最慢文件数，0表示不列出
+     */
+    public int getSlowestFileCount() {
+        if (!cmd.hasOption("stats-slowest")) {
+            return ScanMetrics.DEFAULT_SLOWEST_FILES;
+        }
+        
+        String countParam = cmd.getOptionValue("stats-slowest");
+        try {
+            int count = Integer.parseInt(countParam.trim());
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出警告
+        }
+        System.err.println("警告: 无效的最慢文件数: " + countParam);
+        System.err.println("使用默认数量: " + ScanMetrics.DEFAULT_SLOWEST_FILES);
+        return ScanMetrics.DEFAULT_SLOWEST_FILES;
+    }
+    
+    /**
+     * 获取写入JSON格式耗时统计的文件
+     * 
+     * @return 统计文件，未指定时返回null
+     */
+    public File getStatsJsonFile() {
+        return cmd.hasOption("stats-json") ? new File(cmd.getOptionValue("stats-json")) : null;
+    }
+    
+    /**
+     * 检查是否需要收集耗时统计
+     */
+    public boolean shouldCollectStats() {
+        return shouldShowStats() || getStatsJsonFile() != null;
+    }
+    
+    /**
+     * 检查是否在分析进行中输出进度
+     */
+    public boolean shouldShowProgress() {
+        return cmd.hasOption("progress");
+    }
+    
+    /**
+     * 获取目录中源文件的发现方式
+     * 同时指定时--git-index优先
+     */
+    public DiscoveryMode getDiscoveryMode() {
+        if (cmd.hasOption("git-index")) {
+            return DiscoveryMode.GIT_INDEX;
+        }
+        if (cmd.hasOption("gitignore")) {
+            return DiscoveryMode.IGNORE_FILES;
+        }
+        return DiscoveryMode.WALK;
+    }
+    
+    /**
+     * 获取按--exclude-dir、--exclude、--include和--match编译的路径过滤器
+     * 
+     * @return 过滤器，未指定这些选项时返回null
+     */
+    public PathPatternFilter getPathFilter() {
+        return pathFilter;
+    }
+    
+    /**
+     * 编译路径过滤选项，每个选项可以重复指定，也可以用逗号分隔多个模式
+     */
+    private PathPatternFilter createPathFilter() {
+        List<String> excludeDirectories = getPatternValues("exclude-dir");
+        List<String> excludes = getPatternValues("exclude");
+        List<String> includes = getPatternValues("include");
+        String match = cmd.getOptionValue("match");
+        if (excludeDirectories.isEmpty() && excludes.isEmpty() && includes.isEmpty() && match == null) {
+            return null;
+        }
+        return new PathPatternFilter(excludeDirectories, excludes, includes, match);
+    }
+    
+    private List<String> getPatternValues(String option) {
+        List<String> patterns = new ArrayList<>();
+        String[] values = cmd.getOptionValues(option);
+        if (values != null) {
+            for (String value : values) {
+                for (String pattern : value.split(",")) {
+                    if (!pattern.trim().isEmpty()) {
+                        patterns.add(pattern.trim());
+                    }
+                }
+            }
+        }
+        return patterns;
+    }
+    
+    /**
+     * 检查是否跳过内容重复的文件
+     */
+    public boolean shouldDeduplicate() {
+        return cmd.hasOption("dedup");
+    }
+    
+    /**
+     * 获取要统计的git版本
+     * 
+     * @return 版本表达式，未指定时返回null
+     */
+    public String getGitRevision() {
+        return cmd.hasOption("git-rev") ? cmd.getOptionValue("git-rev").trim() : null;
+    }
+    
+    /**
+     * 获取历史统计的提交范围
+     * 
+     * @return 提交范围，未指定时返回null
+     */
+    public String getGitHistory() {
+        return cmd.hasOption("git-history") ? cmd.getOptionValue("git-history").trim() : null;
+    }
+    
+    /**
+     * 获取只统计的分片
+     * 
+     * @return 分片，未指定时返回null
+     */
+    public ShardFilter getShard() {
+        return shard;
+    }
+    
+    /**
+     * 获取写出部分结果的文件
+     * 
+     * @return 部分结果文件，未指定时返回null
+     */
+    public File getPartialOutputFile() {
+        return cmd.hasOption("emit-partial") ? new File(cmd.getOptionValue("emit-partial")) : null;
+    }
+    
+    /**
+     * 检查是否把路径当作部分结果文件合并
+     */
+    public boolean shouldMergePartials() {
+        return cmd.hasOption("merge-partials");
+    }
+    
+    /**
+     * 检查是否展开遍历目录时遇到的压缩包
+     */
+    public boolean shouldScanArchives() {
+        return cmd.hasOption("archives");
+    }
+    
+    /**
+     * 获取最多展开的压缩包层数
+     * 
+     * @return 层数，默认为1，即不展开压缩包中的压缩包
+     */
+    public int getArchiveDepth() {
+        if (!cmd.hasOption("archive-depth")) {
+            return 1;
+        }
+        
+        String depthParam = cmd.getOptionValue("archive-depth");
+        try {
+            int depth = Integer.parseInt(depthParam.trim());
+            if (depth >= 1) {
+                return depth;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出警告
+        }
+        System.err.println("警告: 无效的压缩包层数: " + depthParam);
+        System.err.println("不展开压缩包中的压缩包");
+        return 1;
+    }
+    
+    /**
+     * 检查是否按文件输出统计结果
+     */
+    public boolean shouldReportByFile() {
+        return cmd.hasOption("by-file");
+    }
+    
+    /**
+     * 获取按文件输出时排序的列
+     * 
+     * @return 排序的列，默认按代码行数
+     */
+    public FileResultStore.Column getSortColumn() {
+        if (!cmd.hasOption("sort")) {
+            return FileResultStore.Column.CODE;
+        }
+        
+        String columnParam = cmd.getOptionValue("sort").trim();
+        try {
+            return FileResultStore.Column.valueOf(columnParam.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("警告: 无效的排序列: " + columnParam);
+            System.err.println("按代码行数排序");
+            return FileResultStore.Column.CODE;
+        }
+    }
+    
+    /**
+     * 获取按文件输出时最多输出的文件数
+     * 
+     * @return 文件数，未指定时返回-1，表示输出所有文件
+     */
+    public int getTopFiles() {
+        if (!cmd.hasOption("top")) {
+            return -1;
+        }
+        
+        String topParam = cmd.getOptionValue("top");
+        try {
+            int top = Integer.parseInt(topParam.trim());
+            if (top >= 0) {
+                return top;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出警告
+        }
+        System.err.println("警告: 无效的文件数: " + topParam);
+        System.err.println("输出所有文件");
+        return -1;
+    }
+    
+    /**
+     * 检查是否流式输出单文件统计结果
+     */
+    public boolean shouldStream() {
+        return cmd.hasOption("stream");
+    }
+    
+    /**
+     * 获取流式输出的格式
+     * 
+     * @return 输出格式，参数无效时返回null
+     */
+    public StreamingResultWriter.Format getStreamFormat() {
+        String formatParam = cmd.getOptionValue("stream").trim();
+        try {
+            return StreamingResultWriter.Format.valueOf(formatParam.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误: 不支持的输出格式: " + formatParam);
+            return null;
+        }
+    }
+    
+    /**
+     * 获取流式输出的目标文件
+     * 
+     * @return 输出文件，未指定时返回null，表示输出到标准输出
+     */
+    public File getStreamOutputFile() {
+        return cmd.hasOption("stream-output") ? new File(cmd.getOptionValue("stream-output")) : null;
+    }
+    
+    /**
+     * 获取统计报告的格式化器
+     * 
+     * @return 格式化器，未指定机器可读格式时返回null，表示输出文本表格
+     */
+    public ReportFormatter getReportFormatter() {
+        if (cmd.hasOption("json")) {
+            return new JsonReportFormatter();
+        }
+        if (cmd.hasOption("csv")) {
+            return new CsvReportFormatter();
+        }
+        if (cmd.hasOption("yaml")) {
+            return new YamlReportFormatter();
+        }
+        if (cmd.hasOption("sql")) {
+            return new SqlReportFormatter();
+        }
+        return null;
+    }
+    
+    /**
+     * 检查是否以常驻服务模式运行
+     */
+    public boolean shouldServe() {
+        return cmd.hasOption("serve");
+    }
+    
+    /**
+     * 获取常驻服务监听的端口
+     * 
+     * @return 端口号，参数无效时返回-1
+     */
+    public int getServePort() {
+        String portParam = cmd.getOptionValue("serve");
+        try {
+            int port = Integer.parseInt(portParam.trim());
+            if (port >= 0 && port <= 65535) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出错误
+        }
+        System.err.println("错误: 无效的端口: " + portParam);
+        return -1;
+    }
+    
     /**
      * 创建命令行选项
      */
@@ -97,8 +534,262 @@ public class CommandLineProcessor {
                 .desc("指定要统计的语言 (支持: c, cpp, ruby, all)")
                 .build();
         
+        Option jobsOpt = Option.builder("j")
+                .longOpt("jobs")
+                .hasArg()
+                .argName("线程数")
+                .desc("并行分析文件的线程数 (默认: 处理器核数)")
+                .build();
+        
+        Option mmapOpt = Option.builder()
+                .longOpt("mmap-threshold")
+                .hasArg()
+                .argName("字节数")
+                .desc("不小于该大小的文件使用内存映射读取，-1表示不使用 (默认: "
+                        + SourceReader.DEFAULT_MMAP_THRESHOLD + ")")
+                .build();
+        
+        Option cacheOpt = Option.builder()
+                .longOpt("cache")
+                .hasArg()
+                .argName("文件")
+                .desc("使用指定的缓存文件进行增量统计，未变化的文件直接使用上次的结果")
+                .build();
+        
+        Option cacheHashOpt = Option.builder()
+                .longOpt("cache-hash")
+                .desc("缓存同时记录文件内容哈希，修改时间变化但内容相同的文件仍使用缓存结果")
+                .build();
+        
+        Option serveOpt = Option.builder()
+                .longOpt("serve")
+                .hasArg()
+                .argName("端口")
+                .desc("以常驻服务模式运行，监听本机端口并在文件变化时增量更新统计结果")
+                .build();
+        
+        Option walkThreadsOpt = Option.builder()
+                .longOpt("walk-threads")
+                .hasArg()
+                .argName("线程数")
+                .desc("使用fork/join线程池并行遍历目录的线程数 (默认: 在当前线程中顺序遍历)")
+                .build();
+        
+        Option walkOrderedOpt = Option.builder()
+                .longOpt("walk-ordered")
+                .desc("并行遍历目录时按文件名排序，以确定的顺序处理文件")
+                .build();
+        
+        Option walkStatsOpt = Option.builder()
+                .longOpt("walk-stats")
+                .desc("输出并行目录遍历的目录数和每秒遍历的目录数")
+                .build();
+        
+        Option statsOpt = Option.builder()
+                .longOpt("stats")
+                .desc("在标准错误中输出遍历、读取、分类和输出的耗时，吞吐量，最慢的文件和垃圾回收耗时")
+                .build();
+        
+        Option metricsOpt = Option.builder()
+                .longOpt("metrics")
+                .desc("与--stats相同")
+                .build();
+        
+        Option statsSlowestOpt = Option.builder()
+                .longOpt("stats-slowest")
+                .hasArg()
+                .argName("数量")
+                .desc("耗时统计中列出的最慢文件数 (默认: " + ScanMetrics.DEFAULT_SLOWEST_FILES + ")")
+                .build();
+        
+        Option statsJsonOpt = Option.builder()
+                .longOpt("stats-json")
+                .hasArg()
+                .argName("文件")
+                .desc("把耗时统计以JSON格式写入文件")
+                .build();
+        
+        Option progressOpt = Option.builder()
+                .longOpt("progress")
+                .desc("分析进行中每秒向标准错误输出已统计的文件数和行数")
+                .build();
+        
+        Option gitignoreOpt = Option.builder()
+                .longOpt("gitignore")
+                .desc("遍历目录时跳过.gitignore和.ignore中忽略的文件和目录以及.git目录")
+                .build();
+        
+        Option gitIndexOpt = Option.builder()
+                .longOpt("git-index")
+                .desc("直接从git索引中读取被跟踪的文件，不遍历工作区；不在git工作区中时按--gitignore遍历")
+                .build();
+        
+        Option excludeDirOpt = Option.builder()
+                .longOpt("exclude-dir")
+                .hasArg()
+                .argName("模式")
+                .desc("跳过匹配的目录，不遍历其中的内容；可重复指定或用逗号分隔，含/的模式相对于统计的根目录")
+                .build();
+        
+        Option excludeOpt = Option.builder()
+                .longOpt("exclude")
+                .hasArg()
+                .argName("模式")
+                .desc("跳过匹配的文件和目录，支持*、?、[...]和**通配符")
+                .build();
+        
+        Option includeOpt = Option.builder()
+                .longOpt("include")
+                .hasArg()
+                .argName("模式")
+                .desc("只统计匹配其中某个模式的文件")
+                .build();
+        
+        Option matchOpt = Option.builder()
+                .longOpt("match")
+                .hasArg()
+                .argName("正则表达式")
+                .desc("只统计相对路径中能找到该正则表达式的文件")
+                .build();
+        
+        Option dedupOpt = Option.builder()
+                .longOpt("dedup")
+                .desc("同一语言中内容相同的文件只统计一次，并报告跳过的重复文件数")
+                .build();
+        
+        Option gitRevOpt = Option.builder()
+                .longOpt("git-rev")
+                .hasArg()
+                .argName("版本")
+                .desc("把路径当作git仓库，直接从对象数据库中读取指定版本（如HEAD、分支、标签、提交ID、HEAD~3）的文件统计，不需要检出")
+                .build();
+        
+        Option gitHistoryOpt = Option.builder()
+                .longOpt("git-history")
+                .hasArg()
+                .argName("范围")
+                .desc("统计git仓库中一段历史的每个提交：A..B为B沿第一父提交向前到A为止的提交，只给出B时为B的全部历史；"
+                        + "相同内容的文件只统计一次")
+                .build();
+        
+        Option shardOpt = Option.builder()
+                .longOpt("shard")
+                .hasArg()
+                .argName("i/N")
+                .desc("把文件按相对路径的哈希分成N片，只统计第i片 (从0开始)，在多台机器上分别统计各片后合并")
+                .build();
+        
+        Option emitPartialOpt = Option.builder()
+                .longOpt("emit-partial")
+                .hasArg()
+                .argName("文件")
+                .desc("把统计结果写入可合并的二进制部分结果文件，不输出报告")
+                .build();
+        
+        Option mergePartialsOpt = Option.builder()
+                .longOpt("merge-partials")
+                .desc("把路径当作部分结果文件，合并后输出最终报告；与--emit-partial同时使用时写出合并后的部分结果")
+                .build();
+        
+        Option archivesOpt = Option.builder()
+                .longOpt("archives")
+                .desc("展开目录中的压缩包 (zip, jar, war, ear, tar, tar.gz, tgz) 并统计其中的文件，命令行中直接指定的压缩包总是被展开")
+                .build();
+        
+        Option archiveDepthOpt = Option.builder()
+                .longOpt("archive-depth")
+                .hasArg()
+                .argName("层数")
+                .desc("最多展开的压缩包嵌套层数 (默认: 1，不展开压缩包中的压缩包)")
+                .build();
+        
+        Option byFileOpt = Option.builder()
+                .longOpt("by-file")
+                .desc("在按语言汇总的结果之前按文件列出统计结果")
+                .build();
+        
+        Option sortOpt = Option.builder()
+                .longOpt("sort")
+                .hasArg()
+                .argName("列")
+                .desc("按文件输出时排序的列 (支持: path, language, lines, code, comments, blanks; 默认: code)")
+                .build();
+        
+        Option topOpt = Option.builder()
+                .longOpt("top")
+                .hasArg()
+                .argName("数量")
+                .desc("按文件输出时只列出排在最前面的若干个文件")
+                .build();
+        
+        Option streamOpt = Option.builder()
+                .longOpt("stream")
+                .hasArg()
+                .argName("格式")
+                .desc("每个文件统计完成后立即输出一条记录，不在内存中保存单文件结果 (支持: ndjson, csv)")
+                .build();
+        
+        Option streamOutputOpt = Option.builder()
+                .longOpt("stream-output")
+                .hasArg()
+                .argName("文件")
+                .desc("流式输出写入的文件 (默认: 标准输出，此时按语言汇总的结果输出到标准错误)")
+                .build();
+        
+        // 报告格式只能指定一种
+        OptionGroup reportFormatGroup = new OptionGroup();
+        reportFormatGroup.addOption(Option.builder()
+                .longOpt("json")
+                .desc("以JSON格式输出统计报告")
+                .build());
+        reportFormatGroup.addOption(Option.builder()
+                .longOpt("csv")
+                .desc("以CSV格式输出统计报告")
+                .build());
+        reportFormatGroup.addOption(Option.builder()
+                .longOpt("yaml")
+                .desc("以YAML格式输出统计报告")
+                .build());
+        reportFormatGroup.addOption(Option.builder()
+                .longOpt("sql")
+                .desc("以SQL语句输出统计报告，可以直接导入SQLite等数据库")
+                .build());
+        
         options.addOption(helpOpt);
         options.addOption(langOpt);
+        options.addOption(jobsOpt);
+        options.addOption(mmapOpt);
+        options.addOption(cacheOpt);
+        options.addOption(cacheHashOpt);
+        options.addOption(serveOpt);
+        options.addOption(walkThreadsOpt);
+        options.addOption(walkOrderedOpt);
+        options.addOption(walkStatsOpt);
+        options.addOption(statsOpt);
+        options.addOption(metricsOpt);
+        options.addOption(statsSlowestOpt);
+        options.addOption(statsJsonOpt);
+        options.addOption(progressOpt);
+        options.addOption(gitignoreOpt);
+        options.addOption(gitIndexOpt);
+        options.addOption(excludeDirOpt);
+        options.addOption(excludeOpt);
+        options.addOption(includeOpt);
+        options.addOption(matchOpt);
+        options.addOption(dedupOpt);
+        options.addOption(gitRevOpt);
+        options.addOption(gitHistoryOpt);
+        options.addOption(shardOpt);
+        options.addOption(emitPartialOpt);
+        options.addOption(mergePartialsOpt);
+        options.addOption(archivesOpt);
+        options.addOption(archiveDepthOpt);
+        options.addOption(byFileOpt);
+        options.addOption(sortOpt);
+        options.addOption(topOpt);
+        options.addOption(streamOpt);
+        options.addOption(streamOutputOpt);
+        options.addOptionGroup(reportFormatGroup);
         
         return options;
     }
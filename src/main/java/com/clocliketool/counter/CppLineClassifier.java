@@ -0,0 +1,271 @@
+package com.clocliketool.counter;
+
+/**
+ * C/C++行分类器
+ * 使用单次前向扫描的状态机跟踪字符串、字符字面量、单行注释和多行注释，
+ * 每个字节只检查一次，不会回头重新扫描行首。
+ */
+public class CppLineClassifier extends LineClassifier {
+    
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int STRING_LITERAL = 3;
+    private static final int CHAR_LITERAL = 4;
+    
+    /** 代码状态下的字节类型 */
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte TERMINATOR = 2;
+    private static final byte IDENTIFIER = 3;
+    private static final byte DIGIT = 4;
+    private static final byte SLASH = 5;
+    
+    /** ASCII字节到字节类型的映射表，非ASCII字节均为OTHER */
+    private static final byte[] BYTE_TYPES = new byte[128];
+    
+    static {
+        for (int b = 0; b <= ' '; b++) {
+            BYTE_TYPES[b] = WHITESPACE;
+        }
+        BYTE_TYPES['\n'] = TERMINATOR;
+        BYTE_TYPES['\r'] = TERMINATOR;
+        for (int b = 'a'; b <= 'z'; b++) {
+            BYTE_TYPES[b] = IDENTIFIER;
+        }
+        for (int b = 'A'; b <= 'Z'; b++) {
+            BYTE_TYPES[b] = IDENTIFIER;
+        }
+        BYTE_TYPES['_'] = IDENTIFIER;
+        for (int b = '0'; b <= '9'; b++) {
+            BYTE_TYPES[b] = DIGIT;
+        }
+        BYTE_TYPES['/'] = SLASH;
+    }
+    
+    private int state = CODE;
+    
+    /** 代码中读到了'/'，需要根据下一个字符判断是否为注释开始 */
+    private boolean pendingSlash = false;
+    
+    /** 多行注释中读到了'*'，下一个字符为'/'时注释结束 */
+    private boolean pendingStar = false;
+    
+    /** 字面量中的转义符，或单行注释末尾的续行符 */
+    private boolean escaped = false;
+    
+    /** 当前是否处于数字字面量中，用于识别C++14的数字分隔符（如1'000'000） */
+    private boolean inNumber = false;
+    
+    /** 代码中的上一个字节 */
+    private int previous = ' ';
+    
+    @Override
+    protected int consume(byte[] data, int from, int to) {
+        int i = from;
+        while (i < to && !isLineTerminator(data[i])) {
+            switch (state) {
+                case CODE:
+                    i = consumeCode(data, i, to);
+                    break;
+                case LINE_COMMENT:
+                    i = consumeLineComment(data, i, to);
+                    break;
+                case BLOCK_COMMENT:
+                    i = consumeBlockComment(data, i, to);
+                    break;
+                default:
+                    i = consumeLiteral(data, i, to);
+                    break;
+            }
+        }
+        return i;
+    }
+    
+    /**
+     * 处理代码状态下的字节，直到进入其他状态、遇到换行符或到达段尾
+     * 热点循环中的状态使用局部变量保存，退出时再写回字段
+     * 
+     * @return 下一个待处理字节的位置
+     */
+    private int consumeCode(byte[] data, int i, int to) {
+        boolean hasCode = lineHasCode;
+        boolean slash = pendingSlash;
+        boolean number = inNumber;
+        int prev = previous;
+        
+        for (; i < to; i++) {
+            int b = data[i];
+            
+            if (slash) {
+                if (b == '/' || b == '*') {
+                    slash = false;
+                    lineHasComment = true;
+                    if (b == '/') {
+                        escaped = false;
+                        state = LINE_COMMENT;
+                    } else {
+                        pendingStar = false;
+                        state = BLOCK_COMMENT;
+                    }
+                    i++;
+                    break;
+                }
+                if (isLineTerminator(b)) {
+                    break; // 由endOfLine处理行尾的'/'
+                }
+                // 单独的'/'是除法运算符，属于代码
+                slash = false;
+                hasCode = true;
+                prev = '/';
+                number = false;
+            }
+            
+            int type = b < 0 ? OTHER : BYTE_TYPES[b];
+            if (type == IDENTIFIER) {
+                hasCode = true;
+                prev = b;
+                continue;
+            }
+            if (type == WHITESPACE) {
+                prev = ' ';
+                number = false;
+                continue;
+            }
+            if (type == TERMINATOR) {
+                break;
+            }
+            if (type == SLASH) {
+                slash = true;
+                continue;
+            }
+            
+            hasCode = true;
+            if (b == '"') {
+                escaped = false;
+                state = STRING_LITERAL;
+                i++;
+                break;
+            }
+            if (b == '\'' && !number) {
+                escaped = false;
+                state = CHAR_LITERAL;
+                i++;
+                break;
+            }
+            
+            if (type == DIGIT) {
+                if (!isIdentifierPart(prev)) {
+                    number = true;
+                }
+            } else if (b != '.' && b != '\'') {
+                number = false;
+            }
+            prev = b;
+        }
+        
+        lineHasCode = hasCode;
+        pendingSlash = slash;
+        inNumber = number;
+        previous = prev;
+        return i;
+    }
+    
+    /**
+     * 跳过单行注释直到行尾，只记录行尾是否为续行符
+     * 
+     * @return 换行符的位置或段尾
+     */
+    private int consumeLineComment(byte[] data, int i, int to) {
+        lineHasComment = true;
+        int start = i;
+        while (i < to && !isLineTerminator(data[i])) {
+            i++;
+        }
+        if (i > start) {
+            escaped = data[i - 1] == '\\';
+        }
+        return i;
+    }
+    
+    /**
+     * 处理多行注释中的字节，直到注释结束、遇到换行符或到达段尾
+     * 
+     * @return 下一个待处理字节的位置
+     */
+    private int consumeBlockComment(byte[] data, int i, int to) {
+        for (; i < to; i++) {
+            int b = data[i];
+            if (b == '/' && pendingStar) {
+                pendingStar = false;
+                lineHasComment = true;
+                previous = ' ';
+                state = CODE;
+                return i + 1;
+            }
+            if (isWhitespace(b)) {
+                if (isLineTerminator(b)) {
+                    return i;
+                }
+            } else {
+                lineHasComment = true;
+            }
+            pendingStar = b == '*';
+        }
+        return i;
+    }
+    
+    /**
+     * 处理字符串或字符字面量中的字节，直到字面量结束、遇到换行符或到达段尾
+     * 
+     * @return 下一个待处理字节的位置
+     */
+    private int consumeLiteral(byte[] data, int i, int to) {
+        lineHasCode = true;
+        int quote = state == STRING_LITERAL ? '"' : '\'';
+        for (; i < to; i++) {
+            int b = data[i];
+            if (isLineTerminator(b)) {
+                return i;
+            }
+            if (escaped) {
+                escaped = false;
+            } else if (b == '\\') {
+                escaped = true;
+            } else if (b == quote) {
+                previous = b;
+                inNumber = false;
+                state = CODE;
+                return i + 1;
+            }
+        }
+        return i;
+    }
+    
+    @Override
+    protected void endOfLine() {
+        if (pendingSlash) {
+            pendingSlash = false;
+            lineHasCode = true;
+        }
+        pendingStar = false;
+        previous = ' ';
+        inNumber = false;
+        
+        // 单行注释和字面量在行尾结束，除非以反斜杠续行
+        if (state == LINE_COMMENT || state == STRING_LITERAL || state == CHAR_LITERAL) {
+            if (!escaped) {
+                state = CODE;
+            }
+            escaped = false;
+        }
+    }
+    
+    private static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+    
+    private static boolean isIdentifierPart(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || isDigit(b) || b == '_';
+    }
+}
@@ -0,0 +1,152 @@
+package com.clocliketool.counter;
+
+import com.clocliketool.model.LineCountResult;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 行分类器抽象基类
+ * 以原始字节的形式读取源文件内容，负责行的切分（\n、\r、\r\n）和每行的最终分类，
+ * 具体语言的词法状态（字符串、注释等）由子类维护。
+ * 分类过程中不为每一行创建任何对象，词法状态可以跨越缓冲区边界和行边界。
+ * 
+ * 每行的分类规则：
+ * - 包含注释以外的非空白字符的行计为代码行
+ * - 仅包含注释内容的行计为注释行
+ * - 仅包含空白字符的行（包括多行注释内的空白行）计为空行
+ */
+public abstract class LineClassifier {
+    
+    private static final int SCRATCH_SIZE = 8 * 1024;
+    
+    /** 读取非堆缓冲区时使用的中转数组 */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+    
+    private final LineCountResult result = new LineCountResult();
+    
+    /** 当前行是否已经读取到字符（用于判断文件末尾是否还有未结束的行） */
+    private boolean lineStarted = false;
+    
+    /** 上一个字节是否为\r，用于把\r\n作为一个换行处理 */
+    private boolean afterCarriageReturn = false;
+    
+    /** 当前行是否包含代码 */
+    protected boolean lineHasCode = false;
+    
+    /** 当前行是否包含注释内容 */
+    protected boolean lineHasComment = false;
+    
+    /**
+     * 读取缓冲区中从position到limit的全部字节，读取完成后position等于limit
+     * 堆缓冲区直接扫描底层数组；内存映射和其他直接缓冲区没有底层数组，
+     * 每次复制不超过8KB到线程复用的中转数组后扫描，中转数组常驻CPU缓存
+     * 
+     * @param buffer 源文件内容
+     */
+    public final void accept(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            scan(buffer.array(), offset + buffer.position(), offset + buffer.limit());
+            buffer.position(buffer.limit());
+            return;
+        }
+        
+        byte[] scratch = SCRATCH.get();
+        while (buffer.hasRemaining()) {
+            int length = Math.min(buffer.remaining(), scratch.length);
+            buffer.get(scratch, 0, length);
+            scan(scratch, 0, length);
+        }
+    }
+    
+    /**
+     * 结束分类并返回统计结果，文件最后一行没有换行符时也会被计入
+     * 
+     * @return 统计结果，文件数为1
+     */
+    public LineCountResult finish() {
+        if (lineStarted) {
+            endLine();
+        }
+        result.incrementFileCount();
+        return result;
+    }
+    
+    /**
+     * 处理当前行中从from开始的字节，遇到换行符（\n或\r）或到达to时停止
+     * 一行可能因为缓冲区边界被分成多段，词法状态需要保存在字段中
+     * 
+     * @param data 字节数组
+     * @param from 起始位置（包含），该位置的字节不是换行符
+     * @param to 结束位置（不包含）
+     * @return 第一个换行符的位置，没有换行符时返回to
+     */
+    protected abstract int consume(byte[] data, int from, int to);
+    
+    /**
+     * 在当前行结束、分类之前调用，子类在此处理跨行的词法状态
+     */
+    protected abstract void endOfLine();
+    
+    /**
+     * 判断字节是否为换行符
+     */
+    protected static boolean isLineTerminator(int b) {
+        return b == '\n' || b == '\r';
+    }
+    
+    /**
+     * 判断字节是否为空白字符，与String.trim()的规则一致（非ASCII字节不是空白字符）
+     */
+    protected static boolean isWhitespace(int b) {
+        return b >= 0 && b <= ' ';
+    }
+    
+    /**
+     * 把字节切分成行，行内容交给子类处理
+     */
+    private void scan(byte[] data, int from, int to) {
+        int i = from;
+        while (i < to) {
+            byte b = data[i];
+            if (b == '\n') {
+                if (afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                } else {
+                    endLine();
+                }
+                i++;
+                continue;
+            }
+            if (b == '\r') {
+                endLine();
+                afterCarriageReturn = true;
+                i++;
+                continue;
+            }
+            
+            afterCarriageReturn = false;
+            lineStarted = true;
+            i = consume(data, i, to);
+        }
+    }
+    
+    /**
+     * 结束当前行并进行分类
+     */
+    private void endLine() {
+        endOfLine();
+        
+        if (lineHasCode) {
+            result.addCodeLine(); // 同时包含代码和注释的行计为代码行
+        } else if (lineHasComment) {
+            result.addCommentLine();
+        } else {
+            result.addBlankLine();
+        }
+        
+        lineHasCode = false;
+        lineHasComment = false;
+        lineStarted = false;
+    }
+}
@@ -1,13 +1,19 @@
 package com.clocliketool.counter;
 
 import com.clocliketool.model.LineCountResult;
+import com.clocliketool.model.SourceFile;
+import com.clocliketool.util.ScanMetrics;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * 代码行计数器抽象基类
- * 定义了计数操作的基本行为
+ * 定义了计数操作的基本行为，子类只需提供行分类器，文件、流、通道、缓冲区和文本
+ * 等各种内容来源都通过同一个分类器统计
  */
 public abstract class LineCounter {
 
@@ -18,7 +24,145 @@ public abstract class LineCounter {
      * @return 包含计数结果的LineCountResult对象
      * @throws IOException 如果文件读取失败
      */
-    public abstract LineCountResult countLines(File file) throws IOException;
+    public LineCountResult countLines(File file) throws IOException {
+        LineClassifier classifier = createClassifier();
+        SourceReader.read(file, SourceReader.UNKNOWN_SIZE, SourceReader.DEFAULT_MMAP_THRESHOLD, classifier, null);
+        return classifier.finish();
+    }
+    
+    /**
+     * 计算源文件的代码行、注释行和空行，可以利用目录遍历时得到的文件属性
+     * 
+     * @param source 要统计的源文件
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果文件读取失败
+     */
+    public LineCountResult countLines(SourceFile source) throws IOException {
+        return countLines(source, null);
+    }
+    
+    /**
+     * 计算源文件的代码行、注释行和空行，并把读取和分类的耗时计入统计
+     * 
+     * @param source 要统计的源文件
+     * @param metrics 统计，为null时不计时
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果文件读取失败
+     */
+    public LineCountResult countLines(SourceFile source, ScanMetrics metrics) throws IOException {
+        return countLines(source, SourceReader.DEFAULT_MMAP_THRESHOLD, metrics);
+    }
+    
+    /**
+     * 计算源文件的代码行、注释行和空行，使用指定的内存映射阈值读取，并把读取和分类的耗时计入统计
+     * 
+     * @param source 要统计的源文件
+     * @param mmapThreshold 文件大小不小于该值时使用内存映射，小于0表示不使用内存映射
+     * @param metrics 统计，为null时不计时
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果文件读取失败
+     */
+    public LineCountResult countLines(SourceFile source, long mmapThreshold, ScanMetrics metrics)
+            throws IOException {
+        LineClassifier classifier = createClassifier();
+        SourceReader.read(source.getFile(), source.getSize(), mmapThreshold, classifier, metrics);
+        return classifier.finish();
+    }
+    
+    /**
+     * 计算输入流中内容的代码行、注释行和空行，用于压缩包中的条目等不在磁盘上的内容
+     * 读取到流的末尾，但不关闭输入流
+     * 
+     * @param in 源文件内容
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果读取失败
+     */
+    public LineCountResult countLines(InputStream in) throws IOException {
+        return countLines(in, null);
+    }
+    
+    /**
+     * 计算输入流中内容的代码行、注释行和空行，并把读取和分类的耗时计入统计，不关闭输入流
+     * 
+     * @param in 源文件内容
+     * @param metrics 统计，为null时不计时
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果读取失败
+     */
+    public LineCountResult countLines(InputStream in, ScanMetrics metrics) throws IOException {
+        LineClassifier classifier = createClassifier();
+        SourceReader.read(in, classifier, metrics);
+        return classifier.finish();
+    }
+    
+    /**
+     * 计算通道中内容的代码行、注释行和空行，读取到通道的末尾，但不关闭通道
+     * 文件通道中剩余的内容达到默认的内存映射阈值时通过内存映射读取
+     * 
+     * @param channel 源文件内容
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果读取失败
+     */
+    public LineCountResult countLines(ReadableByteChannel channel) throws IOException {
+        return countLines(channel, SourceReader.DEFAULT_MMAP_THRESHOLD);
+    }
+    
+    /**
+     * 计算通道中内容的代码行、注释行和空行，使用指定的内存映射阈值读取，不关闭通道
+     * 
+     * @param channel 源文件内容
+     * @param mmapThreshold 文件通道中剩余的内容不少于该值时使用内存映射，小于0表示不使用内存映射
+     * @return 包含计数结果的LineCountResult对象
+     * @throws IOException 如果读取失败
+     */
+    public LineCountResult countLines(ReadableByteChannel channel, long mmapThreshold) throws IOException {
+        LineClassifier classifier = createClassifier();
+        SourceReader.read(channel, mmapThreshold, classifier, null);
+        return classifier.finish();
+    }
+    
+    /**
+     * 计算缓冲区中从position到limit的内容的代码行、注释行和空行
+     * 不改变缓冲区的position，堆缓冲区直接在底层数组上分类
+     * 
+     * @param content 源文件内容
+     * @return 包含计数结果的LineCountResult对象
+     */
+    public LineCountResult countLines(ByteBuffer content) {
+        return countLines(content, null);
+    }
+    
+    /**
+     * 计算缓冲区中从position到limit的内容的代码行、注释行和空行，并把分类耗时计入统计
+     * 
+     * @param content 源文件内容
+     * @param metrics 统计，为null时不计时
+     * @return 包含计数结果的LineCountResult对象
+     */
+    public LineCountResult countLines(ByteBuffer content, ScanMetrics metrics) {
+        LineClassifier classifier = createClassifier();
+        SourceReader.read(content, classifier, metrics);
+        return classifier.finish();
+    }
+    
+    /**
+     * 计算文本的代码行、注释行和空行，文本按UTF-8分段编码后分类，不生成完整的字节副本
+     * 
+     * @param content 源文件内容
+     * @return 包含计数结果的LineCountResult对象
+     */
+    public LineCountResult countLines(CharSequence content) {
+        LineClassifier classifier = createClassifier();
+        SourceReader.read(content, classifier, null);
+        return classifier.finish();
+    }
+    
+    /**
+     * 创建此语言的行分类器，每次统计使用一个新的分类器
+     * 
+     * @return 行分类器
+     */
+    protected abstract LineClassifier createClassifier();
     
     /**
      * 获取此计数器支持的文件扩展名
@@ -38,13 +182,32 @@ public abstract class LineCounter {
             return false;
         }
         
-        String fileName = file.getName().toLowerCase();
+        return supportsFileName(file.getName());
+    }
+    
+    /**
+     * 检查源文件是否受此计数器支持
+     * 源文件已确认是普通文件，只需检查扩展名，不访问文件系统
+     * 
+     * @param source 要检查的源文件
+     * @return 如果文件受支持则为true，否则为false
+     */
+    public boolean supportsFile(SourceFile source) {
+        return source != null && supportsFileName(source.getName());
+    }
+    
+    /**
+     * 检查文件名的扩展名是否受此计数器支持
+     */
+    private boolean supportsFileName(String fileName) {
         for (String ext : getSupportedExtensions()) {
-            if (fileName.endsWith("." + ext.toLowerCase())) {
+            int start = fileName.length() - ext.length();
+            if (start > 0 && fileName.charAt(start - 1) == '.'
+                    && fileName.regionMatches(true, start, ext, 0, ext.length())) {
                 return true;
             }
         }
         
         return false;
     }
-}
+}
\ No newline at end of file
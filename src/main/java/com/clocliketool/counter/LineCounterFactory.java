@@ -39,6 +39,34 @@ public class LineCounterFactory {
         }
     }
     
+    /**
+     * 根据语言提示创建行计数器，用于统计没有对应磁盘文件的内容（如输入流或内存中的文本）
+     * 提示可以是语言名称（如"cpp"、"ruby"），也可以是扩展名（如"rb"、".cc"）或文件名（如"main.c"）
+     * @param hint 语言提示
+     * @return 对应的行计数器实例，如果不支持则返回null
+     */
+    public static LineCounter createCounterForHint(String hint) {
+        if (hint == null) {
+            return null;
+        }
+        
+        String name = hint.trim();
+        LineCounter counter = createCounter(name);
+        if (counter != null) {
+            return counter;
+        }
+        
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        for (LineCounter candidate : getAllCounters()) {
+            for (String supported : candidate.getSupportedExtensions()) {
+                if (supported.equalsIgnoreCase(extension)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+    
     /**
      * 获取所有支持的行计数器实例
      * @return 所有支持的行计数器实例列表
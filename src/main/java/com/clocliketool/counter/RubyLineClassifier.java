@@ -0,0 +1,638 @@
+package com.clocliketool.counter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Ruby行分类器
+ * 使用单次前向扫描的状态机，跨行跟踪以下词法结构：
+ * - #单行注释和=begin/=end多行注释
+ * - 单引号、双引号、反引号字符串，%q{}、%w[]、%r()等%字面量，以及/正则表达式/
+ * - 字符串中的#{}插值（可以嵌套字符串）
+ * - heredoc（<<ID、<<-ID、<<~ID以及带引号的标识符），heredoc正文计为代码行
+ * 
+ * Ruby的部分语法（如/是除法还是正则、%是取模还是字面量）取决于上下文，
+ * 这里根据前一个有意义的字符进行判断，与Ruby解释器对常见写法的处理一致。
+ */
+public class RubyLineClassifier extends LineClassifier {
+    
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int LITERAL = 3;
+    private static final int HEREDOC = 4;
+    
+    /** 代码中尚未结束的多字符结构 */
+    private static final int PENDING_NONE = 0;
+    private static final int PENDING_ANGLE = 1;          // 读到了'<'
+    private static final int PENDING_HEREDOC = 2;        // 读到了'<<'
+    private static final int PENDING_HEREDOC_FLAG = 3;   // 读到了'<<~'或'<<-'
+    private static final int PENDING_HEREDOC_ID = 4;     // 正在读取heredoc标识符
+    private static final int PENDING_HEREDOC_QUOTED = 5; // 正在读取带引号的heredoc标识符
+    private static final int PENDING_PERCENT = 6;        // 读到了可能开始字面量的'%'
+    private static final int PENDING_PERCENT_TYPE = 7;   // 读到了'%'和类型字母，如%q
+    private static final int PENDING_SLASH = 8;          // 标识符和空格之后读到了'/'
+    private static final int PENDING_CHAR = 9;           // 读到了可能开始字符字面量的'?'
+    private static final int PENDING_CHAR_ESCAPE = 10;   // 读到了'?\'
+    
+    /** 字面量结束后记录的前一个有意义字符，表示此处为操作数 */
+    private static final int OPERAND = ')';
+    
+    private static final byte[] BEGIN_KEYWORD = {'=', 'b', 'e', 'g', 'i', 'n'};
+    private static final byte[] END_KEYWORD = {'=', 'e', 'n', 'd'};
+    
+    private static final int FRAME_SIZE = 5;
+    
+    private int state = CODE;
+    private int pending = PENDING_NONE;
+    
+    /** 当前行是否还没有读到非空白字符 */
+    private boolean lineStart = true;
+    
+    /** 行首关键字（=begin或=end）已匹配的长度，-1表示本行不可能匹配 */
+    private int keywordMatched = 0;
+    
+    /** 当前行的上一个字节，空白字符记为' ' */
+    private int previous = '\n';
+    
+    /** 当前行上一个非空白的代码字节，行首为'\n' */
+    private int lastSignificant = '\n';
+    
+    /** '<'之前的字节，用于判断'<<'是否可能开始heredoc */
+    private int beforeAngle = '\n';
+    
+    /** 当前代码层级中未闭合的'{'数量，用于判断插值是否结束 */
+    private int braceDepth = 0;
+    
+    // 当前字面量的状态
+    private int literalCloser;
+    private int literalOpener;
+    private int literalNesting;
+    private boolean literalInterpolates;
+    private int literalOuterDepth;
+    private boolean escaped = false;
+    private boolean pendingHash = false;
+    
+    /** %字面量的类型字母是否允许插值 */
+    private boolean percentInterpolates;
+    
+    /**
+     * 当前是否处于从PENDING_SLASH开始、尚未闭合的正则中
+     * 标识符是局部变量时（如 total /count）'/'其实是除法，正则在本行没有闭合时按除法回退
+     */
+    private boolean tentativeRegex = false;
+    private int tentativeStackSize;
+    private int tentativeBraceDepth;
+    
+    /** 进入插值时保存的外层字面量状态，每帧FRAME_SIZE个int */
+    private int[] literalStack = new int[FRAME_SIZE * 4];
+    private int stackSize = 0;
+    
+    // heredoc的状态
+    private final Deque<Heredoc> pendingHeredocs = new ArrayDeque<>();
+    private Heredoc heredoc;
+    private byte[] heredocId = new byte[16];
+    private int heredocIdLength = 0;
+    private boolean heredocIndented;
+    private int heredocQuote;
+    private int heredocMatched = 0;
+    
+    @Override
+    protected int consume(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int b = data[i];
+            if (isLineTerminator(b)) {
+                return i;
+            }
+            
+            switch (state) {
+                case CODE:
+                    codeByte(b);
+                    break;
+                case LINE_COMMENT:
+                    // 本行剩余部分都是注释
+                    lineHasComment = true;
+                    while (i + 1 < to && !isLineTerminator(data[i + 1])) {
+                        i++;
+                    }
+                    break;
+                case BLOCK_COMMENT:
+                    blockCommentByte(b);
+                    break;
+                case LITERAL:
+                    literalByte(b);
+                    break;
+                default:
+                    heredocByte(b);
+                    break;
+            }
+            previous = isWhitespace(b) ? ' ' : b;
+        }
+        return to;
+    }
+    
+    /**
+     * 处理代码状态下的字节
+     */
+    private void codeByte(int b) {
+        if (lineStart) {
+            if (isWhitespace(b)) {
+                return;
+            }
+            lineStart = false;
+            if (b == '=' && stackSize == 0) {
+                keywordMatched = 1; // 可能是=begin，暂不分类
+                return;
+            }
+            keywordMatched = -1;
+        }
+        
+        if (keywordMatched > 0) {
+            if (keywordMatched < BEGIN_KEYWORD.length && b == BEGIN_KEYWORD[keywordMatched]) {
+                keywordMatched++;
+                return;
+            }
+            boolean isBegin = keywordMatched == BEGIN_KEYWORD.length;
+            keywordMatched = -1;
+            if (isBegin && isWhitespace(b)) {
+                lineHasComment = true;
+                state = BLOCK_COMMENT;
+                return;
+            }
+            // 已读取的前缀只是普通代码
+            lineHasCode = true;
+            lastSignificant = OPERAND;
+        }
+        
+        if (pending != PENDING_NONE && handlePending(b)) {
+            return;
+        }
+        
+        if (isWhitespace(b)) {
+            return;
+        }
+        
+        if (b == '#') {
+            lineHasComment = true;
+            state = LINE_COMMENT;
+            return;
+        }
+        
+        lineHasCode = true;
+        if (previous == '$' && !isIdentifierPart(b)) {
+            // $/、$'、$"等特殊全局变量中的符号没有语法含义
+            lastSignificant = OPERAND;
+            return;
+        }
+        
+        switch (b) {
+            case '"':
+            case '`':
+                startLiteral(b, b, true);
+                return;
+            case '\'':
+                startLiteral(b, b, false);
+                return;
+            case '/':
+                if (!isOperand(lastSignificant)) {
+                    startLiteral('/', '/', true);
+                    return;
+                }
+                if (previous == ' ' && isIdentifierPart(lastSignificant)) {
+                    pending = PENDING_SLASH; // 可能是方法参数中的正则，如 split /,/
+                    return;
+                }
+                break;
+            case '%':
+                if (!isOperand(lastSignificant) || (previous == ' ' && isIdentifierPart(lastSignificant))) {
+                    pending = PENDING_PERCENT;
+                    return;
+                }
+                break;
+            case '<':
+                beforeAngle = previous;
+                pending = PENDING_ANGLE;
+                break;
+            case '?':
+                if (!isOperand(lastSignificant)) {
+                    pending = PENDING_CHAR;
+                }
+                break;
+            case '{':
+                braceDepth++;
+                break;
+            case '}':
+                if (braceDepth == 0 && stackSize > 0) {
+                    popLiteral(); // 插值结束，回到外层字面量
+                    return;
+                }
+                if (braceDepth > 0) {
+                    braceDepth--;
+                }
+                break;
+            default:
+                break;
+        }
+        lastSignificant = b;
+    }
+    
+    /**
+     * 处理代码中尚未结束的多字符结构
+     * 
+     * @return 字节已被处理时返回true，否则需要按普通代码继续处理
+     */
+    private boolean handlePending(int b) {
+        int current = pending;
+        pending = PENDING_NONE;
+        
+        switch (current) {
+            case PENDING_ANGLE:
+                if (b == '<') {
+                    lineHasCode = true;
+                    pending = PENDING_HEREDOC;
+                    lastSignificant = b;
+                    return true;
+                }
+                return false;
+            case PENDING_HEREDOC:
+                if (b == '~' || b == '-') {
+                    heredocIndented = true;
+                    pending = PENDING_HEREDOC_FLAG;
+                    return true;
+                }
+                // 不带~或-的heredoc只接受大写标识符或引号，且'<<'前不能紧跟操作数（如 a<<B）
+                if (!isOperand(beforeAngle)) {
+                    heredocIndented = false;
+                    if ((b >= 'A' && b <= 'Z') || b == '_') {
+                        startHeredocId(b);
+                        return true;
+                    }
+                    if (b == '"' || b == '\'' || b == '`') {
+                        startQuotedHeredocId(b);
+                        return true;
+                    }
+                }
+                return false;
+            case PENDING_HEREDOC_FLAG:
+                if (isIdentifierStart(b)) {
+                    startHeredocId(b);
+                    return true;
+                }
+                if (b == '"' || b == '\'' || b == '`') {
+                    startQuotedHeredocId(b);
+                    return true;
+                }
+                return false;
+            case PENDING_HEREDOC_ID:
+                if (isIdentifierPart(b)) {
+                    appendHeredocId(b);
+                    pending = PENDING_HEREDOC_ID;
+                    return true;
+                }
+                queueHeredoc();
+                lastSignificant = OPERAND;
+                return false;
+            case PENDING_HEREDOC_QUOTED:
+                if (b == heredocQuote) {
+                    queueHeredoc();
+                    lastSignificant = OPERAND;
+                } else {
+                    appendHeredocId(b);
+                    pending = PENDING_HEREDOC_QUOTED;
+                }
+                return true;
+            case PENDING_PERCENT:
+                if (isPercentType(b)) {
+                    percentInterpolates = b == 'Q' || b == 'W' || b == 'I' || b == 'r' || b == 'x';
+                    pending = PENDING_PERCENT_TYPE;
+                    return true;
+                }
+                if (isPercentDelimiter(b) && (!isOperand(lastSignificant) || b != '=')) {
+                    startLiteral(b, closerOf(b), true);
+                    return true;
+                }
+                lastSignificant = '%';
+                return false;
+            case PENDING_PERCENT_TYPE:
+                if (isPercentDelimiter(b)) {
+                    startLiteral(b, closerOf(b), percentInterpolates);
+                    return true;
+                }
+                lastSignificant = OPERAND;
+                return false;
+            case PENDING_SLASH:
+                if (!isWhitespace(b) && b != '=') {
+                    tentativeRegex = true;
+                    tentativeStackSize = stackSize;
+                    tentativeBraceDepth = braceDepth;
+                    startLiteral('/', '/', true);
+                    literalByte(b);
+                    return true;
+                }
+                lastSignificant = '/';
+                return false;
+            case PENDING_CHAR:
+                // 字符字面量（如?"、?#、?/）中的字符不能开始字符串、注释或正则
+                if (b == '\\') {
+                    pending = PENDING_CHAR_ESCAPE;
+                    return true;
+                }
+                if (!isWhitespace(b)) {
+                    lastSignificant = OPERAND;
+                    return true;
+                }
+                return false;
+            case PENDING_CHAR_ESCAPE:
+                lastSignificant = OPERAND;
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * 处理字面量中的字节
+     */
+    private void literalByte(int b) {
+        lineHasCode = true;
+        lineStart = false;
+        if (escaped) {
+            escaped = false;
+            return;
+        }
+        if (pendingHash) {
+            pendingHash = false;
+            if (b == '{') {
+                pushLiteral(); // 进入插值，按代码处理
+                return;
+            }
+        }
+        if (b == '\\') {
+            escaped = true;
+        } else if (b == '#' && literalInterpolates) {
+            pendingHash = true;
+        } else if (b == literalOpener && literalOpener != literalCloser) {
+            literalNesting++;
+        } else if (b == literalCloser) {
+            if (literalNesting > 0) {
+                literalNesting--;
+            } else {
+                state = CODE;
+                braceDepth = literalOuterDepth;
+                lastSignificant = OPERAND;
+                if (tentativeRegex && stackSize == tentativeStackSize) {
+                    tentativeRegex = false;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 处理=begin/=end多行注释中的字节
+     */
+    private void blockCommentByte(int b) {
+        if (isWhitespace(b)) {
+            if (lineStart) {
+                return;
+            }
+            if (keywordMatched == END_KEYWORD.length) {
+                keywordMatched = Integer.MAX_VALUE; // =end后跟空白，本行结束后注释结束
+            }
+            return;
+        }
+        
+        lineHasComment = true;
+        lineStart = false;
+        if (keywordMatched >= 0 && keywordMatched < END_KEYWORD.length && b == END_KEYWORD[keywordMatched]) {
+            keywordMatched++;
+        } else if (keywordMatched != Integer.MAX_VALUE) {
+            keywordMatched = -1;
+        }
+    }
+    
+    /**
+     * 处理heredoc正文中的字节，同时匹配结束标识符
+     */
+    private void heredocByte(int b) {
+        if (isWhitespace(b)) {
+            if (heredocMatched == 0 && lineStart) {
+                if (!heredoc.indented) {
+                    heredocMatched = -1; // 不带~或-的结束标识符必须位于行首
+                }
+                return;
+            }
+            if (heredocMatched != heredoc.id.length) {
+                heredocMatched = -1;
+            }
+            return;
+        }
+        
+        lineHasCode = true;
+        lineStart = false;
+        if (heredocMatched >= 0 && heredocMatched < heredoc.id.length && b == heredoc.id[heredocMatched]) {
+            heredocMatched++;
+        } else {
+            heredocMatched = -1;
+        }
+    }
+    
+    @Override
+    protected void endOfLine() {
+        if (tentativeRegex) {
+            // 正则在本行没有闭合，'/'按除法处理，本行仍然是代码行
+            tentativeRegex = false;
+            stackSize = tentativeStackSize;
+            braceDepth = tentativeBraceDepth;
+            escaped = false;
+            pendingHash = false;
+            state = CODE;
+        }
+        
+        switch (state) {
+            case CODE:
+                if (keywordMatched == BEGIN_KEYWORD.length) {
+                    lineHasComment = true;
+                    state = BLOCK_COMMENT;
+                } else if (keywordMatched > 0) {
+                    lineHasCode = true;
+                }
+                if (pending == PENDING_HEREDOC_ID) {
+                    queueHeredoc();
+                }
+                break;
+            case LINE_COMMENT:
+                state = CODE;
+                break;
+            case BLOCK_COMMENT:
+                if (keywordMatched == END_KEYWORD.length || keywordMatched == Integer.MAX_VALUE) {
+                    state = CODE;
+                }
+                break;
+            case LITERAL:
+                escaped = false;
+                pendingHash = false;
+                break;
+            default:
+                if (heredocMatched == heredoc.id.length) {
+                    heredoc = null;
+                    state = CODE;
+                }
+                break;
+        }
+        
+        // heredoc正文从引入它的行的下一行开始
+        if (state == CODE && !pendingHeredocs.isEmpty()) {
+            heredoc = pendingHeredocs.poll();
+            state = HEREDOC;
+        }
+        
+        pending = PENDING_NONE;
+        lineStart = true;
+        keywordMatched = 0;
+        heredocMatched = 0;
+        previous = '\n';
+        lastSignificant = '\n';
+    }
+    
+    /**
+     * 开始一个字面量
+     */
+    private void startLiteral(int opener, int closer, boolean interpolates) {
+        lineHasCode = true;
+        literalOpener = opener;
+        literalCloser = closer;
+        literalNesting = 0;
+        literalInterpolates = interpolates;
+        literalOuterDepth = braceDepth;
+        escaped = false;
+        pendingHash = false;
+        state = LITERAL;
+    }
+    
+    /**
+     * 进入插值前保存当前字面量
+     */
+    private void pushLiteral() {
+        if (stackSize + FRAME_SIZE > literalStack.length) {
+            literalStack = Arrays.copyOf(literalStack, literalStack.length * 2);
+        }
+        literalStack[stackSize++] = literalOpener;
+        literalStack[stackSize++] = literalCloser;
+        literalStack[stackSize++] = literalNesting;
+        literalStack[stackSize++] = literalInterpolates ? 1 : 0;
+        literalStack[stackSize++] = literalOuterDepth;
+        braceDepth = 0;
+        lastSignificant = '{';
+        state = CODE;
+    }
+    
+    /**
+     * 插值结束后恢复外层字面量
+     */
+    private void popLiteral() {
+        literalOuterDepth = literalStack[--stackSize];
+        literalInterpolates = literalStack[--stackSize] != 0;
+        literalNesting = literalStack[--stackSize];
+        literalCloser = literalStack[--stackSize];
+        literalOpener = literalStack[--stackSize];
+        escaped = false;
+        pendingHash = false;
+        state = LITERAL;
+    }
+    
+    private void startHeredocId(int b) {
+        lineHasCode = true;
+        heredocIdLength = 0;
+        appendHeredocId(b);
+        pending = PENDING_HEREDOC_ID;
+    }
+    
+    private void startQuotedHeredocId(int quote) {
+        lineHasCode = true;
+        heredocIdLength = 0;
+        heredocQuote = quote;
+        pending = PENDING_HEREDOC_QUOTED;
+    }
+    
+    private void appendHeredocId(int b) {
+        if (heredocIdLength == heredocId.length) {
+            heredocId = Arrays.copyOf(heredocId, heredocId.length * 2);
+        }
+        heredocId[heredocIdLength++] = (byte) b;
+    }
+    
+    /**
+     * 标识符读取完毕，等待当前行结束后开始heredoc正文
+     */
+    private void queueHeredoc() {
+        if (heredocIdLength > 0) {
+            pendingHeredocs.add(new Heredoc(Arrays.copyOf(heredocId, heredocIdLength), heredocIndented));
+        }
+        heredocIdLength = 0;
+    }
+    
+    /**
+     * 判断字节之后的'/'、'%'等是否应视为运算符
+     */
+    private static boolean isOperand(int b) {
+        return isIdentifierPart(b) || b == ')' || b == ']' || b == '}';
+    }
+    
+    private static boolean isIdentifierStart(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b < 0;
+    }
+    
+    private static boolean isIdentifierPart(int b) {
+        return isIdentifierStart(b) || (b >= '0' && b <= '9');
+    }
+    
+    private static boolean isPercentType(int b) {
+        switch (b) {
+            case 'q':
+            case 'Q':
+            case 'w':
+            case 'W':
+            case 'i':
+            case 'I':
+            case 's':
+            case 'r':
+            case 'x':
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static boolean isPercentDelimiter(int b) {
+        return b > ' ' && b < 127 && !isIdentifierPart(b);
+    }
+    
+    private static int closerOf(int opener) {
+        switch (opener) {
+            case '(':
+                return ')';
+            case '[':
+                return ']';
+            case '{':
+                return '}';
+            case '<':
+                return '>';
+            default:
+                return opener;
+        }
+    }
+    
+    /**
+     * 等待正文的heredoc
+     */
+    private static class Heredoc {
+        private final byte[] id;
+        private final boolean indented;
+        
+        Heredoc(byte[] id, boolean indented) {
+            this.id = id;
+            this.indented = indented;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.clocliketool.counter;
+
+import com.clocliketool.util.ScanMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 源文件读取工具，负责把文件内容以原始字节的形式交给行分类器
+ * 小文件读入每个线程复用的缓冲区；大小达到阈值的大文件通过内存映射读取，不经过read调用，
+ * 也不为整个文件分配堆内存，分类器把映射的内容分段复制到线程复用的小数组中扫描。
+ * 映射在分类结束后立即释放，不依赖垃圾回收。
+ * 输入流、通道、缓冲区和文本等不在磁盘上的内容同样按字节分段交给分类器。
+ */
+public class SourceReader {
+    
+    /** 默认的内存映射阈值（字节） */
+    public static final long DEFAULT_MMAP_THRESHOLD = 1024 * 1024;
+    
+    /** 表示文件大小未知 */
+    public static final long UNKNOWN_SIZE = -1;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /** 单次映射的最大长度，超过该长度的文件分段映射 */
+    private static final long MAX_MAP_SIZE = 256L * 1024 * 1024;
+    
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+    
+    private static final BufferReleaser RELEASER = BufferReleaser.create();
+    
+    /**
+     * 读取文件的全部内容并交给行分类器，使用已知的文件大小选择读取方式
+     * 
+     * @param file 要读取的文件
+     * @param knownSize 目录遍历时得到的文件大小，为UNKNOWN_SIZE时表示未知
+     * @param mmapThreshold 文件大小不小于该值时使用内存映射，小于0表示不使用内存映射
+     * @param classifier 行分类器
+     * @param scanMetrics 记录读取和分类耗时的统计，为null时不计时
+     * @throws IOException 如果文件读取失败
+     */
+    public static void read(File file, long knownSize, long mmapThreshold, LineClassifier classifier,
+                            ScanMetrics scanMetrics) throws IOException {
+        long openStart = scanMetrics != null ? System.nanoTime() : 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (scanMetrics != null) {
+                scanMetrics.addRead(System.nanoTime() - openStart, 0);
+            }
+            // 已知的大小只用于排除小文件；映射前重新查询大小，避免文件在遍历后被截断
+            if (mmapThreshold < 0 || (knownSize != UNKNOWN_SIZE && knownSize < mmapThreshold)) {
+                readBuffered(channel, classifier, scanMetrics);
+                return;
+            }
+            
+            long size = channel.size();
+            if (size >= mmapThreshold && size > 0) {
+                readMapped(channel, 0, size, classifier, scanMetrics);
+            } else {
+                readBuffered(channel, classifier, scanMetrics);
+            }
+        }
+    }
+    
+    /**
+     * 读取输入流的全部内容并交给行分类器，不关闭输入流
+     * 
+     * @param in 输入流
+     * @param classifier 行分类器
+     * @param scanMetrics 记录读取和分类耗时的统计，为null时不计时
+     * @throws IOException 如果读取失败
+     */
+    public static void read(InputStream in, LineClassifier classifier, ScanMetrics scanMetrics) throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        byte[] data = buffer.array(); // 读入数组后通过缓冲区交给分类器，不为每段数据创建对象
+        long readNanos = 0;
+        long classifyNanos = 0;
+        long bytes = 0;
+        long start = scanMetrics != null ? System.nanoTime() : 0;
+        int read;
+        while ((read = in.read(data, 0, data.length)) != -1) {
+            buffer.clear();
+            buffer.limit(read);
+            if (scanMetrics == null) {
+                classifier.accept(buffer);
+                continue;
+            }
+            long afterRead = System.nanoTime();
+            readNanos += afterRead - start;
+            bytes += read;
+            classifier.accept(buffer);
+            start = System.nanoTime();
+            classifyNanos += start - afterRead;
+        }
+        if (scanMetrics != null) {
+            scanMetrics.addRead(readNanos + System.nanoTime() - start, bytes);
+            scanMetrics.addClassify(classifyNanos);
+        }
+    }
+    
+    /**
+     * 读取通道中剩余的全部内容并交给行分类器，不关闭通道
+     * 文件通道中剩余的内容达到内存映射阈值时通过内存映射读取，读取后通道位于末尾
+     * 
+     * @param channel 通道
+     * @param mmapThreshold 剩余内容不少于该值时使用内存映射，小于0表示不使用内存映射
+     * @param classifier 行分类器
+     * @param scanMetrics 记录读取和分类耗时的统计，为null时不计时
+     * @throws IOException 如果读取失败
+     */
+    public static void read(ReadableByteChannel channel, long mmapThreshold, LineClassifier classifier,
+                            ScanMetrics scanMetrics) throws IOException {
+        if (mmapThreshold >= 0 && channel instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) channel;
+            long position = fileChannel.position();
+            long size = fileChannel.size();
+            if (size - position >= mmapThreshold && size > position) {
+                readMapped(fileChannel, position, size, classifier, scanMetrics);
+                fileChannel.position(size);
+                return;
+            }
+        }
+        readBuffered(channel, classifier, scanMetrics);
+    }
+    
+    /**
+     * 把缓冲区中从position到limit的内容交给行分类器，不改变缓冲区的position
+     * 堆缓冲区直接扫描底层数组，直接缓冲区分段复制到中转数组后扫描
+     * 
+     * @param content 缓冲区
+     * @param classifier 行分类器
+     * @param scanMetrics 记录读取和分类耗时的统计，为null时不计时
+     */
+    public static void read(ByteBuffer content, LineClassifier classifier, ScanMetrics scanMetrics) {
+        ByteBuffer view = content.duplicate();
+        if (scanMetrics == null) {
+            classifier.accept(view);
+            return;
+        }
+        
+        long start = System.nanoTime();
+        int length = view.remaining();
+        classifier.accept(view);
+        scanMetrics.addRead(0, length);
+        scanMetrics.addClassify(System.nanoTime() - start);
+    }
+    
+    /**
+     * 把文本按UTF-8编码后交给行分类器
+     * 文本分段编码到线程复用的缓冲区中，不生成完整的字节副本；无法编码的字符替换为"?"
+     * 
+     * @param content 文本
+     * @param classifier 行分类器
+     * @param scanMetrics 记录读取和分类耗时的统计，为null时不计时
+     */
+    public static void read(CharSequence content, LineClassifier classifier, ScanMetrics scanMetrics) {
+        long start = scanMetrics != null ? System.nanoTime() : 0;
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.wrap(content);
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        long bytes = 0;
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isUnderflow()) {
+                encoder.flush(buffer);
+            }
+            buffer.flip();
+            bytes += buffer.remaining();
+            classifier.accept(buffer);
+            buffer.clear();
+        } while (result.isOverflow());
+        if (scanMetrics != null) {
+            // 编码和分类交替进行，全部记为分类耗时
+            scanMetrics.addRead(0, bytes);
+            scanMetrics.addClassify(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * 通过线程复用的堆缓冲区读取
+     */
+    private static void readBuffered(ReadableByteChannel channel, LineClassifier classifier, ScanMetrics scanMetrics)
+            throws IOException {
+        if (scanMetrics != null) {
+            readBufferedTimed(channel, classifier, scanMetrics);
+            return;
+        }
+        
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            classifier.accept(buffer);
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * 通过线程复用的堆缓冲区读取，分别累计读取和分类的耗时
+     */
+    private static void readBufferedTimed(ReadableByteChannel channel, LineClassifier classifier, ScanMetrics scanMetrics)
+            throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        long readNanos = 0;
+        long classifyNanos = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            long afterRead = System.nanoTime();
+            readNanos += afterRead - start;
+            bytes += read;
+            buffer.flip();
+            classifier.accept(buffer);
+            buffer.clear();
+            start = System.nanoTime();
+            classifyNanos += start - afterRead;
+        }
+        readNanos += System.nanoTime() - start;
+        scanMetrics.addRead(readNanos, bytes);
+        scanMetrics.addClassify(classifyNanos);
+    }
+    
+    /**
+     * 通过内存映射读取从from到size的内容，每段映射在分类完成后立即释放
+     */
+    private static void readMapped(FileChannel channel, long from, long size, LineClassifier classifier,
+                                   ScanMetrics scanMetrics) throws IOException {
+        for (long position = from; position < size; position += MAX_MAP_SIZE) {
+            long length = Math.min(MAX_MAP_SIZE, size - position);
+            long start = scanMetrics != null ? System.nanoTime() : 0;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            long afterMap = scanMetrics != null ? System.nanoTime() : 0;
+            try {
+                classifier.accept(mapped);
+            } finally {
+                RELEASER.release(mapped);
+            }
+            if (scanMetrics != null) {
+                scanMetrics.addRead(afterMap - start, length);
+                scanMetrics.addClassify(System.nanoTime() - afterMap);
+            }
+        }
+    }
+    
+    /**
+     * 内存映射释放器
+     * JDK没有提供公开的解除映射接口，这里通过sun.misc.Unsafe.invokeCleaner立即解除映射；
+     * 当前运行环境不支持时退化为由垃圾回收释放
+     */
+    private static class BufferReleaser {
+        
+        private final Object unsafe;
+        private final Method invokeCleaner;
+        
+        private BufferReleaser(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+        
+        static BufferReleaser create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Method method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                return new BufferReleaser(field.get(null), method);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return new BufferReleaser(null, null);
+            }
+        }
+        
+        void release(MappedByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // 释放失败时由垃圾回收负责解除映射
+            }
+        }
+    }
+}
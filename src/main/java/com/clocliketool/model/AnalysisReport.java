@@ -0,0 +1,88 @@
+package com.clocliketool.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次统计的完整报告，交给报告格式化器输出
+ */
+public class AnalysisReport {
+    
+    private final Map<String, LineCountResult> languageResults;
+    private final int totalFiles;
+    private final FileResultStore fileResults;
+    private final int[] fileIndices;
+    private final long duplicateCount;
+    
+    /**
+     * @param languageResults 按语言分类的统计结果
+     * @param totalFiles 处理的文件总数
+     * @param fileResults 单文件统计结果，不按文件输出时为null
+     * @param fileIndices 要输出的文件序号，按输出顺序排列
+     * @param duplicateCount 跳过的重复文件数，未启用去重时为-1
+     */
+    public AnalysisReport(Map<String, LineCountResult> languageResults, int totalFiles,
+                          FileResultStore fileResults, int[] fileIndices, long duplicateCount) {
+        this.languageResults = languageResults;
+        this.totalFiles = totalFiles;
+        this.fileResults = fileResults;
+        this.fileIndices = fileIndices;
+        this.duplicateCount = duplicateCount;
+    }
+    
+    public Map<String, LineCountResult> getLanguageResults() {
+        return languageResults;
+    }
+    
+    /**
+     * 获取按字母顺序排列的语言名称
+     */
+    public List<String> getLanguages() {
+        List<String> languages = new ArrayList<>(languageResults.keySet());
+        Collections.sort(languages);
+        return languages;
+    }
+    
+    /**
+     * 获取所有语言的合计
+     */
+    public LineCountResult getTotal() {
+        LineCountResult total = new LineCountResult();
+        for (LineCountResult result : languageResults.values()) {
+            total.merge(result);
+        }
+        return total;
+    }
+    
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+    
+    /**
+     * 检查报告是否包含单文件结果
+     */
+    public boolean hasFileResults() {
+        return fileResults != null;
+    }
+    
+    public FileResultStore getFileResults() {
+        return fileResults;
+    }
+    
+    public int[] getFileIndices() {
+        return fileIndices;
+    }
+    
+    /**
+     * 检查是否启用了去重
+     */
+    public boolean hasDuplicateCount() {
+        return duplicateCount >= 0;
+    }
+    
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+}
@@ -0,0 +1,75 @@
+package com.clocliketool.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 历史统计中一个提交的统计结果
+ */
+public class CommitReport {
+    
+    private final String commitId;
+    private final long commitTime;
+    private final Map<String, LineCountResult> languageResults;
+    private final int totalFiles;
+    
+    /**
+     * @param commitId 十六进制的提交ID
+     * @param commitTime 提交时间，自1970年起的秒数
+     * @param languageResults 该提交中按语言分类的统计结果
+     * @param totalFiles 该提交中统计的文件总数
+     */
+    public CommitReport(String commitId, long commitTime, Map<String, LineCountResult> languageResults,
+                        int totalFiles) {
+        this.commitId = commitId;
+        this.commitTime = commitTime;
+        this.languageResults = languageResults;
+        this.totalFiles = totalFiles;
+    }
+    
+    public String getCommitId() {
+        return commitId;
+    }
+    
+    public long getCommitTime() {
+        return commitTime;
+    }
+    
+    /**
+     * 获取ISO 8601格式的UTC提交时间，如2024-01-31T08:00:00Z
+     */
+    public String getCommitTimeText() {
+        return Instant.ofEpochSecond(commitTime).toString();
+    }
+    
+    public Map<String, LineCountResult> getLanguageResults() {
+        return languageResults;
+    }
+    
+    /**
+     * 获取按字母顺序排列的语言名称
+     */
+    public List<String> getLanguages() {
+        List<String> languages = new ArrayList<>(languageResults.keySet());
+        Collections.sort(languages);
+        return languages;
+    }
+    
+    /**
+     * 获取所有语言的合计
+     */
+    public LineCountResult getTotal() {
+        LineCountResult total = new LineCountResult();
+        for (LineCountResult result : languageResults.values()) {
+            total.merge(result);
+        }
+        return total;
+    }
+    
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+}
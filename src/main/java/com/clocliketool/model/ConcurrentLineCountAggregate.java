@@ -0,0 +1,91 @@
+package com.clocliketool.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可以在多个线程中同时累加的按语言统计汇总
+ * 每种语言的各项计数使用LongAdder，累加时只在语言第一次出现时创建计数器，
+ * 之后不加锁，多个线程同时累加同一种语言时分散到不同的计数单元，互不阻塞。
+ * 
+ * 统计进行中也可以读取当前的文件数和行数用于显示进度，这时各项计数分别读取，
+ * 彼此之间不保证一致；所有累加完成后（例如工作线程结束之后）读取的快照是准确的。
+ */
+public class ConcurrentLineCountAggregate {
+    
+    private final ConcurrentMap<String, Counters> languageCounters = new ConcurrentHashMap<>();
+    private final LongAdder fileCount = new LongAdder();
+    private final LongAdder totalLines = new LongAdder();
+    
+    /**
+     * 累加一个文件的统计结果，可以在多个线程中同时调用
+     * 
+     * @param language 语言名称
+     * @param result 单个文件的统计结果，不会被修改或保存
+     */
+    public void add(String language, LineCountResult result) {
+        Counters counters = languageCounters.get(language);
+        if (counters == null) {
+            counters = languageCounters.computeIfAbsent(language, key -> new Counters());
+        }
+        counters.codeLines.add(result.getCodeLines());
+        counters.commentLines.add(result.getCommentLines());
+        counters.blankLines.add(result.getBlankLines());
+        counters.fileCount.increment();
+        totalLines.add(result.getTotalLines());
+        fileCount.increment();
+    }
+    
+    /**
+     * 获取当前已累加的文件数，统计进行中读取时是近似值
+     */
+    public long getFileCount() {
+        return fileCount.sum();
+    }
+    
+    /**
+     * 获取当前已累加的总行数，统计进行中读取时是近似值
+     */
+    public long getTotalLines() {
+        return totalLines.sum();
+    }
+    
+    /**
+     * 生成按语言分类的统计结果快照，快照与之后的累加相互独立
+     * 
+     * @return 按语言分类的统计结果
+     * @throws ArithmeticException 如果某种语言的文件数超出int范围
+     */
+    public Map<String, LineCountResult> snapshot() {
+        Map<String, LineCountResult> results = new HashMap<>();
+        for (Map.Entry<String, Counters> entry : languageCounters.entrySet()) {
+            Counters counters = entry.getValue();
+            results.put(entry.getKey(), new LineCountResult(counters.codeLines.sum(), counters.commentLines.sum(),
+                    counters.blankLines.sum(), Math.toIntExact(counters.fileCount.sum())));
+        }
+        return Collections.unmodifiableMap(results);
+    }
+    
+    /**
+     * 清除所有结果，不能与累加同时进行
+     */
+    public void clear() {
+        languageCounters.clear();
+        fileCount.reset();
+        totalLines.reset();
+    }
+    
+    /**
+     * 一种语言的各项计数
+     */
+    private static class Counters {
+        private final LongAdder codeLines = new LongAdder();
+        private final LongAdder commentLines = new LongAdder();
+        private final LongAdder blankLines = new LongAdder();
+        private final LongAdder fileCount = new LongAdder();
+    }
+}
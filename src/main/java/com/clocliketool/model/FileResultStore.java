@@ -0,0 +1,334 @@
+package com.clocliketool.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列存储的单文件统计结果
+ * 目录路径和语言名称只保存一份，每个文件只记录目录编号、文件名和三个int计数，
+ * 不为每个文件创建结果对象和哈希表条目。排序和前N项查询直接在int下标数组上进行，
+ * 比较过程中没有装箱。
+ * 
+ * 添加结果的方法可以在多个线程中同时调用，查询方法应在全部添加完成后调用。
+ */
+public class FileResultStore {
+    
+    private static final int INITIAL_CAPACITY = 256;
+    
+    /**
+     * 可以排序的列
+     */
+    public enum Column {
+        PATH, LANGUAGE, LINES, CODE, COMMENTS, BLANKS;
+        
+        /**
+         * 数值列默认从大到小排序，文本列从小到大排序
+         */
+        public boolean isDescendingByDefault() {
+            return this != PATH && this != LANGUAGE;
+        }
+    }
+    
+    private final List<String> directories = new ArrayList<>();
+    private final Map<String, Integer> directoryIds = new HashMap<>();
+    private final List<String> languages = new ArrayList<>();
+    private final Map<String, Integer> languageIds = new HashMap<>();
+    
+    private int size = 0;
+    private int[] directoryIndex = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private short[] languageIndex = new short[INITIAL_CAPACITY];
+    private int[] codeLines = new int[INITIAL_CAPACITY];
+    private int[] commentLines = new int[INITIAL_CAPACITY];
+    private int[] blankLines = new int[INITIAL_CAPACITY];
+    
+    /**
+     * 添加一个文件的统计结果
+     * 
+     * @param file 文件
+     * @param language 语言名称
+     * @param result 统计结果
+     * @throws ArithmeticException 如果单个文件的行数超出int范围
+     */
+    public void add(File file, String language, LineCountResult result) {
+        add(file, language, Math.toIntExact(result.getCodeLines()), Math.toIntExact(result.getCommentLines()),
+                Math.toIntExact(result.getBlankLines()));
+    }
+    
+    /**
+     * 添加一个文件的统计结果
+     * 
+     * @param file 文件
+     * @param language 语言名称
+     * @param code 代码行数
+     * @param comments 注释行数
+     * @param blanks 空行数
+     */
+    public synchronized void add(File file, String language, int code, int comments, int blanks) {
+        if (size == names.length) {
+            grow();
+        }
+        String parent = file.getParent();
+        directoryIndex[size] = intern(parent != null ? parent : "", directories, directoryIds);
+        names[size] = file.getName();
+        languageIndex[size] = (short) intern(language, languages, languageIds);
+        codeLines[size] = code;
+        commentLines[size] = comments;
+        blankLines[size] = blanks;
+        size++;
+    }
+    
+    /**
+     * 添加另一个存储中的所有结果
+     * 
+     * @param other 另一个存储
+     */
+    public synchronized void addAll(FileResultStore other) {
+        synchronized (other) {
+            for (int i = 0; i < other.size; i++) {
+                add(new File(other.getPath(i)), other.getLanguage(i), other.codeLines[i], other.commentLines[i],
+                        other.blankLines[i]);
+            }
+        }
+    }
+    
+    /**
+     * 获取文件数
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * 获取文件路径
+     * 
+     * @param index 文件序号
+     */
+    public String getPath(int index) {
+        String directory = directories.get(directoryIndex[index]);
+        return directory.isEmpty() ? names[index] : directory + File.separator + names[index];
+    }
+    
+    public String getLanguage(int index) {
+        return languages.get(languageIndex[index]);
+    }
+    
+    public int getCodeLines(int index) {
+        return codeLines[index];
+    }
+    
+    public int getCommentLines(int index) {
+        return commentLines[index];
+    }
+    
+    public int getBlankLines(int index) {
+        return blankLines[index];
+    }
+    
+    public long getTotalLines(int index) {
+        return (long) codeLines[index] + commentLines[index] + blankLines[index];
+    }
+    
+    /**
+     * 按指定列排序，返回排序后的文件序号
+     * 值相同的文件按路径排序，因此结果与添加的顺序无关
+     * 
+     * @param column 排序的列
+     * @param descending 是否从大到小排序
+     * @return 文件序号数组
+     */
+    public synchronized int[] sortedIndices(Column column, boolean descending) {
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        sort(indices, comparator(column, descending));
+        return indices;
+    }
+    
+    /**
+     * 获取指定列排在最前面的若干个文件
+     * 使用容量为limit的堆，不需要对所有文件排序
+     * 
+     * @param column 排序的列
+     * @param descending 是否从大到小排序
+     * @param limit 最多返回的文件数
+     * @return 排序后的文件序号数组
+     */
+    public synchronized int[] top(Column column, boolean descending, int limit) {
+        if (limit >= size) {
+            return sortedIndices(column, descending);
+        }
+        
+        IndexComparator comparator = comparator(column, descending);
+        // 堆顶是已选出的文件中排在最后的一个
+        int[] heap = new int[limit];
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (heapSize < limit) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, comparator);
+            } else if (limit > 0 && comparator.compare(i, heap[0]) < 0) {
+                heap[0] = i;
+                siftDown(heap, heapSize, comparator);
+            }
+        }
+        sort(heap, comparator);
+        return heap;
+    }
+    
+    /**
+     * 清除所有结果
+     */
+    public synchronized void clear() {
+        directories.clear();
+        directoryIds.clear();
+        languages.clear();
+        languageIds.clear();
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+    }
+    
+    private void grow() {
+        int capacity = names.length + (names.length >> 1);
+        directoryIndex = Arrays.copyOf(directoryIndex, capacity);
+        names = Arrays.copyOf(names, capacity);
+        languageIndex = Arrays.copyOf(languageIndex, capacity);
+        codeLines = Arrays.copyOf(codeLines, capacity);
+        commentLines = Arrays.copyOf(commentLines, capacity);
+        blankLines = Arrays.copyOf(blankLines, capacity);
+    }
+    
+    private static int intern(String value, List<String> values, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+    
+    /**
+     * 比较两个文件序号
+     */
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+    
+    private IndexComparator comparator(Column column, boolean descending) {
+        IndexComparator byPath = pathComparator();
+        IndexComparator byColumn;
+        switch (column) {
+            case PATH:
+                byColumn = byPath;
+                break;
+            case LANGUAGE:
+                byColumn = (a, b) -> getLanguage(a).compareTo(getLanguage(b));
+                break;
+            case LINES:
+                byColumn = (a, b) -> Long.compare(getTotalLines(a), getTotalLines(b));
+                break;
+            case CODE:
+                byColumn = (a, b) -> Integer.compare(codeLines[a], codeLines[b]);
+                break;
+            case COMMENTS:
+                byColumn = (a, b) -> Integer.compare(commentLines[a], commentLines[b]);
+                break;
+            default:
+                byColumn = (a, b) -> Integer.compare(blankLines[a], blankLines[b]);
+                break;
+        }
+        
+        return (a, b) -> {
+            int result = byColumn.compare(a, b);
+            if (result == 0) {
+                return byPath.compare(a, b);
+            }
+            return descending ? -result : result;
+        };
+    }
+    
+    /**
+     * 按目录、文件名排序的比较器，目录先按名称排好顺序，比较时只比较顺序号
+     */
+    private IndexComparator pathComparator() {
+        int[] order = new int[directories.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        sort(order, (a, b) -> directories.get(a).compareTo(directories.get(b)));
+        int[] rank = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+        
+        return (a, b) -> {
+            int result = Integer.compare(rank[directoryIndex[a]], rank[directoryIndex[b]]);
+            return result != 0 ? result : names[a].compareTo(names[b]);
+        };
+    }
+    
+    /**
+     * 对文件序号数组进行归并排序
+     */
+    private static void sort(int[] indices, IndexComparator comparator) {
+        int[] buffer = new int[indices.length];
+        for (int width = 1; width < indices.length; width *= 2) {
+            for (int start = 0; start < indices.length - width; start += 2 * width) {
+                int middle = start + width;
+                int end = Math.min(start + 2 * width, indices.length);
+                if (comparator.compare(indices[middle - 1], indices[middle]) <= 0) {
+                    continue; // 两段已经有序
+                }
+                System.arraycopy(indices, start, buffer, start, end - start);
+                int left = start;
+                int right = middle;
+                for (int i = start; i < end; i++) {
+                    if (right >= end || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                        indices[i] = buffer[left++];
+                    } else {
+                        indices[i] = buffer[right++];
+                    }
+                }
+            }
+        }
+    }
+    
+    private static void siftUp(int[] heap, int position, IndexComparator comparator) {
+        int value = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (comparator.compare(heap[parent], value) >= 0) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = value;
+    }
+    
+    private static void siftDown(int[] heap, int size, IndexComparator comparator) {
+        int value = heap[0];
+        int position = 0;
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(heap[child], value) <= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.clocliketool.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 可合并的按语言统计汇总
+ * 每个线程更新自己的汇总对象，不需要加锁；全部完成后用merge合并，
+ * 合并的代价只与语言数量有关，与统计的文件数量无关。不是线程安全的。
+ */
+public class LineCountAggregate {
+    
+    private final Map<String, LineCountResult> languageResults = new HashMap<>();
+    private int fileCount = 0;
+    
+    /**
+     * 累加一个文件的统计结果
+     * 
+     * @param language 语言名称
+     * @param result 单个文件的统计结果，不会被修改或保存
+     * @throws ArithmeticException 如果计数溢出
+     */
+    public void add(String language, LineCountResult result) {
+        languageResults.computeIfAbsent(language, key -> new LineCountResult()).merge(result);
+        fileCount = Math.addExact(fileCount, 1);
+    }
+    
+    /**
+     * 把另一个汇总合并到当前汇总，另一个汇总不会被修改
+     * 
+     * @param other 另一个汇总
+     * @throws ArithmeticException 如果计数溢出
+     */
+    public void merge(LineCountAggregate other) {
+        for (Map.Entry<String, LineCountResult> entry : other.languageResults.entrySet()) {
+            languageResults.computeIfAbsent(entry.getKey(), key -> new LineCountResult()).merge(entry.getValue());
+        }
+        fileCount = Math.addExact(fileCount, other.fileCount);
+    }
+    
+    /**
+     * 获取按语言分类的统计结果
+     */
+    public Map<String, LineCountResult> getLanguageResults() {
+        return Collections.unmodifiableMap(languageResults);
+    }
+    
+    /**
+     * 获取累加的文件数
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+    
+    /**
+     * 清除所有结果
+     */
+    public void clear() {
+        languageResults.clear();
+        fileCount = 0;
+    }
+}
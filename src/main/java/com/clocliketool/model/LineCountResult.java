@@ -3,11 +3,12 @@ package com.clocliketool.model;
 /**
  * 存储代码行计数结果的数据类
  * 作为模型类用于表示统计结果
+ * 行数使用long计数，汇总大量仓库时不会溢出；合并时检查溢出，溢出时抛出ArithmeticException
  */
 public class LineCountResult {
-    private int codeLines;
-    private int commentLines;
-    private int blankLines;
+    private long codeLines;
+    private long commentLines;
+    private long blankLines;
     private int fileCount; // 文件数量跟踪
 
     public LineCountResult() {
@@ -17,13 +18,20 @@ public class LineCountResult {
         this.fileCount = 0;
     }
 
-    public LineCountResult(int codeLines, int commentLines, int blankLines) {
+    public LineCountResult(long codeLines, long commentLines, long blankLines) {
         this.codeLines = codeLines;
         this.commentLines = commentLines;
         this.blankLines = blankLines;
         this.fileCount = 1;
     }
 
+    public LineCountResult(long codeLines, long commentLines, long blankLines, int fileCount) {
+        this.codeLines = codeLines;
+        this.commentLines = commentLines;
+        this.blankLines = blankLines;
+        this.fileCount = fileCount;
+    }
+
     public void addCodeLine() {
         codeLines++;
     }
@@ -40,22 +48,27 @@ public class LineCountResult {
         fileCount++;
     }
 
+    /**
+     * 把另一个结果累加到当前结果
+     * 
+     * @throws ArithmeticException 如果计数溢出
+     */
     public void merge(LineCountResult other) {
-        this.codeLines += other.codeLines;
-        this.commentLines += other.commentLines;
-        this.blankLines += other.blankLines;
-        this.fileCount += other.fileCount;
+        this.codeLines = Math.addExact(codeLines, other.codeLines);
+        this.commentLines = Math.addExact(commentLines, other.commentLines);
+        this.blankLines = Math.addExact(blankLines, other.blankLines);
+        this.fileCount = Math.addExact(fileCount, other.fileCount);
     }
 
-    public int getCodeLines() {
+    public long getCodeLines() {
         return codeLines;
     }
 
-    public int getCommentLines() {
+    public long getCommentLines() {
         return commentLines;
     }
 
-    public int getBlankLines() {
+    public long getBlankLines() {
         return blankLines;
     }
     
@@ -63,8 +76,8 @@ public class LineCountResult {
         return fileCount;
     }
 
-    public int getTotalLines() {
-        return codeLines + commentLines + blankLines;
+    public long getTotalLines() {
+        return Math.addExact(Math.addExact(codeLines, commentLines), blankLines);
     }
 
     /**
@@ -0,0 +1,66 @@
+package com.clocliketool.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 待统计的源文件
+ * 保存目录遍历时读取到的文件属性，后续的判断、缓存比较和读取都直接使用这些属性，
+ * 不再为同一个文件重复查询文件系统
+ */
+public class SourceFile {
+    
+    private final File file;
+    private final long size;
+    private final long lastModified;
+    
+    public SourceFile(File file, long size, long lastModified) {
+        this.file = file;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+    
+    /**
+     * 根据已读取的文件属性创建源文件
+     * 
+     * @param file 文件
+     * @param attributes 文件属性
+     * @return 源文件
+     */
+    public static SourceFile of(File file, BasicFileAttributes attributes) {
+        return new SourceFile(file, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+    
+    /**
+     * 读取文件属性并创建源文件
+     * 
+     * @param file 文件
+     * @return 源文件，文件不存在或不是普通文件时返回null
+     */
+    public static SourceFile of(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return attributes.isRegularFile() ? of(file, attributes) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    public String getName() {
+        return file.getName();
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+}
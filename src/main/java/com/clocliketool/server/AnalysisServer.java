@@ -0,0 +1,332 @@
+package com.clocliketool.server;
+
+import com.clocliketool.analyzer.FileAnalyzer;
+import com.clocliketool.analyzer.LanguageMapper;
+import com.clocliketool.model.LineCountAggregate;
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.util.DirectoryScanner;
+import com.clocliketool.util.ResultFormatter;
+import com.clocliketool.util.ScanFilter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻统计服务
+ * 启动时统计一次所有根路径，之后把每个文件的统计结果保存在内存中，
+ * 通过文件监视器在文件变化时只重新统计发生变化的文件。
+ * 文件变化与初始统计使用分析器的同一组过滤器（包括忽略规则），被排除和被忽略的目录不会被监视。
+ * 服务只监听本机回环地址，客户端每发送一行命令，服务返回若干行结果并以单独一行"."结束：
+ * 
+ * summary        按语言汇总的统计表
+ * file <路径>     单个文件的统计结果
+ * ping           检查服务是否存活
+ * shutdown       停止服务
+ */
+public class AnalysisServer implements FileWatcher.ChangeHandler {
+    
+    /** 响应结束标记 */
+    private static final String END_OF_RESPONSE = ".";
+    
+    private final FileAnalyzer analyzer;
+    private final List<Path> roots = new ArrayList<>();
+    private final int port;
+    
+    /** 每个文件的统计结果，以绝对路径为键 */
+    private final Map<String, FileEntry> fileEntries = new ConcurrentHashMap<>();
+    
+    /** 统计结果的版本号，每次文件变化时递增 */
+    private final AtomicLong version = new AtomicLong();
+    
+    private final Object summaryLock = new Object();
+    private volatile Summary summary;
+    
+    private volatile ServerSocket serverSocket;
+    
+    /**
+     * @param analyzer 用于统计文件的分析器
+     * @param paths 要统计并监视的根路径
+     * @param port 监听的端口
+     */
+    public AnalysisServer(FileAnalyzer analyzer, String[] paths, int port) {
+        this.analyzer = analyzer;
+        this.port = port;
+        for (String path : paths) {
+            File file = new File(path);
+            if (!file.exists()) {
+                System.err.println("警告: 路径不存在: " + path);
+                continue;
+            }
+            roots.add(file.toPath().toAbsolutePath().normalize());
+        }
+    }
+    
+    /**
+     * 启动服务并处理客户端请求，直到收到停止命令
+     * 
+     * @throws IOException 如果无法监听端口或注册文件监视
+     */
+    public void run() throws IOException {
+        if (roots.isEmpty()) {
+            throw new IOException("没有可以监视的路径");
+        }
+        
+        fileEntries.putAll(scanRoots());
+        
+        FileWatcher watcher = new FileWatcher(roots, root -> analyzer.createScanFilter(root.toFile()), this);
+        Thread watcherThread = new Thread(watcher, "cloc-file-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        
+        ExecutorService clients = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "cloc-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try (ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket = socket;
+            System.out.println("服务已启动: " + socket.getInetAddress().getHostAddress() + ":" + socket.getLocalPort()
+                    + "，已统计 " + fileEntries.size() + " 个文件");
+            
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    clients.execute(() -> handleClient(client));
+                } catch (SocketException e) {
+                    // 收到停止命令后服务端套接字被关闭
+                }
+            }
+        } finally {
+            clients.shutdownNow();
+            watcher.close();
+        }
+    }
+    
+    /**
+     * 停止服务
+     */
+    public void stop() {
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 忽略关闭时的错误
+            }
+        }
+    }
+    
+    @Override
+    public void fileChanged(File file) {
+        String key = file.getAbsolutePath();
+        LineCountResult result = analyzer.countFile(file);
+        if (result != null) {
+            fileEntries.put(key, new FileEntry(file, result));
+        } else {
+            fileEntries.remove(key);
+        }
+        version.incrementAndGet();
+    }
+    
+    @Override
+    public void directoryCreated(File directory, ScanFilter filter) {
+        DirectoryScanner.walkDirectory(directory, null, filter, source -> {
+            LineCountResult result = analyzer.countFile(source);
+            if (result != null) {
+                fileEntries.put(source.getFile().getAbsolutePath(), new FileEntry(source.getFile(), result));
+            }
+        });
+        version.incrementAndGet();
+    }
+    
+    @Override
+    public void pathDeleted(File path) {
+        String key = path.getAbsolutePath();
+        String prefix = key + File.separator;
+        fileEntries.keySet().removeIf(entryKey -> entryKey.equals(key) || entryKey.startsWith(prefix));
+        version.incrementAndGet();
+    }
+    
+    @Override
+    public void overflow() {
+        Map<String, FileEntry> scanned = scanRoots();
+        fileEntries.keySet().retainAll(scanned.keySet());
+        fileEntries.putAll(scanned);
+        version.incrementAndGet();
+    }
+    
+    /**
+     * 统计所有根路径，返回每个文件的统计结果
+     */
+    private Map<String, FileEntry> scanRoots() {
+        Map<String, FileEntry> scanned = new ConcurrentHashMap<>();
+        String[] paths = new String[roots.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = roots.get(i).toString();
+        }
+        
+        analyzer.setFileResultListener((file, language, result) ->
+                scanned.put(file.getAbsolutePath(), new FileEntry(language, result)));
+        analyzer.analyzePaths(paths);
+        analyzer.setFileResultListener(null);
+        analyzer.clear();
+        return scanned;
+    }
+    
+    /**
+     * 处理单个客户端连接
+     */
+    private void handleClient(Socket client) {
+        try (Socket socket = client;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                
+                boolean shutdown = handleCommand(line, writer);
+                writer.write(END_OF_RESPONSE);
+                writer.write('\n');
+                writer.flush();
+                if (shutdown) {
+                    stop();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开连接
+        }
+    }
+    
+    /**
+     * 执行单条命令
+     * 
+     * @return 收到停止命令时返回true
+     */
+    private boolean handleCommand(String line, Writer writer) throws IOException {
+        int separator = line.indexOf(' ');
+        String command = (separator < 0 ? line : line.substring(0, separator)).toLowerCase();
+        String argument = separator < 0 ? "" : line.substring(separator + 1).trim();
+        
+        switch (command) {
+            case "summary":
+                writer.write(getSummary().text);
+                return false;
+            case "file":
+                writeFileResult(argument, writer);
+                return false;
+            case "ping":
+                writer.write("pong\n");
+                return false;
+            case "shutdown":
+                writer.write("服务已停止\n");
+                return true;
+            default:
+                writer.write("错误: 未知命令: " + command + "\n");
+                return false;
+        }
+    }
+    
+    /**
+     * 输出单个文件的统计结果
+     */
+    private void writeFileResult(String path, Writer writer) throws IOException {
+        if (path.isEmpty()) {
+            writer.write("错误: 未指定文件路径\n");
+            return;
+        }
+        
+        String key = new File(path).getAbsoluteFile().toPath().normalize().toString();
+        FileEntry entry = fileEntries.get(key);
+        if (entry == null) {
+            writer.write("错误: 文件未被统计: " + path + "\n");
+            return;
+        }
+        
+        LineCountResult result = entry.result;
+        writer.write(entry.language + " " + result.getTotalLines() + " " + result.getCodeLines() + " "
+                + result.getCommentLines() + " " + result.getBlankLines() + "\n");
+    }
+    
+    /**
+     * 获取汇总结果，文件没有变化时直接返回上次的汇总
+     */
+    private Summary getSummary() {
+        Summary current = summary;
+        if (current != null && current.version == version.get()) {
+            return current;
+        }
+        
+        synchronized (summaryLock) {
+            current = summary;
+            long currentVersion = version.get();
+            if (current != null && current.version == currentVersion) {
+                return current;
+            }
+            
+            // 先读取版本号再汇总，汇总期间发生的变化会使下一次查询重新汇总
+            LineCountAggregate aggregate = new LineCountAggregate();
+            for (FileEntry entry : fileEntries.values()) {
+                aggregate.add(entry.language, entry.result);
+            }
+            current = new Summary(currentVersion,
+                    ResultFormatter.formatResults(aggregate.getLanguageResults(), aggregate.getFileCount()));
+            summary = current;
+            return current;
+        }
+    }
+    
+    /**
+     * 单个文件的统计结果
+     */
+    private static class FileEntry {
+        private final String language;
+        private final LineCountResult result;
+        
+        FileEntry(String language, LineCountResult result) {
+            this.language = language;
+            this.result = result;
+        }
+        
+        FileEntry(File file, LineCountResult result) {
+            this(LanguageMapper.getLanguageForFile(file), result);
+        }
+    }
+    
+    /**
+     * 某一版本统计结果的汇总
+     */
+    private static class Summary {
+        private final long version;
+        private final String text;
+        
+        Summary(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.clocliketool.server;
+
+import com.clocliketool.util.ScanFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 文件监视器，基于WatchService监视统计根路径下的文件变化
+ * 目录根路径递归监视其下的所有子目录，新建的子目录会自动加入监视；
+ * 文件根路径只监视该文件本身。短时间内连续发生的事件合并后再通知处理器，
+ * 同一路径的多次变化只处理最后一次。
+ * 
+ * 目录根路径可以指定与初始统计相同的过滤器，被排除的目录不会被监视，
+ * 被排除的路径上的创建和修改事件也不会通知处理器。
+ */
+public class FileWatcher implements Runnable {
+    
+    /** 收到第一个事件后继续收集后续事件的时间（毫秒） */
+    private static final long BATCH_WINDOW_MILLIS = 20;
+    
+    /**
+     * 文件变化的处理器
+     */
+    public interface ChangeHandler {
+        
+        /**
+         * 文件被创建或修改
+         */
+        void fileChanged(File file);
+        
+        /**
+         * 目录被创建，其中可能已经包含文件
+         * 
+         * @param directory 新建的目录
+         * @param filter 对其上级目录中的条目生效的过滤器，为null时不过滤
+         */
+        void directoryCreated(File directory, ScanFilter filter);
+        
+        /**
+         * 文件或目录被删除
+         */
+        void pathDeleted(File path);
+        
+        /**
+         * 事件丢失，需要重新扫描所有根路径
+         */
+        void overflow();
+    }
+    
+    private final WatchService watchService;
+    private final ChangeHandler handler;
+    
+    /** 每个监视键对应的目录 */
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    
+    /** 对每个被监视目录中的条目生效的过滤器，不过滤的目录没有条目 */
+    private final Map<Path, ScanFilter> directoryFilters = new ConcurrentHashMap<>();
+    
+    /** 只为监视单个文件而注册的目录 */
+    private final Set<WatchKey> fileParentKeys = new HashSet<>();
+    
+    /** 作为根路径被单独监视的文件 */
+    private final Set<Path> watchedFiles = new HashSet<>();
+    
+    /**
+     * @param roots 要监视的根路径（绝对路径）
+     * @param rootFilters 为目录根路径创建尚未进入该目录的过滤器，返回null时不过滤
+     * @param handler 文件变化的处理器
+     * @throws IOException 如果无法注册监视
+     */
+    public FileWatcher(List<Path> roots, Function<Path, ScanFilter> rootFilters, ChangeHandler handler)
+            throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.handler = handler;
+        
+        for (Path root : roots) {
+            if (Files.isRegularFile(root)) {
+                watchedFiles.add(root);
+            }
+        }
+        for (Path file : watchedFiles) {
+            fileParentKeys.add(register(file.getParent()));
+        }
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                registerRecursively(root, rootFilters.apply(root));
+            }
+        }
+    }
+    
+    /**
+     * 处理文件变化事件，直到监视器被关闭
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Map<Path, WatchEvent.Kind<?>> changes = new LinkedHashMap<>();
+                WatchKey key = watchService.take();
+                boolean overflow = false;
+                while (key != null) {
+                    overflow |= collectEvents(key, changes);
+                    key = watchService.poll(BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                dispatch(changes, overflow);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 监视器已关闭
+        }
+    }
+    
+    /**
+     * 关闭监视器，监视线程随后退出
+     */
+    public void close() throws IOException {
+        watchService.close();
+    }
+    
+    /**
+     * 收集单个监视键上的事件
+     * 
+     * @return 发生事件丢失时返回true
+     */
+    private boolean collectEvents(WatchKey key, Map<Path, WatchEvent.Kind<?>> changes) {
+        Path directory = directories.get(key);
+        boolean overflow = false;
+        
+        for (WatchEvent<?> event : key.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            
+            Path path = directory.resolve((Path) event.context());
+            if (fileParentKeys.contains(key) && !watchedFiles.contains(path)) {
+                continue;
+            }
+            
+            // 删除的路径无法判断是否为目录，总是通知处理器
+            ScanFilter filter = directoryFilters.get(directory);
+            boolean isDirectory = Files.isDirectory(path);
+            if (filter != null && kind != StandardWatchEventKinds.ENTRY_DELETE && !filter.accept(path, isDirectory)) {
+                continue;
+            }
+            
+            // 新建的目录立即加入监视，避免遗漏其中随后发生的变化
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && isDirectory) {
+                try {
+                    registerRecursively(path, filter);
+                } catch (IOException e) {
+                    System.err.println("警告: 无法监视目录: " + path);
+                }
+            }
+            
+            // 先删除后创建视为创建，先创建后删除视为删除
+            changes.remove(path);
+            changes.put(path, kind);
+        }
+        
+        if (!key.reset()) {
+            Path removed = directories.remove(key);
+            if (removed != null) {
+                directoryFilters.remove(removed);
+            }
+        }
+        return overflow;
+    }
+    
+    /**
+     * 把收集到的变化交给处理器
+     */
+    private void dispatch(Map<Path, WatchEvent.Kind<?>> changes, boolean overflow) {
+        if (overflow) {
+            handler.overflow();
+            return;
+        }
+        
+        for (Map.Entry<Path, WatchEvent.Kind<?>> change : changes.entrySet()) {
+            File file = change.getKey().toFile();
+            WatchEvent.Kind<?> kind = change.getValue();
+            if (kind == StandardWatchEventKinds.ENTRY_DELETE || !file.exists()) {
+                handler.pathDeleted(file);
+            } else if (file.isDirectory()) {
+                // 目录的修改事件只表示其中的条目发生变化，由条目自身的事件处理
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                    handler.directoryCreated(file, directoryFilters.get(change.getKey().getParent()));
+                }
+            } else {
+                handler.fileChanged(file);
+            }
+        }
+    }
+    
+    /**
+     * 注册单个目录
+     */
+    private WatchKey register(Path directory) throws IOException {
+        WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, directory);
+        return key;
+    }
+    
+    /**
+     * 注册目录及其所有未被排除的子目录
+     * 
+     * @param root 要注册的目录，已经被上级目录的过滤器接受
+     * @param filter 对root的上级目录中的条目生效的过滤器，为null时不过滤
+     */
+    private void registerRecursively(Path root, ScanFilter filter) throws IOException {
+        // 当前目录及其所有上级目录的过滤器，栈顶对当前目录中的条目生效
+        Deque<ScanFilter> filters = new ArrayDeque<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (filter != null) {
+                    if (!filters.isEmpty() && !filters.peek().accept(dir, true)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    ScanFilter entered = (filters.isEmpty() ? filter : filters.peek()).enterDirectory(dir);
+                    filters.push(entered);
+                    directoryFilters.put(dir, entered);
+                }
+                // 同一目录重复注册时返回同一个监视键，此时改为递归监视
+                fileParentKeys.remove(register(dir));
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                if (filter != null) {
+                    filters.pop();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
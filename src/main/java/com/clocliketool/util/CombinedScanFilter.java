@@ -0,0 +1,28 @@
+package com.clocliketool.util;
+
+import java.nio.file.Path;
+
+/**
+ * 同时满足两个过滤器的过滤器
+ */
+class CombinedScanFilter implements ScanFilter {
+    
+    private final ScanFilter first;
+    private final ScanFilter second;
+    
+    CombinedScanFilter(ScanFilter first, ScanFilter second) {
+        this.first = first;
+        this.second = second;
+    }
+    
+    @Override
+    public ScanFilter enterDirectory(Path directory) {
+        return new CombinedScanFilter(first.enterDirectory(directory), second.enterDirectory(directory));
+    }
+    
+    @Override
+    public boolean accept(Path path, boolean directory) {
+        // 被第一个过滤器排除的条目不再交给第二个过滤器检查
+        return first.accept(path, directory) && second.accept(path, directory);
+    }
+}
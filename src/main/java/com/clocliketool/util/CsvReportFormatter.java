@@ -0,0 +1,76 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.FileResultStore;
+import com.clocliketool.model.LineCountResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 以CSV格式输出报告
+ * 按文件输出时先输出文件表，空一行后输出语言表，语言表的最后一行是合计。
+ * 历史统计时每个提交的每种语言占一行，之后是该提交的合计行。
+ */
+public class CsvReportFormatter implements ReportFormatter {
+    
+    @Override
+    public void format(AnalysisReport report, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        
+        if (report.hasFileResults()) {
+            FileResultStore store = report.getFileResults();
+            writer.write("path,language,lines,code,comments,blanks\n");
+            for (int index : report.getFileIndices()) {
+                writer.writeCsvField(store.getPath(index)).write(',').writeCsvField(store.getLanguage(index));
+                writeCounts(writer, store.getTotalLines(index), store.getCodeLines(index),
+                        store.getCommentLines(index), store.getBlankLines(index));
+            }
+            writer.write('\n');
+        }
+        
+        writer.write("language,files,lines,code,comments,blanks\n");
+        for (String language : report.getLanguages()) {
+            LineCountResult result = report.getLanguageResults().get(language);
+            writer.writeCsvField(language).write(',').writeNumber(result.getFileCount());
+            writeCounts(writer, result);
+        }
+        writer.write("Total,").writeNumber(report.getTotalFiles());
+        writeCounts(writer, report.getTotal());
+        writer.flush();
+    }
+    
+    @Override
+    public void formatHistory(List<CommitReport> history, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("commit,time,language,files,lines,code,comments,blanks\n");
+        for (CommitReport commit : history) {
+            for (String language : commit.getLanguages()) {
+                LineCountResult result = commit.getLanguageResults().get(language);
+                writer.write(commit.getCommitId()).write(',').write(commit.getCommitTimeText()).write(',')
+                        .writeCsvField(language).write(',').writeNumber(result.getFileCount());
+                writeCounts(writer, result);
+            }
+            writer.write(commit.getCommitId()).write(',').write(commit.getCommitTimeText())
+                    .write(",Total,").writeNumber(commit.getTotalFiles());
+            writeCounts(writer, commit.getTotal());
+        }
+        writer.flush();
+    }
+    
+    private static void writeCounts(ReportWriter writer, LineCountResult result) throws IOException {
+        writeCounts(writer, result.getTotalLines(), result.getCodeLines(), result.getCommentLines(),
+                result.getBlankLines());
+    }
+    
+    private static void writeCounts(ReportWriter writer, long lines, long code, long comments, long blanks)
+            throws IOException {
+        writer.write(',').writeNumber(lines)
+                .write(',').writeNumber(code)
+                .write(',').writeNumber(comments)
+                .write(',').writeNumber(blanks)
+                .write('\n');
+    }
+}
@@ -1,12 +1,30 @@
 package com.clocliketool.util;
 
+import com.clocliketool.model.SourceFile;
+import com.clocliketool.vcs.GitIndexReader;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 目录扫描器，负责递归遍历目录并找出符合条件的文件
+ * 基于Files.walkFileTree实现，每个条目只读取一次文件属性，
+ * 读取到的属性随SourceFile传给后续的统计过程
  */
 public class DirectoryScanner {
     
@@ -18,44 +36,256 @@ public class DirectoryScanner {
      * @return 匹配的文件列表
      */
     public static List<File> scanDirectory(File directory, String[] extensions) {
-        if (directory == null || !directory.exists() || !directory.isDirectory()) {
+        if (directory == null || !directory.isDirectory()) {
             return Collections.emptyList();
         }
         
         List<File> matchedFiles = new ArrayList<>();
-        scanDirectoryRecursively(directory, extensions, matchedFiles);
+        walkDirectory(directory, extensions, source -> matchedFiles.add(source.getFile()));
         return matchedFiles;
     }
     
     /**
-     * 递归扫描目录的实现
+     * 递归扫描目录，每找到一个符合扩展名的文件就立即交给处理器，
+     * 不在内存中保存完整的文件列表
+     * 
+     * @param directory 要扫描的目录
+     * @param extensions 要匹配的文件扩展名数组
+     * @param fileConsumer 匹配文件的处理器
      */
-    private static void scanDirectoryRecursively(File directory, String[] extensions, List<File> matchedFiles) {
-        File[] files = directory.listFiles();
-        if (files == null) {
+    public static void scanDirectory(File directory, String[] extensions, Consumer<File> fileConsumer) {
+        walkDirectory(directory, extensions, source -> fileConsumer.accept(source.getFile()));
+    }
+    
+    /**
+     * 递归扫描目录，把匹配的文件连同遍历时读取到的文件属性一起交给处理器
+     * 
+     * @param directory 要扫描的目录
+     * @param extensions 要匹配的文件扩展名数组，为空时匹配所有文件
+     * @param sourceConsumer 匹配文件的处理器
+     */
+    public static void walkDirectory(File directory, String[] extensions, Consumer<SourceFile> sourceConsumer) {
+        walkDirectory(directory, extensions, null, sourceConsumer);
+    }
+    
+    /**
+     * 递归扫描目录，跳过被过滤器排除的文件和目录，被排除的目录不会被遍历
+     * 
+     * @param directory 要扫描的目录
+     * @param extensions 要匹配的文件扩展名数组，为空时匹配所有文件
+     * @param filter 路径过滤器，为null时不过滤
+     * @param sourceConsumer 匹配文件的处理器
+     */
+    public static void walkDirectory(File directory, String[] extensions, ScanFilter filter,
+                                     Consumer<SourceFile> sourceConsumer) {
+        if (directory == null || !directory.isDirectory()) {
             return;
         }
         
-        for (File file : files) {
-            if (file.isDirectory()) {
-                scanDirectoryRecursively(file, extensions, matchedFiles);
-            } else if (file.isFile() && hasMatchingExtension(file, extensions)) {
-                matchedFiles.add(file);
+        String[] suffixes = toSuffixes(extensions);
+        Path root = directory.toPath();
+        // 当前目录及其所有上级目录的过滤器，栈顶对当前目录中的条目生效
+        Deque<ScanFilter> filters = new ArrayDeque<>();
+        try {
+            // 跟随符号链接，与逐级列出目录的行为保持一致；循环链接会被检测并跳过
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            if (filter == null) {
+                                return FileVisitResult.CONTINUE;
+                            }
+                            if (!filters.isEmpty() && !filters.peek().accept(dir, true)) {
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                            ScanFilter parent = filters.isEmpty() ? filter : filters.peek();
+                            filters.push(parent.enterDirectory(dir));
+                            return FileVisitResult.CONTINUE;
+                        }
+                        
+                        @Override
+                        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                            if (filter != null) {
+                                filters.pop();
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                        
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile()) {
+                                String name = file.getFileName().toString();
+                                if (hasMatchingSuffix(name, suffixes)
+                                        && (filter == null || filters.peek().accept(file, false))) {
+                                    sourceConsumer.accept(SourceFile.of(file.toFile(), attrs));
+                                }
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                        
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            // 无法访问的条目直接跳过
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("警告: 遍历目录时出错: " + directory.getPath());
+        }
+    }
+    
+    /**
+     * 使用fork/join线程池并行遍历目录，每个子目录作为一个独立的任务
+     * 无序模式下处理器会在多个线程中同时被调用，必须是线程安全的；
+     * 有序模式下文件按名称排序后以深度优先的顺序在调用线程中依次交给处理器
+     * 
+     * @param directory 要扫描的目录
+     * @param extensions 要匹配的文件扩展名数组，为空时匹配所有文件
+     * @param sourceConsumer 匹配文件的处理器
+     * @param parallelism 遍历使用的线程数
+     * @param ordered 是否按确定的顺序交给处理器
+     * @return 遍历的统计信息
+     */
+    public static WalkStatistics walkDirectoryInParallel(File directory, String[] extensions,
+                                                         Consumer<SourceFile> sourceConsumer,
+                                                         int parallelism, boolean ordered) {
+        return walkDirectoryInParallel(directory, extensions, null, sourceConsumer, parallelism, ordered);
+    }
+    
+    /**
+     * 使用fork/join线程池并行遍历目录，跳过被过滤器排除的文件和目录
+     * 
+     * @param directory 要扫描的目录
+     * @param extensions 要匹配的文件扩展名数组，为空时匹配所有文件
+     * @param filter 路径过滤器，为null时不过滤；无序模式下会在多个线程中同时被调用
+     * @param sourceConsumer 匹配文件的处理器
+     * @param parallelism 遍历使用的线程数
+     * @param ordered 是否按确定的顺序交给处理器
+     * @return 遍历的统计信息
+     */
+    public static WalkStatistics walkDirectoryInParallel(File directory, String[] extensions, ScanFilter filter,
+                                                         Consumer<SourceFile> sourceConsumer,
+                                                         int parallelism, boolean ordered) {
+        if (directory == null || !directory.isDirectory()) {
+            return new WalkStatistics();
+        }
+        
+        ParallelDirectoryWalker walker = new ParallelDirectoryWalker(parallelism, ordered, toSuffixes(extensions),
+                filter);
+        return walker.walk(directory.toPath(), sourceConsumer);
+    }
+    
+    /**
+     * 从git索引中读取目录下被跟踪的文件，不遍历工作区
+     * 索引中存在但工作区中已删除的文件会被跳过
+     * 
+     * @param directory 要扫描的目录，必须位于git工作区中
+     * @param extensions 要匹配的文件扩展名数组，为空时匹配所有文件
+     * @param filter 路径过滤器，为null时不过滤
+     * @param sourceConsumer 匹配文件的处理器
+     * @return 目录不在git工作区中或索引无法读取时返回false，此时不会调用处理器
+     */
+    public static boolean scanGitIndex(File directory, String[] extensions, ScanFilter filter,
+                                       Consumer<SourceFile> sourceConsumer) {
+        if (directory == null || !directory.isDirectory()) {
+            return false;
+        }
+        
+        File workTree = GitIndexReader.findWorkTree(directory);
+        if (workTree == null) {
+            return false;
+        }
+        
+        List<String> paths = new ArrayList<>();
+        try {
+            File gitDirectory = GitIndexReader.resolveGitDirectory(workTree);
+            // 目录相对于工作区根目录的前缀，工作区根目录本身为空
+            String prefix = workTree.toPath().relativize(directory.getAbsoluteFile().toPath().normalize()).toString();
+            if (!prefix.isEmpty()) {
+                prefix = prefix.replace(File.separatorChar, '/') + "/";
+            }
+            String[] suffixes = toSuffixes(extensions);
+            String directoryPrefix = prefix;
+            GitIndexReader.readPaths(new File(gitDirectory, "index"), GitIndexReader.objectIdLength(gitDirectory),
+                    path -> {
+                        if (path.startsWith(directoryPrefix) && hasMatchingSuffix(path, suffixes)) {
+                            paths.add(path.substring(directoryPrefix.length()));
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("警告: 无法读取git索引: " + e.getMessage());
+            return false;
+        }
+        
+        // 文件路径与遍历目录时一样以扫描的目录开头，同一目录的过滤器只计算一次
+        Map<String, ScanFilter> directoryFilters = new HashMap<>();
+        for (String path : paths) {
+            File file = new File(directory, path);
+            if (filter != null) {
+                int separator = path.lastIndexOf('/');
+                ScanFilter parent = directoryFilter(directoryFilters, filter, directory,
+                        separator < 0 ? "" : path.substring(0, separator));
+                if (parent == null || !parent.accept(file.toPath(), false)) {
+                    continue;
+                }
+            }
+            SourceFile source = SourceFile.of(file);
+            if (source != null) {
+                sourceConsumer.accept(source);
             }
         }
+        return true;
     }
     
     /**
-     * 检查文件是否具有匹配的扩展名
+     * 获取对索引中某个目录的条目生效的过滤器，目录本身或上级目录被排除时返回null
      */
-    private static boolean hasMatchingExtension(File file, String[] extensions) {
+    private static ScanFilter directoryFilter(Map<String, ScanFilter> directoryFilters, ScanFilter rootFilter,
+                                              File root, String relativeDirectory) {
+        if (directoryFilters.containsKey(relativeDirectory)) {
+            return directoryFilters.get(relativeDirectory);
+        }
+        
+        ScanFilter filter;
+        if (relativeDirectory.isEmpty()) {
+            filter = rootFilter.enterDirectory(root.toPath());
+        } else {
+            int separator = relativeDirectory.lastIndexOf('/');
+            ScanFilter parent = directoryFilter(directoryFilters, rootFilter, root,
+                    separator < 0 ? "" : relativeDirectory.substring(0, separator));
+            Path path = new File(root, relativeDirectory).toPath();
+            filter = parent != null && parent.accept(path, true) ? parent.enterDirectory(path) : null;
+        }
+        directoryFilters.put(relativeDirectory, filter);
+        return filter;
+    }
+    
+    /**
+     * 把扩展名转换为带点的后缀，只在每次扫描开始时转换一次
+     */
+    private static String[] toSuffixes(String[] extensions) {
         if (extensions == null || extensions.length == 0) {
-            return true; // 如果未指定扩展名，则匹配所有文件
+            return null; // 如果未指定扩展名，则匹配所有文件
+        }
+        
+        String[] suffixes = new String[extensions.length];
+        for (int i = 0; i < extensions.length; i++) {
+            suffixes[i] = "." + extensions[i];
+        }
+        return suffixes;
+    }
+    
+    /**
+     * 检查文件名是否以某个后缀结尾，忽略大小写
+     */
+    static boolean hasMatchingSuffix(String fileName, String[] suffixes) {
+        if (suffixes == null) {
+            return true;
         }
         
-        String fileName = file.getName().toLowerCase();
-        for (String ext : extensions) {
-            if (fileName.endsWith("." + ext.toLowerCase())) {
+        for (String suffix : suffixes) {
+            int start = fileName.length() - suffix.length();
+            if (start >= 0 && fileName.regionMatches(true, start, suffix, 0, suffix.length())) {
                 return true;
             }
         }
@@ -0,0 +1,16 @@
+package com.clocliketool.util;
+
+/**
+ * 源文件的发现方式
+ */
+public enum DiscoveryMode {
+    
+    /** 遍历目录中的所有条目 */
+    WALK,
+    
+    /** 遍历目录，跳过.gitignore和.ignore中忽略的条目以及.git目录 */
+    IGNORE_FILES,
+    
+    /** 直接读取git索引中被跟踪的文件，不遍历工作区 */
+    GIT_INDEX
+}
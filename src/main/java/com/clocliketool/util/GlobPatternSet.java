@@ -0,0 +1,289 @@
+package com.clocliketool.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 编译后的一组通配符模式
+ * 所有模式按路径段合并为一棵前缀树，匹配时以状态集合逐段前进，每一段只需要查看
+ * 当前状态的出边，与模式数量无关：不含通配符的段使用哈希表查找，"*.扩展名"形式的段
+ * 按后缀比较，其余段编译为正则表达式，"**"段可以匹配任意多个路径段。
+ * 
+ * 含有"/"的模式相对于遍历的根目录匹配，不含"/"的模式匹配任意层级的名称。
+ * 遍历目录时状态集合随进入的目录前进，集合为空说明目录中的任何路径都不可能匹配。
+ */
+class GlobPatternSet {
+    
+    private static final Node[] NO_STATES = new Node[0];
+    
+    private final Node root = new Node();
+    private final Node[] start;
+    
+    /**
+     * @param patterns 通配符模式
+     */
+    GlobPatternSet(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            add(pattern);
+        }
+        List<Node> states = new ArrayList<>();
+        addWithClosure(states, root);
+        start = states.toArray(NO_STATES);
+    }
+    
+    /**
+     * 获取根目录中条目的初始状态集合
+     */
+    Node[] start() {
+        return start;
+    }
+    
+    /**
+     * 匹配一个路径段，返回之后的状态集合
+     * 
+     * @param states 当前的状态集合
+     * @param segment 路径段（文件或目录名）
+     * @return 之后的状态集合，没有任何模式可以继续匹配时返回空数组
+     */
+    static Node[] step(Node[] states, String segment) {
+        List<Node> next = null;
+        for (Node state : states) {
+            next = state.step(segment, next);
+        }
+        return next == null ? NO_STATES : next.toArray(NO_STATES);
+    }
+    
+    /**
+     * 检查状态集合中是否有模式已经完整匹配
+     */
+    static boolean matches(Node[] states) {
+        for (Node state : states) {
+            if (state.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void add(String pattern) {
+        String text = pattern.trim();
+        if (text.startsWith("./")) {
+            text = text.substring(2);
+        }
+        while (text.endsWith("/")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        
+        // 不含"/"的模式等价于"**/模式"
+        Node node = root;
+        if (text.indexOf('/') < 0) {
+            node = node.anySegments();
+        }
+        
+        for (String segment : text.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if ("**".equals(segment)) {
+                if (!node.repeating) {
+                    node = node.anySegments();
+                }
+            } else if (!hasWildcard(segment)) {
+                node = node.literal(unescape(segment));
+            } else if (segment.startsWith("*") && !hasWildcard(segment.substring(1))) {
+                node = node.suffix(unescape(segment.substring(1)));
+            } else {
+                node = node.pattern(toRegex(segment));
+            }
+        }
+        node.terminal = true;
+    }
+    
+    /**
+     * 把状态及其不消耗路径段就能到达的"**"状态加入集合
+     */
+    private static void addWithClosure(List<Node> states, Node node) {
+        for (Node current = node; current != null; current = current.anySegments) {
+            if (!states.contains(current)) {
+                states.add(current);
+            }
+        }
+    }
+    
+    /**
+     * 检查文本中是否含有通配符或转义字符
+     */
+    static boolean hasWildcard(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 去掉不含通配符的文本中的转义字符
+     */
+    static String unescape(String text) {
+        return text.replace("\\", "");
+    }
+    
+    /**
+     * 把通配符模式转换为正则表达式
+     * "*"和"?"不匹配"/"，"**"作为完整的路径段时匹配零个或多个目录
+     */
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int length = glob.length();
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                boolean doubleStar = i + 1 < length && glob.charAt(i + 1) == '*';
+                boolean atSegmentStart = i == 0 || glob.charAt(i - 1) == '/';
+                if (doubleStar && atSegmentStart && (i + 2 == length || glob.charAt(i + 2) == '/')) {
+                    if (i + 2 == length) {
+                        // 末尾的"/**"匹配目录中的所有内容
+                        regex.append(".*");
+                    } else {
+                        // "**/"匹配零个或多个目录
+                        regex.append("(?:.*/)?");
+                        i++;
+                    }
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i + 2);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    String content = glob.substring(i + 1, end);
+                    if (content.startsWith("!")) {
+                        content = "^" + content.substring(1);
+                    }
+                    regex.append('[').append(content.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < length) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                if ("\\.^$+{}()|".indexOf(c) >= 0) {
+                    regex.append('\\');
+                }
+                regex.append(c);
+            }
+        }
+        return regex.toString();
+    }
+    
+    /**
+     * 前缀树中的状态
+     */
+    static class Node {
+        private Map<String, Node> literals;
+        private List<String> suffixes;
+        private List<Node> suffixNodes;
+        private List<Pattern> patterns;
+        private List<Node> patternNodes;
+        
+        /** 通过"**"到达的状态，不消耗路径段即可进入 */
+        private Node anySegments;
+        
+        /** "**"状态可以匹配任意路径段并停留在自身 */
+        private boolean repeating;
+        
+        /** 是否有模式在此结束 */
+        private boolean terminal;
+        
+        private List<Node> step(String segment, List<Node> next) {
+            if (repeating) {
+                next = add(next, this);
+            }
+            if (literals != null) {
+                Node node = literals.get(segment);
+                if (node != null) {
+                    next = add(next, node);
+                }
+            }
+            if (suffixes != null) {
+                for (int i = 0; i < suffixes.size(); i++) {
+                    if (segment.endsWith(suffixes.get(i))) {
+                        next = add(next, suffixNodes.get(i));
+                    }
+                }
+            }
+            if (patterns != null) {
+                for (int i = 0; i < patterns.size(); i++) {
+                    if (patterns.get(i).matcher(segment).matches()) {
+                        next = add(next, patternNodes.get(i));
+                    }
+                }
+            }
+            return next;
+        }
+        
+        private static List<Node> add(List<Node> next, Node node) {
+            if (next == null) {
+                next = new ArrayList<>(4);
+            }
+            addWithClosure(next, node);
+            return next;
+        }
+        
+        private Node anySegments() {
+            if (anySegments == null) {
+                anySegments = new Node();
+                anySegments.repeating = true;
+            }
+            return anySegments;
+        }
+        
+        private Node literal(String name) {
+            if (literals == null) {
+                literals = new HashMap<>();
+            }
+            return literals.computeIfAbsent(name, key -> new Node());
+        }
+        
+        private Node suffix(String suffix) {
+            if (suffixes == null) {
+                suffixes = new ArrayList<>();
+                suffixNodes = new ArrayList<>();
+            }
+            int index = suffixes.indexOf(suffix);
+            if (index < 0) {
+                suffixes.add(suffix);
+                suffixNodes.add(new Node());
+                index = suffixes.size() - 1;
+            }
+            return suffixNodes.get(index);
+        }
+        
+        private Node pattern(String regex) {
+            if (patterns == null) {
+                patterns = new ArrayList<>();
+                patternNodes = new ArrayList<>();
+            }
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).pattern().equals(regex)) {
+                    return patternNodes.get(i);
+                }
+            }
+            patterns.add(Pattern.compile(regex));
+            patternNodes.add(new Node());
+            return patternNodes.get(patternNodes.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.clocliketool.util;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 按目录层级生效的忽略规则过滤器
+ * 每个目录中的.gitignore和.ignore只作用于该目录及其子目录，下层目录的规则优先于上层目录。
+ * 过滤器是不可变的链表，进入子目录时生成新的过滤器，因此可以在并行遍历的多个任务之间共享。
+ * .git目录总是被忽略。
+ */
+public class IgnoreFilter implements ScanFilter {
+    
+    private static final String GIT_DIRECTORY = ".git";
+    
+    private final IgnoreRules rules;
+    private final IgnoreFilter parent;
+    
+    /** 遍历根目录的原始路径和规范化的绝对路径，规则中的路径都以绝对路径比较 */
+    private final String root;
+    private final String absoluteRoot;
+    
+    private IgnoreFilter(IgnoreRules rules, IgnoreFilter parent, String root, String absoluteRoot) {
+        this.rules = rules;
+        this.parent = parent;
+        this.root = root;
+        this.absoluteRoot = absoluteRoot;
+    }
+    
+    /**
+     * 为遍历的根目录创建过滤器
+     * 根目录位于git仓库中时，从仓库根目录到根目录的上级目录中的忽略文件以及
+     * .git/info/exclude同样生效。根目录本身的忽略文件在进入根目录时加载。
+     * 
+     * @param root 遍历的根目录
+     * @return 过滤器
+     */
+    public static IgnoreFilter forRoot(Path root) {
+        Path absolute = root.toAbsolutePath().normalize();
+        
+        // 收集从仓库根目录到根目录上级的所有目录
+        Deque<Path> ancestors = new ArrayDeque<>();
+        Path repository = null;
+        for (Path directory = absolute; directory != null; directory = directory.getParent()) {
+            if (directory != absolute) {
+                ancestors.push(directory);
+            }
+            if (Files.exists(directory.resolve(GIT_DIRECTORY))) {
+                repository = directory;
+                break;
+            }
+        }
+        
+        IgnoreFilter filter = new IgnoreFilter(null, null, root.toString(), absolute.toString());
+        if (repository == null) {
+            return filter;
+        }
+        
+        Path exclude = repository.resolve(GIT_DIRECTORY).resolve("info").resolve("exclude");
+        filter = filter.withRules(IgnoreRules.load(repository.toString(), exclude));
+        for (Path directory : ancestors) {
+            filter = filter.enterDirectory(directory);
+        }
+        return filter;
+    }
+    
+    /**
+     * 进入子目录，加载其中的忽略文件
+     * 
+     * @param directory 子目录
+     * @return 对子目录及其内容生效的过滤器
+     */
+    @Override
+    public IgnoreFilter enterDirectory(Path directory) {
+        return withRules(IgnoreRules.load(toAbsolute(directory), directory.resolve(".gitignore"),
+                directory.resolve(".ignore")));
+    }
+    
+    @Override
+    public boolean accept(Path path, boolean directory) {
+        return !isIgnored(path, directory);
+    }
+    
+    /**
+     * 检查路径是否被忽略
+     * 
+     * @param path 要检查的路径
+     * @param directory 路径是否为目录
+     * @return 被忽略时返回true
+     */
+    public boolean isIgnored(Path path, boolean directory) {
+        String name = path.getFileName().toString();
+        if (directory && GIT_DIRECTORY.equals(name)) {
+            return true;
+        }
+        
+        String pathString = toAbsolute(path);
+        for (IgnoreFilter filter = this; filter != null; filter = filter.parent) {
+            if (filter.rules != null) {
+                Boolean ignored = filter.rules.match(pathString, name, directory);
+                if (ignored != null) {
+                    return ignored;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 把遍历得到的路径转换为规范化的绝对路径
+     * 遍历得到的路径都以根目录的原始路径开头，只需要替换这一前缀
+     */
+    private String toAbsolute(Path path) {
+        String pathString = path.toString();
+        if (root.equals(absoluteRoot)) {
+            return pathString;
+        }
+        if (pathString.startsWith(root)
+                && (pathString.length() == root.length() || pathString.charAt(root.length()) == File.separatorChar)) {
+            return absoluteRoot + pathString.substring(root.length());
+        }
+        return path.toAbsolutePath().normalize().toString();
+    }
+    
+    private IgnoreFilter withRules(IgnoreRules directoryRules) {
+        return directoryRules != null ? new IgnoreFilter(directoryRules, this, root, absoluteRoot) : this;
+    }
+}
@@ -0,0 +1,222 @@
+package com.clocliketool.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 单个目录中忽略文件（.gitignore/.ignore）的规则集合
+ * 规则在加载时编译：不含通配符的名称使用哈希表查找，"*.扩展名"形式的规则按后缀比较，
+ * 其余规则编译为正则表达式。按照gitignore的语义，后定义的规则优先。
+ */
+class IgnoreRules {
+    
+    private final String base;
+    private final Rule[] rules;
+    
+    /** 只按名称匹配且不含通配符的规则，值为该名称最后一条规则的序号 */
+    private final Map<String, Integer> literalNames;
+    
+    private IgnoreRules(String base, List<Rule> rules) {
+        this.base = base;
+        this.rules = rules.toArray(new Rule[0]);
+        this.literalNames = new HashMap<>();
+        for (int i = 0; i < this.rules.length; i++) {
+            Rule rule = this.rules[i];
+            if (rule.literal != null) {
+                literalNames.put(rule.literal, i);
+            }
+        }
+    }
+    
+    /**
+     * 加载目录中的忽略文件，按顺序合并，后加载的文件优先
+     * 
+     * @param directory 忽略文件所在目录的绝对路径，规则中的路径相对于该目录
+     * @param files 要加载的忽略文件
+     * @return 规则集合，所有文件都不存在或没有有效规则时返回null
+     */
+    static IgnoreRules load(String directory, Path... files) {
+        List<Rule> rules = new ArrayList<>();
+        for (Path file : files) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            } catch (NoSuchFileException e) {
+                continue;
+            } catch (IOException | RuntimeException e) {
+                // 无法读取或编码无效的忽略文件按不存在处理
+                continue;
+            }
+            for (String line : lines) {
+                Rule rule = Rule.parse(line);
+                if (rule != null) {
+                    rules.add(rule);
+                }
+            }
+        }
+        return rules.isEmpty() ? null : new IgnoreRules(directory, rules);
+    }
+    
+    /**
+     * 匹配路径
+     * 
+     * @param path 要匹配的路径，必须位于规则所在目录之下
+     * @param name 路径的最后一级名称
+     * @param directory 路径是否为目录
+     * @return 被忽略时返回TRUE，被取反规则重新包含时返回FALSE，没有匹配的规则时返回null
+     */
+    Boolean match(String path, String name, boolean directory) {
+        String relative = relativize(path);
+        if (relative == null) {
+            return null;
+        }
+        
+        Integer literal = literalNames.get(name);
+        int literalIndex = literal != null ? literal : -1;
+        for (int i = rules.length - 1; i > literalIndex; i--) {
+            Rule rule = rules[i];
+            if (rule.literal == null && rule.matches(relative, name, directory)) {
+                return !rule.negated;
+            }
+        }
+        if (literalIndex >= 0) {
+            Rule rule = rules[literalIndex];
+            if (!rule.directoryOnly || directory) {
+                return !rule.negated;
+            }
+            // 只匹配目录的名称规则没有命中时，继续检查更早的规则
+            for (int i = literalIndex - 1; i >= 0; i--) {
+                rule = rules[i];
+                if (rule.matches(relative, name, directory)) {
+                    return !rule.negated;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 计算相对于规则所在目录、以"/"分隔的路径
+     */
+    private String relativize(String path) {
+        if (path.length() <= base.length() || !path.startsWith(base)) {
+            return null;
+        }
+        int start = base.length();
+        if (path.charAt(start) == File.separatorChar) {
+            start++;
+        } else if (!base.endsWith(File.separator)) {
+            return null;
+        }
+        String relative = path.substring(start);
+        return File.separatorChar == '/' ? relative : relative.replace(File.separatorChar, '/');
+    }
+    
+    /**
+     * 单条忽略规则
+     */
+    private static class Rule {
+        private final boolean negated;
+        private final boolean directoryOnly;
+        
+        /** 不含通配符、只按名称匹配的规则 */
+        private final String literal;
+        
+        /** "*.扩展名"形式、只按名称匹配的规则 */
+        private final String suffix;
+        
+        /** 其他规则编译得到的正则表达式 */
+        private final Pattern pattern;
+        
+        /** 正则表达式匹配完整的相对路径还是只匹配名称 */
+        private final boolean anchored;
+        
+        private Rule(boolean negated, boolean directoryOnly, String literal, String suffix,
+                     Pattern pattern, boolean anchored) {
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.literal = literal;
+            this.suffix = suffix;
+            this.pattern = pattern;
+            this.anchored = anchored;
+        }
+        
+        boolean matches(String relative, String name, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            if (literal != null) {
+                return literal.equals(name);
+            }
+            if (suffix != null) {
+                return name.endsWith(suffix);
+            }
+            return pattern.matcher(anchored ? relative : name).matches();
+        }
+        
+        /**
+         * 解析一行规则，空行和注释返回null
+         */
+        static Rule parse(String line) {
+            String text = trimTrailingSpaces(line);
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+            
+            boolean negated = false;
+            if (text.startsWith("!")) {
+                negated = true;
+                text = text.substring(1);
+            } else if (text.startsWith("\\!") || text.startsWith("\\#")) {
+                text = text.substring(1);
+            }
+            
+            boolean directoryOnly = false;
+            if (text.endsWith("/")) {
+                directoryOnly = true;
+                text = text.substring(0, text.length() - 1);
+            }
+            
+            // 开头或中间含有"/"的规则相对于忽略文件所在目录匹配完整路径
+            boolean anchored = text.indexOf('/') >= 0;
+            if (text.startsWith("/")) {
+                text = text.substring(1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+            
+            if (!anchored) {
+                if (!GlobPatternSet.hasWildcard(text)) {
+                    return new Rule(negated, directoryOnly, GlobPatternSet.unescape(text), null, null, false);
+                }
+                if (text.startsWith("*") && !GlobPatternSet.hasWildcard(text.substring(1))) {
+                    String suffix = GlobPatternSet.unescape(text.substring(1));
+                    return new Rule(negated, directoryOnly, null, suffix, null, false);
+                }
+            }
+            Pattern pattern = Pattern.compile(GlobPatternSet.toRegex(text));
+            return new Rule(negated, directoryOnly, null, null, pattern, anchored);
+        }
+        
+        private static String trimTrailingSpaces(String line) {
+            int end = line.length();
+            if (end > 0 && line.charAt(end - 1) == '\r') {
+                end--;
+            }
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.FileResultStore;
+import com.clocliketool.model.LineCountResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 以JSON格式输出报告，每个文件和每种语言占一行
+ * 历史统计输出一个数组，每个提交是一个对象。
+ */
+public class JsonReportFormatter implements ReportFormatter {
+    
+    @Override
+    public void format(AnalysisReport report, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("{\n");
+        
+        if (report.hasFileResults()) {
+            FileResultStore store = report.getFileResults();
+            int[] indices = report.getFileIndices();
+            writer.write("  \"files\": [");
+            for (int i = 0; i < indices.length; i++) {
+                int index = indices[i];
+                writer.write(i == 0 ? "\n    {\"path\": " : ",\n    {\"path\": ").writeJsonString(store.getPath(index))
+                        .write(", \"language\": ").writeJsonString(store.getLanguage(index));
+                writeCounts(writer, store.getTotalLines(index), store.getCodeLines(index),
+                        store.getCommentLines(index), store.getBlankLines(index));
+                writer.write('}');
+            }
+            writer.write(indices.length > 0 ? "\n  ],\n" : "],\n");
+        }
+        
+        List<String> languages = report.getLanguages();
+        writer.write("  \"languages\": [");
+        for (int i = 0; i < languages.size(); i++) {
+            String language = languages.get(i);
+            LineCountResult result = report.getLanguageResults().get(language);
+            writer.write(i == 0 ? "\n    {\"language\": " : ",\n    {\"language\": ").writeJsonString(language)
+                    .write(", \"files\": ").writeNumber(result.getFileCount());
+            writeCounts(writer, result);
+            writer.write('}');
+        }
+        writer.write(languages.isEmpty() ? "],\n" : "\n  ],\n");
+        
+        writer.write("  \"total\": {\"files\": ").writeNumber(report.getTotalFiles());
+        writeCounts(writer, report.getTotal());
+        writer.write('}');
+        
+        if (report.hasDuplicateCount()) {
+            writer.write(",\n  \"duplicates\": ").writeNumber(report.getDuplicateCount());
+        }
+        writer.write("\n}\n");
+        writer.flush();
+    }
+    
+    @Override
+    public void formatHistory(List<CommitReport> history, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write('[');
+        for (int i = 0; i < history.size(); i++) {
+            CommitReport commit = history.get(i);
+            writer.write(i == 0 ? "\n  {\"commit\": " : ",\n  {\"commit\": ").writeJsonString(commit.getCommitId())
+                    .write(", \"time\": ").writeJsonString(commit.getCommitTimeText())
+                    .write(",\n   \"languages\": [");
+            List<String> languages = commit.getLanguages();
+            for (int j = 0; j < languages.size(); j++) {
+                String language = languages.get(j);
+                LineCountResult result = commit.getLanguageResults().get(language);
+                writer.write(j == 0 ? "\n     {\"language\": " : ",\n     {\"language\": ").writeJsonString(language)
+                        .write(", \"files\": ").writeNumber(result.getFileCount());
+                writeCounts(writer, result);
+                writer.write('}');
+            }
+            writer.write(languages.isEmpty() ? "],\n" : "\n   ],\n");
+            writer.write("   \"total\": {\"files\": ").writeNumber(commit.getTotalFiles());
+            writeCounts(writer, commit.getTotal());
+            writer.write("}}");
+        }
+        writer.write(history.isEmpty() ? "]\n" : "\n]\n");
+        writer.flush();
+    }
+    
+    private static void writeCounts(ReportWriter writer, LineCountResult result) throws IOException {
+        writeCounts(writer, result.getTotalLines(), result.getCodeLines(), result.getCommentLines(),
+                result.getBlankLines());
+    }
+    
+    private static void writeCounts(ReportWriter writer, long lines, long code, long comments, long blanks)
+            throws IOException {
+        writer.write(", \"lines\": ").writeNumber(lines)
+                .write(", \"code\": ").writeNumber(code)
+                .write(", \"comments\": ").writeNumber(comments)
+                .write(", \"blanks\": ").writeNumber(blanks);
+    }
+}
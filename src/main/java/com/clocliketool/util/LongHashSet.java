@@ -0,0 +1,108 @@
+package com.clocliketool.util;
+
+/**
+ * 基本类型long的哈希集合
+ * 使用开放寻址和线性探测，所有元素保存在一个long数组中，每个元素只占用8到16个字节，
+ * 没有装箱对象和链表节点，适合保存数百万个哈希值。
+ * 不是线程安全的。
+ */
+public class LongHashSet {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    /** 空槽位的标记，值为0的元素单独记录 */
+    private static final long EMPTY = 0;
+    
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param expectedSize 预计的元素数量
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+    
+    /**
+     * 添加元素
+     * 
+     * @param value 要添加的元素
+     * @return 集合中原来没有该元素时返回true
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        
+        int index = indexOf(value);
+        if (table[index] == value) {
+            return false;
+        }
+        table[index] = value;
+        // 装载因子超过一半时扩容，保持探测序列足够短
+        if (++size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+    
+    /**
+     * 检查集合中是否包含元素
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        return table[indexOf(value)] == value;
+    }
+    
+    /**
+     * 获取元素数量
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 查找元素所在的槽位，元素不存在时返回探测序列中第一个空槽位
+     */
+    private int indexOf(long value) {
+        int index = spread(value) & mask;
+        while (table[index] != EMPTY && table[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+    
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                table[indexOf(value)] = value;
+            }
+        }
+    }
+    
+    /**
+     * 打散元素的高低位，使连续的值也能均匀分布
+     */
+    private static int spread(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,120 @@
+package com.clocliketool.util;
+
+/**
+ * 基本类型long到int的哈希映射
+ * 使用开放寻址和线性探测，键和值分别保存在两个数组中，每个条目只占用12到24个字节，
+ * 没有装箱对象和链表节点，适合保存数百万个条目。不支持删除。
+ * 不是线程安全的。
+ */
+public class LongIntHashMap {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    /** 空槽位的标记，键为0的条目单独记录 */
+    private static final long EMPTY = 0;
+    
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private int zeroValue;
+    
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param expectedSize 预计的条目数量
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+    
+    /**
+     * 获取键对应的值
+     * 
+     * @param key 键
+     * @param defaultValue 键不存在时返回的值
+     * @return 键对应的值
+     */
+    public int get(long key, int defaultValue) {
+        if (key == EMPTY) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : defaultValue;
+    }
+    
+    /**
+     * 设置键对应的值，键已经存在时替换原来的值
+     * 
+     * @param key 键
+     * @param value 值
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        
+        int index = indexOf(key);
+        values[index] = value;
+        if (keys[index] == key) {
+            return;
+        }
+        keys[index] = key;
+        // 装载因子超过一半时扩容，保持探测序列足够短
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+    
+    /**
+     * 获取条目数量
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 查找键所在的槽位，键不存在时返回探测序列中第一个空槽位
+     */
+    private int indexOf(long key) {
+        int index = spread(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * 打散键的高低位，使连续的键也能均匀分布
+     */
+    private static int spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,264 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.SourceFile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 基于fork/join的并行目录遍历器
+ * 每个子目录作为一个独立的任务提交到工作窃取线程池中，适合在网络文件系统等
+ * 单次目录读取延迟较高的环境下使用。
+ * 
+ * 无序模式下匹配的文件由线程池中的线程直接交给处理器，处理器必须是线程安全的；
+ * 有序模式下同一目录中的条目按名称排序，文件按深度优先的顺序在调用线程中依次交给处理器，
+ * 每次遍历的顺序都相同。
+ */
+class ParallelDirectoryWalker {
+    
+    private static final Comparator<Path> BY_NAME = Comparator.comparing(path -> path.getFileName().toString());
+    
+    private final int parallelism;
+    private final boolean ordered;
+    private final String[] suffixes;
+    private final ScanFilter filter;
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    
+    ParallelDirectoryWalker(int parallelism, boolean ordered, String[] suffixes, ScanFilter filter) {
+        this.parallelism = Math.max(1, parallelism);
+        this.ordered = ordered;
+        this.suffixes = suffixes;
+        this.filter = filter;
+    }
+    
+    /**
+     * 遍历目录，返回本次遍历的统计信息
+     */
+    WalkStatistics walk(Path root, Consumer<SourceFile> consumer) {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Object rootKey = fileKeyOf(root);
+            if (ordered) {
+                OrderedTask task = new OrderedTask(root, new Ancestor(rootKey, null), filter);
+                emit(pool.invoke(task), consumer);
+            } else {
+                pool.invoke(new UnorderedTask(root, new Ancestor(rootKey, null), filter, consumer));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new WalkStatistics(directories.sum(), files.sum(), System.nanoTime() - start);
+    }
+    
+    /**
+     * 按顺序把有序遍历的结果交给处理器，子目录的任务完成前在此等待
+     */
+    private static void emit(List<Object> entries, Consumer<SourceFile> consumer) {
+        for (Object entry : entries) {
+            if (entry instanceof SourceFile) {
+                consumer.accept((SourceFile) entry);
+            } else {
+                emit(((OrderedTask) entry).join(), consumer);
+            }
+        }
+    }
+    
+    /**
+     * 读取目录中的所有条目，无法读取的目录视为空目录
+     */
+    private List<Path> listDirectory(Path directory) {
+        directories.increment();
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 无法访问的目录直接跳过
+        }
+        if (ordered) {
+            entries.sort(BY_NAME);
+        }
+        return entries;
+    }
+    
+    /**
+     * 进入目录，返回对目录中条目生效的过滤器
+     */
+    private static ScanFilter enter(ScanFilter filter, Path directory) {
+        return filter != null ? filter.enterDirectory(directory) : null;
+    }
+    
+    /**
+     * 检查条目是否被过滤器排除
+     */
+    private static boolean excluded(ScanFilter filter, Path path, boolean directory) {
+        return filter != null && !filter.accept(path, directory);
+    }
+    
+    /**
+     * 读取条目的属性（跟随符号链接），无法读取时返回null
+     */
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static Object fileKeyOf(Path path) {
+        BasicFileAttributes attributes = readAttributes(path);
+        return attributes != null ? attributes.fileKey() : null;
+    }
+    
+    /**
+     * 检查条目是否为需要交给处理器的文件
+     */
+    private SourceFile toSourceFile(Path path, BasicFileAttributes attributes) {
+        if (!attributes.isRegularFile() || !DirectoryScanner.hasMatchingSuffix(path.getFileName().toString(), suffixes)) {
+            return null;
+        }
+        files.increment();
+        return SourceFile.of(path.toFile(), attributes);
+    }
+    
+    /**
+     * 无序遍历单个目录的任务
+     */
+    private class UnorderedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Path directory;
+        private final Ancestor ancestor;
+        private final ScanFilter parentFilter;
+        private final Consumer<SourceFile> consumer;
+        
+        UnorderedTask(Path directory, Ancestor ancestor, ScanFilter parentFilter, Consumer<SourceFile> consumer) {
+            this.directory = directory;
+            this.ancestor = ancestor;
+            this.parentFilter = parentFilter;
+            this.consumer = consumer;
+        }
+        
+        @Override
+        protected void compute() {
+            // 目录中的忽略文件在遍历该目录的任务中读取，与目录读取一起并行
+            ScanFilter filter = enter(parentFilter, directory);
+            List<UnorderedTask> subtasks = new ArrayList<>();
+            for (Path entry : listDirectory(directory)) {
+                BasicFileAttributes attributes = readAttributes(entry);
+                if (attributes == null || excluded(filter, entry, attributes.isDirectory())) {
+                    continue;
+                }
+                
+                if (attributes.isDirectory()) {
+                    if (!ancestor.contains(attributes.fileKey())) {
+                        UnorderedTask subtask = new UnorderedTask(entry,
+                                new Ancestor(attributes.fileKey(), ancestor), filter, consumer);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    }
+                } else {
+                    SourceFile source = toSourceFile(entry, attributes);
+                    if (source != null) {
+                        consumer.accept(source);
+                    }
+                }
+            }
+            
+            for (UnorderedTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
+    }
+    
+    /**
+     * 有序遍历单个目录的任务
+     * 结果按目录中的顺序保存文件和子目录任务，由调用线程按顺序展开
+     */
+    private class OrderedTask extends RecursiveTask<List<Object>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final Path directory;
+        private final Ancestor ancestor;
+        private final ScanFilter parentFilter;
+        
+        OrderedTask(Path directory, Ancestor ancestor, ScanFilter parentFilter) {
+            this.directory = directory;
+            this.ancestor = ancestor;
+            this.parentFilter = parentFilter;
+        }
+        
+        @Override
+        protected List<Object> compute() {
+            List<Path> paths = listDirectory(directory);
+            if (paths.isEmpty()) {
+                return Collections.emptyList();
+            }
+            
+            ScanFilter filter = enter(parentFilter, directory);
+            List<Object> entries = new ArrayList<>(paths.size());
+            for (Path entry : paths) {
+                BasicFileAttributes attributes = readAttributes(entry);
+                if (attributes == null || excluded(filter, entry, attributes.isDirectory())) {
+                    continue;
+                }
+                
+                if (attributes.isDirectory()) {
+                    if (!ancestor.contains(attributes.fileKey())) {
+                        OrderedTask subtask = new OrderedTask(entry, new Ancestor(attributes.fileKey(), ancestor),
+                                filter);
+                        subtask.fork();
+                        entries.add(subtask);
+                    }
+                } else {
+                    SourceFile source = toSourceFile(entry, attributes);
+                    if (source != null) {
+                        entries.add(source);
+                    }
+                }
+            }
+            return entries;
+        }
+    }
+    
+    /**
+     * 从根目录到当前目录路径上的目录标识，用于检测符号链接造成的循环
+     */
+    private static class Ancestor {
+        private final Object fileKey;
+        private final Ancestor parent;
+        
+        Ancestor(Object fileKey, Ancestor parent) {
+            this.fileKey = fileKey;
+            this.parent = parent;
+        }
+        
+        boolean contains(Object key) {
+            if (key == null) {
+                return false;
+            }
+            for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (key.equals(ancestor.fileKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.LineCountResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 可合并的部分统计结果
+ * 分片统计时每个分片写出一个部分结果文件，之后把任意多个部分结果合并为最终报告。
+ * 合并是逐语言相加并对已包含的分片取并集，满足结合律和交换律，因此可以按任意顺序、
+ * 分多层合并，中间结果同样可以写出为部分结果文件。
+ * 
+ * 文件采用紧凑的二进制格式：魔数和版本之后是分片信息、文件总数和按语言名称排序的
+ * 各语言计数，数值使用变长编码。
+ */
+public class PartialResult {
+    
+    private static final int MAGIC = 0x434C4F50; // "CLOP"
+    
+    /** 部分结果格式版本 */
+    private static final int VERSION = 1;
+    
+    private final Map<String, LineCountResult> languageResults;
+    private final long totalFiles;
+    
+    /** 分片总数，0表示不是分片统计的结果 */
+    private final int shardCount;
+    private final BitSet shards;
+    
+    /**
+     * @param languageResults 按语言分类的统计结果
+     * @param totalFiles 统计的文件总数
+     * @param shard 统计的分片，为null时表示统计了全部文件
+     */
+    public PartialResult(Map<String, LineCountResult> languageResults, long totalFiles, ShardFilter shard) {
+        this(new TreeMap<>(languageResults), totalFiles, shard != null ? shard.getCount() : 0, new BitSet());
+        if (shard != null) {
+            shards.set(shard.getIndex());
+        }
+    }
+    
+    private PartialResult(TreeMap<String, LineCountResult> languageResults, long totalFiles, int shardCount,
+                          BitSet shards) {
+        this.languageResults = Collections.unmodifiableMap(languageResults);
+        this.totalFiles = totalFiles;
+        this.shardCount = shardCount;
+        this.shards = shards;
+    }
+    
+    public Map<String, LineCountResult> getLanguageResults() {
+        return languageResults;
+    }
+    
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+    
+    /**
+     * 获取分片总数
+     * 
+     * @return 分片总数，不是分片统计的结果时返回0
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+    
+    /**
+     * 获取尚未包含的分片编号
+     */
+    public List<Integer> getMissingShards() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = shards.nextClearBit(0); i < shardCount; i = shards.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        return missing;
+    }
+    
+    /**
+     * 合并两个部分结果，两者都不改变
+     * 
+     * @param other 另一个部分结果
+     * @return 合并后的部分结果
+     * @throws IllegalArgumentException 如果两者的分片总数不同，或者包含相同的分片
+     * @throws ArithmeticException 如果计数溢出
+     */
+    public PartialResult merge(PartialResult other) {
+        if (shardCount != other.shardCount) {
+            throw new IllegalArgumentException("分片总数不同，无法合并: " + describeShards() + " 和 "
+                    + other.describeShards());
+        }
+        if (shards.intersects(other.shards)) {
+            BitSet overlap = (BitSet) shards.clone();
+            overlap.and(other.shards);
+            throw new IllegalArgumentException("分片" + overlap.nextSetBit(0) + "/" + shardCount
+                    + "被重复合并");
+        }
+        
+        TreeMap<String, LineCountResult> merged = new TreeMap<>();
+        for (Map<String, LineCountResult> results : List.of(languageResults, other.languageResults)) {
+            for (Map.Entry<String, LineCountResult> entry : results.entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), key -> new LineCountResult()).merge(entry.getValue());
+            }
+        }
+        BitSet mergedShards = (BitSet) shards.clone();
+        mergedShards.or(other.shards);
+        return new PartialResult(merged, Math.addExact(totalFiles, other.totalFiles), shardCount, mergedShards);
+    }
+    
+    /**
+     * 描述包含的分片，如"0,2/4"
+     */
+    public String describeShards() {
+        if (shardCount == 0) {
+            return "全部文件";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = shards.nextSetBit(0); i >= 0; i = shards.nextSetBit(i + 1)) {
+            sb.append(sb.length() > 0 ? "," : "").append(i);
+        }
+        return sb.append('/').append(shardCount).toString();
+    }
+    
+    /**
+     * 写出部分结果文件
+     * 先写入临时文件再替换，中途失败不会留下不完整的文件
+     * 
+     * @param file 输出文件
+     * @throws IOException 如果写入失败
+     */
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        encode(out);
+        
+        Path tempFile = new File(file.getPath() + ".tmp").toPath();
+        try {
+            Files.write(tempFile, out.toByteArray());
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    /**
+     * 读取部分结果文件
+     * 
+     * @param file 部分结果文件
+     * @return 部分结果
+     * @throws IOException 如果文件无法读取或格式无效
+     */
+    public static PartialResult read(File file) throws IOException {
+        Decoder in = new Decoder(Files.readAllBytes(file.toPath()));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("不是部分结果文件: " + file.getPath());
+        }
+        
+        int shardCount = in.readCount();
+        BitSet shards = BitSet.valueOf(in.readBytes(in.readCount()));
+        if (shards.length() > shardCount || (shardCount > 0 && shards.isEmpty())) {
+            throw new IOException("部分结果文件格式无效: " + file.getPath());
+        }
+        long totalFiles = in.readVarLong();
+        
+        TreeMap<String, LineCountResult> languageResults = new TreeMap<>();
+        int languages = in.readCount();
+        for (int i = 0; i < languages; i++) {
+            String language = new String(in.readBytes(in.readCount()), StandardCharsets.UTF_8);
+            int files = in.readCount();
+            languageResults.put(language, new LineCountResult(in.readVarLong(), in.readVarLong(),
+                    in.readVarLong(), files));
+        }
+        if (!in.isAtEnd()) {
+            throw new IOException("部分结果文件格式无效: " + file.getPath());
+        }
+        return new PartialResult(languageResults, totalFiles, shardCount, shards);
+    }
+    
+    private void encode(OutputStream out) throws IOException {
+        out.write(MAGIC >>> 24);
+        out.write(MAGIC >>> 16);
+        out.write(MAGIC >>> 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+        
+        writeVarLong(out, shardCount);
+        byte[] shardBytes = shards.toByteArray();
+        writeVarLong(out, shardBytes.length);
+        out.write(shardBytes);
+        writeVarLong(out, totalFiles);
+        
+        writeVarLong(out, languageResults.size());
+        for (Map.Entry<String, LineCountResult> entry : languageResults.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, name.length);
+            out.write(name);
+            LineCountResult result = entry.getValue();
+            writeVarLong(out, result.getFileCount());
+            writeVarLong(out, result.getCodeLines());
+            writeVarLong(out, result.getCommentLines());
+            writeVarLong(out, result.getBlankLines());
+        }
+    }
+    
+    /**
+     * 以每字节7位的变长格式写入非负整数
+     */
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    /**
+     * 部分结果文件内容的解码器
+     */
+    private static class Decoder {
+        private final byte[] data;
+        private int position = 0;
+        
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+        
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("部分结果文件不完整");
+            }
+            return data[position++] & 0xFF;
+        }
+        
+        int readInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+        
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("部分结果文件格式无效");
+        }
+        
+        /**
+         * 读取不超过int范围的非负数量
+         */
+        int readCount() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("部分结果文件格式无效");
+            }
+            return (int) value;
+        }
+        
+        byte[] readBytes(int length) throws IOException {
+            if (length > data.length - position) {
+                throw new IOException("部分结果文件不完整");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+        
+        boolean isAtEnd() {
+            return position == data.length;
+        }
+    }
+}
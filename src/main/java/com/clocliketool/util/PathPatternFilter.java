@@ -0,0 +1,111 @@
+package com.clocliketool.util;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 按命令行指定的通配符模式和正则表达式过滤路径
+ * 所有模式在创建时编译一次，遍历时每个过滤器对象保存进入当前目录之后的匹配状态，
+ * 每个条目只需要用自己的名称前进一步，不需要重新匹配完整路径。
+ * 
+ * 被排除的目录以及不可能包含任何匹配文件的目录会在遍历时直接跳过。
+ */
+public class PathPatternFilter implements ScanFilter {
+    
+    private final Patterns patterns;
+    
+    /** 进入当前目录之后各组模式的状态集合，为null表示还没有进入根目录 */
+    private final GlobPatternSet.Node[] excludeDirectoryStates;
+    private final GlobPatternSet.Node[] excludeStates;
+    private final GlobPatternSet.Node[] includeStates;
+    
+    /** 当前目录相对于根目录、以"/"结尾的路径，只在使用正则表达式时记录 */
+    private final String relativeDirectory;
+    
+    /**
+     * @param excludeDirectories 要跳过的目录的模式
+     * @param excludes 要跳过的文件和目录的模式
+     * @param includes 只统计匹配其中某个模式的文件，为空时不限制
+     * @param match 只统计相对路径中能找到该正则表达式的文件，为null时不限制
+     * @throws java.util.regex.PatternSyntaxException 如果正则表达式无效
+     */
+    public PathPatternFilter(List<String> excludeDirectories, List<String> excludes, List<String> includes,
+                             String match) {
+        this(new Patterns(excludeDirectories, excludes, includes, match), null, null, null, "");
+    }
+    
+    private PathPatternFilter(Patterns patterns, GlobPatternSet.Node[] excludeDirectoryStates,
+                              GlobPatternSet.Node[] excludeStates, GlobPatternSet.Node[] includeStates,
+                              String relativeDirectory) {
+        this.patterns = patterns;
+        this.excludeDirectoryStates = excludeDirectoryStates;
+        this.excludeStates = excludeStates;
+        this.includeStates = includeStates;
+        this.relativeDirectory = relativeDirectory;
+    }
+    
+    @Override
+    public PathPatternFilter enterDirectory(Path directory) {
+        if (includeStates == null) {
+            // 根目录本身不参与匹配，模式相对于根目录
+            return new PathPatternFilter(patterns, start(patterns.excludeDirectories), start(patterns.excludes),
+                    start(patterns.includes), "");
+        }
+        
+        String name = directory.getFileName().toString();
+        return new PathPatternFilter(patterns, step(excludeDirectoryStates, name), step(excludeStates, name),
+                step(includeStates, name), patterns.match != null ? relativeDirectory + name + "/" : "");
+    }
+    
+    @Override
+    public boolean accept(Path path, boolean directory) {
+        String name = path.getFileName().toString();
+        if (patterns.excludes != null && GlobPatternSet.matches(step(excludeStates, name))) {
+            return false;
+        }
+        
+        if (directory) {
+            if (patterns.excludeDirectories != null
+                    && GlobPatternSet.matches(step(excludeDirectoryStates, name))) {
+                return false;
+            }
+            // 包含模式在该目录中已经不可能匹配时，跳过整个目录
+            return patterns.includes == null || step(includeStates, name).length > 0;
+        }
+        
+        if (patterns.includes != null && !GlobPatternSet.matches(step(includeStates, name))) {
+            return false;
+        }
+        return patterns.match == null || patterns.match.matcher(relativeDirectory + name).find();
+    }
+    
+    private static GlobPatternSet.Node[] start(GlobPatternSet set) {
+        return set != null ? set.start() : new GlobPatternSet.Node[0];
+    }
+    
+    private static GlobPatternSet.Node[] step(GlobPatternSet.Node[] states, String name) {
+        return states.length > 0 ? GlobPatternSet.step(states, name) : states;
+    }
+    
+    /**
+     * 所有过滤器对象共享的编译结果
+     */
+    private static class Patterns {
+        private final GlobPatternSet excludeDirectories;
+        private final GlobPatternSet excludes;
+        private final GlobPatternSet includes;
+        private final Pattern match;
+        
+        Patterns(List<String> excludeDirectories, List<String> excludes, List<String> includes, String match) {
+            this.excludeDirectories = compile(excludeDirectories);
+            this.excludes = compile(excludes);
+            this.includes = compile(includes);
+            this.match = match != null ? Pattern.compile(match) : null;
+        }
+        
+        private static GlobPatternSet compile(List<String> patterns) {
+            return patterns == null || patterns.isEmpty() ? null : new GlobPatternSet(patterns);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.CommitReport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 报告格式化器，把统计报告以某种机器可读的格式写入输出流
+ * 实现类直接向输出流写入，不在内存中拼接完整的报告文本。
+ */
+public interface ReportFormatter {
+    
+    /**
+     * 写出报告，写完后刷新但不关闭输出流
+     * 
+     * @param report 统计报告
+     * @param out 输出流
+     * @throws IOException 如果写入失败
+     */
+    void format(AnalysisReport report, OutputStream out) throws IOException;
+    
+    /**
+     * 写出历史统计中每个提交的结果，写完后刷新但不关闭输出流
+     * 
+     * @param history 每个提交的统计结果，按从旧到新的顺序排列
+     * @param out 输出流
+     * @throws IOException 如果写入失败
+     */
+    void formatHistory(List<CommitReport> history, OutputStream out) throws IOException;
+}
@@ -0,0 +1,154 @@
+package com.clocliketool.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 输出报告使用的缓冲写入器
+ * 以UTF-8编码写入输出流，数字直接转换为字符写入，字符串按各种格式的规则转义后写入，
+ * 写出过程中不创建格式化字符串。不是线程安全的。
+ */
+public class ReportWriter implements Closeable {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final Writer writer;
+    private final char[] digits = new char[20];
+    
+    /**
+     * @param out 输出流
+     */
+    public ReportWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    
+    public ReportWriter write(String text) throws IOException {
+        writer.write(text);
+        return this;
+    }
+    
+    public ReportWriter write(char c) throws IOException {
+        writer.write(c);
+        return this;
+    }
+    
+    /**
+     * 写入十进制整数
+     */
+    public ReportWriter writeNumber(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writer.write(Long.toString(value));
+            return this;
+        }
+        
+        long remaining = Math.abs(value);
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        writer.write(digits, position, digits.length - position);
+        return this;
+    }
+    
+    /**
+     * 写入带双引号的JSON字符串，转义引号、反斜杠和控制字符
+     * 输出同样是合法的YAML双引号字符串
+     */
+    public ReportWriter writeJsonString(String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            
+            writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write("\\u00");
+                    writer.write(Character.forDigit(c >> 4, 16));
+                    writer.write(Character.forDigit(c & 0xF, 16));
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+        return this;
+    }
+    
+    /**
+     * 写入CSV字段，含有逗号、引号或换行的字段用双引号包围
+     */
+    public ReportWriter writeCsvField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            writeQuoted(value, '"');
+        } else {
+            writer.write(value);
+        }
+        return this;
+    }
+    
+    /**
+     * 写入SQL字符串常量，单引号写为两个单引号
+     */
+    public ReportWriter writeSqlString(String value) throws IOException {
+        writeQuoted(value, '\'');
+        return this;
+    }
+    
+    public void flush() throws IOException {
+        writer.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+    
+    /**
+     * 用引号包围文本，文本中的引号写两次
+     */
+    private void writeQuoted(String value, char quote) throws IOException {
+        writer.write(quote);
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == quote) {
+                writer.write(value, start, i + 1 - start);
+                writer.write(quote);
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write(quote);
+    }
+}
@@ -1,5 +1,7 @@
 package com.clocliketool.util;
 
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.FileResultStore;
 import com.clocliketool.model.LineCountResult;
 
 import java.util.ArrayList;
@@ -77,4 +79,103 @@ public class ResultFormatter {
         
         return sb.toString();
     }
+    
+    /**
+     * 生成按文件列出的表格格式的统计结果
+     * 
+     * @param store 单文件统计结果
+     * @param indices 要输出的文件序号，按输出顺序排列
+     * @return 格式化后的结果字符串
+     */
+    public static String formatFileResults(FileResultStore store, int[] indices) {
+        StringBuilder sb = new StringBuilder();
+        
+        // 计算表格宽度
+        int pathWidth = 10; // 最小宽度
+        int languageWidth = 10;
+        for (int index : indices) {
+            pathWidth = Math.max(pathWidth, store.getPath(index).length());
+            languageWidth = Math.max(languageWidth, store.getLanguage(index).length());
+        }
+        String columns = "%-" + pathWidth + "s     %-" + languageWidth + "s     ";
+        String rowFormat = columns + "%-7d     %-10d     %-7d     %-7d%n";
+        
+        // 表头
+        sb.append(String.format(columns + "%-7s     %-10s     %-7s     %-7s%n",
+                "File", "Language", "Lines", "Code", "Comments", "Blanks"));
+        
+        // 分隔线
+        for (int i = 0; i < pathWidth + languageWidth + 56; i++) {
+            sb.append("-");
+        }
+        sb.append("\n");
+        
+        for (int index : indices) {
+            sb.append(String.format(rowFormat,
+                    store.getPath(index),
+                    store.getLanguage(index),
+                    store.getTotalLines(index),
+                    store.getCodeLines(index),
+                    store.getCommentLines(index),
+                    store.getBlankLines(index)));
+        }
+        
+        return sb.toString();
+    }
+    
+    /**
+     * 生成历史统计的表格，每个提交的每种语言占一行，之后是该提交的合计行
+     * 
+     * @param history 每个提交的统计结果，按从旧到新的顺序排列
+     * @return 格式化后的结果字符串
+     */
+    public static String formatHistory(List<CommitReport> history) {
+        StringBuilder sb = new StringBuilder();
+        
+        // 计算表格宽度
+        int languageWidth = 10; // 最小宽度
+        for (CommitReport commit : history) {
+            for (String language : commit.getLanguageResults().keySet()) {
+                languageWidth = Math.max(languageWidth, language.length());
+            }
+        }
+        String columns = "%-12s     %-10s     %-" + languageWidth + "s     ";
+        String rowFormat = columns + "%-5d     %-7d     %-10d     %-7d     %-7d%n";
+        
+        // 表头
+        sb.append(String.format(columns + "%-5s     %-7s     %-10s     %-7s     %-7s%n",
+                "Commit", "Date", "Language", "Files", "Lines", "Code", "Comments", "Blanks"));
+        
+        // 分隔线
+        StringBuilder separator = new StringBuilder();
+        for (int i = 0; i < languageWidth + 92; i++) {
+            separator.append("-");
+        }
+        separator.append("\n");
+        sb.append(separator);
+        
+        for (CommitReport commit : history) {
+            String id = commit.getCommitId().substring(0, Math.min(12, commit.getCommitId().length()));
+            String date = commit.getCommitTimeText().substring(0, 10);
+            for (String language : commit.getLanguages()) {
+                LineCountResult result = commit.getLanguageResults().get(language);
+                sb.append(String.format(rowFormat, id, date, language,
+                        result.getFileCount(),
+                        result.getTotalLines(),
+                        result.getCodeLines(),
+                        result.getCommentLines(),
+                        result.getBlankLines()));
+            }
+            LineCountResult total = commit.getTotal();
+            sb.append(String.format(rowFormat, id, date, "Total",
+                    commit.getTotalFiles(),
+                    total.getTotalLines(),
+                    total.getCodeLines(),
+                    total.getCommentLines(),
+                    total.getBlankLines()));
+            sb.append(separator);
+        }
+        
+        return sb.toString();
+    }
 }
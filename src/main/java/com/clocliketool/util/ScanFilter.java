@@ -0,0 +1,41 @@
+package com.clocliketool.util;
+
+import java.nio.file.Path;
+
+/**
+ * 目录遍历过程中的路径过滤器
+ * 被拒绝的目录不会被遍历；过滤器可以随进入的目录变化，例如加载该目录中的忽略文件
+ */
+public interface ScanFilter {
+    
+    /**
+     * 进入目录时调用，返回对该目录中的条目生效的过滤器
+     * 
+     * @param directory 进入的目录
+     * @return 过滤器，没有变化时返回自身
+     */
+    ScanFilter enterDirectory(Path directory);
+    
+    /**
+     * 检查条目是否需要处理
+     * 
+     * @param path 条目路径
+     * @param directory 条目是否为目录
+     * @return 需要处理（目录需要遍历）时返回true
+     */
+    boolean accept(Path path, boolean directory);
+    
+    /**
+     * 组合两个过滤器，条目需要同时被两个过滤器接受
+     * 
+     * @param first 先检查的过滤器，可以为null
+     * @param second 后检查的过滤器，可以为null
+     * @return 组合后的过滤器，两个过滤器都为null时返回null
+     */
+    static ScanFilter both(ScanFilter first, ScanFilter second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : new CombinedScanFilter(first, second);
+    }
+}
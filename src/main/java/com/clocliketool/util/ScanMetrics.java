@@ -0,0 +1,253 @@
+package com.clocliketool.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次统计各阶段的耗时和吞吐量
+ * 读取和分类的耗时按缓冲区累计，多线程统计时是所有工作线程的总和，可能超过总耗时；
+ * 目录遍历的耗时是遍历过程中除去交出文件以外的时间，
+ * 另外记录耗时最长的若干个文件以及统计期间垃圾回收的累计耗时。
+ * 
+ * 累计使用LongAdder，最慢文件的记录只在文件耗时超过当前门槛时才加锁，
+ * 每个文件只增加几次System.nanoTime调用，可以在持续集成中一直开启。
+ * 内存映射的大文件在分类时才真正从磁盘读取，这部分读取时间计入分类耗时。
+ */
+public class ScanMetrics {
+    
+    /** 默认列出的最慢文件数 */
+    public static final int DEFAULT_SLOWEST_FILES = 10;
+    
+    private final long startNanos = System.nanoTime();
+    private final long startGcMillis = totalGcMillis();
+    private long elapsedNanos = -1;
+    private long gcMillis;
+    
+    private final LongAdder walkNanos = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder classifyNanos = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private long formatNanos;
+    private long files;
+    private long lines;
+    
+    /** 耗时最长的文件，按耗时从小到大排列的最小堆 */
+    private final int slowestLimit;
+    private final String[] slowestPaths;
+    private final long[] slowestNanos;
+    private int slowestCount = 0;
+    
+    /** 进入最慢文件记录所需的最短耗时，记录未满时为0 */
+    private volatile long slowestThreshold = 0;
+    
+    /**
+     * @param slowestLimit 记录耗时最长的文件数
+     */
+    public ScanMetrics(int slowestLimit) {
+        this.slowestLimit = Math.max(0, slowestLimit);
+        this.slowestPaths = new String[this.slowestLimit];
+        this.slowestNanos = new long[this.slowestLimit];
+    }
+    
+    /**
+     * 累计目录遍历的耗时
+     */
+    public void addWalk(long nanos) {
+        walkNanos.add(nanos);
+    }
+    
+    /**
+     * 累计读取的耗时和字节数
+     */
+    public void addRead(long nanos, long bytes) {
+        readNanos.add(nanos);
+        bytesRead.add(bytes);
+    }
+    
+    /**
+     * 累计行分类的耗时
+     */
+    public void addClassify(long nanos) {
+        classifyNanos.add(nanos);
+    }
+    
+    /**
+     * 记录一个文件的统计耗时，可以在多个线程中同时调用
+     * 
+     * @param file 文件
+     * @param nanos 读取和分类该文件的总耗时
+     */
+    public void addFile(File file, long nanos) {
+        if (slowestLimit == 0 || nanos <= slowestThreshold) {
+            return;
+        }
+        synchronized (this) {
+            if (slowestCount < slowestLimit) {
+                slowestPaths[slowestCount] = file.getPath();
+                slowestNanos[slowestCount] = nanos;
+                siftUp(slowestCount++);
+            } else if (nanos > slowestNanos[0]) {
+                slowestPaths[0] = file.getPath();
+                slowestNanos[0] = nanos;
+                siftDown(0);
+            } else {
+                return;
+            }
+            if (slowestCount == slowestLimit) {
+                slowestThreshold = slowestNanos[0];
+            }
+        }
+    }
+    
+    /**
+     * 设置输出结果的耗时
+     */
+    public void setFormatNanos(long nanos) {
+        this.formatNanos = nanos;
+    }
+    
+    /**
+     * 结束计时，记录统计的文件数和行数
+     * 
+     * @param files 统计的文件数
+     * @param lines 统计的总行数
+     */
+    public void finish(long files, long lines) {
+        this.elapsedNanos = System.nanoTime() - startNanos;
+        this.gcMillis = totalGcMillis() - startGcMillis;
+        this.files = files;
+        this.lines = lines;
+    }
+    
+    /**
+     * 生成文本格式的报告
+     */
+    @Override
+    public String toString() {
+        double seconds = getElapsedSeconds();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("统计耗时: 总计 %.3f 秒, 遍历 %.3f 秒, 读取 %.3f 秒, 分类 %.3f 秒, 输出 %.3f 秒, "
+                        + "垃圾回收 %.3f 秒%n",
+                seconds, toSeconds(walkNanos.sum()), toSeconds(readNanos.sum()), toSeconds(classifyNanos.sum()),
+                toSeconds(formatNanos), gcMillis / 1e3));
+        sb.append(String.format("吞吐量: %.0f 文件/秒, %.0f 行/秒, %.2f MB/秒%n",
+                rate(files, seconds), rate(lines, seconds), rate(bytesRead.sum(), seconds) / 1e6));
+        
+        int[] order = slowestOrder();
+        if (order.length > 0) {
+            sb.append("最慢的文件:").append(System.lineSeparator());
+            for (int index : order) {
+                sb.append(String.format("  %10.3f 毫秒  %s%n", slowestNanos[index] / 1e6, slowestPaths[index]));
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 以JSON格式写出报告，写完后刷新但不关闭输出流
+     * 
+     * @param out 输出流
+     * @throws IOException 如果写入失败
+     */
+    public void writeJson(OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("{\n  \"elapsedNanos\": ").writeNumber(elapsedNanos)
+                .write(",\n  \"walkNanos\": ").writeNumber(walkNanos.sum())
+                .write(",\n  \"readNanos\": ").writeNumber(readNanos.sum())
+                .write(",\n  \"classifyNanos\": ").writeNumber(classifyNanos.sum())
+                .write(",\n  \"formatNanos\": ").writeNumber(formatNanos)
+                .write(",\n  \"gcMillis\": ").writeNumber(gcMillis)
+                .write(",\n  \"files\": ").writeNumber(files)
+                .write(",\n  \"lines\": ").writeNumber(lines)
+                .write(",\n  \"bytes\": ").writeNumber(bytesRead.sum())
+                .write(",\n  \"slowest\": [");
+        int[] order = slowestOrder();
+        for (int i = 0; i < order.length; i++) {
+            writer.write(i == 0 ? "\n    {\"path\": " : ",\n    {\"path\": ").writeJsonString(slowestPaths[order[i]])
+                    .write(", \"nanos\": ").writeNumber(slowestNanos[order[i]]).write('}');
+        }
+        writer.write(order.length > 0 ? "\n  ]\n}\n" : "]\n}\n");
+        writer.flush();
+    }
+    
+    private double getElapsedSeconds() {
+        return toSeconds(elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * 获取最慢文件按耗时从大到小排列的下标
+     */
+    private synchronized int[] slowestOrder() {
+        Integer[] order = new Integer[slowestCount];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(slowestNanos[b], slowestNanos[a]));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+    
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (slowestNanos[parent] <= slowestNanos[position]) {
+                break;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+    
+    private void siftDown(int position) {
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= slowestCount) {
+                break;
+            }
+            if (child + 1 < slowestCount && slowestNanos[child + 1] < slowestNanos[child]) {
+                child++;
+            }
+            if (slowestNanos[position] <= slowestNanos[child]) {
+                break;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+    
+    private void swap(int a, int b) {
+        long nanos = slowestNanos[a];
+        slowestNanos[a] = slowestNanos[b];
+        slowestNanos[b] = nanos;
+        String path = slowestPaths[a];
+        slowestPaths[a] = slowestPaths[b];
+        slowestPaths[b] = path;
+    }
+    
+    private static double toSeconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+    
+    private static double rate(long count, double seconds) {
+        return seconds > 0 ? count / seconds : 0;
+    }
+    
+    /**
+     * 获取所有垃圾回收器的累计耗时（毫秒）
+     */
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long time = collector.getCollectionTime();
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,108 @@
+package com.clocliketool.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * 把要统计的文件按路径哈希分成若干个分片，只接受其中一个分片的文件
+ * 哈希只取决于相对于统计根目录、以"/"分隔的路径，与机器、检出位置和遍历顺序无关，
+ * 因此在不同的机器上以相同参数运行各个分片，每个文件恰好属于一个分片。
+ * 目录总是被接受，过滤器是不可变的，可以在并行遍历的多个任务之间共享。
+ */
+public class ShardFilter implements ScanFilter {
+    
+    private final int index;
+    private final int count;
+    
+    /** 当前目录相对于根目录、以"/"结尾的路径，为null表示还没有进入根目录 */
+    private final String relativeDirectory;
+    
+    /**
+     * @param index 分片编号，从0开始
+     * @param count 分片总数
+     * @throws IllegalArgumentException 如果编号或总数无效
+     */
+    public ShardFilter(int index, int count) {
+        this(index, count, null);
+        if (count <= 0 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("无效的分片: " + index + "/" + count);
+        }
+    }
+    
+    private ShardFilter(int index, int count, String relativeDirectory) {
+        this.index = index;
+        this.count = count;
+        this.relativeDirectory = relativeDirectory;
+    }
+    
+    /**
+     * 解析"编号/总数"形式的分片，编号从0开始
+     * 
+     * @param text 分片文本，如"0/4"
+     * @return 过滤器
+     * @throws IllegalArgumentException 如果格式无效
+     */
+    public static ShardFilter parse(String text) {
+        int slash = text.indexOf('/');
+        try {
+            if (slash > 0) {
+                return new ShardFilter(Integer.parseInt(text.substring(0, slash).trim()),
+                        Integer.parseInt(text.substring(slash + 1).trim()));
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一报告
+        }
+        throw new IllegalArgumentException("无效的分片: " + text);
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    @Override
+    public ShardFilter enterDirectory(Path directory) {
+        if (relativeDirectory == null) {
+            // 根目录本身不参与哈希，路径相对于根目录
+            return new ShardFilter(index, count, "");
+        }
+        return new ShardFilter(index, count, relativeDirectory + directory.getFileName() + "/");
+    }
+    
+    @Override
+    public boolean accept(Path path, boolean directory) {
+        return directory || accepts((relativeDirectory != null ? relativeDirectory : "") + path.getFileName());
+    }
+    
+    /**
+     * 检查相对路径的文件是否属于本分片
+     * 
+     * @param relativePath 相对于统计根目录、以"/"分隔的路径
+     */
+    public boolean accepts(String relativePath) {
+        return shardOf(relativePath, count) == index;
+    }
+    
+    /**
+     * 计算路径所属的分片
+     * 对路径的UTF-8字节计算64位FNV-1a哈希，再打散高低位后取模
+     * 
+     * @param relativePath 相对于统计根目录、以"/"分隔的路径
+     * @param count 分片总数
+     * @return 分片编号
+     */
+    public static int shardOf(String relativePath, int count) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : relativePath.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) count);
+    }
+}
@@ -0,0 +1,78 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.FileResultStore;
+import com.clocliketool.model.LineCountResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 以SQL语句输出报告，可以直接导入SQLite等数据库
+ * 在一个事务中创建cloc_languages表（按文件输出时还有cloc_files表）并插入所有结果，
+ * 历史统计的结果写入cloc_history表。
+ */
+public class SqlReportFormatter implements ReportFormatter {
+    
+    @Override
+    public void format(AnalysisReport report, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("BEGIN TRANSACTION;\n");
+        writer.write("CREATE TABLE IF NOT EXISTS cloc_languages (language TEXT, files INTEGER, lines INTEGER, "
+                + "code INTEGER, comments INTEGER, blanks INTEGER);\n");
+        
+        if (report.hasFileResults()) {
+            writer.write("CREATE TABLE IF NOT EXISTS cloc_files (path TEXT, language TEXT, lines INTEGER, "
+                    + "code INTEGER, comments INTEGER, blanks INTEGER);\n");
+            FileResultStore store = report.getFileResults();
+            for (int index : report.getFileIndices()) {
+                writer.write("INSERT INTO cloc_files VALUES (").writeSqlString(store.getPath(index))
+                        .write(", ").writeSqlString(store.getLanguage(index));
+                writeCounts(writer, store.getTotalLines(index), store.getCodeLines(index),
+                        store.getCommentLines(index), store.getBlankLines(index));
+            }
+        }
+        
+        for (String language : report.getLanguages()) {
+            LineCountResult result = report.getLanguageResults().get(language);
+            writer.write("INSERT INTO cloc_languages VALUES (").writeSqlString(language)
+                    .write(", ").writeNumber(result.getFileCount());
+            writeCounts(writer, result.getTotalLines(), result.getCodeLines(), result.getCommentLines(),
+                    result.getBlankLines());
+        }
+        writer.write("COMMIT;\n");
+        writer.flush();
+    }
+    
+    @Override
+    public void formatHistory(List<CommitReport> history, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("BEGIN TRANSACTION;\n");
+        writer.write("CREATE TABLE IF NOT EXISTS cloc_history (commit_id TEXT, time TEXT, language TEXT, "
+                + "files INTEGER, lines INTEGER, code INTEGER, comments INTEGER, blanks INTEGER);\n");
+        for (CommitReport commit : history) {
+            for (String language : commit.getLanguages()) {
+                LineCountResult result = commit.getLanguageResults().get(language);
+                writer.write("INSERT INTO cloc_history VALUES (").writeSqlString(commit.getCommitId())
+                        .write(", ").writeSqlString(commit.getCommitTimeText())
+                        .write(", ").writeSqlString(language)
+                        .write(", ").writeNumber(result.getFileCount());
+                writeCounts(writer, result.getTotalLines(), result.getCodeLines(), result.getCommentLines(),
+                        result.getBlankLines());
+            }
+        }
+        writer.write("COMMIT;\n");
+        writer.flush();
+    }
+    
+    private static void writeCounts(ReportWriter writer, long lines, long code, long comments, long blanks)
+            throws IOException {
+        writer.write(", ").writeNumber(lines)
+                .write(", ").writeNumber(code)
+                .write(", ").writeNumber(comments)
+                .write(", ").writeNumber(blanks)
+                .write(");\n");
+    }
+}
@@ -0,0 +1,111 @@
+package com.clocliketool.util;
+
+import com.clocliketool.analyzer.FileResultListener;
+import com.clocliketool.model.LineCountResult;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 按文件流式输出统计结果
+ * 每个文件统计完成后立即写出一条记录，不在内存中保存单文件结果，
+ * 内存占用与文件数量无关。可以在多个工作线程中同时调用。
+ * 记录通过ReportWriter直接写出，转义规则与汇总报告相同，不创建中间字符串。
+ * 
+ * 写入失败时不抛出异常，后续记录被丢弃，在关闭时报告错误。
+ */
+public class StreamingResultWriter implements FileResultListener, Closeable {
+    
+    /**
+     * 输出格式
+     */
+    public enum Format {
+        /** 每行一个JSON对象 */
+        NDJSON,
+        
+        /** 带表头的CSV */
+        CSV
+    }
+    
+    private final ReportWriter writer;
+    private final Format format;
+    private final boolean closeStream;
+    private IOException error;
+    
+    /**
+     * @param out 输出流
+     * @param format 输出格式
+     * @param closeStream 关闭时是否同时关闭输出流，标准输出时应为false
+     */
+    public StreamingResultWriter(OutputStream out, Format format, boolean closeStream) {
+        this.writer = new ReportWriter(out);
+        this.format = format;
+        this.closeStream = closeStream;
+        if (format == Format.CSV) {
+            try {
+                writer.write("path,language,lines,code,comments,blanks\n");
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void fileCounted(File file, String language, LineCountResult result) {
+        if (error != null) {
+            return;
+        }
+        try {
+            if (format == Format.NDJSON) {
+                writer.write("{\"path\":").writeJsonString(file.getPath())
+                        .write(",\"language\":").writeJsonString(language)
+                        .write(",\"lines\":").writeNumber(result.getTotalLines())
+                        .write(",\"code\":").writeNumber(result.getCodeLines())
+                        .write(",\"comments\":").writeNumber(result.getCommentLines())
+                        .write(",\"blanks\":").writeNumber(result.getBlankLines())
+                        .write("}\n");
+            } else {
+                writer.writeCsvField(file.getPath())
+                        .write(',').writeCsvField(language)
+                        .write(',').writeNumber(result.getTotalLines())
+                        .write(',').writeNumber(result.getCodeLines())
+                        .write(',').writeNumber(result.getCommentLines())
+                        .write(',').writeNumber(result.getBlankLines())
+                        .write('\n');
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+    
+    /**
+     * 写出缓冲区中的记录并关闭
+     * 
+     * @throws IOException 如果写入过程中出现过错误
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (error == null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            if (closeStream) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
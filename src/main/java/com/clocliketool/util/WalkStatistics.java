@@ -0,0 +1,54 @@
+package com.clocliketool.util;
+
+/**
+ * 目录遍历的统计信息，用于针对不同的文件系统调整遍历的并行度
+ */
+public class WalkStatistics {
+    
+    private long directories;
+    private long files;
+    private long elapsedNanos;
+    
+    public WalkStatistics() {
+    }
+    
+    public WalkStatistics(long directories, long files, long elapsedNanos) {
+        this.directories = directories;
+        this.files = files;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * 合并另一次遍历的统计信息
+     */
+    public void merge(WalkStatistics other) {
+        this.directories += other.directories;
+        this.files += other.files;
+        this.elapsedNanos += other.elapsedNanos;
+    }
+    
+    public long getDirectories() {
+        return directories;
+    }
+    
+    public long getFiles() {
+        return files;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * 获取每秒遍历的目录数
+     */
+    public double getDirectoriesPerSecond() {
+        return elapsedNanos > 0 ? directories * 1e9 / elapsedNanos : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("目录遍历: %d 个目录, %d 个文件, 耗时 %.3f 秒, %.0f 目录/秒",
+                directories, files, elapsedNanos / 1e9, getDirectoriesPerSecond());
+    }
+}
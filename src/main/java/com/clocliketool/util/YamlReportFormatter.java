@@ -0,0 +1,88 @@
+package com.clocliketool.util;
+
+import com.clocliketool.model.AnalysisReport;
+import com.clocliketool.model.CommitReport;
+import com.clocliketool.model.FileResultStore;
+import com.clocliketool.model.LineCountResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 以YAML格式输出报告，字符串一律使用双引号形式
+ * 历史统计输出commits列表，每个提交是一个映射。
+ */
+public class YamlReportFormatter implements ReportFormatter {
+    
+    @Override
+    public void format(AnalysisReport report, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("---\n");
+        
+        if (report.hasFileResults()) {
+            FileResultStore store = report.getFileResults();
+            int[] indices = report.getFileIndices();
+            writer.write(indices.length > 0 ? "files:\n" : "files: []\n");
+            for (int index : indices) {
+                writer.write("  - path: ").writeJsonString(store.getPath(index))
+                        .write("\n    language: ").writeJsonString(store.getLanguage(index));
+                writeCounts(writer, "    ", store.getTotalLines(index), store.getCodeLines(index),
+                        store.getCommentLines(index), store.getBlankLines(index));
+            }
+        }
+        
+        List<String> languages = report.getLanguages();
+        writer.write(languages.isEmpty() ? "languages: {}\n" : "languages:\n");
+        for (String language : languages) {
+            LineCountResult result = report.getLanguageResults().get(language);
+            writer.write("  ").writeJsonString(language)
+                    .write(":\n    files: ").writeNumber(result.getFileCount());
+            writeCounts(writer, "    ", result);
+        }
+        
+        writer.write("total:\n  files: ").writeNumber(report.getTotalFiles());
+        writeCounts(writer, "  ", report.getTotal());
+        
+        if (report.hasDuplicateCount()) {
+            writer.write("duplicates: ").writeNumber(report.getDuplicateCount()).write('\n');
+        }
+        writer.flush();
+    }
+    
+    @Override
+    public void formatHistory(List<CommitReport> history, OutputStream out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.write("---\n");
+        writer.write(history.isEmpty() ? "commits: []\n" : "commits:\n");
+        for (CommitReport commit : history) {
+            writer.write("  - commit: ").writeJsonString(commit.getCommitId())
+                    .write("\n    time: ").writeJsonString(commit.getCommitTimeText()).write('\n');
+            List<String> languages = commit.getLanguages();
+            writer.write(languages.isEmpty() ? "    languages: {}\n" : "    languages:\n");
+            for (String language : languages) {
+                LineCountResult result = commit.getLanguageResults().get(language);
+                writer.write("      ").writeJsonString(language)
+                        .write(":\n        files: ").writeNumber(result.getFileCount());
+                writeCounts(writer, "        ", result);
+            }
+            writer.write("    total:\n      files: ").writeNumber(commit.getTotalFiles());
+            writeCounts(writer, "      ", commit.getTotal());
+        }
+        writer.flush();
+    }
+    
+    private static void writeCounts(ReportWriter writer, String indent, LineCountResult result) throws IOException {
+        writeCounts(writer, indent, result.getTotalLines(), result.getCodeLines(), result.getCommentLines(),
+                result.getBlankLines());
+    }
+    
+    private static void writeCounts(ReportWriter writer, String indent, long lines, long code, long comments,
+                                    long blanks) throws IOException {
+        writer.write('\n').write(indent).write("lines: ").writeNumber(lines)
+                .write('\n').write(indent).write("code: ").writeNumber(code)
+                .write('\n').write(indent).write("comments: ").writeNumber(comments)
+                .write('\n').write(indent).write("blanks: ").writeNumber(blanks)
+                .write('\n');
+    }
+}
@@ -0,0 +1,43 @@
+package com.clocliketool.vcs;
+
+import java.util.List;
+
+/**
+ * 解析后的git提交对象，只保留统计需要的字段
+ */
+public class GitCommit {
+    
+    private final byte[] id;
+    private final byte[] tree;
+    private final List<byte[]> parents;
+    private final long commitTime;
+    
+    /**
+     * @param id 提交的对象ID
+     * @param tree 根目录树对象的ID
+     * @param parents 父提交的ID，第一个是第一父提交
+     * @param commitTime 提交时间（committer字段中的时间），自1970年起的秒数
+     */
+    public GitCommit(byte[] id, byte[] tree, List<byte[]> parents, long commitTime) {
+        this.id = id;
+        this.tree = tree;
+        this.parents = parents;
+        this.commitTime = commitTime;
+    }
+    
+    public byte[] getId() {
+        return id;
+    }
+    
+    public byte[] getTree() {
+        return tree;
+    }
+    
+    public List<byte[]> getParents() {
+        return parents;
+    }
+    
+    public long getCommitTime() {
+        return commitTime;
+    }
+}
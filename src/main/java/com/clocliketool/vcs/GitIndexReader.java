@@ -0,0 +1,207 @@
+package com.clocliketool.vcs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * git索引文件（.git/index）读取器
+ * 直接解析索引文件得到仓库中被跟踪的文件列表，不需要启动git进程，也不需要遍历工作区。
+ * 支持索引格式的第2、3、4版，只返回暂存区第0级中的普通文件，跳过符号链接、子模块、
+ * 稀疏索引中的目录条目以及合并冲突中的其他版本。
+ */
+public class GitIndexReader {
+    
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    
+    /** 条目中文件名之前的固定字段长度（不含对象ID） */
+    private static final int FIXED_FIELDS = 40;
+    
+    private static final int FLAG_EXTENDED = 0x4000;
+    private static final int STAGE_MASK = 0x3000;
+    private static final int NAME_LENGTH_MASK = 0x0FFF;
+    
+    private static final int OBJECT_TYPE_MASK = 0170000;
+    private static final int REGULAR_FILE = 0100000;
+    
+    /**
+     * 查找包含指定目录的git工作区根目录
+     * 
+     * @param directory 工作区中的目录
+     * @return 工作区根目录，不在git工作区中时返回null
+     */
+    public static File findWorkTree(File directory) {
+        for (File current = directory.getAbsoluteFile(); current != null; current = current.getParentFile()) {
+            if (new File(current, ".git").exists()) {
+                return current;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 获取工作区对应的git目录
+     * 工作区中的.git可以是目录，也可以是写有"gitdir: 路径"的文件（子模块和附加工作区）
+     * 
+     * @param workTree 工作区根目录
+     * @return git目录
+     * @throws IOException 如果.git文件无法读取或格式无效
+     */
+    public static File resolveGitDirectory(File workTree) throws IOException {
+        File dotGit = new File(workTree, ".git");
+        if (dotGit.isDirectory()) {
+            return dotGit;
+        }
+        
+        List<String> lines = Files.readAllLines(dotGit.toPath(), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.startsWith("gitdir:")) {
+                File gitDirectory = new File(line.substring("gitdir:".length()).trim());
+                return gitDirectory.isAbsolute() ? gitDirectory : new File(workTree, gitDirectory.getPath());
+            }
+        }
+        throw new IOException("无效的.git文件: " + dotGit.getPath());
+    }
+    
+    /**
+     * 获取仓库使用的对象ID长度（SHA-1为20字节，SHA-256为32字节）
+     * 
+     * @param gitDirectory git目录
+     * @return 对象ID的字节数
+     */
+    public static int objectIdLength(File gitDirectory) {
+        File config = new File(gitDirectory, "config");
+        try {
+            for (String line : Files.readAllLines(config.toPath(), StandardCharsets.UTF_8)) {
+                String trimmed = line.trim().toLowerCase();
+                if (trimmed.startsWith("objectformat") && trimmed.endsWith("sha256")) {
+                    return 32;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 没有配置文件时使用默认的SHA-1
+        }
+        return 20;
+    }
+    
+    /**
+     * 读取索引文件中被跟踪的普通文件
+     * 
+     * @param indexFile 索引文件
+     * @param objectIdLength 对象ID的字节数
+     * @param pathConsumer 接收相对于工作区根目录、以"/"分隔的文件路径
+     * @throws IOException 如果索引文件无法读取或格式无效
+     */
+    public static void readPaths(File indexFile, int objectIdLength, Consumer<String> pathConsumer)
+            throws IOException {
+        byte[] data = Files.readAllBytes(indexFile.toPath());
+        if (data.length < 12 || readInt(data, 0) != SIGNATURE) {
+            throw new IOException("无效的git索引文件: " + indexFile.getPath());
+        }
+        
+        int version = readInt(data, 4);
+        if (version < 2 || version > 4) {
+            throw new IOException("不支持的git索引版本: " + version);
+        }
+        
+        long entryCount = readInt(data, 8) & 0xFFFFFFFFL;
+        int position = 12;
+        byte[] previousPath = new byte[0];
+        int previousLength = 0;
+        
+        for (long i = 0; i < entryCount; i++) {
+            int entryStart = position;
+            int flagsOffset = position + FIXED_FIELDS + objectIdLength;
+            if (flagsOffset + 2 > data.length) {
+                throw new IOException("git索引文件不完整: " + indexFile.getPath());
+            }
+            
+            int mode = readInt(data, position + 24);
+            int flags = readShort(data, flagsOffset);
+            position = flagsOffset + 2;
+            if (version >= 3 && (flags & FLAG_EXTENDED) != 0) {
+                position += 2;
+            }
+            
+            byte[] pathBytes;
+            int pathStart;
+            int pathLength;
+            if (version == 4) {
+                // 第4版的路径相对于前一个条目压缩：先去掉前一个路径末尾的若干字节，再接上新的后缀
+                long[] varint = readOffsetVarint(data, position);
+                int keep = previousLength - (int) varint[0];
+                position = (int) varint[1];
+                int end = indexOf(data, position, (byte) 0);
+                if (keep < 0 || end < 0) {
+                    throw new IOException("git索引文件格式无效: " + indexFile.getPath());
+                }
+                pathLength = keep + (end - position);
+                if (previousPath.length < pathLength) {
+                    byte[] grown = new byte[Math.max(pathLength, previousPath.length * 2)];
+                    System.arraycopy(previousPath, 0, grown, 0, keep);
+                    previousPath = grown;
+                }
+                System.arraycopy(data, position, previousPath, keep, end - position);
+                previousLength = pathLength;
+                pathBytes = previousPath;
+                pathStart = 0;
+                position = end + 1;
+            } else {
+                int nameLength = flags & NAME_LENGTH_MASK;
+                int end = nameLength < NAME_LENGTH_MASK ? position + nameLength : indexOf(data, position, (byte) 0);
+                if (end < 0 || end >= data.length) {
+                    throw new IOException("git索引文件格式无效: " + indexFile.getPath());
+                }
+                pathBytes = data;
+                pathStart = position;
+                pathLength = end - position;
+                // 第2、3版的条目以1到8个0字节补齐到8字节的整数倍
+                position = entryStart + ((end - entryStart + 8) & ~7);
+            }
+            
+            if ((flags & STAGE_MASK) == 0 && (mode & OBJECT_TYPE_MASK) == REGULAR_FILE) {
+                pathConsumer.accept(new String(pathBytes, pathStart, pathLength, StandardCharsets.UTF_8));
+            }
+        }
+    }
+    
+    /**
+     * 读取git的偏移量变长整数，返回{值, 下一个字节的位置}
+     */
+    private static long[] readOffsetVarint(byte[] data, int position) throws IOException {
+        if (position >= data.length) {
+            throw new IOException("git索引文件不完整");
+        }
+        int b = data[position++] & 0xFF;
+        long value = b & 0x7F;
+        while ((b & 0x80) != 0) {
+            if (position >= data.length) {
+                throw new IOException("git索引文件不完整");
+            }
+            b = data[position++] & 0xFF;
+            value = ((value + 1) << 7) | (b & 0x7F);
+        }
+        return new long[] {value, position};
+    }
+    
+    private static int indexOf(byte[] data, int from, byte value) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+    
+    private static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+}
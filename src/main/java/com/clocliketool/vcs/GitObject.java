@@ -0,0 +1,53 @@
+package com.clocliketool.vcs;
+
+/**
+ * 从对象数据库中读出的git对象，内容已完整解压到内存中
+ */
+public class GitObject {
+    
+    public static final int COMMIT = 1;
+    public static final int TREE = 2;
+    public static final int BLOB = 3;
+    public static final int TAG = 4;
+    
+    private final int type;
+    private final byte[] data;
+    
+    /**
+     * @param type 对象类型，COMMIT、TREE、BLOB或TAG
+     * @param data 对象内容，不含"类型 长度\0"头部
+     */
+    public GitObject(int type, byte[] data) {
+        this.type = type;
+        this.data = data;
+    }
+    
+    public int getType() {
+        return type;
+    }
+    
+    public byte[] getData() {
+        return data;
+    }
+    
+    /**
+     * 根据松散对象头部中的类型名称获取对象类型
+     * 
+     * @param name 类型名称
+     * @return 对象类型，未知的名称返回-1
+     */
+    static int typeOf(String name) {
+        switch (name) {
+            case "commit":
+                return COMMIT;
+            case "tree":
+                return TREE;
+            case "blob":
+                return BLOB;
+            case "tag":
+                return TAG;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,635 @@
+package com.clocliketool.vcs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * git对象数据库读取器
+ * 直接从git目录中读取松散对象和打包文件中的对象，不需要启动git进程，也不需要检出工作区，
+ * 对象内容完整解压到内存中。支持objects/info/alternates中列出的其他对象目录，
+ * 以及附加工作区（通过commondir共享对象和引用）。
+ * 
+ * 读取方法可以在多个线程中同时调用。
+ */
+public class GitObjectDatabase implements Closeable {
+    
+    private static final int LOOSE_BUFFER_SIZE = 8 * 1024;
+    
+    /** 符号引用的最大嵌套层数 */
+    private static final int MAX_SYMBOLIC_REF_DEPTH = 5;
+    
+    /** 缩写对象ID的最小长度 */
+    private static final int MIN_ABBREVIATION = 4;
+    
+    private static final String[] REF_PATTERNS = {
+            "%s", "refs/%s", "refs/tags/%s", "refs/heads/%s", "refs/remotes/%s", "refs/remotes/%s/HEAD"
+    };
+    
+    /**
+     * 接收树中的文件条目
+     */
+    public interface TreeEntryConsumer {
+        
+        /**
+         * @param path 相对于根目录、以"/"分隔的文件路径
+         * @param blobId 文件内容对象的ID
+         */
+        void accept(String path, byte[] blobId);
+    }
+    
+    /**
+     * 接收树中的直接条目
+     */
+    public interface TreeChildConsumer {
+        
+        /**
+         * @param name 条目名称
+         * @param directory 是否是子目录，否则是普通文件
+         * @param id 子目录树对象或文件内容对象的ID
+         * @throws IOException 如果处理条目时出错
+         */
+        void accept(String name, boolean directory, byte[] id) throws IOException;
+    }
+    
+    private final File gitDirectory;
+    private final File commonDirectory;
+    private final File workTree;
+    private final int idLength;
+    private final List<File> objectDirectories;
+    private final List<PackFile> packs = new ArrayList<>();
+    private Map<String, String> packedRefs;
+    
+    private GitObjectDatabase(File gitDirectory, File workTree) throws IOException {
+        this.gitDirectory = gitDirectory;
+        this.workTree = workTree;
+        File commonDir = new File(gitDirectory, "commondir");
+        if (commonDir.isFile()) {
+            String path = new String(Files.readAllBytes(commonDir.toPath()), StandardCharsets.UTF_8).trim();
+            File common = new File(path);
+            this.commonDirectory = common.isAbsolute() ? common : new File(gitDirectory, common.getPath());
+        } else {
+            this.commonDirectory = gitDirectory;
+        }
+        this.idLength = GitIndexReader.objectIdLength(commonDirectory);
+        this.objectDirectories = findObjectDirectories(new File(commonDirectory, "objects"));
+        
+        try {
+            for (File objects : objectDirectories) {
+                File[] indexFiles = new File(objects, "pack").listFiles((dir, name) -> name.endsWith(".idx"));
+                if (indexFiles == null) {
+                    continue;
+                }
+                Arrays.sort(indexFiles);
+                for (File indexFile : indexFiles) {
+                    packs.add(new PackFile(indexFile, idLength));
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 打开仓库的对象数据库
+     * 
+     * @param repository 工作区（或其中的目录）、.git目录或裸仓库
+     * @return 对象数据库，使用完毕后需要关闭
+     * @throws IOException 如果不是git仓库或仓库无法读取
+     */
+    public static GitObjectDatabase open(File repository) throws IOException {
+        File directory = repository.getAbsoluteFile();
+        if (new File(directory, "HEAD").isFile()
+                && (new File(directory, "objects").isDirectory() || new File(directory, "commondir").isFile())) {
+            return new GitObjectDatabase(directory, null);
+        }
+        
+        File workTree = GitIndexReader.findWorkTree(directory);
+        if (workTree == null) {
+            throw new IOException("不是git仓库: " + repository.getPath());
+        }
+        return new GitObjectDatabase(GitIndexReader.resolveGitDirectory(workTree), workTree);
+    }
+    
+    /**
+     * 获取工作区根目录
+     * 
+     * @return 工作区根目录，直接打开git目录或裸仓库时返回null
+     */
+    public File getWorkTree() {
+        return workTree;
+    }
+    
+    /**
+     * 获取对象ID的字节数（SHA-1为20字节，SHA-256为32字节）
+     */
+    public int getIdLength() {
+        return idLength;
+    }
+    
+    /**
+     * 解析版本表达式
+     * 支持完整或缩写的对象ID、HEAD、分支、标签和其他引用名称，以及"~n"（第n代第一父提交）
+     * 和"^n"（第n个父提交）后缀
+     * 
+     * @param revision 版本表达式
+     * @return 对象ID
+     * @throws IOException 如果无法解析或对象无法读取
+     */
+    public byte[] resolve(String revision) throws IOException {
+        int end = 0;
+        while (end < revision.length() && revision.charAt(end) != '~' && revision.charAt(end) != '^') {
+            end++;
+        }
+        byte[] id = resolveName(revision.substring(0, end), revision);
+        
+        int position = end;
+        while (position < revision.length()) {
+            char operator = revision.charAt(position++);
+            int digitsStart = position;
+            while (position < revision.length() && Character.isDigit(revision.charAt(position))) {
+                position++;
+            }
+            int number;
+            try {
+                number = position > digitsStart ? Integer.parseInt(revision.substring(digitsStart, position)) : 1;
+            } catch (NumberFormatException e) {
+                throw new IOException("无法解析的版本: " + revision);
+            }
+            
+            id = peelToCommit(id, revision);
+            if (operator == '~') {
+                for (int i = 0; i < number; i++) {
+                    id = parent(id, 0, revision);
+                }
+            } else if (number > 0) {
+                id = parent(id, number - 1, revision);
+            }
+        }
+        return id;
+    }
+    
+    /**
+     * 解析版本表达式并取得对应的树对象，提交和标签会被解引用到其指向的树
+     * 
+     * @param revision 版本表达式
+     * @return 树对象的ID
+     * @throws IOException 如果无法解析或对象无法读取
+     */
+    public byte[] resolveTree(String revision) throws IOException {
+        byte[] id = resolve(revision);
+        while (true) {
+            GitObject object = read(id);
+            switch (object.getType()) {
+                case GitObject.TREE:
+                    return id;
+                case GitObject.COMMIT:
+                    return parseCommit(id, object.getData()).getTree();
+                case GitObject.TAG:
+                    id = tagTarget(object.getData(), revision);
+                    break;
+                default:
+                    throw new IOException("版本不指向提交或目录树: " + revision);
+            }
+        }
+    }
+    
+    /**
+     * 解析版本表达式并取得对应的提交，标签会被解引用到其指向的提交
+     * 
+     * @param revision 版本表达式
+     * @return 提交的对象ID
+     * @throws IOException 如果无法解析、对象无法读取或不指向提交
+     */
+    public byte[] resolveCommit(String revision) throws IOException {
+        return peelToCommit(resolve(revision), revision);
+    }
+    
+    /**
+     * 读取对象
+     * 
+     * @param id 对象ID
+     * @return 对象，内容已完整解压
+     * @throws IOException 如果对象不存在或无法读取
+     */
+    public GitObject read(byte[] id) throws IOException {
+        for (PackFile pack : packs) {
+            GitObject object = pack.read(id, this::read);
+            if (object != null) {
+                return object;
+            }
+        }
+        
+        String hex = toHex(id);
+        for (File objects : objectDirectories) {
+            File loose = new File(new File(objects, hex.substring(0, 2)), hex.substring(2));
+            if (loose.isFile()) {
+                return readLoose(loose);
+            }
+        }
+        throw new IOException("找不到git对象: " + hex);
+    }
+    
+    /**
+     * 读取提交对象
+     * 
+     * @param id 提交的对象ID
+     * @return 解析后的提交
+     * @throws IOException 如果对象不存在、无法读取或不是提交
+     */
+    public GitCommit readCommit(byte[] id) throws IOException {
+        GitObject object = read(id);
+        if (object.getType() != GitObject.COMMIT) {
+            throw new IOException("不是提交对象: " + toHex(id));
+        }
+        return parseCommit(id, object.getData());
+    }
+    
+    /**
+     * 遍历树中的普通文件，跳过符号链接和子模块
+     * 
+     * @param treeId 树对象的ID
+     * @param prefix 只遍历该目录（相对于根目录、以"/"分隔）中的文件，为空时遍历整棵树
+     * @param consumer 接收文件条目
+     * @throws IOException 如果树对象无法读取或格式无效
+     */
+    public void walkTree(byte[] treeId, String prefix, TreeEntryConsumer consumer) throws IOException {
+        walkTree(treeId, "", prefix, consumer);
+    }
+    
+    private void walkTree(byte[] treeId, String directory, String prefix, TreeEntryConsumer consumer)
+            throws IOException {
+        listTree(treeId, (name, isDirectory, id) -> {
+            String path = directory + name;
+            if (isDirectory) {
+                String childDirectory = path + "/";
+                if (prefix.isEmpty() || childDirectory.startsWith(prefix) || prefix.startsWith(childDirectory)) {
+                    walkTree(id, childDirectory, prefix, consumer);
+                }
+            } else if (prefix.isEmpty() || path.startsWith(prefix)) {
+                consumer.accept(path, id);
+            }
+        });
+    }
+    
+    /**
+     * 列出树中的直接条目，只包括子目录和普通文件，跳过符号链接和子模块
+     * 
+     * @param treeId 树对象的ID
+     * @param consumer 按树中的顺序接收条目
+     * @throws IOException 如果树对象无法读取或格式无效，或者consumer抛出异常
+     */
+    public void listTree(byte[] treeId, TreeChildConsumer consumer) throws IOException {
+        GitObject tree = read(treeId);
+        if (tree.getType() != GitObject.TREE) {
+            throw new IOException("不是目录树对象: " + toHex(treeId));
+        }
+        
+        // 条目格式为"模式 名称\0对象ID"，模式是不带前导0的八进制数
+        byte[] data = tree.getData();
+        int position = 0;
+        while (position < data.length) {
+            int mode = 0;
+            while (position < data.length && data[position] != ' ') {
+                mode = (mode << 3) | (data[position++] - '0');
+            }
+            int nameStart = ++position;
+            while (position < data.length && data[position] != 0) {
+                position++;
+            }
+            if (position + 1 + idLength > data.length) {
+                throw new IOException("git目录树格式无效: " + toHex(treeId));
+            }
+            String name = new String(data, nameStart, position - nameStart, StandardCharsets.UTF_8);
+            byte[] id = Arrays.copyOfRange(data, position + 1, position + 1 + idLength);
+            position += 1 + idLength;
+            
+            int type = mode & 0170000;
+            if (type == 0040000) {
+                consumer.accept(name, true, id);
+            } else if (type == 0100000) {
+                consumer.accept(name, false, id);
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (PackFile pack : packs) {
+            try {
+                pack.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+    
+    /**
+     * 把对象ID转换为十六进制字符串
+     */
+    public static String toHex(byte[] id) {
+        StringBuilder sb = new StringBuilder(id.length * 2);
+        for (byte b : id) {
+            sb.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 把十六进制字符串转换为字节，奇数个数字时最后一个字节的低4位为0
+     * 
+     * @return 字节数组，含有非十六进制字符时返回null
+     */
+    static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[(hex.length() + 1) / 2];
+        for (int i = 0; i < hex.length(); i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                return null;
+            }
+            bytes[i / 2] |= (byte) (i % 2 == 0 ? digit << 4 : digit);
+        }
+        return bytes;
+    }
+    
+    /**
+     * 解析不带后缀的版本名称：完整的对象ID、引用名称或缩写的对象ID
+     */
+    private byte[] resolveName(String name, String revision) throws IOException {
+        if (name.isEmpty()) {
+            throw new IOException("无法解析的版本: " + revision);
+        }
+        if (name.length() == idLength * 2) {
+            byte[] id = fromHex(name);
+            if (id != null) {
+                return id;
+            }
+        }
+        
+        if (!name.contains("..")) {
+            for (String pattern : REF_PATTERNS) {
+                // 只有HEAD这类全大写的名称和以"refs/"开头的名称直接在git目录中查找，避免把config等文件当作引用
+                if ("%s".equals(pattern) && !name.startsWith("refs/") && !name.matches("[A-Z_]+")) {
+                    continue;
+                }
+                String id = readRef(String.format(pattern, name), 0);
+                if (id != null) {
+                    byte[] bytes = id.length() == idLength * 2 ? fromHex(id) : null;
+                    if (bytes == null) {
+                        throw new IOException("无效的git引用: " + String.format(pattern, name));
+                    }
+                    return bytes;
+                }
+            }
+        }
+        
+        if (name.length() >= MIN_ABBREVIATION && name.length() < idLength * 2) {
+            byte[] prefix = fromHex(name.toLowerCase());
+            if (prefix != null) {
+                return resolveAbbreviation(prefix, name.toLowerCase(), revision);
+            }
+        }
+        throw new IOException("无法解析的版本: " + revision);
+    }
+    
+    /**
+     * 读取引用，跟随符号引用
+     * 
+     * @return 十六进制对象ID，引用不存在时返回null
+     */
+    private String readRef(String name, int depth) throws IOException {
+        if (depth > MAX_SYMBOLIC_REF_DEPTH) {
+            throw new IOException("git符号引用嵌套过深: " + name);
+        }
+        
+        // HEAD等工作区私有的引用在git目录中，分支和标签在共享目录中
+        for (File directory : new File[] {gitDirectory, commonDirectory}) {
+            File refFile = new File(directory, name);
+            if (refFile.isFile()) {
+                String content = new String(Files.readAllBytes(refFile.toPath()), StandardCharsets.UTF_8).trim();
+                if (content.startsWith("ref:")) {
+                    return readRef(content.substring("ref:".length()).trim(), depth + 1);
+                }
+                return content.toLowerCase();
+            }
+        }
+        return packedRefs().get(name);
+    }
+    
+    /**
+     * 读取packed-refs文件，只在第一次需要时读取
+     */
+    private synchronized Map<String, String> packedRefs() throws IOException {
+        if (packedRefs == null) {
+            packedRefs = new HashMap<>();
+            File file = new File(commonDirectory, "packed-refs");
+            if (file.isFile()) {
+                for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                    // 以"#"开头的是文件头，以"^"开头的是上一个标签解引用后的对象
+                    if (line.isEmpty() || line.startsWith("#") || line.startsWith("^")) {
+                        continue;
+                    }
+                    int space = line.indexOf(' ');
+                    if (space > 0) {
+                        packedRefs.put(line.substring(space + 1).trim(), line.substring(0, space).toLowerCase());
+                    }
+                }
+            }
+        }
+        return packedRefs;
+    }
+    
+    /**
+     * 在松散对象和打包文件中查找以指定前缀开头的唯一对象
+     */
+    private byte[] resolveAbbreviation(byte[] prefix, String hex, String revision) throws IOException {
+        Set<String> matches = new LinkedHashSet<>();
+        for (PackFile pack : packs) {
+            pack.findByPrefix(prefix, hex.length(), id -> matches.add(toHex(id)));
+        }
+        for (File objects : objectDirectories) {
+            String[] names = new File(objects, hex.substring(0, 2)).list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.startsWith(hex.substring(2)) && name.length() == idLength * 2 - 2) {
+                    matches.add(hex.substring(0, 2) + name);
+                }
+            }
+        }
+        
+        if (matches.size() > 1) {
+            throw new IOException("有歧义的对象ID缩写: " + revision);
+        }
+        if (matches.isEmpty()) {
+            throw new IOException("无法解析的版本: " + revision);
+        }
+        return fromHex(matches.iterator().next());
+    }
+    
+    /**
+     * 把标签解引用到其指向的提交
+     */
+    private byte[] peelToCommit(byte[] id, String revision) throws IOException {
+        while (true) {
+            GitObject object = read(id);
+            if (object.getType() == GitObject.COMMIT) {
+                return id;
+            }
+            if (object.getType() != GitObject.TAG) {
+                throw new IOException("版本不指向提交: " + revision);
+            }
+            id = tagTarget(object.getData(), revision);
+        }
+    }
+    
+    private byte[] parent(byte[] commitId, int index, String revision) throws IOException {
+        List<byte[]> parents = readCommit(commitId).getParents();
+        if (index >= parents.size()) {
+            throw new IOException("提交没有对应的父提交: " + revision);
+        }
+        return parents.get(index);
+    }
+    
+    private byte[] tagTarget(byte[] data, String revision) throws IOException {
+        String target = headerValue(data, "object");
+        byte[] id = target != null ? fromHex(target) : null;
+        if (id == null || id.length != idLength) {
+            throw new IOException("无效的git标签对象: " + revision);
+        }
+        return id;
+    }
+    
+    private GitCommit parseCommit(byte[] id, byte[] data) throws IOException {
+        byte[] tree = null;
+        List<byte[]> parents = new ArrayList<>(1);
+        long commitTime = 0;
+        int position = 0;
+        while (position < data.length && data[position] != '\n') {
+            int end = position;
+            while (end < data.length && data[end] != '\n') {
+                end++;
+            }
+            String line = new String(data, position, end - position, StandardCharsets.UTF_8);
+            if (line.startsWith("tree ")) {
+                tree = fromHex(line.substring("tree ".length()));
+            } else if (line.startsWith("parent ")) {
+                parents.add(fromHex(line.substring("parent ".length())));
+            } else if (line.startsWith("committer ")) {
+                commitTime = parseTime(line);
+            }
+            position = end + 1;
+        }
+        if (tree == null || tree.length != idLength || parents.contains(null)) {
+            throw new IOException("无效的git提交对象: " + toHex(id));
+        }
+        return new GitCommit(id, tree, parents, commitTime);
+    }
+    
+    /**
+     * 解析"committer 名称 <邮箱> 秒数 时区"中的秒数，格式无效时返回0
+     */
+    private static long parseTime(String line) {
+        int end = line.lastIndexOf(' ');
+        int start = end > 0 ? line.lastIndexOf(' ', end - 1) : -1;
+        try {
+            return start >= 0 ? Long.parseLong(line.substring(start + 1, end)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * 获取提交或标签对象头部中指定字段的值
+     */
+    private static String headerValue(byte[] data, String key) {
+        int position = 0;
+        while (position < data.length && data[position] != '\n') {
+            int end = position;
+            while (end < data.length && data[end] != '\n') {
+                end++;
+            }
+            String line = new String(data, position, end - position, StandardCharsets.UTF_8);
+            if (line.startsWith(key + " ")) {
+                return line.substring(key.length() + 1);
+            }
+            position = end + 1;
+        }
+        return null;
+    }
+    
+    /**
+     * 读取松散对象，文件内容是zlib压缩的"类型 长度\0内容"
+     */
+    private static GitObject readLoose(File file) throws IOException {
+        try (InputStream in = new InflaterInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream(32);
+            int b;
+            while ((b = in.read()) > 0) {
+                header.write(b);
+            }
+            String[] fields = header.toString(StandardCharsets.US_ASCII.name()).split(" ");
+            int type = fields.length == 2 ? GitObject.typeOf(fields[0]) : -1;
+            long size;
+            try {
+                size = fields.length == 2 ? Long.parseLong(fields[1]) : -1;
+            } catch (NumberFormatException e) {
+                size = -1;
+            }
+            if (b != 0 || type < 0 || size < 0 || size > Integer.MAX_VALUE - 8) {
+                throw new IOException("无效的git松散对象: " + file.getPath());
+            }
+            
+            byte[] data = new byte[(int) size];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, Math.min(LOOSE_BUFFER_SIZE, data.length - read));
+                if (n < 0) {
+                    throw new EOFException("git松散对象不完整: " + file.getPath());
+                }
+                read += n;
+            }
+            return new GitObject(type, data);
+        }
+    }
+    
+    /**
+     * 获取对象目录以及alternates中列出的其他对象目录
+     */
+    private static List<File> findObjectDirectories(File objects) throws IOException {
+        List<File> directories = new ArrayList<>();
+        directories.add(objects);
+        File alternates = new File(objects, "info/alternates");
+        if (alternates.isFile()) {
+            for (String line : Files.readAllLines(alternates.toPath(), StandardCharsets.UTF_8)) {
+                String path = line.trim();
+                if (path.isEmpty() || path.startsWith("#")) {
+                    continue;
+                }
+                File directory = new File(path);
+                directories.add(directory.isAbsolute() ? directory : new File(objects, path));
+            }
+        }
+        return directories;
+    }
+}
@@ -0,0 +1,151 @@
+package com.clocliketool.vcs;
+
+import java.util.Arrays;
+
+/**
+ * 对象ID到连续编号的哈希表
+ * 条目按添加顺序编号，所有ID首尾相接保存在一个字节数组中，槽位中只保存编号，
+ * 除ID本身外每个条目只占用十几个字节，没有装箱对象和每个条目的数组对象。
+ * 条目可以带一个int标记，ID相同而标记不同的是不同的条目。
+ * 不是线程安全的。
+ */
+public class ObjectIdTable {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    private final int idLength;
+    private byte[] ids;
+    private int[] tags;
+    
+    /** 槽位中保存条目编号加1，0表示空槽位 */
+    private int[] slots;
+    private int mask;
+    private int size;
+    
+    /**
+     * @param idLength 对象ID的字节数
+     */
+    public ObjectIdTable(int idLength) {
+        this(idLength, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param idLength 对象ID的字节数
+     * @param expectedSize 预计的条目数量
+     */
+    public ObjectIdTable(int idLength, int expectedSize) {
+        this.idLength = idLength;
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        ids = new byte[Math.max(expectedSize, 8) * idLength];
+        tags = new int[Math.max(expectedSize, 8)];
+    }
+    
+    /**
+     * 添加条目，条目已经存在时不重复添加
+     * 
+     * @param id 对象ID
+     * @param tag 标记
+     * @return 条目编号，新添加的条目编号等于添加前的{@link #size()}
+     */
+    public int add(byte[] id, int tag) {
+        int slot = slotOf(id, tag);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+        
+        if (size == tags.length) {
+            int capacity = tags.length + (tags.length >> 1);
+            ids = Arrays.copyOf(ids, capacity * idLength);
+            tags = Arrays.copyOf(tags, capacity);
+        }
+        System.arraycopy(id, 0, ids, size * idLength, idLength);
+        tags[size] = tag;
+        slots[slot] = ++size;
+        // 装载因子超过一半时扩容，保持探测序列足够短
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return size - 1;
+    }
+    
+    /**
+     * 查找条目
+     * 
+     * @return 条目编号，不存在时返回-1
+     */
+    public int indexOf(byte[] id, int tag) {
+        return slots[slotOf(id, tag)] - 1;
+    }
+    
+    /**
+     * 获取条目数量
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 获取条目的对象ID
+     * 
+     * @param index 条目编号
+     */
+    public byte[] getId(int index) {
+        return Arrays.copyOfRange(ids, index * idLength, (index + 1) * idLength);
+    }
+    
+    /**
+     * 获取条目的标记
+     * 
+     * @param index 条目编号
+     */
+    public int getTag(int index) {
+        return tags[index];
+    }
+    
+    /**
+     * 查找条目所在的槽位，条目不存在时返回探测序列中第一个空槽位
+     */
+    private int slotOf(byte[] id, int tag) {
+        int slot = hash(id, 0, tag) & mask;
+        while (slots[slot] != 0 && !matches(slots[slot] - 1, id, tag)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private boolean matches(int index, byte[] id, int tag) {
+        if (tags[index] != tag) {
+            return false;
+        }
+        int offset = index * idLength;
+        for (int i = 0; i < idLength; i++) {
+            if (ids[offset + i] != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hash(ids, index * idLength, tags[index]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+        }
+    }
+    
+    /**
+     * 对象ID是内容的哈希值，本身分布均匀，取前4个字节再混入标记即可
+     */
+    private static int hash(byte[] bytes, int offset, int tag) {
+        int h = (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+        return h ^ (tag * 0x9E3779B9);
+    }
+}
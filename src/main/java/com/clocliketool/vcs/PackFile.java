@@ -0,0 +1,463 @@
+package com.clocliketool.vcs;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * git打包文件（.pack）及其索引（.idx）的读取器
+ * 索引在打开时完整读入内存，按对象ID二分查找得到对象在打包文件中的位置；
+ * 打包文件按位置读取，不整体读入内存。支持第1、2版索引以及OFS_DELTA和REF_DELTA差异对象，
+ * 差异链上还原出的对象保存在有容量上限的缓存中，同一条差异链上的其他对象可以直接使用。
+ * 
+ * 读取方法可以在多个线程中同时调用。
+ */
+class PackFile implements Closeable {
+    
+    private static final int INDEX_SIGNATURE = 0xFF744F63; // "\377tOc"
+    private static final int PACK_SIGNATURE = 0x5041434B; // "PACK"
+    private static final int FANOUT_SIZE = 256;
+    
+    private static final int OFS_DELTA = 6;
+    private static final int REF_DELTA = 7;
+    
+    /** 对象头部的最大长度：类型和大小最多10字节，OFS_DELTA的偏移量最多10字节，REF_DELTA后接对象ID */
+    private static final int MAX_HEADER_SIZE = 20;
+    
+    /** 每次从打包文件中读取的压缩数据量 */
+    private static final int INPUT_CHUNK_SIZE = 8 * 1024;
+    
+    /** 每个打包文件的差异基础对象缓存容量（字节） */
+    private static final long CACHE_CAPACITY = 32L * 1024 * 1024;
+    
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+    
+    /**
+     * 从其他位置（其他打包文件或松散对象）读取REF_DELTA的基础对象
+     */
+    interface BaseResolver {
+        GitObject read(byte[] id) throws IOException;
+    }
+    
+    private final File packFile;
+    private final FileChannel channel;
+    private final int idLength;
+    private final int count;
+    private final int[] fanout = new int[FANOUT_SIZE];
+    private final byte[] names;
+    private final long[] offsets;
+    private final BaseCache cache = new BaseCache();
+    
+    /**
+     * @param indexFile 索引文件，同名的.pack文件必须存在
+     * @param idLength 对象ID的字节数
+     * @throws IOException 如果索引无法读取或格式无效
+     */
+    PackFile(File indexFile, int idLength) throws IOException {
+        String indexName = indexFile.getName();
+        this.packFile = new File(indexFile.getParentFile(),
+                indexName.substring(0, indexName.length() - ".idx".length()) + ".pack");
+        this.idLength = idLength;
+        
+        byte[] index = Files.readAllBytes(indexFile.toPath());
+        boolean version2 = index.length >= 8 && readInt(index, 0) == INDEX_SIGNATURE;
+        if (version2 && readInt(index, 4) != 2) {
+            throw new IOException("不支持的git打包索引版本: " + indexFile.getPath());
+        }
+        int fanoutStart = version2 ? 8 : 0;
+        if (index.length < fanoutStart + FANOUT_SIZE * 4) {
+            throw new IOException("git打包索引不完整: " + indexFile.getPath());
+        }
+        for (int i = 0; i < FANOUT_SIZE; i++) {
+            fanout[i] = readInt(index, fanoutStart + i * 4);
+        }
+        count = fanout[FANOUT_SIZE - 1];
+        if (count < 0 || count > Integer.MAX_VALUE / idLength) {
+            throw new IOException("git打包索引格式无效: " + indexFile.getPath());
+        }
+        names = new byte[count * idLength];
+        offsets = new long[count];
+        
+        int tableStart = fanoutStart + FANOUT_SIZE * 4;
+        if (version2) {
+            // 第2版：对象ID表、CRC表、32位偏移量表，最高位为1的偏移量指向64位偏移量表
+            long tablesEnd = tableStart + (long) count * (idLength + 8);
+            if (tablesEnd > index.length) {
+                throw new IOException("git打包索引不完整: " + indexFile.getPath());
+            }
+            int offsetStart = tableStart + count * (idLength + 4);
+            int largeOffsetStart = (int) tablesEnd;
+            System.arraycopy(index, tableStart, names, 0, names.length);
+            for (int i = 0; i < count; i++) {
+                int offset = readInt(index, offsetStart + i * 4);
+                if (offset < 0) {
+                    long position = largeOffsetStart + (offset & 0x7FFFFFFFL) * 8;
+                    if (position + 8 > index.length) {
+                        throw new IOException("git打包索引格式无效: " + indexFile.getPath());
+                    }
+                    offsets[i] = ((long) readInt(index, (int) position) << 32)
+                            | (readInt(index, (int) position + 4) & 0xFFFFFFFFL);
+                } else {
+                    offsets[i] = offset;
+                }
+            }
+        } else {
+            // 第1版：每个条目是4字节偏移量加对象ID
+            int entrySize = 4 + idLength;
+            if ((long) tableStart + (long) count * entrySize > index.length) {
+                throw new IOException("git打包索引不完整: " + indexFile.getPath());
+            }
+            for (int i = 0; i < count; i++) {
+                int position = tableStart + i * entrySize;
+                offsets[i] = readInt(index, position) & 0xFFFFFFFFL;
+                System.arraycopy(index, position + 4, names, i * idLength, idLength);
+            }
+        }
+        
+        channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ);
+        try {
+            byte[] header = new byte[12];
+            readAt(0, header, header.length);
+            if (readInt(header, 0) != PACK_SIGNATURE) {
+                throw new IOException("无效的git打包文件: " + packFile.getPath());
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 读取指定的对象
+     * 
+     * @param id 对象ID
+     * @param resolver 读取不在本打包文件中的REF_DELTA基础对象
+     * @return 对象，不在本打包文件中时返回null
+     * @throws IOException 如果读取失败或格式无效
+     */
+    GitObject read(byte[] id, BaseResolver resolver) throws IOException {
+        int index = find(id);
+        return index >= 0 ? readAt(offsets[index], resolver) : null;
+    }
+    
+    /**
+     * 把ID以指定前缀开头的对象交给consumer，用于解析缩写的对象ID
+     * 
+     * @param prefix 前缀的字节，奇数个十六进制数字时最后一个字节只有高4位有效
+     * @param hexLength 前缀的十六进制数字个数
+     * @param consumer 接收匹配的对象ID
+     */
+    void findByPrefix(byte[] prefix, int hexLength, Consumer<byte[]> consumer) {
+        int first = prefix[0] & 0xFF;
+        int low = first == 0 ? 0 : fanout[first - 1];
+        int high = fanout[first];
+        for (int i = low; i < high; i++) {
+            if (matchesPrefix(i, prefix, hexLength)) {
+                byte[] id = new byte[idLength];
+                System.arraycopy(names, i * idLength, id, 0, idLength);
+                consumer.accept(id);
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private boolean matchesPrefix(int index, byte[] prefix, int hexLength) {
+        int base = index * idLength;
+        for (int i = 0; i < hexLength / 2; i++) {
+            if (names[base + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return hexLength % 2 == 0 || (names[base + hexLength / 2] & 0xF0) == (prefix[hexLength / 2] & 0xF0);
+    }
+    
+    /**
+     * 在索引中二分查找对象ID，返回序号，找不到时返回-1
+     */
+    private int find(byte[] id) {
+        int first = id[0] & 0xFF;
+        int low = first == 0 ? 0 : fanout[first - 1];
+        int high = fanout[first] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = compare(middle, id);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+    
+    private int compare(int index, byte[] id) {
+        int base = index * idLength;
+        for (int i = 0; i < idLength; i++) {
+            int result = Integer.compare(names[base + i] & 0xFF, id[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * 读取打包文件中指定位置的对象
+     * 沿差异链找到基础对象（或缓存中已还原的对象），再从基础对象开始依次应用差异
+     */
+    private GitObject readAt(long offset, BaseResolver resolver) throws IOException {
+        Deque<byte[]> deltas = new ArrayDeque<>();
+        Deque<Long> deltaOffsets = new ArrayDeque<>();
+        GitObject base;
+        long position = offset;
+        byte[] header = new byte[MAX_HEADER_SIZE + idLength];
+        
+        while (true) {
+            base = cache.get(position);
+            if (base != null) {
+                break;
+            }
+            
+            int headerLength = readAt(position, header, header.length);
+            int b = header[0] & 0xFF;
+            int type = (b >> 4) & 7;
+            long size = b & 0x0F;
+            int shift = 4;
+            int i = 1;
+            while ((b & 0x80) != 0) {
+                if (i >= headerLength || shift > 56) {
+                    throw new IOException("git打包文件格式无效: " + packFile.getPath());
+                }
+                b = header[i++] & 0xFF;
+                size |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            
+            if (type == OFS_DELTA) {
+                b = header[i++] & 0xFF;
+                long distance = b & 0x7F;
+                while ((b & 0x80) != 0) {
+                    if (i >= headerLength) {
+                        throw new IOException("git打包文件格式无效: " + packFile.getPath());
+                    }
+                    b = header[i++] & 0xFF;
+                    distance = ((distance + 1) << 7) | (b & 0x7F);
+                }
+                if (distance <= 0 || distance > position) {
+                    throw new IOException("git打包文件格式无效: " + packFile.getPath());
+                }
+                deltas.push(inflate(position + i, size));
+                deltaOffsets.push(position);
+                position -= distance;
+            } else if (type == REF_DELTA) {
+                byte[] baseId = new byte[idLength];
+                System.arraycopy(header, i, baseId, 0, idLength);
+                deltas.push(inflate(position + i + idLength, size));
+                deltaOffsets.push(position);
+                int baseIndex = find(baseId);
+                if (baseIndex >= 0) {
+                    position = offsets[baseIndex];
+                } else {
+                    base = resolver.read(baseId);
+                    break;
+                }
+            } else if (type >= GitObject.COMMIT && type <= GitObject.TAG) {
+                base = new GitObject(type, inflate(position + i, size));
+                if (!deltas.isEmpty()) {
+                    cache.put(position, base);
+                }
+                break;
+            } else {
+                throw new IOException("未知的git对象类型 " + type + ": " + packFile.getPath());
+            }
+        }
+        
+        GitObject result = base;
+        while (!deltas.isEmpty()) {
+            result = new GitObject(base.getType(), applyDelta(result.getData(), deltas.pop()));
+            long resultOffset = deltaOffsets.pop();
+            if (!deltas.isEmpty()) {
+                // 差异链中间的对象经常是其他对象的基础对象
+                cache.put(resultOffset, result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 解压从指定位置开始的zlib数据，解压后的大小必须等于size
+     */
+    private byte[] inflate(long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("git对象过大: " + packFile.getPath());
+        }
+        byte[] output = new byte[(int) size];
+        // 压缩后的数据通常比原始数据小，小对象只需要读取很少的字节
+        byte[] input = new byte[(int) Math.min(INPUT_CHUNK_SIZE, size + 64)];
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        try {
+            int produced = 0;
+            while (produced < output.length) {
+                if (inflater.needsInput()) {
+                    int read = readAt(position, input, input.length);
+                    if (read <= 0) {
+                        throw new EOFException("git打包文件不完整: " + packFile.getPath());
+                    }
+                    position += read;
+                    inflater.setInput(input, 0, read);
+                }
+                int n = inflater.inflate(output, produced, output.length - produced);
+                produced += n;
+                if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new IOException("git对象大小不符: " + packFile.getPath());
+                }
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("git打包文件格式无效: " + packFile.getPath(), e);
+        }
+    }
+    
+    /**
+     * 把差异应用到基础对象上
+     * 差异以基础对象大小和结果大小开头，之后是复制指令（从基础对象复制一段）和插入指令（直接插入数据）
+     */
+    static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] position = {0};
+        long baseSize = readSize(delta, position);
+        long resultSize = readSize(delta, position);
+        if (baseSize != base.length || resultSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("无效的git差异对象");
+        }
+        
+        byte[] result = new byte[(int) resultSize];
+        int output = 0;
+        int p = position[0];
+        while (p < delta.length) {
+            int op = delta[p++] & 0xFF;
+            if ((op & 0x80) != 0) {
+                // 低7位中每个置位的位对应一个偏移或长度字节
+                if (Integer.bitCount(op & 0x7F) > delta.length - p) {
+                    throw new IOException("无效的git差异对象");
+                }
+                long copyOffset = 0;
+                int copyLength = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((op & (1 << bit)) != 0) {
+                        copyOffset |= (long) (delta[p++] & 0xFF) << (8 * bit);
+                    }
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((op & (0x10 << bit)) != 0) {
+                        copyLength |= (delta[p++] & 0xFF) << (8 * bit);
+                    }
+                }
+                if (copyLength == 0) {
+                    copyLength = 0x10000;
+                }
+                if (copyOffset + copyLength > base.length || output + copyLength > result.length) {
+                    throw new IOException("无效的git差异对象");
+                }
+                System.arraycopy(base, (int) copyOffset, result, output, copyLength);
+                output += copyLength;
+            } else if (op != 0) {
+                if (p + op > delta.length || output + op > result.length) {
+                    throw new IOException("无效的git差异对象");
+                }
+                System.arraycopy(delta, p, result, output, op);
+                p += op;
+                output += op;
+            } else {
+                throw new IOException("无效的git差异对象");
+            }
+        }
+        if (output != result.length) {
+            throw new IOException("无效的git差异对象");
+        }
+        return result;
+    }
+    
+    private static long readSize(byte[] delta, int[] position) throws IOException {
+        long size = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (position[0] >= delta.length || shift > 56) {
+                throw new IOException("无效的git差异对象");
+            }
+            b = delta[position[0]++] & 0xFF;
+            size |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return size;
+    }
+    
+    /**
+     * 从打包文件的指定位置读取最多length个字节，返回实际读取的字节数，到达文件末尾时可能少于length
+     */
+    private int readAt(long position, byte[] buffer, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        return target.position();
+    }
+    
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+    
+    /**
+     * 按打包文件中的位置缓存还原后的对象，超过容量时淘汰最久未使用的对象
+     */
+    private static class BaseCache {
+        private final Map<Long, GitObject> objects = new LinkedHashMap<>(64, 0.75f, true);
+        private long size = 0;
+        
+        synchronized GitObject get(long offset) {
+            return objects.get(offset);
+        }
+        
+        synchronized void put(long offset, GitObject object) {
+            long objectSize = object.getData().length;
+            if (objectSize > CACHE_CAPACITY / 4) {
+                return; // 过大的对象不缓存，避免把其他对象全部挤出
+            }
+            GitObject previous = objects.put(offset, object);
+            if (previous != null) {
+                size -= previous.getData().length;
+            }
+            size += objectSize;
+            
+            Iterator<GitObject> eldest = objects.values().iterator();
+            while (size > CACHE_CAPACITY && eldest.hasNext()) {
+                size -= eldest.next().getData().length;
+                eldest.remove();
+            }
+        }
+    }
+}
@@ -40,7 +40,7 @@ public class Application {
             }
             
             // 处理文件
-            FileProcessor processor = new FileProcessor(parsers);
+            FileProcessor processor = new FileProcessor(parsers, getJobs(cmd));
             for (String path : paths) {
                 processor.process(path);
             }
@@ -73,8 +73,16 @@ public class Application {
                 .desc("指定要统计的语言 (支持: c, cpp, ruby, all)")
                 .build();
         
+        Option jobsOpt = Option.builder("j")
+                .longOpt("jobs")
+                .hasArg()
+                .argName("线程数")
+                .desc("并行处理文件的线程数 (默认: 处理器核数)")
+                .build();
+        
         options.addOption(helpOpt);
         options.addOption(langOpt);
+        options.addOption(jobsOpt);
         
         return options;
     }
@@ -117,4 +125,27 @@ public class Application {
         
         return selectedParsers;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 获取并行处理的线程数，默认为可用的处理器核数
+     */
+    private static int getJobs(CommandLine cmd) {
+        int defaultJobs = Runtime.getRuntime().availableProcessors();
+        if (!cmd.hasOption("j")) {
+            return defaultJobs;
+        }
+        
+        String jobsParam = cmd.getOptionValue("j");
+        try {
+            int jobs = Integer.parseInt(jobsParam.trim());
+            if (jobs > 0) {
+                return jobs;
+            }
+        } catch (NumberFormatException e) {
+            // 在下方统一给出警告
+        }
+        System.err.println("警告: 无效的线程数: " + jobsParam);
+        System.err.println("使用默认线程数: " + defaultJobs);
+        return defaultJobs;
+    }
+}
@@ -1,10 +1,16 @@
 package com.codeanalyzer.core;
 
+import com.clocliketool.model.FileResultStore;
 import com.codeanalyzer.parser.CodeParser;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 文件处理器，负责遍历目录和处理文件
@@ -12,12 +18,22 @@ import java.util.*;
 public class FileProcessor {
     
     private final List<CodeParser> parsers;
-    private final Map<String, LineCounter> fileResults = new HashMap<>();
+    private final int jobs;
+    private final FileResultStore fileResults = new FileResultStore();
     private final Map<String, LineCounter> languageResults = new HashMap<>();
     private int processedFiles = 0;
     
     public FileProcessor(List<CodeParser> parsers) {
+        this(parsers, 1);
+    }
+    
+    /**
+     * @param parsers 使用的解析器
+     * @param jobs 并行处理的工作线程数，小于等于1时按顺序处理
+     */
+    public FileProcessor(List<CodeParser> parsers, int jobs) {
         this.parsers = parsers;
+        this.jobs = Math.max(1, jobs);
     }
     
     /**
@@ -32,7 +48,13 @@ public class FileProcessor {
             return Collections.emptyMap();
         }
         
-        processPath(file);
+        if (jobs > 1 && file.isDirectory()) {
+            List<File> files = new ArrayList<>();
+            collectFiles(file, files);
+            processFilesInParallel(files);
+        } else {
+            processPath(file);
+        }
         return languageResults;
     }
     
@@ -41,7 +63,9 @@ public class FileProcessor {
      */
     private void processPath(File file) {
         if (file.isFile()) {
-            processFile(file);
+            if (processFile(file, fileResults, languageResults)) {
+                processedFiles++;
+            }
         } else if (file.isDirectory()) {
             File[] files = file.listFiles();
             if (files != null) {
@@ -53,9 +77,79 @@ public class FileProcessor {
     }
     
     /**
-     * 处理单个文件
+     * 递归收集路径下的所有文件，顺序与processPath的遍历顺序一致
+     */
+    private void collectFiles(File file, List<File> files) {
+        if (file.isFile()) {
+            files.add(file);
+        } else if (file.isDirectory()) {
+            File[] subFiles = file.listFiles();
+            if (subFiles != null) {
+                for (File subFile : subFiles) {
+                    collectFiles(subFile, files);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 使用多个工作线程并行处理文件
+     * 每个工作线程写入自己的局部结果表，全部完成后再合并，处理过程中不存在锁竞争
      */
-    private void processFile(File file) {
+    private void processFilesInParallel(List<File> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        
+        int workerCount = Math.min(jobs, files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        AtomicInteger nextIndex = new AtomicInteger();
+        
+        List<Future<PartialResult>> futures = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            futures.add(executor.submit(() -> {
+                PartialResult partial = new PartialResult();
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < files.size()) {
+                    if (processFile(files.get(index), partial.fileResults, partial.languageResults)) {
+                        partial.processedFiles++;
+                    }
+                }
+                return partial;
+            }));
+        }
+        executor.shutdown();
+        
+        try {
+            for (Future<PartialResult> future : futures) {
+                PartialResult partial = future.get();
+                fileResults.addAll(partial.fileResults);
+                for (Map.Entry<String, LineCounter> entry : partial.languageResults.entrySet()) {
+                    LineCounter existing = languageResults.get(entry.getKey());
+                    if (existing != null) {
+                        existing.merge(entry.getValue());
+                    } else {
+                        languageResults.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                processedFiles += partial.processedFiles;
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            System.err.println("错误: 并行处理时出错: " + e.getCause());
+            e.getCause().printStackTrace();
+        }
+    }
+    
+    /**
+     * 处理单个文件，并把结果写入指定的结果表
+     * @return 文件被某个解析器处理时返回true
+     */
+    private boolean processFile(File file, FileResultStore fileResults,
+                                Map<String, LineCounter> languageResults) {
         for (CodeParser parser : parsers) {
             if (parser.supportsFile(file)) {
                 try {
@@ -64,7 +158,8 @@ public class FileProcessor {
                     String language = getLanguageByExtension(extension);
                     
                     // 保存文件结果
-                    fileResults.put(file.getAbsolutePath(), counter);
+                    fileResults.add(file.getAbsoluteFile(), language, Math.toIntExact(counter.getCodeLines()),
+                            Math.toIntExact(counter.getCommentLines()), Math.toIntExact(counter.getBlankLines()));
                     
                     // 更新语言汇总结果
                     if (languageResults.containsKey(language)) {
@@ -76,14 +171,14 @@ public class FileProcessor {
                                 counter.getBlankLines()));
                     }
                     
-                    processedFiles++;
-                    break; // 找到支持的解析器后不再继续
+                    return true; // 找到支持的解析器后不再继续
                 } catch (IOException e) {
                     System.err.println("错误: 处理文件时出错: " + file.getAbsolutePath());
                     e.printStackTrace();
                 }
             }
         }
+        return false;
     }
     
     /**
@@ -125,10 +220,10 @@ public class FileProcessor {
     }
     
     /**
-     * 获取单个文件的统计结果
+     * 获取单个文件的统计结果，文件路径为绝对路径
      */
-    public Map<String, LineCounter> getFileResults() {
-        return Collections.unmodifiableMap(fileResults);
+    public FileResultStore getFileResults() {
+        return fileResults;
     }
     
     /**
@@ -169,4 +264,13 @@ public class FileProcessor {
         
         System.out.println("\n处理的文件数量: " + processedFiles);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 单个工作线程的局部处理结果
+     */
+    private static class PartialResult {
+        private final FileResultStore fileResults = new FileResultStore();
+        private final Map<String, LineCounter> languageResults = new HashMap<>();
+        private int processedFiles = 0;
+    }
+}
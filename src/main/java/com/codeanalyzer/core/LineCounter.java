@@ -2,11 +2,12 @@ package com.codeanalyzer.core;
 
 /**
  * 存储代码行计数结果的数据类
+ * 行数使用long计数，合并时检查溢出
  */
 public class LineCounter {
-    private int codeLines;
-    private int commentLines;
-    private int blankLines;
+    private long codeLines;
+    private long commentLines;
+    private long blankLines;
 
     public LineCounter() {
         this.codeLines = 0;
@@ -14,7 +15,7 @@ public class LineCounter {
         this.blankLines = 0;
     }
 
-    public LineCounter(int codeLines, int commentLines, int blankLines) {
+    public LineCounter(long codeLines, long commentLines, long blankLines) {
         this.codeLines = codeLines;
         this.commentLines = commentLines;
         this.blankLines = blankLines;
@@ -32,26 +33,31 @@ public class LineCounter {
         blankLines++;
     }
 
+    /**
+     * 把另一个结果累加到当前结果
+     * 
+     * @throws ArithmeticException 如果计数溢出
+     */
     public void merge(LineCounter other) {
-        this.codeLines += other.codeLines;
-        this.commentLines += other.commentLines;
-        this.blankLines += other.blankLines;
+        this.codeLines = Math.addExact(codeLines, other.codeLines);
+        this.commentLines = Math.addExact(commentLines, other.commentLines);
+        this.blankLines = Math.addExact(blankLines, other.blankLines);
     }
 
-    public int getCodeLines() {
+    public long getCodeLines() {
         return codeLines;
     }
 
-    public int getCommentLines() {
+    public long getCommentLines() {
         return commentLines;
     }
 
-    public int getBlankLines() {
+    public long getBlankLines() {
         return blankLines;
     }
 
-    public int getTotalLines() {
-        return codeLines + commentLines + blankLines;
+    public long getTotalLines() {
+        return Math.addExact(Math.addExact(codeLines, commentLines), blankLines);
     }
 
     @Override
@@ -43,6 +43,34 @@ public class ParserFactory {
         }
     }
     
+    /**
+     * 根据语言提示创建解析器，用于解析没有对应磁盘文件的内容
+     * 提示可以是语言名称（如"cpp"、"ruby"），也可以是扩展名（如"rb"、".hpp"）或文件名（如"main.c"）
+     * @param hint 语言提示
+     * @return 对应的解析器实例，如果不支持则返回null
+     */
+    public static CodeParser createParserForHint(String hint) {
+        if (hint == null) {
+            return null;
+        }
+        
+        String name = hint.trim();
+        CodeParser parser = createParser(name);
+        if (parser != null) {
+            return parser;
+        }
+        
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        for (CodeParser candidate : getAllParsers()) {
+            for (String supported : candidate.getSupportedExtensions()) {
+                if (supported.equalsIgnoreCase(extension)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+    
     /**
      * 获取所有支持的解析器实例
      * @return 所有支持的解析器实例列表
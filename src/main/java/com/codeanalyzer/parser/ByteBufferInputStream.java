@@ -0,0 +1,50 @@
+package com.codeanalyzer.parser;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 从ByteBuffer读取字节的输入流，读取时移动缓冲区的position
+ * 配合InputStreamReader按块解码，不需要把整个缓冲区解码成一个CharBuffer
+ */
+class ByteBufferInputStream extends InputStream {
+    
+    private final ByteBuffer buffer;
+    
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+    
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || length > bytes.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+    
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
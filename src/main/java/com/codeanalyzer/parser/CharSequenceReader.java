@@ -0,0 +1,63 @@
+package com.codeanalyzer.parser;
+
+import java.io.Reader;
+
+/**
+ * 直接从CharSequence读取字符的读取器
+ * 与StringReader不同，不需要先调用toString()复制一份完整的文本
+ */
+class CharSequenceReader extends Reader {
+    
+    private final CharSequence content;
+    private int position;
+    
+    CharSequenceReader(CharSequence content) {
+        this.content = content;
+    }
+    
+    @Override
+    public int read() {
+        return position < content.length() ? content.charAt(position++) : -1;
+    }
+    
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || length > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        int remaining = content.length() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int count = Math.min(length, remaining);
+        if (content instanceof String) {
+            ((String) content).getChars(position, position + count, buffer, offset);
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = content.charAt(position + i);
+            }
+        }
+        position += count;
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, content.length() - position));
+        position += count;
+        return count;
+    }
+    
+    @Override
+    public boolean ready() {
+        return true;
+    }
+    
+    @Override
+    public void close() {
+        // 没有需要释放的资源
+    }
+}
@@ -2,22 +2,100 @@ package com.codeanalyzer.parser;
 
 import com.codeanalyzer.core.LineCounter;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * 代码解析器接口，定义统计代码行数的行为
  * 策略模式的核心接口，不同语言的解析器实现该接口
+ * 实现类至少要覆盖parse(BufferedReader)和parseFile(File)中的一个，两者的默认实现互相调用
  */
 public interface CodeParser {
     
+    /**
+     * 逐行解析文本并统计行数，不关闭读取器
+     * 默认实现把内容写入临时文件后交给parseFile(File)，只为兼容仅覆盖parseFile的旧实现类，
+     * 新的实现类应当覆盖此方法
+     * @param reader 源文件内容
+     * @return 统计结果
+     * @throws IOException 如果读取失败
+     */
+    default LineCounter parse(BufferedReader reader) throws IOException {
+        Path tempFile = Files.createTempFile("code-parser", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, Charset.defaultCharset())) {
+                reader.transferTo(writer);
+            }
+            return parseFile(tempFile.toFile());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
     /**
      * 解析单个文件并统计行数
+     * 默认实现按平台默认编码读取文件并交给parse(BufferedReader)
      * @param file 要解析的文件
      * @return 统计结果
      * @throws IOException 如果文件读取失败
      */
-    LineCounter parseFile(File file) throws IOException;
+    default LineCounter parseFile(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return parse(reader);
+        }
+    }
+    
+    /**
+     * 解析输入流中的内容并统计行数，按平台默认编码解码，读取到流的末尾但不关闭输入流
+     * @param in 源文件内容
+     * @return 统计结果
+     * @throws IOException 如果读取失败
+     */
+    default LineCounter parse(InputStream in) throws IOException {
+        return parse(new BufferedReader(new InputStreamReader(in, Charset.defaultCharset())));
+    }
+    
+    /**
+     * 解析通道中剩余的内容并统计行数，按平台默认编码解码，不关闭通道
+     * @param channel 源文件内容
+     * @return 统计结果
+     * @throws IOException 如果读取失败
+     */
+    default LineCounter parse(ReadableByteChannel channel) throws IOException {
+        return parse(Channels.newInputStream(channel));
+    }
+    
+    /**
+     * 解析缓冲区中从position到limit的内容并统计行数，按平台默认编码解码，不改变缓冲区的position
+     * 内容边读边解码，不会复制出完整的字符缓冲区
+     * @param content 源文件内容
+     * @return 统计结果
+     * @throws IOException 如果解析失败
+     */
+    default LineCounter parse(ByteBuffer content) throws IOException {
+        return parse(new ByteBufferInputStream(content.duplicate()));
+    }
+    
+    /**
+     * 解析文本并统计行数，直接从content读取字符，不会先复制成字符串
+     * @param content 源文件内容
+     * @return 统计结果
+     * @throws IOException 如果解析失败
+     */
+    default LineCounter parse(CharSequence content) throws IOException {
+        return parse(new BufferedReader(new CharSequenceReader(content)));
+    }
     
     /**
      * 获取此解析器支持的文件扩展名
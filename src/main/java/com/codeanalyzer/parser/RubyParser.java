@@ -13,54 +13,52 @@ public class RubyParser implements CodeParser {
     private static final String[] SUPPORTED_EXTENSIONS = {"rb"};
     
     @Override
-    public LineCounter parseFile(File file) throws IOException {
+    public LineCounter parse(BufferedReader reader) throws IOException {
         LineCounter counter = new LineCounter();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            boolean inMultiLineComment = false;
+        String line;
+        boolean inMultiLineComment = false;
+        
+        while ((line = reader.readLine()) != null) {
+            String trimmedLine = line.trim();
             
-            while ((line = reader.readLine()) != null) {
-                String trimmedLine = line.trim();
-                
-                // 空行检测
-                if (trimmedLine.isEmpty()) {
-                    counter.addBlankLine();
-                    continue;
-                }
-                
-                // 处理=begin到=end的多行注释
-                if (inMultiLineComment) {
-                    counter.addCommentLine();
-                    if (trimmedLine.equals("=end")) {
-                        inMultiLineComment = false;
-                    }
-                    continue;
-                }
-                
-                // 检查是否开始多行注释
-                if (trimmedLine.equals("=begin")) {
-                    counter.addCommentLine();
-                    inMultiLineComment = true;
-                    continue;
-                }
-                
-                // 检查是否是单行注释 #
-                int hashIndex = findUnquotedIndex(line, "#");
-                if (hashIndex == 0) {
-                    counter.addCommentLine();
-                    continue;
-                }
-                
-                // 行内包含注释和代码的情况
-                if (hashIndex > 0) {
-                    counter.addCodeLine(); // Ruby中，行内包含代码和注释，优先计为代码行
-                    continue;
+            // 空行检测
+            if (trimmedLine.isEmpty()) {
+                counter.addBlankLine();
+                continue;
+            }
+            
+            // 处理=begin到=end的多行注释
+            if (inMultiLineComment) {
+                counter.addCommentLine();
+                if (trimmedLine.equals("=end")) {
+                    inMultiLineComment = false;
                 }
-                
-                // 其他情况算作代码行
-                counter.addCodeLine();
+                continue;
             }
+            
+            // 检查是否开始多行注释
+            if (trimmedLine.equals("=begin")) {
+                counter.addCommentLine();
+                inMultiLineComment = true;
+                continue;
+            }
+            
+            // 检查是否是单行注释 #
+            int hashIndex = findUnquotedIndex(line, "#");
+            if (hashIndex == 0) {
+                counter.addCommentLine();
+                continue;
+            }
+            
+            // 行内包含注释和代码的情况
+            if (hashIndex > 0) {
+                counter.addCodeLine(); // Ruby中，行内包含代码和注释，优先计为代码行
+                continue;
+            }
+            
+            // 其他情况算作代码行
+            counter.addCodeLine();
         }
         
         return counter;
@@ -0,0 +1,111 @@
+package com.clocliketool.analyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import com.clocliketool.counter.LineCounterFactory;
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.util.DiscoveryMode;
+import com.clocliketool.vcs.GitTestRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * --git-rev统计的测试，结果与检出该版本后统计工作区一致
+ */
+public class FileAnalyzerGitRevisionTest {
+    
+    private static final String[] REVISIONS = {"HEAD", "HEAD~1", "HEAD~3", "v1", "v1~1"};
+    
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+    
+    private File repository;
+    
+    @Before
+    public void createRepository() throws IOException {
+        assumeTrue("需要git命令", GitTestRepository.isGitAvailable());
+        repository = GitTestRepository.create(temporary.newFolder("repo"));
+    }
+    
+    @Test
+    public void looseObjectsMatchCheckout() throws IOException {
+        assertRevisionsMatchCheckout();
+    }
+    
+    @Test
+    public void packedObjectsMatchCheckout() throws IOException {
+        GitTestRepository.git(repository, "gc", "-q", "--aggressive");
+        assertRevisionsMatchCheckout();
+    }
+    
+    @Test
+    public void subdirectoryIsScoped() throws IOException {
+        for (String revision : REVISIONS) {
+            File checkout = checkout(revision);
+            assertEquals(revision, countCheckout(new File(checkout, "src/util")),
+                    countRevision(new File(repository, "src/util"), revision));
+        }
+    }
+    
+    @Test
+    public void symlinksAndGitlinksAreSkipped() throws IOException {
+        // 遍历工作区时会跟随符号链接src/link.c，从版本中统计时与git索引一样只统计普通文件
+        File checkout = checkout("HEAD");
+        FileAnalyzer walk = new FileAnalyzer(LineCounterFactory.getAllCounters());
+        walk.analyzePaths(new String[] {checkout.getPath()});
+        assertEquals(2, walk.getLanguageResults().get("C").getFileCount());
+        assertEquals("1 181 63 61", countRevision(repository, "HEAD").get("C"));
+    }
+    
+    private void assertRevisionsMatchCheckout() throws IOException {
+        for (String revision : REVISIONS) {
+            File checkout = checkout(revision);
+            assertEquals(revision, countCheckout(checkout), countRevision(repository, revision));
+            assertEquals(revision, countCheckout(new File(checkout, "src")),
+                    countRevision(new File(repository, "src"), revision));
+        }
+    }
+    
+    private File checkout(String revision) throws IOException {
+        File target = new File(temporary.getRoot(), "checkout-" + revision.replaceAll("\\W", "_"));
+        if (!target.exists()) {
+            GitTestRepository.checkout(repository, revision, target);
+        }
+        return target;
+    }
+    
+    private static Map<String, String> countRevision(File directory, String revision) {
+        FileAnalyzer analyzer = new FileAnalyzer(LineCounterFactory.getAllCounters());
+        analyzer.setGitRevision(revision);
+        analyzer.analyzePaths(new String[] {directory.getPath()});
+        return summarize(analyzer);
+    }
+    
+    /**
+     * 按检出工作区的git索引统计，与版本中的条目一样只包括被跟踪的普通文件
+     */
+    private static Map<String, String> countCheckout(File directory) {
+        FileAnalyzer analyzer = new FileAnalyzer(LineCounterFactory.getAllCounters());
+        analyzer.setDiscoveryMode(DiscoveryMode.GIT_INDEX);
+        analyzer.analyzePaths(new String[] {directory.getPath()});
+        return summarize(analyzer);
+    }
+    
+    private static Map<String, String> summarize(FileAnalyzer analyzer) {
+        Map<String, String> summary = new TreeMap<>();
+        for (Map.Entry<String, LineCountResult> entry : analyzer.getLanguageResults().entrySet()) {
+            LineCountResult result = entry.getValue();
+            summary.put(entry.getKey(), result.getFileCount() + " " + result.getCodeLines() + " "
+                    + result.getCommentLines() + " " + result.getBlankLines());
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,128 @@
+package com.clocliketool.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ArchiveWalker的测试，包括压缩包的嵌套和展开层数限制
+ */
+public class ArchiveWalkerTest {
+    
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+    
+    @Test
+    public void expandsNestedArchivesUpToMaxDepth() throws IOException {
+        File archive = nestedArchive("outer.tar");
+        String outer = archive.getPath() + "!/";
+        
+        Map<String, String> depth1 = walk(archive, 1);
+        assertEquals(map(outer + "top.c", "int top;\n", outer + "tail.c", "int tail;\n"), depth1);
+        
+        Map<String, String> depth2 = walk(archive, 2);
+        assertEquals(map(outer + "top.c", "int top;\n",
+                outer + "lib/inner.zip!/inner.rb", "inner = 1\n",
+                outer + "lib/inner.zip!/after.c", "int after;\n",
+                outer + "tail.c", "int tail;\n"), depth2);
+        
+        Map<String, String> depth3 = walk(archive, 3);
+        assertEquals(5, depth3.size());
+        assertEquals("int deepest;\n", depth3.get(outer + "lib/inner.zip!/deep/deepest.tar.gz!/deepest.c"));
+    }
+    
+    @Test
+    public void nestedArchiveLeavesOuterStreamUsable() throws IOException {
+        // 内层压缩包之后的条目仍然可以从外层流中读取
+        File archive = nestedArchive("outer.tgz");
+        Map<String, String> entries = walk(archive, 3);
+        assertEquals(5, entries.size());
+        assertEquals("int tail;\n", entries.get(archive.getPath() + "!/tail.c"));
+    }
+    
+    @Test
+    public void stripsLeadingSlashesFromEntryNames() throws IOException {
+        File archive = temporary.newFile("slashes.tar");
+        Files.write(archive.toPath(), new TarBuilder().file("./a.c", "a\n").file("/b.c", "b\n").end().toByteArray());
+        Map<String, String> entries = walk(archive, 1);
+        assertEquals(map(archive.getPath() + "!/a.c", "a\n", archive.getPath() + "!/b.c", "b\n"), entries);
+    }
+    
+    @Test
+    public void recognisesArchiveNames() {
+        assertTrue(ArchiveWalker.isArchive("a.tar"));
+        assertTrue(ArchiveWalker.isArchive("a.TGZ"));
+        assertTrue(ArchiveWalker.isArchive("a.tar.gz"));
+        assertTrue(ArchiveWalker.isArchive("a.jar"));
+        assertFalse(ArchiveWalker.isArchive("a.gz"));
+        assertFalse(ArchiveWalker.isArchive(".tar"));
+    }
+    
+    /**
+     * 构造三层嵌套的压缩包：tar中有zip，zip中有tar.gz
+     */
+    private File nestedArchive(String name) throws IOException {
+        byte[] deepest = gzip(new TarBuilder().file("deepest.c", "int deepest;\n").end().toByteArray());
+        
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+            putZipEntry(zip, "inner.rb", "inner = 1\n".getBytes(StandardCharsets.UTF_8));
+            putZipEntry(zip, "deep/deepest.tar.gz", deepest);
+            zip.putNextEntry(new ZipEntry("empty/"));
+            zip.closeEntry();
+            putZipEntry(zip, "after.c", "int after;\n".getBytes(StandardCharsets.UTF_8));
+        }
+        
+        byte[] tar = new TarBuilder().file("top.c", "int top;\n")
+                .entry("lib/inner.zip", "", '0', zipBytes.toByteArray())
+                .file("tail.c", "int tail;\n")
+                .end().toByteArray();
+        File archive = temporary.newFile(name);
+        Files.write(archive.toPath(), name.endsWith(".tgz") ? gzip(tar) : tar);
+        return archive;
+    }
+    
+    private static Map<String, String> walk(File archive, int maxDepth) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        new ArchiveWalker(maxDepth).walk(archive, (path, in) -> entries.put(path, TarReaderTest.readAll(in)));
+        return entries;
+    }
+    
+    private static Map<String, String> map(String... pathsAndContents) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < pathsAndContents.length; i += 2) {
+            map.put(pathsAndContents[i], pathsAndContents[i + 1]);
+        }
+        return map;
+    }
+    
+    private static void putZipEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+    
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
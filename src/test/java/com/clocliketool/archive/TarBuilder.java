@@ -0,0 +1,153 @@
+package com.clocliketool.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 测试用的tar归档构造器，逐字节写出头部，可以构造各种扩展格式和损坏的归档
+ */
+class TarBuilder {
+    
+    private static final int BLOCK_SIZE = 512;
+    
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    
+    /**
+     * 添加普通文件
+     */
+    TarBuilder file(String name, String content) {
+        return entry(name, "", '0', content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 添加名称分为前缀和名称两部分的ustar条目
+     */
+    TarBuilder ustar(String prefix, String name, String content) {
+        return entry(name, prefix, '0', content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 添加指定类型的条目
+     */
+    TarBuilder entry(String name, String prefix, char type, byte[] content) {
+        byte[] header = header(name, prefix, type, content.length);
+        writeChecksum(header);
+        out.write(header, 0, BLOCK_SIZE);
+        data(content);
+        return this;
+    }
+    
+    /**
+     * 添加GNU长文件名，作用于下一个条目
+     */
+    TarBuilder gnuLongName(String name) {
+        return entry("././@LongLink", "", 'L', (name + "\0").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 添加pax扩展头，records为"键=值"形式的记录，作用于下一个条目
+     */
+    TarBuilder pax(String... records) {
+        StringBuilder data = new StringBuilder();
+        for (String record : records) {
+            String body = " " + record + "\n";
+            int length = body.length() + 1;
+            while (String.valueOf(length).length() + body.length() != length) {
+                length++;
+            }
+            data.append(length).append(body);
+        }
+        return entry("PaxHeaders/x", "", 'x', data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 添加头部大小字段与实际内容长度不同的普通文件，用于pax的size记录
+     */
+    TarBuilder fileWithHeaderSize(String name, String content, long headerSize) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        byte[] header = header(name, "", '0', headerSize);
+        writeChecksum(header);
+        out.write(header, 0, BLOCK_SIZE);
+        data(bytes);
+        return this;
+    }
+    
+    /**
+     * 添加大小字段使用GNU二进制（base-256）表示的普通文件
+     */
+    TarBuilder base256File(String name, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        byte[] header = header(name, "", '0', 0);
+        Arrays.fill(header, 124, 136, (byte) 0);
+        header[124] = (byte) 0x80;
+        for (int i = 0; i < 8; i++) {
+            header[135 - i] = (byte) ((long) bytes.length >>> (8 * i));
+        }
+        writeChecksum(header);
+        out.write(header, 0, BLOCK_SIZE);
+        data(bytes);
+        return this;
+    }
+    
+    /**
+     * 添加校验和错误的普通文件
+     */
+    TarBuilder corruptFile(String name, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        byte[] header = header(name, "", '0', bytes.length);
+        writeChecksum(header);
+        header[0] ^= 1;
+        out.write(header, 0, BLOCK_SIZE);
+        data(bytes);
+        return this;
+    }
+    
+    /**
+     * 写入归档末尾的两个全零块
+     */
+    TarBuilder end() {
+        out.write(new byte[BLOCK_SIZE * 2], 0, BLOCK_SIZE * 2);
+        return this;
+    }
+    
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+    
+    private void data(byte[] content) {
+        out.write(content, 0, content.length);
+        int padding = (BLOCK_SIZE - content.length % BLOCK_SIZE) % BLOCK_SIZE;
+        out.write(new byte[padding], 0, padding);
+    }
+    
+    private static byte[] header(String name, String prefix, char type, long size) {
+        byte[] header = new byte[BLOCK_SIZE];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 108, "0000000");
+        put(header, 116, "0000000");
+        put(header, 124, String.format("%011o", size));
+        put(header, 136, "00000000000");
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        put(header, 345, prefix);
+        return header;
+    }
+    
+    private static void writeChecksum(byte[] header) {
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xFF;
+        }
+        put(header, 148, String.format("%06o", sum));
+        header[154] = 0;
+    }
+    
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,174 @@
+package com.clocliketool.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * TarReader的测试
+ */
+public class TarReaderTest {
+    
+    private static final String LONG_NAME = "very/" + repeat("long/", 40) + "name.c";
+    
+    @Test
+    public void readsPlainEntries() throws IOException {
+        TarReader tar = reader(new TarBuilder().file("a.c", "int a;\n").file("b.rb", "b = 1\n").end());
+        assertEntry(tar, "a.c", "int a;\n");
+        assertEntry(tar, "b.rb", "b = 1\n");
+        assertNull(tar.nextEntry());
+    }
+    
+    @Test
+    public void joinsUstarPrefix() throws IOException {
+        TarReader tar = reader(new TarBuilder().ustar("src/module", "main.c", "int main;\n").end());
+        assertEntry(tar, "src/module/main.c", "int main;\n");
+        assertNull(tar.nextEntry());
+    }
+    
+    @Test
+    public void readsGnuLongName() throws IOException {
+        TarReader tar = reader(new TarBuilder().gnuLongName(LONG_NAME).file("truncated", "x\n")
+                .file("next.c", "y\n").end());
+        assertEntry(tar, LONG_NAME, "x\n");
+        assertEntry(tar, "next.c", "y\n");
+        assertNull(tar.nextEntry());
+    }
+    
+    @Test
+    public void readsPaxPathAndSize() throws IOException {
+        // 头部的大小字段为0，实际大小只记录在pax的size中
+        String content = repeat("int x;\n", 100);
+        TarReader tar = reader(new TarBuilder().pax("path=" + LONG_NAME, "size=" + content.length(), "mtime=1.5")
+                .fileWithHeaderSize("short", content, 0).file("next.c", "y\n").end());
+        assertEntry(tar, LONG_NAME, content);
+        assertEntry(tar, "next.c", "y\n");
+        assertNull(tar.nextEntry());
+    }
+    
+    @Test
+    public void paxRecordsApplyToOneEntry() throws IOException {
+        TarReader tar = reader(new TarBuilder().pax("path=renamed.c").file("a.c", "a\n").file("b.c", "b\n").end());
+        assertEntry(tar, "renamed.c", "a\n");
+        assertEntry(tar, "b.c", "b\n");
+    }
+    
+    @Test
+    public void rejectsInvalidPaxRecords() {
+        assertInvalid(new TarBuilder().entry("pax", "", 'x', ascii("5 a=b\n")).file("a.c", "a\n").end());
+        assertInvalid(new TarBuilder().entry("pax", "", 'x', ascii("99 path=a\n")).file("a.c", "a\n").end());
+        assertInvalid(new TarBuilder().entry("pax", "", 'x', ascii("x path=a\n")).file("a.c", "a\n").end());
+        assertInvalid(new TarBuilder().pax("size=-1").file("a.c", "a\n").end());
+    }
+    
+    @Test
+    public void readsBase256Size() throws IOException {
+        TarReader tar = reader(new TarBuilder().base256File("big.c", "int big;\n").file("next.c", "y\n").end());
+        assertEntry(tar, "big.c", "int big;\n");
+        assertEntry(tar, "next.c", "y\n");
+    }
+    
+    @Test
+    public void rejectsBadChecksum() {
+        assertInvalid(new TarBuilder().corruptFile("a.c", "a\n").end());
+        assertInvalid(new TarBuilder().file("a.c", "a\n").corruptFile("b.c", "b\n").end());
+    }
+    
+    @Test
+    public void skipsNonRegularEntriesAndUnreadContent() throws IOException {
+        TarReader tar = reader(new TarBuilder().entry("dir/", "", '5', new byte[0])
+                .entry("link.c", "", '2', new byte[0])
+                .file("dir/a.c", repeat("a\n", 600))
+                .file("dir/b.c", "b\n").end());
+        assertEquals("dir/a.c", tar.nextEntry());
+        assertEquals('a', tar.entryStream().read());
+        assertEntry(tar, "dir/b.c", "b\n");
+        assertNull(tar.nextEntry());
+    }
+    
+    @Test
+    public void endsWithoutTrailerBlocks() throws IOException {
+        TarReader tar = reader(new TarBuilder().file("a.c", "a\n"));
+        assertEntry(tar, "a.c", "a\n");
+        assertNull(tar.nextEntry());
+    }
+    
+    @Test
+    public void truncatedEntryFails() throws IOException {
+        byte[] archive = new TarBuilder().file("a.c", repeat("int a;\n", 100)).toByteArray();
+        TarReader tar = new TarReader(new ByteArrayInputStream(Arrays.copyOf(archive, 512 + 100)));
+        assertEquals("a.c", tar.nextEntry());
+        try {
+            readAll(tar.entryStream());
+            fail("应当报告条目不完整");
+        } catch (EOFException e) {
+            // 预期的异常
+        }
+    }
+    
+    @Test
+    public void truncatedHeaderFails() {
+        byte[] archive = new TarBuilder().file("a.c", "a\n").file("b.c", "b\n").toByteArray();
+        try {
+            TarReader tar = new TarReader(new ByteArrayInputStream(Arrays.copyOf(archive, 1024 + 300)));
+            assertEntry(tar, "a.c", "a\n");
+            tar.nextEntry();
+            fail("应当报告头部不完整");
+        } catch (IOException e) {
+            // 预期的异常
+        }
+    }
+    
+    private static TarReader reader(TarBuilder builder) {
+        return new TarReader(new ByteArrayInputStream(builder.toByteArray()));
+    }
+    
+    private static void assertEntry(TarReader tar, String name, String content) throws IOException {
+        assertEquals(name, tar.nextEntry());
+        assertEquals(content, readAll(tar.entryStream()));
+    }
+    
+    private static void assertInvalid(TarBuilder builder) {
+        try {
+            TarReader tar = reader(builder);
+            while (tar.nextEntry() != null) {
+                readAll(tar.entryStream());
+            }
+            fail("应当拒绝无效的tar归档");
+        } catch (IOException e) {
+            // 预期的异常
+        }
+    }
+    
+    static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[100];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.clocliketool.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.model.SourceFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * ResultCache的测试
+ */
+public class ResultCacheTest {
+    
+    private static final long MODIFIED = 1_600_000_000_000L;
+    
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+    
+    @Test
+    public void unchangedFileHits() throws IOException {
+        File source = write("a.c", "int a;\n", MODIFIED);
+        File cacheFile = new File(temporary.getRoot(), "cache");
+        store(cacheFile, false, SourceFile.of(source), 1);
+        
+        LineCountResult cached = ResultCache.load(cacheFile, false).lookup(SourceFile.of(source));
+        assertNotNull(cached);
+        assertEquals(1, cached.getCodeLines());
+    }
+    
+    @Test
+    public void touchedFileHitsOnlyWithHashes() throws IOException {
+        File source = write("a.c", "int a;\n", MODIFIED);
+        File cacheFile = new File(temporary.getRoot(), "cache");
+        store(cacheFile, true, SourceFile.of(source), 1);
+        
+        Files.setLastModifiedTime(source.toPath(), FileTime.fromMillis(MODIFIED + 5000));
+        assertNull(ResultCache.load(cacheFile, false).lookup(SourceFile.of(source)));
+        assertNotNull(ResultCache.load(cacheFile, true).lookup(SourceFile.of(source)));
+    }
+    
+    @Test
+    public void changedFileMisses() throws IOException {
+        File source = write("a.c", "int a;\n", MODIFIED);
+        File cacheFile = new File(temporary.getRoot(), "cache");
+        store(cacheFile, true, SourceFile.of(source), 1);
+        
+        write("a.c", "int b;\n", MODIFIED + 5000);
+        assertNull(ResultCache.load(cacheFile, true).lookup(SourceFile.of(source)));
+    }
+    
+    @Test
+    public void fileChangedWhileCountingIsNotStored() throws IOException {
+        // 遍历时读取了属性，统计之后、计算哈希之前文件被改为大小相同的新内容
+        File source = write("a.c", "int a;\n", MODIFIED);
+        SourceFile discovered = SourceFile.of(source);
+        write("a.c", "// a;;\n", MODIFIED + 5000);
+        
+        File cacheFile = new File(temporary.getRoot(), "cache");
+        store(cacheFile, true, discovered, 1);
+        
+        // 否则下次运行时修改时间不同但哈希相同，会错误地使用旧内容的统计结果
+        assertNull(ResultCache.load(cacheFile, true).lookup(SourceFile.of(source)));
+    }
+    
+    private static void store(File cacheFile, boolean useHashes, SourceFile source, long codeLines)
+            throws IOException {
+        ResultCache cache = ResultCache.load(cacheFile, useHashes);
+        cache.store(source, new LineCountResult(codeLines, 0, 0));
+        cache.save();
+    }
+    
+    private File write(String name, String content, long modified) throws IOException {
+        File file = new File(temporary.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(modified));
+        return file;
+    }
+}
@@ -0,0 +1,96 @@
+package com.clocliketool.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.clocliketool.model.LineCountResult;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * 字节状态机实现的CppLineCounter与原来逐行实现的对比测试
+ * 原实现把块注释之后同一行还有代码的行同时计为注释行和代码行，
+ * 新实现只计为代码行；除此之外两者的统计结果应当完全一致。
+ */
+public class CppLineCounterParityTest {
+    
+    /** 包含同一行里注释之后还有代码的写法的测试文件 */
+    private static final String MIXED = "mixed.c";
+    
+    private final CppLineCounter counter = new CppLineCounter();
+    private final LegacyCppLineCounter legacy = new LegacyCppLineCounter();
+    
+    @Test
+    public void matchesLineBasedCounts() throws IOException {
+        for (File file : corpus()) {
+            LineCountResult expected = legacy.countLines(
+                    new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8));
+            LineCountResult actual = counter.countLines(file);
+            String name = file.getName();
+            
+            assertEquals(name, expected.getCodeLines(), actual.getCodeLines());
+            assertEquals(name, expected.getBlankLines(), actual.getBlankLines());
+            assertEquals(name, 1, actual.getFileCount());
+            // 原实现重复计数的行数，新实现中这些行只是代码行
+            long doubleCounted = expected.getTotalLines() - actual.getTotalLines();
+            assertEquals(name, expected.getCommentLines() - doubleCounted, actual.getCommentLines());
+            if (name.equals(MIXED)) {
+                assertTrue(name, doubleCounted > 0);
+            } else {
+                assertEquals(name, 0, doubleCounted);
+            }
+        }
+    }
+    
+    @Test
+    public void countsDoNotDependOnBufferBoundaries() throws IOException {
+        for (File file : corpus()) {
+            byte[] content = Files.readAllBytes(file.toPath());
+            LineCountResult whole = counter.countLines(file);
+            LineCountResult trickled = counter.countLines(new OneByteInputStream(new ByteArrayInputStream(content)));
+            assertEquals(file.getName(), whole.toString(), trickled.toString());
+        }
+    }
+    
+    private static File[] corpus() {
+        URL resource = CppLineCounterParityTest.class.getResource("/testdata/cpp");
+        assertNotNull("找不到测试数据目录", resource);
+        File[] files;
+        try {
+            files = new File(resource.toURI()).listFiles();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        assertNotNull(files);
+        assertTrue(files.length > 1);
+        Arrays.sort(files);
+        return files;
+    }
+    
+    /**
+     * 每次最多返回一个字节的输入流，使每个字节都落在读取缓冲区的边界上
+     */
+    private static class OneByteInputStream extends FilterInputStream {
+        
+        OneByteInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1));
+        }
+    }
+}
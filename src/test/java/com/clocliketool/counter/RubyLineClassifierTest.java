@@ -0,0 +1,57 @@
+package com.clocliketool.counter;
+
+import static org.junit.Assert.assertEquals;
+
+import com.clocliketool.model.LineCountResult;
+import org.junit.Test;
+
+/**
+ * RubyLineClassifier的测试
+ */
+public class RubyLineClassifierTest {
+    
+    private final RubyLineCounter counter = new RubyLineCounter();
+    
+    @Test
+    public void divisionAfterLocalVariable() {
+        assertCounts("def avg(total, count)\n"
+                + "  avg = total /count\n"
+                + "  # explain\n"
+                + "  avg\n"
+                + "end\n", 4, 1, 0);
+    }
+    
+    @Test
+    public void divisionWithTrailingComment() {
+        assertCounts("z = y /2 # half\n"
+                + "# first\n"
+                + "w = z # second\n"
+                + "# third\n", 2, 2, 0);
+    }
+    
+    @Test
+    public void divisionInsideInterpolation() {
+        assertCounts("puts \"#{total /count}\"\n"
+                + "# explain\n", 1, 1, 0);
+    }
+    
+    @Test
+    public void regexArgumentAfterMethodName() {
+        assertCounts("parts = line.split /,#/\n"
+                + "# explain\n", 1, 1, 0);
+    }
+    
+    @Test
+    public void regexAfterOperator() {
+        assertCounts("ok = line =~ /a#b\n"
+                + "c/x\n"
+                + "# explain\n", 2, 1, 0);
+    }
+    
+    private void assertCounts(String source, long code, long comments, long blanks) {
+        LineCountResult result = counter.countLines(source);
+        assertEquals("代码行", code, result.getCodeLines());
+        assertEquals("注释行", comments, result.getCommentLines());
+        assertEquals("空行", blanks, result.getBlankLines());
+    }
+}
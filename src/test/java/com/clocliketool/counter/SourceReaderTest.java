@@ -0,0 +1,50 @@
+package com.clocliketool.counter;
+
+import static org.junit.Assert.assertEquals;
+
+import com.clocliketool.model.LineCountResult;
+import com.clocliketool.model.SourceFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SourceReader的测试，内存映射和普通读取的统计结果相同
+ */
+public class SourceReaderTest {
+    
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+    
+    @Test
+    public void mappedAndBufferedReadsAgree() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            content.append("int f").append(i).append("(void) { return ").append(i).append("; } /* 注释\n");
+            content.append(" * 续行 */\n\n");
+        }
+        File file = temporary.newFile("large.c");
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        SourceFile source = SourceFile.of(file);
+        CppLineCounter counter = new CppLineCounter();
+        
+        String buffered = counter.countLines(source, -1, null).toString();
+        assertEquals(buffered, counter.countLines(source, 0, null).toString());
+        assertEquals(buffered, counter.countLines(source, file.length(), null).toString());
+        assertEquals(buffered, counter.countLines(source, file.length() + 1, null).toString());
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertEquals(buffered, counter.countLines(channel, 0).toString());
+        }
+        LineCountResult result = counter.countLines(file);
+        assertEquals(buffered, result.toString());
+        assertEquals(60000, result.getTotalLines());
+    }
+}
@@ -0,0 +1,108 @@
+package com.clocliketool.vcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GitIndexReader的测试，读取结果与git ls-files一致
+ */
+public class GitIndexReaderTest {
+    
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+    
+    private File repository;
+    
+    @Before
+    public void createRepository() throws IOException {
+        assumeTrue("需要git命令", GitTestRepository.isGitAvailable());
+        repository = GitTestRepository.create(temporary.newFolder("repo"));
+    }
+    
+    @Test
+    public void readsVersion2() throws IOException {
+        assertIndexMatches(2);
+    }
+    
+    @Test
+    public void readsVersion3WithExtendedFlags() throws IOException {
+        // 意图添加（git add -N）的条目带有扩展标志，索引会以第3版写入
+        Files.write(new File(repository, "src/added.c").toPath(), "int a;\n".getBytes(StandardCharsets.UTF_8));
+        GitTestRepository.git(repository, "add", "-N", "src/added.c");
+        assertIndexMatches(3);
+    }
+    
+    @Test
+    public void readsVersion4() throws IOException {
+        assertIndexMatches(4);
+    }
+    
+    @Test
+    public void skipsSymlinksAndGitlinks() throws IOException {
+        List<String> paths = readPaths(repository);
+        assertTrue(paths.contains("src/main.c"));
+        assertFalse(paths.contains("src/link.c"));
+        assertFalse(paths.contains("vendor/module"));
+    }
+    
+    @Test
+    public void findsLinkedWorkTree() throws IOException {
+        File checkout = GitTestRepository.checkout(repository, "HEAD~2", new File(temporary.getRoot(), "checkout"));
+        File workTree = GitIndexReader.findWorkTree(new File(checkout, "src/util"));
+        assertEquals(checkout.getAbsoluteFile(), workTree);
+        
+        File gitDirectory = GitIndexReader.resolveGitDirectory(workTree);
+        assertTrue(new File(gitDirectory, "commondir").isFile());
+        assertEquals(expectedPaths(checkout), readPaths(checkout));
+        
+        assertNull(GitIndexReader.findWorkTree(temporary.newFolder("plain")));
+    }
+    
+    private void assertIndexMatches(int version) throws IOException {
+        GitTestRepository.git(repository, "update-index", "--index-version", String.valueOf(version));
+        byte[] header = Files.readAllBytes(new File(repository, ".git/index").toPath());
+        assertEquals(version, header[7]);
+        assertEquals(expectedPaths(repository), readPaths(repository));
+    }
+    
+    private static List<String> readPaths(File workTree) throws IOException {
+        File gitDirectory = GitIndexReader.resolveGitDirectory(workTree);
+        List<String> paths = new ArrayList<>();
+        GitIndexReader.readPaths(new File(gitDirectory, "index"), GitIndexReader.objectIdLength(gitDirectory),
+                paths::add);
+        return paths;
+    }
+    
+    /**
+     * 索引中第0阶段的普通文件，按索引中的顺序排列
+     */
+    private static List<String> expectedPaths(File workTree) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (String entry : GitTestRepository.git(workTree, "ls-files", "-s", "-z").split("\0")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] fields = entry.substring(0, entry.indexOf('\t')).split(" ");
+            boolean regular = fields[0].equals("100644") || fields[0].equals("100755");
+            if (regular && fields[2].equals("0")) {
+                paths.add(entry.substring(entry.indexOf('\t') + 1));
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,211 @@
+package com.clocliketool.vcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * GitObjectDatabase和PackFile的测试
+ * 同一个仓库分别以松散对象、OFS_DELTA打包和REF_DELTA打包三种形式读取，结果与git命令行一致
+ */
+@RunWith(Parameterized.class)
+public class GitObjectDatabaseTest {
+    
+    @ClassRule
+    public static final TemporaryFolder TEMPORARY = new TemporaryFolder();
+    
+    private static final String[] REVISIONS = {"HEAD", "HEAD~1", "HEAD~2", "HEAD~3", "v1", "master^"};
+    
+    private static final Map<String, File> REPOSITORIES = new HashMap<>();
+    
+    private final String storage;
+    private File repository;
+    
+    public GitObjectDatabaseTest(String storage) {
+        this.storage = storage;
+    }
+    
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> storages() {
+        return Arrays.asList(new Object[][] {{"loose"}, {"ofs-delta"}, {"ref-delta"}});
+    }
+    
+    @BeforeClass
+    public static void createRepositories() throws IOException {
+        assumeTrue("需要git命令", GitTestRepository.isGitAvailable());
+        
+        REPOSITORIES.put("loose", GitTestRepository.create(TEMPORARY.newFolder("loose")));
+        
+        File ofs = GitTestRepository.create(TEMPORARY.newFolder("ofs"));
+        GitTestRepository.git(ofs, "gc", "-q", "--aggressive");
+        REPOSITORIES.put("ofs-delta", ofs);
+        
+        File ref = GitTestRepository.create(TEMPORARY.newFolder("ref"));
+        GitTestRepository.git(ref, "-c", "repack.useDeltaBaseOffset=false", "repack", "-a", "-d", "-f", "-q");
+        REPOSITORIES.put("ref-delta", ref);
+    }
+    
+    @AfterClass
+    public static void clearRepositories() {
+        REPOSITORIES.clear();
+    }
+    
+    @Before
+    public void selectRepository() {
+        repository = REPOSITORIES.get(storage);
+    }
+    
+    @Test
+    public void packedRepositoriesContainDeltas() throws IOException {
+        File[] packs = new File(repository, ".git/objects/pack").listFiles((dir, name) -> name.endsWith(".idx"));
+        if (storage.equals("loose")) {
+            assertTrue(packs == null || packs.length == 0);
+            return;
+        }
+        assertEquals(1, packs.length);
+        int deltas = 0;
+        for (String line : GitTestRepository.git(repository, "verify-pack", "-v", packs[0].getPath()).split("\n")) {
+            // 差异对象的行多出差异链深度和基础对象ID两列
+            if (line.split("\\s+").length == 7) {
+                deltas++;
+            }
+        }
+        assertTrue("打包文件中没有差异对象", deltas > 0);
+    }
+    
+    @Test
+    public void resolvesRevisions() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            for (String revision : REVISIONS) {
+                assertEquals(revision, revParse(revision), GitObjectDatabase.toHex(database.resolve(revision)));
+                assertEquals(revision, revParse(revision + "^{commit}"),
+                        GitObjectDatabase.toHex(database.resolveCommit(revision)));
+                assertEquals(revision, revParse(revision + "^{tree}"),
+                        GitObjectDatabase.toHex(database.resolveTree(revision)));
+            }
+            String head = revParse("HEAD");
+            assertEquals(head, GitObjectDatabase.toHex(database.resolve(head.substring(0, 7))));
+        }
+    }
+    
+    @Test
+    public void annotatedTagIsPeeled() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            byte[] tag = database.resolve("v1");
+            assertEquals(GitObject.TAG, database.read(tag).getType());
+            assertEquals(revParse("HEAD~1"), GitObjectDatabase.toHex(database.resolveCommit("v1")));
+            assertEquals(revParse("v1~2"), GitObjectDatabase.toHex(database.resolve("v1~2")));
+        }
+    }
+    
+    @Test
+    public void readsCommits() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            GitCommit head = database.readCommit(database.resolve("HEAD"));
+            assertEquals(revParse("HEAD^{tree}"), GitObjectDatabase.toHex(head.getTree()));
+            List<byte[]> parents = head.getParents();
+            assertEquals(1, parents.size());
+            assertEquals(revParse("HEAD~1"), GitObjectDatabase.toHex(parents.get(0)));
+            
+            GitCommit root = database.readCommit(database.resolve("HEAD~3"));
+            assertTrue(root.getParents().isEmpty());
+        }
+    }
+    
+    @Test
+    public void walkTreeMatchesLsTree() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            for (String revision : REVISIONS) {
+                Map<String, String> files = walk(database, revision, "");
+                assertEquals(revision, GitTestRepository.listFiles(repository, revision, ""), files);
+            }
+        }
+    }
+    
+    @Test
+    public void walkTreeSkipsSymlinksAndGitlinks() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            Map<String, String> files = walk(database, "HEAD", "");
+            assertTrue(files.containsKey("src/main.c"));
+            assertFalse(files.containsKey("src/link.c"));
+            assertFalse(files.containsKey("vendor/module"));
+            
+            List<String> names = new ArrayList<>();
+            database.listTree(database.resolveTree("HEAD"), (name, directory, id) -> {
+                names.add(name + (directory ? "/" : ""));
+            });
+            assertEquals(Arrays.asList("README.md", "lib/", "src/"), names);
+        }
+    }
+    
+    @Test
+    public void walkTreeWithPrefix() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            assertEquals(GitTestRepository.listFiles(repository, "HEAD", "src"), walk(database, "HEAD", "src"));
+            assertEquals(GitTestRepository.listFiles(repository, "HEAD~3", "src/util"),
+                    walk(database, "HEAD~3", "src/util"));
+            assertTrue(walk(database, "HEAD", "missing").isEmpty());
+        }
+    }
+    
+    @Test
+    public void blobContentMatchesGit() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(repository)) {
+            for (String revision : REVISIONS) {
+                for (Map.Entry<String, String> file : walk(database, revision, "").entrySet()) {
+                    GitObject blob = database.read(GitObjectDatabase.fromHex(file.getValue()));
+                    assertEquals(GitObject.BLOB, blob.getType());
+                    assertArrayEquals(revision + ":" + file.getKey(),
+                            GitTestRepository.gitBytes(repository, "cat-file", "blob", file.getValue()),
+                            blob.getData());
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void opensFromSubdirectoryAndGitDirectory() throws IOException {
+        try (GitObjectDatabase database = GitObjectDatabase.open(new File(repository, "src/util"))) {
+            assertEquals(repository.getCanonicalFile(), database.getWorkTree().getCanonicalFile());
+            assertEquals(revParse("HEAD"), GitObjectDatabase.toHex(database.resolve("HEAD")));
+        }
+        try (GitObjectDatabase database = GitObjectDatabase.open(new File(repository, ".git"))) {
+            assertNull(database.getWorkTree());
+            assertEquals(revParse("HEAD"), GitObjectDatabase.toHex(database.resolve("HEAD")));
+        }
+    }
+    
+    private String revParse(String revision) throws IOException {
+        return GitTestRepository.git(repository, "rev-parse", revision).trim();
+    }
+    
+    private static Map<String, String> walk(GitObjectDatabase database, String revision, String prefix)
+            throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        database.walkTree(database.resolveTree(revision), prefix,
+                (path, blobId) -> files.put(path, GitObjectDatabase.toHex(blobId)));
+        return files;
+    }
+}
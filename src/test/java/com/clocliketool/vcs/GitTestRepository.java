@@ -0,0 +1,188 @@
+package com.clocliketool.vcs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 测试用的git仓库，通过git命令行构造
+ * 仓库包含多次提交、附注标签、子目录、符号链接和子模块（gitlink）条目，
+ * 同一文件的多个版本内容相近，打包后会产生差异对象。
+ */
+public final class GitTestRepository {
+    
+    private GitTestRepository() {
+    }
+    
+    /**
+     * 判断git命令是否可用
+     */
+    public static boolean isGitAvailable() {
+        try {
+            Process process = new ProcessBuilder("git", "--version").redirectErrorStream(true).start();
+            readFully(process.getInputStream());
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * 在指定目录中创建仓库，所有对象都是松散对象
+     * 第一父提交依次为：初始提交、修改C文件、加入符号链接和子模块并打附注标签v1、修改Ruby文件
+     * 
+     * @param directory 仓库的工作区目录，不存在时创建
+     * @return 工作区目录
+     */
+    public static File create(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        git(directory, "init", "-q", "--initial-branch=master");
+        
+        write(directory, "src/main.c", cSource(0));
+        write(directory, "src/util/helper.h", "#ifndef HELPER_H\n#define HELPER_H\n\n/* 辅助函数 */\nint helper(void);\n\n#endif\n");
+        write(directory, "lib/tool.rb", rubySource(0));
+        write(directory, "README.md", "# fixture\n");
+        commit(directory, "initial");
+        
+        write(directory, "src/main.c", cSource(1));
+        write(directory, "src/util/extra.cpp", cSource(2));
+        commit(directory, "second");
+        
+        Files.createSymbolicLink(new File(directory, "src/link.c").toPath(), new File("main.c").toPath());
+        String head = git(directory, "rev-parse", "HEAD").trim();
+        git(directory, "update-index", "--add", "--cacheinfo", "160000," + head + ",vendor/module");
+        write(directory, "src/main.c", cSource(3));
+        commit(directory, "third");
+        git(directory, "-c", "user.name=test", "-c", "user.email=test@example.com",
+                "tag", "-a", "v1", "-m", "release");
+        
+        write(directory, "lib/tool.rb", rubySource(1));
+        write(directory, "src/util/extra.cpp", cSource(4));
+        commit(directory, "fourth");
+        return directory;
+    }
+    
+    /**
+     * 执行git命令
+     * 
+     * @return 标准输出
+     * @throws IOException 如果命令失败
+     */
+    public static String git(File directory, String... args) throws IOException {
+        return new String(gitBytes(directory, args), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 执行git命令并返回原始的标准输出
+     */
+    public static byte[] gitBytes(File directory, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(command).directory(directory);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put("GIT_CONFIG_NOSYSTEM", "1");
+        builder.environment().put("GIT_CONFIG_GLOBAL", "/dev/null");
+        Process process = builder.start();
+        byte[] output = readFully(process.getInputStream());
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("git命令失败: " + command);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("git命令被中断: " + command, e);
+        }
+        return output;
+    }
+    
+    /**
+     * 列出版本中的普通文件，与git ls-tree的结果一致，跳过符号链接和子模块
+     * 
+     * @param prefix 只列出该目录中的文件，为空时列出整棵树
+     * @return 以"/"分隔的路径到对象ID的映射
+     */
+    public static Map<String, String> listFiles(File directory, String revision, String prefix) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        String output = git(directory, "ls-tree", "-r", "-z", "--full-tree", revision);
+        for (String entry : output.split("\0")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int tab = entry.indexOf('\t');
+            String[] fields = entry.substring(0, tab).split(" ");
+            String path = entry.substring(tab + 1);
+            boolean regular = fields[0].equals("100644") || fields[0].equals("100755");
+            if (regular && (prefix.isEmpty() || path.startsWith(prefix + "/"))) {
+                files.put(path, fields[2]);
+            }
+        }
+        return files;
+    }
+    
+    /**
+     * 把版本检出到新的工作区
+     */
+    public static File checkout(File directory, String revision, File target) throws IOException {
+        git(directory, "worktree", "add", "-q", "--detach", target.getAbsolutePath(), revision);
+        return target;
+    }
+    
+    private static void commit(File directory, String message) throws IOException {
+        git(directory, "add", "-A");
+        git(directory, "-c", "user.name=test", "-c", "user.email=test@example.com", "-c", "commit.gpgsign=false",
+                "commit", "-q", "-m", message);
+    }
+    
+    private static void write(File directory, String path, String content) throws IOException {
+        File file = new File(directory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 生成C源码，不同版本只修改少量行，打包时会被存为差异对象
+     */
+    private static String cSource(int version) {
+        StringBuilder source = new StringBuilder("#include <stdio.h>\n\n/*\n * 版本 ").append(version).append("\n */\n");
+        for (int i = 0; i < 60; i++) {
+            source.append("\n// 函数").append(i).append('\n');
+            source.append("int f").append(i).append("(int x) {\n");
+            source.append("    return x * ").append(i % 7 == version ? i + version : i).append("; /* 结果 */\n");
+            source.append("}\n");
+        }
+        return source.toString();
+    }
+    
+    private static String rubySource(int version) {
+        StringBuilder source = new StringBuilder("# 工具\nmodule Tool\n");
+        for (int i = 0; i < 40; i++) {
+            source.append("  # 方法").append(i).append('\n');
+            source.append("  def m").append(i).append("(x)\n");
+            source.append("    x + ").append(i % 5 == version ? i * 2 : i).append(" # 加法\n");
+            source.append("  end\n\n");
+        }
+        return source.append("end\n").toString();
+    }
+    
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
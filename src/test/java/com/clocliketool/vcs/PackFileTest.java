@@ -0,0 +1,73 @@
+package com.clocliketool.vcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * PackFile差异应用的测试
+ */
+public class PackFileTest {
+    
+    private static final byte[] BASE = "hello, delta world".getBytes(StandardCharsets.US_ASCII);
+    
+    @Test
+    public void appliesCopyAndInsert() throws IOException {
+        // 复制"hello"，插入"!"，再复制" world"
+        byte[] delta = {18, 12, (byte) 0x90, 5, 1, '!', (byte) 0x91, 12, 6};
+        assertArrayEquals("hello! world".getBytes(StandardCharsets.US_ASCII), PackFile.applyDelta(BASE, delta));
+    }
+    
+    @Test
+    public void rejectsTruncatedCopyOperand() {
+        // 复制指令声明了偏移和长度各一个字节，但差异在偏移之后结束
+        assertInvalid(new byte[] {18, 5, (byte) 0x91, 0});
+        assertInvalid(new byte[] {18, 5, (byte) 0x91});
+    }
+    
+    @Test
+    public void rejectsCopyOutsideBase() {
+        assertInvalid(new byte[] {18, 5, (byte) 0x91, 16, 5});
+        assertInvalid(new byte[] {18, 5, (byte) 0x98, (byte) 0xFF, 5});
+    }
+    
+    @Test
+    public void rejectsOverlongResult() {
+        assertInvalid(new byte[] {18, 3, (byte) 0x90, 5});
+        assertInvalid(new byte[] {18, 3, 4, 'a', 'b', 'c', 'd'});
+    }
+    
+    @Test
+    public void rejectsTruncatedInsert() {
+        assertInvalid(new byte[] {18, 4, 4, 'a', 'b'});
+    }
+    
+    @Test
+    public void rejectsShortResult() {
+        assertInvalid(new byte[] {18, 6, (byte) 0x90, 5});
+    }
+    
+    @Test
+    public void rejectsWrongBaseSize() {
+        assertInvalid(new byte[] {17, 5, (byte) 0x90, 5});
+        assertInvalid(new byte[] {(byte) 0x92});
+    }
+    
+    @Test
+    public void rejectsReservedOpcode() {
+        assertInvalid(new byte[] {18, 1, 0});
+    }
+    
+    private static void assertInvalid(byte[] delta) {
+        try {
+            PackFile.applyDelta(BASE, delta);
+            fail("应当拒绝无效的差异");
+        } catch (IOException e) {
+            // 预期的异常
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.codeanalyzer.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.codeanalyzer.core.LineCounter;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * CodeParser默认方法的测试
+ */
+public class CodeParserTest {
+    
+    private static final String SOURCE = "int a;\n\n// note\n/* block\n   end */\nint b; // tail\n";
+    
+    @Test
+    public void charSequenceMatchesString() throws IOException {
+        CPPParser parser = new CPPParser();
+        LineCounter expected = parser.parse(SOURCE);
+        assertCounts(expected, parser.parse(new StringBuilder(SOURCE)));
+        assertCounts(expected, parser.parse(CharBuffer.wrap(SOURCE)));
+        assertEquals(2, expected.getCodeLines());
+        assertEquals(3, expected.getCommentLines());
+        assertEquals(1, expected.getBlankLines());
+    }
+    
+    @Test
+    public void byteBufferKeepsPosition() throws IOException {
+        CPPParser parser = new CPPParser();
+        byte[] bytes = ("xx" + SOURCE).getBytes(Charset.defaultCharset());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(2);
+        
+        assertCounts(parser.parse(SOURCE), parser.parse(buffer));
+        assertEquals(2, buffer.position());
+        assertEquals(bytes.length, buffer.limit());
+    }
+    
+    @Test
+    public void charSequenceReaderReadsInChunks() throws IOException {
+        CharSequenceReader reader = new CharSequenceReader(new StringBuilder("abcdef"));
+        char[] chunk = new char[4];
+        assertEquals(4, reader.read(chunk, 0, 4));
+        assertArrayEquals("abcd".toCharArray(), chunk);
+        assertEquals(2, reader.read(chunk, 1, 3));
+        assertArrayEquals("aefd".toCharArray(), chunk);
+        assertEquals(-1, reader.read(chunk, 0, 4));
+    }
+    
+    @Test
+    public void fileOnlyImplementorStillWorks() throws IOException {
+        CodeParser legacy = new CodeParser() {
+            @Override
+            public LineCounter parseFile(File file) throws IOException {
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    LineCounter counter = new LineCounter();
+                    while (reader.readLine() != null) {
+                        counter.addCodeLine();
+                    }
+                    return counter;
+                }
+            }
+            
+            @Override
+            public String[] getSupportedExtensions() {
+                return new String[] {"txt"};
+            }
+        };
+        
+        assertEquals(6, legacy.parse(SOURCE).getCodeLines());
+        assertEquals(6, legacy.parse(ByteBuffer.wrap(SOURCE.getBytes(Charset.defaultCharset()))).getCodeLines());
+    }
+    
+    private static void assertCounts(LineCounter expected, LineCounter actual) {
+        assertEquals(expected.getCodeLines(), actual.getCodeLines());
+        assertEquals(expected.getCommentLines(), actual.getCommentLines());
+        assertEquals(expected.getBlankLines(), actual.getBlankLines());
+    }
+}
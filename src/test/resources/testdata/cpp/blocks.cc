@@ -0,0 +1,26 @@
+/* 单行的块注释 */
+
+/*
+   多行的块注释
+
+   中间有空行
+*/
+int a = 1;
+
+/**
+ * 文档注释
+ * @param x 参数
+ */
+int square(int x) {
+    return x * x; /* 返回平方
+                     跨行的行尾注释 */
+}
+
+    /* 缩进的块注释
+     * 第二行
+     */
+int b = 2;
+//
+///
+//// 多个斜杠
+int c = 3; // 行尾注释 /* 不开始块注释
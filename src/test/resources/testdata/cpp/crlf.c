@@ -0,0 +1,7 @@
+int main(void)
+{
+    // CRLF
+
+    return 0; /* done */
+}
+/* 结尾没有换行 */
\ No newline at end of file
@@ -0,0 +1,48 @@
+/*
+ * 单向链表
+ *
+ * 提供插入、查找和释放操作。
+ */
+#include <stdlib.h>
+#include <string.h>
+
+// 链表节点
+struct node {
+    int value;          // 节点的值
+    struct node *next;  /* 下一个节点 */
+};
+
+/**
+ * 在表头插入节点
+ */
+struct node *push(struct node *head, int value)
+{
+    struct node *n = malloc(sizeof(*n));
+    if (n == NULL) {
+        return head;
+    }
+    n->value = value;
+    n->next = head;
+    return n;
+}
+
+	
+// 查找第一个值等于value的节点
+struct node *find(struct node *head, int value)
+{
+    for (; head != NULL; head = head->next) {
+        if (head->value == value) {
+            return head;
+        }
+    }
+    return NULL;
+}
+
+void release(struct node *head)
+{
+    while (head != NULL) {
+        struct node *next = head->next;
+        free(head);
+        head = next;
+    }
+}
@@ -0,0 +1,8 @@
+/* 本文件包含同一行里注释之后还有代码的写法 */
+/* 标志 */ int flag = 0;
+/*
+ * 多行注释结束后紧跟代码
+ */ int after = 1;
+int plain = 2;
+/* a */ /* b */
+/* c */ int d = 3; // 结尾
@@ -0,0 +1,37 @@
+// 字符串中的注释标记不开始注释
+#include <iostream>
+#include <string>
+
+namespace demo {
+
+const char *URL = "http://example.com/*path*/";
+const char *PATTERN = "a // b";
+const char QUOTE = '"';
+const char SLASH = '/';
+const char ESCAPED[] = "say \"hi\" // still a string";
+
+    // 缩进的单行注释
+class Printer {
+public:
+    /* 构造函数 */
+    Printer() : count_(0) {}
+
+    void print(const std::string &text) {
+        std::cout << text << std::endl; // 输出
+        count_++;   /* 计数 */
+    }
+
+    int count() const { return count_; }
+
+private:
+    int count_;
+};
+
+}  // namespace demo
+
+int main() {
+    demo::Printer p;
+    p.print("/* not a comment */");
+    p.print("end");
+    return p.count() == 2 ? 0 : 1;
+}